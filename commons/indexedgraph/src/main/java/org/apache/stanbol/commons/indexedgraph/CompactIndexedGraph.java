@@ -0,0 +1,504 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.stanbol.commons.indexedgraph;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.clerezza.commons.rdf.BlankNodeOrIRI;
+import org.apache.clerezza.commons.rdf.Graph;
+import org.apache.clerezza.commons.rdf.IRI;
+import org.apache.clerezza.commons.rdf.ImmutableGraph;
+import org.apache.clerezza.commons.rdf.RDFTerm;
+import org.apache.clerezza.commons.rdf.Triple;
+import org.apache.clerezza.commons.rdf.impl.utils.AbstractGraph;
+import org.apache.clerezza.commons.rdf.impl.utils.AbstractImmutableGraph;
+
+/**
+ * Dictionary encoded {@link Graph} implementation that stores triples in
+ * primitive <code>int</code> arrays.<p>
+ * All {@link RDFTerm}s are interned to <code>int</code> ids. Triples are
+ * stored as id triples in a single <code>int[]</code> in the order they
+ * where added. For each term a posting list with the positions of the
+ * triples using the term as subject, predicate or object is kept. An open
+ * addressing hash table over the id triples is used to detect duplicates and
+ * to answer fully bound [S,P,O] patterns.<p>
+ * The {@link #filter(BlankNodeOrIRI, IRI, RDFTerm)} implementation uses
+ * the shortest posting list of the bound terms and checks the other bound
+ * positions by comparing ids. Different to the {@link IndexedGraph} no
+ * {@link Triple} comparisons are needed on insertion and the memory
+ * required per triple is much lower as no tree nodes are created.<p>
+ * Removed triples are only marked as deleted. The internal arrays are
+ * compacted by the next add operation after more than half of the stored
+ * triples where removed.<p>
+ * Iterators are fail fast and support {@link Iterator#remove()}. Returned
+ * triples are the instances parsed to {@link #add(Triple)}. Terms are
+ * required to correctly implement {@link Object#hashCode() hashCode} and
+ * {@link Object#equals(Object) equals}.<p>
+ * Like the {@link IndexedGraph} this implementation is not thread safe.
+ * Use the {@link #getLock() lock} to synchronise access.
+ *
+ * @see IndexedGraph
+ */
+public class CompactIndexedGraph extends AbstractGraph implements Graph {
+
+    private static final int SUBJECT = 0;
+    private static final int PREDICATE = 1;
+    private static final int OBJECT = 2;
+    /**
+     * Used to mark the subject of removed triples
+     */
+    private static final int REMOVED = -1;
+    /**
+     * Marks unbound positions of filter patterns
+     */
+    private static final int ANY = -1;
+
+    private static final int MIN_COMPACT_SIZE = 32;
+
+    /**
+     * Maps the {@link RDFTerm}s to their ids
+     */
+    private final Map<RDFTerm,Integer> termIds = new HashMap<RDFTerm,Integer>();
+    /**
+     * The number of ids assigned
+     */
+    private int termCount;
+    /**
+     * The id triples. The triple stored at position <code>i</code> uses
+     * the indexes <code>[3i..3i+2]</code>
+     */
+    private int[] spo;
+    /**
+     * The triple instances (<code>null</code> for removed triples)
+     */
+    private Triple[] triples;
+    /**
+     * The number of used triple positions (including removed triples)
+     */
+    private int tripleCount;
+    /**
+     * The number of removed triples
+     */
+    private int removedCount;
+    /**
+     * Posting lists for the subject, predicate and object positions. The
+     * first index is the position, the second the term id.
+     */
+    private int[][][] postings;
+    /**
+     * The number of entries in the {@link #postings}
+     */
+    private int[][] postingSizes;
+    /**
+     * Open addressing hash table over the id triples. Values are the triple
+     * position <code>+ 1</code> so that <code>0</code> marks free slots.
+     * Entries pointing to removed triples are reused on insertion.
+     */
+    private int[] table;
+    /**
+     * Modification counter used by the fail fast iterators
+     */
+    private int modCount;
+
+    /**
+     * Creates an empty {@link CompactIndexedGraph}
+     */
+    public CompactIndexedGraph() {
+        super();
+        init(16);
+    }
+
+    /**
+     * Creates a {@link CompactIndexedGraph} using the passed iterator, the
+     * iterator is consumed before the constructor returns
+     *
+     * @param iterator Triple Iterator
+     */
+    public CompactIndexedGraph(Iterator<Triple> iterator) {
+        this();
+        while (iterator.hasNext()) {
+            performAdd(iterator.next());
+        }
+    }
+
+    /**
+     * Creates a {@link CompactIndexedGraph} for the specified collection of
+     * triples, subsequent modification of baseSet do not affect the created
+     * instance.
+     *
+     * @param baseCollection collection of triples
+     */
+    public CompactIndexedGraph(Collection<Triple> baseCollection) {
+        super();
+        init(Math.max(16, baseCollection.size()));
+        for (Triple triple : baseCollection) {
+            performAdd(triple);
+        }
+    }
+
+    private void init(int capacity) {
+        termIds.clear();
+        termCount = 0;
+        spo = new int[capacity * 3];
+        triples = new Triple[capacity];
+        tripleCount = 0;
+        removedCount = 0;
+        postings = new int[3][capacity][];
+        postingSizes = new int[3][capacity];
+        table = new int[tableSize(capacity)];
+    }
+
+    private static int tableSize(int capacity) {
+        int size = 32;
+        while (size < capacity * 2) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    @Override
+    public ImmutableGraph getImmutableGraph() {
+        return new CompactIndexedImmutableGraph(this);
+    }
+
+    @Override
+    protected Iterator<Triple> performFilter(BlankNodeOrIRI subject, IRI predicate, RDFTerm object) {
+        int s = ANY, p = ANY, o = ANY;
+        if (subject != null && (s = getId(subject)) < 0) {
+            return new TripleIterator(null, 0, ANY, ANY, ANY);
+        }
+        if (predicate != null && (p = getId(predicate)) < 0) {
+            return new TripleIterator(null, 0, ANY, ANY, ANY);
+        }
+        if (object != null && (o = getId(object)) < 0) {
+            return new TripleIterator(null, 0, ANY, ANY, ANY);
+        }
+        if (s != ANY && p != ANY && o != ANY) { //[S,P,O]
+            int index = find(s, p, o);
+            return index < 0 ? new TripleIterator(null, 0, ANY, ANY, ANY)
+                    : new TripleIterator(new int[]{index}, 1, ANY, ANY, ANY);
+        }
+        if (s == ANY && p == ANY && o == ANY) { //[n,n,n]
+            return new TripleIterator(null, tripleCount, ANY, ANY, ANY);
+        }
+        //use the shortest posting list of the bound terms
+        int position = -1;
+        int size = Integer.MAX_VALUE;
+        if (s != ANY) {
+            position = SUBJECT;
+            size = postingSizes[SUBJECT][s];
+        }
+        if (p != ANY && postingSizes[PREDICATE][p] < size) {
+            position = PREDICATE;
+            size = postingSizes[PREDICATE][p];
+        }
+        if (o != ANY && postingSizes[OBJECT][o] < size) {
+            position = OBJECT;
+            size = postingSizes[OBJECT][o];
+        }
+        int term = position == SUBJECT ? s : position == PREDICATE ? p : o;
+        return new TripleIterator(postings[position][term], size,
+            position == SUBJECT ? ANY : s,
+            position == PREDICATE ? ANY : p,
+            position == OBJECT ? ANY : o);
+    }
+
+    @Override
+    protected boolean performAdd(Triple triple) {
+        if (removedCount > MIN_COMPACT_SIZE && removedCount * 2 > tripleCount) {
+            compact();
+        }
+        int s = intern(triple.getSubject());
+        int p = intern(triple.getPredicate());
+        int o = intern(triple.getObject());
+        int mask = table.length - 1;
+        int slot = hash(s, p, o) & mask;
+        int free = -1;
+        for (int entry = table[slot]; entry != 0; entry = table[slot]) {
+            int index = entry - 1;
+            if (spo[index * 3] == REMOVED) {
+                if (free < 0) {
+                    free = slot;
+                }
+            } else if (matches(index, s, p, o)) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int index = tripleCount;
+        if (index == triples.length) {
+            int capacity = triples.length * 2;
+            triples = Arrays.copyOf(triples, capacity);
+            spo = Arrays.copyOf(spo, capacity * 3);
+        }
+        triples[index] = triple;
+        spo[index * 3] = s;
+        spo[index * 3 + 1] = p;
+        spo[index * 3 + 2] = o;
+        tripleCount++;
+        addPosting(SUBJECT, s, index);
+        addPosting(PREDICATE, p, index);
+        addPosting(OBJECT, o, index);
+        table[free < 0 ? slot : free] = index + 1;
+        if (tripleCount * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        modCount++;
+        return true;
+    }
+
+    @Override
+    protected boolean performRemove(Object o) {
+        if (o instanceof Triple) {
+            int index = find((Triple) o);
+            if (index >= 0) {
+                remove(index);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected boolean performContains(Object o) {
+        return o instanceof Triple && find((Triple) o) >= 0;
+    }
+
+    @Override
+    protected void performClear() {
+        init(16);
+        modCount++;
+    }
+
+    @Override
+    public int performSize() {
+        return tripleCount - removedCount;
+    }
+
+    /**
+     * Getter for the id of a term
+     * @return the id or <code>-1</code> if the term is not known
+     */
+    private int getId(RDFTerm term) {
+        Integer id = termIds.get(term);
+        return id == null ? -1 : id.intValue();
+    }
+
+    private int intern(RDFTerm term) {
+        Integer id = termIds.get(term);
+        if (id != null) {
+            return id.intValue();
+        }
+        int newId = termCount++;
+        if (newId == postingSizes[SUBJECT].length) {
+            int capacity = newId * 2;
+            for (int i = 0; i < 3; i++) {
+                postings[i] = Arrays.copyOf(postings[i], capacity);
+                postingSizes[i] = Arrays.copyOf(postingSizes[i], capacity);
+            }
+        }
+        termIds.put(term, newId);
+        return newId;
+    }
+
+    private void addPosting(int position, int term, int index) {
+        int[] list = postings[position][term];
+        int size = postingSizes[position][term];
+        if (list == null) {
+            list = new int[2];
+            postings[position][term] = list;
+        } else if (size == list.length) {
+            list = Arrays.copyOf(list, size * 2);
+            postings[position][term] = list;
+        }
+        list[size] = index;
+        postingSizes[position][term] = size + 1;
+    }
+
+    private static int hash(int s, int p, int o) {
+        int h = (s * 31 + p) * 31 + o;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    private boolean matches(int index, int s, int p, int o) {
+        int i = index * 3;
+        return spo[i] == s && spo[i + 1] == p && spo[i + 2] == o;
+    }
+
+    private int find(Triple triple) {
+        int s = getId(triple.getSubject());
+        int p = s < 0 ? -1 : getId(triple.getPredicate());
+        int o = p < 0 ? -1 : getId(triple.getObject());
+        return o < 0 ? -1 : find(s, p, o);
+    }
+
+    /**
+     * Looks up the position of the triple with the parsed ids
+     * @return the position or <code>-1</code> if not present
+     */
+    private int find(int s, int p, int o) {
+        int mask = table.length - 1;
+        for (int slot = hash(s, p, o) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int index = table[slot] - 1;
+            if (matches(index, s, p, o)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private void remove(int index) {
+        triples[index] = null;
+        spo[index * 3] = REMOVED;
+        removedCount++;
+        modCount++;
+    }
+
+    private void rehash(int size) {
+        int[] newTable = new int[size];
+        int mask = size - 1;
+        for (int index = 0; index < tripleCount; index++) {
+            int i = index * 3;
+            if (spo[i] != REMOVED) {
+                int slot = hash(spo[i], spo[i + 1], spo[i + 2]) & mask;
+                while (newTable[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                newTable[slot] = index + 1;
+            }
+        }
+        table = newTable;
+    }
+
+    /**
+     * Rebuilds all internal data structures without removed triples and
+     * unused terms
+     */
+    private void compact() {
+        Triple[] current = triples;
+        int count = tripleCount;
+        init(Math.max(16, count - removedCount));
+        for (int i = 0; i < count; i++) {
+            if (current[i] != null) {
+                performAdd(current[i]);
+            }
+        }
+    }
+
+    /**
+     * Iterates over triple positions and returns all not removed triples
+     * that match the bound ids.
+     */
+    private final class TripleIterator implements Iterator<Triple> {
+
+        /**
+         * The triple positions or <code>null</code> to iterate over all
+         * positions <code>[0..size)</code>
+         */
+        private final int[] indexes;
+        private final int size;
+        private final int s;
+        private final int p;
+        private final int o;
+        private int expectedModCount = modCount;
+        private int pos = 0;
+        private int next = -1;
+        private int current = -1;
+
+        TripleIterator(int[] indexes, int size, int s, int p, int o) {
+            this.indexes = indexes;
+            this.size = size;
+            this.s = s;
+            this.p = p;
+            this.o = o;
+        }
+
+        @Override
+        public boolean hasNext() {
+            checkForComodification();
+            while (next < 0 && pos < size) {
+                int index = indexes == null ? pos : indexes[pos];
+                pos++;
+                int i = index * 3;
+                if (spo[i] != REMOVED && (s == ANY || spo[i] == s)
+                        && (p == ANY || spo[i + 1] == p)
+                        && (o == ANY || spo[i + 2] == o)) {
+                    next = index;
+                }
+            }
+            return next >= 0;
+        }
+
+        @Override
+        public Triple next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            next = -1;
+            return triples[current];
+        }
+
+        @Override
+        public void remove() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            CompactIndexedGraph.this.remove(current);
+            current = -1;
+            expectedModCount = modCount;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * {@link ImmutableGraph} backed by a copy of a {@link CompactIndexedGraph}
+     */
+    private static final class CompactIndexedImmutableGraph extends AbstractImmutableGraph {
+
+        private final Graph graph;
+
+        CompactIndexedImmutableGraph(Graph graph) {
+            this.graph = new CompactIndexedGraph(graph);
+        }
+
+        @Override
+        protected Iterator<Triple> performFilter(BlankNodeOrIRI subject, IRI predicate, RDFTerm object) {
+            return graph.filter(subject, predicate, object);
+        }
+
+        @Override
+        public int performSize() {
+            return graph.size();
+        }
+    }
+}
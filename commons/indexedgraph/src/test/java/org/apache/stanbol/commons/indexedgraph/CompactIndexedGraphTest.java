@@ -0,0 +1,155 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.commons.indexedgraph;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.apache.clerezza.commons.rdf.BlankNode;
+import org.apache.clerezza.commons.rdf.Graph;
+import org.apache.clerezza.commons.rdf.IRI;
+import org.apache.clerezza.commons.rdf.Triple;
+import org.apache.clerezza.commons.rdf.impl.utils.PlainLiteralImpl;
+import org.apache.clerezza.commons.rdf.impl.utils.TripleImpl;
+import org.apache.clerezza.rdf.core.test.GraphTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompactIndexedGraphTest extends GraphTest {
+
+    private IRI uriRef1 = new IRI("http://example.org/foo");
+    private IRI uriRef2 = new IRI("http://example.org/bar");
+    private IRI uriRef3 = new IRI("http://example.org/test");
+    private Triple triple1 = new TripleImpl(uriRef1, uriRef2, uriRef3);
+    private Triple triple2 = new TripleImpl(uriRef2, uriRef2, uriRef1);
+    private Triple triple3 = new TripleImpl(uriRef3, uriRef1, uriRef3);
+    private Triple triple4 = new TripleImpl(uriRef1, uriRef3, uriRef2);
+    private Triple triple5 = new TripleImpl(uriRef2, uriRef3, uriRef2);
+
+    @Override
+    protected Graph getEmptyGraph() {
+        return new CompactIndexedGraph();
+    }
+
+    private Graph createGraph() {
+        Graph graph = getEmptyGraph();
+        graph.add(triple1);
+        graph.add(triple2);
+        graph.add(triple3);
+        graph.add(triple4);
+        graph.add(triple5);
+        return graph;
+    }
+
+    @Test
+    public void filterPatterns() {
+        Graph graph = createGraph();
+        Assert.assertEquals(5, graph.size());
+        Assert.assertFalse(graph.add(new TripleImpl(uriRef1, uriRef2, uriRef3)));
+        Assert.assertEquals(2, count(graph.filter(uriRef1, null, null)));
+        Assert.assertEquals(1, count(graph.filter(uriRef1, uriRef3, null)));
+        Assert.assertEquals(2, count(graph.filter(null, uriRef3, uriRef2)));
+        Assert.assertEquals(2, count(graph.filter(null, null, uriRef3)));
+        Assert.assertEquals(1, count(graph.filter(uriRef3, null, uriRef3)));
+        Assert.assertEquals(1, count(graph.filter(uriRef2, uriRef2, uriRef1)));
+        Assert.assertEquals(0, count(graph.filter(uriRef2, uriRef2, uriRef2)));
+        Assert.assertEquals(0, count(graph.filter(new BlankNode(), null, null)));
+        Assert.assertEquals(5, count(graph.filter(null, null, null)));
+        Assert.assertTrue(graph.contains(triple4));
+    }
+
+    @Test
+    public void iteratorRemove() {
+        Graph graph = createGraph();
+        Iterator<Triple> iter = graph.iterator();
+        while (iter.hasNext()) {
+            iter.next();
+            iter.remove();
+        }
+        Assert.assertEquals(0, graph.size());
+        Assert.assertFalse(graph.filter(null, null, null).hasNext());
+    }
+
+    @Test
+    public void filterIteratorRemove() {
+        Graph graph = createGraph();
+        Iterator<Triple> iter = graph.filter(uriRef1, null, null);
+        while (iter.hasNext()) {
+            iter.next();
+            iter.remove();
+        }
+        Assert.assertEquals(3, graph.size());
+        Assert.assertFalse(graph.contains(triple1));
+        Assert.assertTrue(graph.add(triple1));
+        Assert.assertEquals(1, count(graph.filter(uriRef1, null, null)));
+    }
+
+    @Test(expected=ConcurrentModificationException.class)
+    public void remove() {
+        Graph graph = createGraph();
+        Iterator<Triple> iter = graph.filter(uriRef1, null, null);
+        while (iter.hasNext()) {
+            Triple triple = iter.next();
+            graph.remove(triple);
+        }
+    }
+
+    /**
+     * Removes and adds enough triples to trigger the compaction of the
+     * internal data structures
+     */
+    @Test
+    public void compaction() {
+        Graph graph = getEmptyGraph();
+        Set<Triple> expected = new HashSet<Triple>();
+        for (int i = 0; i < 1000; i++) {
+            Triple triple = new TripleImpl(new IRI("http://example.org/s" + (i % 100)),
+                i % 2 == 0 ? uriRef1 : uriRef2, new PlainLiteralImpl("value " + i));
+            graph.add(triple);
+            expected.add(triple);
+        }
+        Iterator<Triple> it = graph.filter(null, uriRef1, null);
+        while (it.hasNext()) {
+            expected.remove(it.next());
+            it.remove();
+        }
+        for (int i = 0; i < 300; i++) {
+            Triple triple = new TripleImpl(new IRI("http://example.org/s" + (i % 100)),
+                uriRef3, new PlainLiteralImpl("value " + i));
+            graph.add(triple);
+            expected.add(triple);
+        }
+        Assert.assertEquals(expected.size(), graph.size());
+        Assert.assertEquals(0, count(graph.filter(null, uriRef1, null)));
+        Assert.assertEquals(500, count(graph.filter(null, uriRef2, null)));
+        Assert.assertEquals(13, count(graph.filter(new IRI("http://example.org/s1"), null, null)));
+        for (Triple triple : expected) {
+            Assert.assertTrue(graph.contains(triple));
+        }
+    }
+
+    private static int count(Iterator<Triple> it) {
+        int count = 0;
+        while (it.hasNext()) {
+            it.next();
+            count++;
+        }
+        return count;
+    }
+}
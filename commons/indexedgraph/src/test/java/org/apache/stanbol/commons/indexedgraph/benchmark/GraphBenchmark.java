@@ -0,0 +1,177 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.commons.indexedgraph.benchmark;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.clerezza.commons.rdf.BlankNode;
+import org.apache.clerezza.commons.rdf.BlankNodeOrIRI;
+import org.apache.clerezza.commons.rdf.Graph;
+import org.apache.clerezza.commons.rdf.IRI;
+import org.apache.clerezza.commons.rdf.Language;
+import org.apache.clerezza.commons.rdf.RDFTerm;
+import org.apache.clerezza.commons.rdf.Triple;
+import org.apache.clerezza.commons.rdf.impl.utils.PlainLiteralImpl;
+import org.apache.clerezza.commons.rdf.impl.utils.TripleImpl;
+import org.apache.clerezza.rdf.core.LiteralFactory;
+import org.apache.stanbol.commons.indexedgraph.CompactIndexedGraph;
+import org.apache.stanbol.commons.indexedgraph.IndexedGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH comparison of the {@link IndexedGraph} and the
+ * {@link CompactIndexedGraph} for adding, filtering and iterating triples.
+ * The generated data are similar to the metadata of an enhanced
+ * ContentItem (a few hundred resources with type, label, offset and
+ * confidence values).<p>
+ * Run with <code>mvn clean test-compile exec:exec -Pjmh</code>. Results are
+ * written to <code>target/jmh-result.json</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphBenchmark {
+
+    private static final String NS = "http://www.example.org/enhancer/";
+    private static final IRI TYPE = new IRI("http://www.w3.org/1999/02/22-rdf-syntax-ns#type");
+    private static final IRI LABEL = new IRI(NS + "label");
+    private static final IRI START = new IRI(NS + "start");
+    private static final IRI END = new IRI(NS + "end");
+    private static final IRI CONFIDENCE = new IRI(NS + "confidence");
+    private static final IRI RELATION = new IRI(NS + "relation");
+    private static final IRI[] TYPES = new IRI[]{
+        new IRI(NS + "TextAnnotation"), new IRI(NS + "EntityAnnotation"),
+        new IRI(NS + "TopicAnnotation")};
+
+    @Param({"IndexedGraph", "CompactIndexedGraph"})
+    public String implementation;
+
+    @Param({"1000", "50000"})
+    public int size;
+
+    private List<Triple> triples;
+    private List<BlankNodeOrIRI> subjects;
+    private List<RDFTerm> objects;
+    private Graph graph;
+
+    @Setup
+    public void setup() {
+        triples = new ArrayList<Triple>(size);
+        subjects = new ArrayList<BlankNodeOrIRI>();
+        objects = new ArrayList<RDFTerm>();
+        createTriples(new Random(42));
+        graph = createGraph();
+        for (Triple triple : triples) {
+            graph.add(triple);
+        }
+    }
+
+    private Graph createGraph() {
+        if ("CompactIndexedGraph".equals(implementation)) {
+            return new CompactIndexedGraph();
+        } else {
+            return new IndexedGraph();
+        }
+    }
+
+    private void createTriples(Random rnd) {
+        LiteralFactory lf = LiteralFactory.getInstance();
+        Language en = new Language("en");
+        for (int i = 0; triples.size() < size; i++) {
+            BlankNodeOrIRI subject = i % 5 == 0 ? new BlankNode() : new IRI(NS + "annotation/" + i);
+            subjects.add(subject);
+            RDFTerm label = new PlainLiteralImpl("label " + rnd.nextInt(size / 10 + 1), en);
+            objects.add(label);
+            triples.add(new TripleImpl(subject, TYPE, TYPES[rnd.nextInt(TYPES.length)]));
+            triples.add(new TripleImpl(subject, LABEL, label));
+            triples.add(new TripleImpl(subject, START, lf.createTypedLiteral(i * 10)));
+            triples.add(new TripleImpl(subject, END, lf.createTypedLiteral(i * 10 + rnd.nextInt(10))));
+            triples.add(new TripleImpl(subject, CONFIDENCE, lf.createTypedLiteral(rnd.nextDouble())));
+            if (subjects.size() > 1) {
+                BlankNodeOrIRI related = subjects.get(rnd.nextInt(subjects.size() - 1));
+                triples.add(new TripleImpl(subject, RELATION, related));
+                objects.add(related);
+            }
+        }
+    }
+
+    @Benchmark
+    public Graph add() {
+        Graph g = createGraph();
+        for (Triple triple : triples) {
+            g.add(triple);
+        }
+        return g;
+    }
+
+    @Benchmark
+    public void filterSubject(Blackhole bh) {
+        for (int i = 0; i < 100; i++) {
+            consume(graph.filter(subjects.get(i), null, null), bh);
+        }
+    }
+
+    @Benchmark
+    public void filterSubjectPredicate(Blackhole bh) {
+        for (int i = 0; i < 100; i++) {
+            consume(graph.filter(subjects.get(i), CONFIDENCE, null), bh);
+        }
+    }
+
+    @Benchmark
+    public void filterPredicateObject(Blackhole bh) {
+        for (IRI type : TYPES) {
+            consume(graph.filter(null, TYPE, type), bh);
+        }
+    }
+
+    @Benchmark
+    public void filterObject(Blackhole bh) {
+        for (int i = 0; i < 100; i++) {
+            consume(graph.filter(null, null, objects.get(i)), bh);
+        }
+    }
+
+    @Benchmark
+    public void iterate(Blackhole bh) {
+        consume(graph.iterator(), bh);
+    }
+
+    private static void consume(Iterator<Triple> it, Blackhole bh) {
+        while (it.hasNext()) {
+            bh.consume(it.next());
+        }
+    }
+}
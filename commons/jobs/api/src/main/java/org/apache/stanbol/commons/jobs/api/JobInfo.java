@@ -43,4 +43,18 @@ public interface JobInfo {
 
     public abstract boolean isFinished();
 
+    /**
+     * The time (in ms) the job waited for its execution, -1 if unknown
+     */
+    public abstract long getQueueTime();
+
+    public abstract void setQueueTime(long queueTime);
+
+    /**
+     * The time (in ms) the job was executed, -1 if unknown or not yet started
+     */
+    public abstract long getExecutionTime();
+
+    public abstract void setExecutionTime(long executionTime);
+
 }
\ No newline at end of file
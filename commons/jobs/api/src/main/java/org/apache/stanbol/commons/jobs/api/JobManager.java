@@ -17,6 +17,7 @@
 package org.apache.stanbol.commons.jobs.api;
 
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 /**
  * This interface defines the executor of asynch processes.
  * 
@@ -24,14 +25,33 @@ import java.util.concurrent.Future;
  *
  */
 public interface JobManager {
+    /**
+     * The priority of jobs added by {@link #execute(Job)}
+     */
+    public static final int DEFAULT_PRIORITY = 0;
+
     /**
      * Adds and runs an asynch process. Returns the String id to use for pinging its execution.
      * 
      * @param task
      * @return
+     * @throws RejectedExecutionException
+     *             if the job can not be accepted because too many jobs are waiting for their execution
      */
     public String execute(Job job);
 
+    /**
+     * Adds and runs an asynch process with the given priority. Waiting jobs with a higher priority are
+     * executed first. Returns the String id to use for pinging its execution.
+     * 
+     * @param job
+     * @param priority
+     * @return
+     * @throws RejectedExecutionException
+     *             if the job can not be accepted because too many jobs are waiting for their execution
+     */
+    public String execute(Job job, int priority);
+
     /**
      * Get the Future object to monitor the state of a job
      */
@@ -60,6 +80,36 @@ public interface JobManager {
      */
     public int size();
 
+    /**
+     * The number of jobs waiting for their execution
+     * 
+     * @return
+     */
+    public int getQueueSize();
+
+    /**
+     * The number of jobs currently executed
+     * 
+     * @return
+     */
+    public int getRunningCount();
+
+    /**
+     * The time (in ms) the job waited (or is waiting) for its execution
+     * 
+     * @param id
+     * @return the time or -1 if there is no such job
+     */
+    public long getQueueTime(String id);
+
+    /**
+     * The time (in ms) the job was (or is) executed
+     * 
+     * @param id
+     * @return the time or -1 if there is no such job or the job was not yet started
+     */
+    public long getExecutionTime(String id);
+
     /**
      * Interrupt the asynch process and remove it from the job list.
      * To interrupt the process and keeping it, use the Future object from the ping() method.
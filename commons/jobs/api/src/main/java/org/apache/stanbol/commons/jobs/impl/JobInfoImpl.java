@@ -25,6 +25,8 @@ public class JobInfoImpl implements JobInfo {
     private String status = "undefined";
     private String outputLocation = "";
     private List<String> messages = new ArrayList<String>();
+    private long queueTime = -1;
+    private long executionTime = -1;
     
     /* (non-Javadoc)
      * @see org.apache.stanbol.commons.jobs.web.utils.JobInfo#setOutputLocation(java.lang.String)
@@ -105,4 +107,24 @@ public class JobInfoImpl implements JobInfo {
     public boolean isFinished(){
         return this.status.equals(FINISHED);
     }
+
+    @Override
+    public long getQueueTime() {
+        return queueTime;
+    }
+
+    @Override
+    public void setQueueTime(long queueTime) {
+        this.queueTime = queueTime;
+    }
+
+    @Override
+    public long getExecutionTime() {
+        return executionTime;
+    }
+
+    @Override
+    public void setExecutionTime(long executionTime) {
+        this.executionTime = executionTime;
+    }
 }
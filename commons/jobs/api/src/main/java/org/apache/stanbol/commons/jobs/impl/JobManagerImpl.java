@@ -19,50 +19,236 @@ package org.apache.stanbol.commons.jobs.impl;
 import java.io.UnsupportedEncodingException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Properties;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.PropertyOption;
 import org.apache.felix.scr.annotations.Service;
 import org.apache.stanbol.commons.jobs.api.Job;
 import org.apache.stanbol.commons.jobs.api.JobManager;
+import org.apache.stanbol.commons.jobs.api.JobResult;
+import org.osgi.service.cm.ConfigurationException;
+import org.osgi.service.component.ComponentContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 /**
  * Implementation of the {@JobManager} interface.
+ * <p>
+ * Jobs are executed by a bounded pool of {@link #POOL_SIZE} threads. Jobs that can not be started
+ * immediately wait in a priority queue of at most {@link #QUEUE_SIZE} jobs. If the queue is full new jobs
+ * are rejected or executed by the calling thread (see {@link #QUEUE_FULL_POLICY}). Completed jobs are
+ * removed {@link #RESULT_TTL} milliseconds after their completion.
  * 
  * @author enridaga
  *
  */
 @Component(immediate = true)
 @Service(JobManager.class)
+@Properties(value = {
+    @Property(name = JobManagerImpl.POOL_SIZE, intValue = JobManagerImpl.DEFAULT_POOL_SIZE),
+    @Property(name = JobManagerImpl.QUEUE_SIZE, intValue = JobManagerImpl.DEFAULT_QUEUE_SIZE),
+    @Property(name = JobManagerImpl.QUEUE_FULL_POLICY, value = JobManagerImpl.POLICY_REJECT, options = {
+        @PropertyOption(name = JobManagerImpl.POLICY_REJECT, value = "Reject new jobs"),
+        @PropertyOption(name = JobManagerImpl.POLICY_CALLER_RUNS, value = "Execute new jobs in the calling thread")}),
+    @Property(name = JobManagerImpl.RESULT_TTL, longValue = JobManagerImpl.DEFAULT_RESULT_TTL)})
 public class JobManagerImpl implements JobManager {
-    private ExecutorService pool;
-    private Map<String,Future<?>> taskMap;
-    private Map<String,String> locations;
+
+    /**
+     * The maximum number of jobs executed at the same time
+     */
+    public static final String POOL_SIZE = "org.apache.stanbol.commons.jobs.poolSize";
+    public static final int DEFAULT_POOL_SIZE = 10;
+    /**
+     * The maximum number of jobs waiting for their execution
+     */
+    public static final String QUEUE_SIZE = "org.apache.stanbol.commons.jobs.queueSize";
+    public static final int DEFAULT_QUEUE_SIZE = 1000;
+    /**
+     * What to do with new jobs if the queue is full. One of {@link #POLICY_REJECT} or
+     * {@link #POLICY_CALLER_RUNS}
+     */
+    public static final String QUEUE_FULL_POLICY = "org.apache.stanbol.commons.jobs.queueFullPolicy";
+    /**
+     * New jobs are rejected by throwing a {@link RejectedExecutionException}
+     */
+    public static final String POLICY_REJECT = "reject";
+    /**
+     * New jobs are executed by the calling thread
+     */
+    public static final String POLICY_CALLER_RUNS = "callerRuns";
+    /**
+     * The time (in ms) completed jobs are kept. Values &lt;= 0 keep completed jobs until they are removed.
+     */
+    public static final String RESULT_TTL = "org.apache.stanbol.commons.jobs.resultTtl";
+    public static final long DEFAULT_RESULT_TTL = 60 * 60 * 1000; // 1 hour
+
+    private final Logger log = LoggerFactory.getLogger(JobManagerImpl.class);
+
+    private ThreadPoolExecutor pool;
+    private int queueSize;
+    private boolean callerRuns;
+    private long resultTtl;
+    private Map<String,JobTask> taskMap;
+    /**
+     * used to execute jobs with the same priority in the order they were added
+     */
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger running = new AtomicInteger();
+    /**
+     * The number of accepted jobs that have not yet started. Slots are reserved before a job is passed to
+     * the {@link #pool} and released as soon as the job starts (or is canceled).
+     */
+    private final AtomicInteger waiting = new AtomicInteger();
 
     public JobManagerImpl() {
-        this.pool = Executors.newCachedThreadPool();
-        this.taskMap = new HashMap<String,Future<?>>();
-        this.locations = new HashMap<String,String>();
+        this(DEFAULT_POOL_SIZE, DEFAULT_QUEUE_SIZE, POLICY_REJECT, DEFAULT_RESULT_TTL);
+    }
+
+    /**
+     * Constructor to be used outside of an OSGi environment
+     * 
+     * @param poolSize
+     *            the maximum number of jobs executed at the same time
+     * @param queueSize
+     *            the maximum number of jobs waiting for their execution
+     * @param queueFullPolicy
+     *            {@link #POLICY_REJECT} or {@link #POLICY_CALLER_RUNS}
+     * @param resultTtl
+     *            the time (in ms) completed jobs are kept. Values &lt;= 0 to keep them until removed
+     */
+    public JobManagerImpl(int poolSize, int queueSize, String queueFullPolicy, long resultTtl) {
+        this.taskMap = new HashMap<String,JobTask>();
+        init(poolSize, queueSize, queueFullPolicy, resultTtl);
+    }
+
+    private void init(int poolSize, int queueSize, String queueFullPolicy, long resultTtl) {
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("The pool size MUST BE > 0 (parsed: " + poolSize + ")!");
+        }
+        if (!POLICY_REJECT.equals(queueFullPolicy) && !POLICY_CALLER_RUNS.equals(queueFullPolicy)) {
+            throw new IllegalArgumentException("Unknown queue full policy '" + queueFullPolicy + "' (supported: "
+                                               + POLICY_REJECT + ", " + POLICY_CALLER_RUNS + ")!");
+        }
+        this.queueSize = queueSize;
+        this.callerRuns = POLICY_CALLER_RUNS.equals(queueFullPolicy);
+        this.resultTtl = resultTtl;
+        final AtomicInteger count = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "JobManager-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    @Activate
+    protected void activate(ComponentContext context) throws ConfigurationException {
+        Dictionary<?,?> properties = context.getProperties();
+        int poolSize = (int) getLong(properties, POOL_SIZE, DEFAULT_POOL_SIZE);
+        if (poolSize <= 0) {
+            throw new ConfigurationException(POOL_SIZE, "The pool size MUST BE > 0!");
+        }
+        int queueSize = (int) getLong(properties, QUEUE_SIZE, DEFAULT_QUEUE_SIZE);
+        Object value = properties.get(QUEUE_FULL_POLICY);
+        String policy = value == null || value.toString().trim().isEmpty() ? POLICY_REJECT : value.toString()
+                .trim();
+        if (!POLICY_REJECT.equals(policy) && !POLICY_CALLER_RUNS.equals(policy)) {
+            throw new ConfigurationException(QUEUE_FULL_POLICY, "Unknown policy '" + policy + "' (supported: "
+                                                                + POLICY_REJECT + ", " + POLICY_CALLER_RUNS
+                                                                + ")!");
+        }
+        long resultTtl = getLong(properties, RESULT_TTL, DEFAULT_RESULT_TTL);
+        ThreadPoolExecutor old = pool;
+        init(poolSize, queueSize, policy, resultTtl);
+        old.shutdown();
+        log.info("activated JobManager (pool size: {}, queue size: {}, policy: {}, result TTL: {}ms)",
+            new Object[] {poolSize, queueSize, policy, resultTtl});
+    }
+
+    @Deactivate
+    protected void deactivate(ComponentContext context) {
+        removeAll();
+        pool.shutdownNow();
+    }
+
+    private static long getLong(Dictionary<?,?> properties, String property, long defaultValue) throws ConfigurationException {
+        Object value = properties.get(property);
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        } else if (value != null && !value.toString().trim().isEmpty()) {
+            try {
+                return Long.parseLong(value.toString().trim());
+            } catch (NumberFormatException e) {
+                throw new ConfigurationException(property, "The value MUST BE an integer!", e);
+            }
+        } else {
+            return defaultValue;
+        }
     }
 
     @Override
     public String execute(Job job) {
+        return execute(job, DEFAULT_PRIORITY);
+    }
+
+    @Override
+    public String execute(Job job, int priority) {
         String id = JobManagerImpl.buildId(job);
-        Future<?> future = this.pool.submit(job);
+        JobTask task = new JobTask(job, job.buildResultLocation(id), priority, sequence.incrementAndGet());
+        evictExpired();
+        if (!task.reserve()) {
+            if (callerRuns) {
+                log.debug("Job queue is full, executing job {} in the calling thread", id);
+                synchronized (taskMap) {
+                    taskMap.put(id, task);
+                }
+                task.run();
+                return id;
+            } else {
+                throw new RejectedExecutionException("Unable to accept job because " + queueSize
+                                                     + " jobs are already waiting for their execution");
+            }
+        }
         synchronized (taskMap) {
-            taskMap.put(id, future);
-            locations.put(id, job.buildResultLocation(id));
-            return id;
+            taskMap.put(id, task);
         }
+        try {
+            this.pool.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.release();
+            synchronized (taskMap) {
+                taskMap.remove(id);
+            }
+            throw e;
+        }
+        return id;
     }
 
     @Override
     public Future<?> ping(String id) {
+        evictExpired();
         synchronized (taskMap) {
             return taskMap.get(id);            
         }
@@ -71,13 +257,15 @@ public class JobManagerImpl implements JobManager {
 
     @Override
     public String getResultLocation(String id) {
-        synchronized (locations) {
-            return locations.get(id);            
+        synchronized (taskMap) {
+            JobTask task = taskMap.get(id);
+            return task == null ? null : task.location;
         }
     }
 
     @Override
     public boolean hasJob(String id) {
+        evictExpired();
         synchronized (taskMap) {
             return taskMap.containsKey(id);
         }
@@ -85,23 +273,78 @@ public class JobManagerImpl implements JobManager {
 
     @Override
     public int size() {
+        evictExpired();
         synchronized (taskMap) {
             return taskMap.size();
         }
     }
 
+    @Override
+    public int getQueueSize() {
+        return pool.getQueue().size();
+    }
+
+    @Override
+    public int getRunningCount() {
+        return running.get();
+    }
+
+    @Override
+    public long getQueueTime(String id) {
+        JobTask task;
+        synchronized (taskMap) {
+            task = taskMap.get(id);
+        }
+        if (task == null) {
+            return -1;
+        }
+        long started = task.started;
+        return (started > 0 ? started : System.currentTimeMillis()) - task.added;
+    }
+
+    @Override
+    public long getExecutionTime(String id) {
+        JobTask task;
+        synchronized (taskMap) {
+            task = taskMap.get(id);
+        }
+        if (task == null || task.started <= 0) {
+            return -1;
+        }
+        long completed = task.completed;
+        return (completed > 0 ? completed : System.currentTimeMillis()) - task.started;
+    }
+
     @Override
     public void remove(String id) {
         synchronized (taskMap) {
             // If the job does not exists
-            Future<?> f = taskMap.get(id);
+            JobTask f = taskMap.get(id);
             if(f==null) {
                 throw new IllegalArgumentException("Job does not exists");
             }
             f.cancel(true);
             taskMap.remove(id);
-            synchronized (locations) {
-                locations.remove(id);
+        }
+        // do not keep canceled jobs in the queue
+        pool.purge();
+    }
+
+    /**
+     * Removes completed jobs older than the configured {@link #RESULT_TTL}
+     */
+    private void evictExpired() {
+        if (resultTtl <= 0) {
+            return;
+        }
+        long expired = System.currentTimeMillis() - resultTtl;
+        synchronized (taskMap) {
+            for (Iterator<JobTask> it = taskMap.values().iterator(); it.hasNext();) {
+                JobTask task = it.next();
+                long completed = task.completed;
+                if (completed > 0 && completed < expired) {
+                    it.remove();
+                }
             }
         }
     }
@@ -143,4 +386,88 @@ public class JobManagerImpl implements JobManager {
         }
     }
 
+    /**
+     * A {@link Job} as managed by the {@link JobManagerImpl}. Tasks are ordered by priority (higher
+     * first) and the order they were added.
+     */
+    private class JobTask extends FutureTask<JobResult> implements Comparable<JobTask> {
+
+        private final String location;
+        private final int priority;
+        private final long sequence;
+        private final long added = System.currentTimeMillis();
+        private volatile long started;
+        private volatile long completed;
+        /**
+         * If this task holds one of the {@link JobManagerImpl#waiting} slots
+         */
+        private final AtomicBoolean reserved = new AtomicBoolean();
+
+        JobTask(Job job, String location, int priority, long sequence) {
+            super(job);
+            this.location = location;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Atomically reserves a slot in the queue for this task
+         * 
+         * @return <code>false</code> if the queue is full
+         */
+        boolean reserve() {
+            if (queueSize > 0) {
+                int current;
+                do {
+                    current = waiting.get();
+                    if (current >= queueSize) {
+                        return false;
+                    }
+                } while (!waiting.compareAndSet(current, current + 1));
+            } else {
+                waiting.incrementAndGet();
+            }
+            reserved.set(true);
+            return true;
+        }
+
+        /**
+         * Releases the slot reserved by this task (if any)
+         */
+        void release() {
+            if (reserved.compareAndSet(true, false)) {
+                waiting.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void run() {
+            release();
+            if (isDone()) { // canceled while waiting
+                return;
+            }
+            started = System.currentTimeMillis();
+            running.incrementAndGet();
+            try {
+                super.run();
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+
+        @Override
+        protected void done() {
+            release(); // canceled before it was started
+            completed = System.currentTimeMillis();
+        }
+
+        @Override
+        public int compareTo(JobTask other) {
+            if (priority != other.priority) {
+                return priority > other.priority ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : sequence == other.sequence ? 0 : 1;
+        }
+    }
+
 }
@@ -16,15 +16,22 @@
  */
 package org.apache.stanbol.reasoners.jobs;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.stanbol.commons.jobs.api.Job;
 import org.apache.stanbol.commons.jobs.api.JobManager;
@@ -125,6 +132,139 @@ public class TestJobManagerImpl {
         ping();
     }
     
+    @Test
+    public void testPriorityAndQueueFull() throws Exception {
+        JobManagerImpl manager = new JobManagerImpl(1, 2, JobManagerImpl.POLICY_REJECT, 0);
+        CountDownLatch latch = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        String blocking = manager.execute(new TestJob("blocking", latch, order));
+        waitForRunning(manager, 1);
+        String low = manager.execute(new TestJob("low", null, order));
+        String high = manager.execute(new TestJob("high", null, order), 10);
+        assertEquals(2, manager.getQueueSize());
+        assertEquals(1, manager.getRunningCount());
+        try {
+            manager.execute(new TestJob("rejected", null, order));
+            fail("queue is full");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        assertEquals(-1, manager.getExecutionTime(low));
+        latch.countDown();
+        manager.ping(blocking).get();
+        manager.ping(low).get();
+        manager.ping(high).get();
+        assertEquals(3, order.size());
+        assertEquals("high", order.get(1));
+        assertEquals("low", order.get(2));
+        assertTrue(manager.getExecutionTime(blocking) >= 0);
+        assertTrue(manager.getQueueTime(low) >= 0);
+        assertEquals(0, manager.getRunningCount());
+        assertEquals(3, manager.size());
+    }
+
+    @Test
+    public void testConcurrentQueueFull() throws Exception {
+        final JobManagerImpl manager = new JobManagerImpl(1, 5, JobManagerImpl.POLICY_REJECT, 0);
+        CountDownLatch latch = new CountDownLatch(1);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        manager.execute(new TestJob("blocking", latch, order));
+        waitForRunning(manager, 1);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger accepted = new AtomicInteger();
+        final AtomicInteger rejected = new AtomicInteger();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 20; i++) {
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        manager.execute(new TestJob("concurrent", null, order));
+                        accepted.incrementAndGet();
+                    } catch (RejectedExecutionException e) {
+                        rejected.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(5, accepted.get());
+        assertEquals(15, rejected.get());
+        assertEquals(5, manager.getQueueSize());
+        latch.countDown();
+    }
+
+    @Test
+    public void testCallerRuns() throws Exception {
+        JobManagerImpl manager = new JobManagerImpl(1, 1, JobManagerImpl.POLICY_CALLER_RUNS, 0);
+        CountDownLatch latch = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        manager.execute(new TestJob("blocking", latch, order));
+        waitForRunning(manager, 1);
+        manager.execute(new TestJob("queued", null, order));
+        String caller = manager.execute(new TestJob("caller", null, order));
+        // executed by this thread as the queue is full
+        assertTrue(manager.ping(caller).isDone());
+        assertEquals("caller", order.get(1));
+        latch.countDown();
+    }
+
+    @Test
+    public void testResultTtl() throws Exception {
+        JobManagerImpl manager = new JobManagerImpl(2, 10, JobManagerImpl.POLICY_REJECT, 100);
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        String id = manager.execute(new TestJob("ttl", null, order));
+        manager.ping(id).get();
+        assertTrue(manager.hasJob(id));
+        Thread.sleep(200);
+        assertEquals(0, manager.size());
+        assertFalse(manager.hasJob(id));
+    }
+
+    private static void waitForRunning(JobManager manager, int num) throws InterruptedException {
+        for (int i = 0; i < 1000 && manager.getRunningCount() < num; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(num, manager.getRunningCount());
+    }
+
+    /**
+     * A job that records its execution and optionally waits for a latch
+     */
+    private static class TestJob implements Job {
+        private final String name;
+        private final CountDownLatch latch;
+        private final List<String> order;
+
+        TestJob(String name, CountDownLatch latch, List<String> order) {
+            this.name = name;
+            this.latch = latch;
+            this.order = order;
+        }
+
+        @Override
+        public JobResult call() throws Exception {
+            order.add(name);
+            if (latch != null) {
+                latch.await(10, TimeUnit.SECONDS);
+            }
+            return null;
+        }
+
+        @Override
+        public String buildResultLocation(String jobId) {
+            return null;
+        }
+    }
+
     private void contains() {
         log.info("Testing hasJob(String id)");
         for (String id : jobs) {
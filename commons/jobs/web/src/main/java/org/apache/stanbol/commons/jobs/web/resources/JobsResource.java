@@ -24,11 +24,13 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
@@ -76,7 +78,44 @@ public class JobsResource extends BaseStanbolResource {
     
     @GET
     public Response get(){
-        return Response.ok(new Viewable("index",new ResultData() {})).build();
+        return Response.ok(new Viewable("index",new JobsStatsData(jobManager))).build();
+    }
+
+    /**
+     * GET the number of managed, queued and running jobs
+     * 
+     * @return Response
+     */
+    @GET
+    @Path("/stats")
+    @Produces("text/plain")
+    public Response stats(){
+        JobManager m = jobManager;
+        StringBuilder b = new StringBuilder()
+        .append("Jobs: ").append(m.size())
+        .append("\nQueued: ").append(m.getQueueSize())
+        .append("\nRunning: ").append(m.getRunningCount())
+        .append("\n");
+        return Response.ok(b.toString()).build();
+    }
+
+    /**
+     * GET the number of managed, queued and running jobs as JSON
+     * 
+     * @return Response
+     */
+    @GET
+    @Path("/stats")
+    @Produces("application/json")
+    public Response statsAsJson(){
+        JobManager m = jobManager;
+        StringBuilder b = new StringBuilder()
+        .append("{")
+        .append("\n\t").append("\"jobs\": ").append(m.size())
+        .append(",\n\t").append("\"queued\": ").append(m.getQueueSize())
+        .append(",\n\t").append("\"running\": ").append(m.getRunningCount())
+        .append("\n}");
+        return Response.ok(b.toString()).build();
     }
     
     /**
@@ -120,8 +159,13 @@ public class JobsResource extends BaseStanbolResource {
             }else{
                 // the job exists but it is not complete
                 info.setRunning();
+                if(m.getExecutionTime(id) < 0){
+                    info.addMessage("This job is waiting for its execution");
+                }
                 info.addMessage("You can interrupt this job using DELETE");
             }
+            info.setQueueTime(m.getQueueTime(id));
+            info.setExecutionTime(m.getExecutionTime(id));
             // Returns 200, the job exists
             info.setOutputLocation(getPublicBaseUri() + m.getResultLocation(id));
 
@@ -138,6 +182,22 @@ public class JobsResource extends BaseStanbolResource {
         }
     }
 
+    public class JobsStatsData extends ResultData{
+        private JobManager jm;
+        public JobsStatsData(JobManager jm){
+            this.jm = jm;
+        }
+        public int getJobs(){
+            return jm.size();
+        }
+        public int getQueued(){
+            return jm.getQueueSize();
+        }
+        public int getRunning(){
+            return jm.getRunningCount();
+        }
+    }
+
     public class JobsResultData extends ResultData{
         private JobInfo ji;
         public JobsResultData(JobInfo jinfo){
@@ -269,7 +329,7 @@ public class JobsResource extends BaseStanbolResource {
         }else{
             // No id have been provided, we create a new test job
             JobManager m = jobManager;
-            String id = m.execute(new Job() {
+            Job job = new Job() {
                 @Override
                 public JobResult call() throws Exception {
                     for (int i = 0; i < 30; i++) {
@@ -296,7 +356,15 @@ public class JobsResource extends BaseStanbolResource {
                 public String buildResultLocation(String jobId) {
                     return "jobs/test/" + jobId;
                 }
-            });
+            };
+            String id;
+            try {
+                id = m.execute(job);
+            } catch (RejectedExecutionException e) {
+                log.warn("Test job rejected: {}", e.getMessage());
+                return Response.status(Response.Status.SERVICE_UNAVAILABLE).header("Content-type","text/plain")
+                        .entity(e.getMessage()).build();
+            }
             // This service returns 201 Created on success
             String location = getPublicBaseUri() + "jobs/" + id;
             String info = new StringBuilder().append("Job started.\n")
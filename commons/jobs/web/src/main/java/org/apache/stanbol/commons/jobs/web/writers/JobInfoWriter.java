@@ -59,6 +59,8 @@ public class JobInfoWriter implements MessageBodyWriter<JobInfo> {
             .append("{")
             .append("\n\t").append("\"status\": ").append("\"").append(t.getStatus()).append("\"")
             .append(",\n\t").append("\"outputLocation\": ").append("\"").append(t.getOutputLocation()).append("\"")
+            .append(",\n\t").append("\"queueTime\": ").append(t.getQueueTime())
+            .append(",\n\t").append("\"executionTime\": ").append(t.getExecutionTime())
             .append(",\n\t").append("\"messages\": ").append("[");
             for(String m : t.getMessages()){
                 b.append("\n\t\t\"").append(m).append("\",");
@@ -70,6 +72,8 @@ public class JobInfoWriter implements MessageBodyWriter<JobInfo> {
             StringBuilder b = new StringBuilder()
             .append("Status: ").append(t.getStatus())
             .append("\nOutput location: ").append(t.getOutputLocation())
+            .append("\nQueue time: ").append(t.getQueueTime()).append("ms")
+            .append("\nExecution time: ").append(t.getExecutionTime()).append("ms")
             .append("\nMessages:");
             for(String m : t.getMessages()){
                 b.append("\n - ").append(m);
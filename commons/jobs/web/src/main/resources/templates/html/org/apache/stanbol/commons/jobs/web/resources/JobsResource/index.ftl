@@ -20,6 +20,9 @@
 		
   <div class="panel">
 This is the home page of the Jobs service.    
+<p><b>Jobs: </b> ${it.jobs}</p>
+<p><b>Queued: </b> ${it.queued}</p>
+<p><b>Running: </b> ${it.running}</p>
   </div>
 </@common.page>
 </#escape>
\ No newline at end of file
@@ -21,6 +21,8 @@
   <div class="panel">
 <p><b>Status: </b> ${it.jobInfo.status}</p>
 <p><b>Output location: </b> <a href="${it.jobInfo.outputLocation}">${it.jobInfo.outputLocation}</a></p>
+<p><b>Queue time: </b> ${it.jobInfo.queueTime} ms</p>
+<p><b>Execution time: </b> ${it.jobInfo.executionTime} ms</p>
 <p><b>Messages:</b> </p>
 <ul>
   <#list it.jobInfo.messages as message>
@@ -32,6 +32,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -42,6 +44,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -57,7 +60,12 @@ import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.Service;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.core.CloseHook;
+import org.apache.solr.core.SolrCore;
 import org.apache.stanbol.commons.solr.IndexReference;
 import org.apache.stanbol.commons.solr.SolrConstants;
 import org.apache.stanbol.commons.solr.SolrServerAdapter;
@@ -96,7 +104,13 @@ import org.xml.sax.SAXException;
     @Property(name=PROPERTY_SERVER_NAME),
     @Property(name=MANAGED_SOLR_DIR_PROPERTY), 
     @Property(name=PROPERTY_SERVER_RANKING,intValue=0),
-    @Property(name=PROPERTY_SERVER_PUBLISH_REST,boolValue=true)
+    @Property(name=PROPERTY_SERVER_PUBLISH_REST,boolValue=true),
+    @Property(name=ManagedSolrServerImpl.PROPERTY_HOT_SWAP,
+        boolValue=ManagedSolrServerImpl.DEFAULT_HOT_SWAP),
+    @Property(name=ManagedSolrServerImpl.PROPERTY_WARMUP_QUERIES,
+        cardinality=Integer.MAX_VALUE),
+    @Property(name=ManagedSolrServerImpl.PROPERTY_RELEASE_TIMEOUT,
+        longValue=ManagedSolrServerImpl.DEFAULT_RELEASE_TIMEOUT)
 })
 public class ManagedSolrServerImpl implements ManagedSolrServer {
 
@@ -113,14 +127,47 @@ public class ManagedSolrServerImpl implements ManagedSolrServer {
      * @see ManagementUtils#substituteProperty(String, BundleContext)
      */
     public static final String DEFAULT_ROOT_PATH = "${sling.home}indexes";
-    
+    /**
+     * If enabled updates of active indexes are first installed in a side core
+     * that is warmed up before it is swapped with the currently active core.
+     * If disabled the new version directly replaces the current one.
+     */
+    public static final String PROPERTY_HOT_SWAP = "org.apache.stanbol.commons.solr.managed.hotSwap";
+    /**
+     * By default hot swapping of updated indexes is enabled
+     */
+    public static final boolean DEFAULT_HOT_SWAP = true;
+    /**
+     * Queries (in the Solr query syntax) executed against the side core of an
+     * updated index before it is swapped in. Typically queries that are
+     * expensive on a cold index (e.g. filter queries and sorting on fields
+     * used by the clients of the index). Warm-up listeners configured in the
+     * <code>solrconfig.xml</code> of the index are executed in addition.
+     */
+    public static final String PROPERTY_WARMUP_QUERIES = "org.apache.stanbol.commons.solr.managed.warmupQueries";
+    /**
+     * The maximum time (in milliseconds) to wait for in-flight requests on the
+     * previous version of a hot swapped index to complete before its data are
+     * deleted.
+     */
+    public static final String PROPERTY_RELEASE_TIMEOUT = "org.apache.stanbol.commons.solr.managed.releaseTimeout";
+    /**
+     * The default release timeout is 60sec
+     */
+    public static final long DEFAULT_RELEASE_TIMEOUT = 60000;
+    /**
+     * The suffix appended to the name of an index to build the name of the
+     * side core used while hot swapping
+     */
+    private static final String HOT_SWAP_CORE_SUFFIX = "-hotswap";
+
     /**
      * Used by the {@link #indexArchiveTracker} to track index archive files
      * referenced by managed indexes
      * @see IndexArchiveTracker
      */
     @Reference
-    private DataFileTracker dataFileTracker;
+    DataFileTracker dataFileTracker;
     /**
      * Used by the {@link #indexArchiveTracker} to directly request
      * {@link IndexMetadata#getIndexArchives() alternate index archives} in case
@@ -131,7 +178,7 @@ public class ManagedSolrServerImpl implements ManagedSolrServer {
      * @see IndexMetadata#getArchive()
      */
     @Reference
-    private DataFileProvider dataFileProvider;
+    DataFileProvider dataFileProvider;
     /**
      * Listener instance used for handling {@link DataFileTracker} notifications
      */
@@ -200,6 +247,23 @@ public class ManagedSolrServerImpl implements ManagedSolrServer {
      * creation (patter: yyyy.MM.dd)
      */
     private DateFormat coreSuffixDateFormat = new SimpleDateFormat("yyyy.MM.dd");
+    /**
+     * Used to lookup the {@link SolrCore}s registered by the {@link #server}
+     * while hot swapping updated indexes
+     */
+    private BundleContext bundleContext;
+    /**
+     * @see #PROPERTY_HOT_SWAP
+     */
+    private boolean hotSwap;
+    /**
+     * @see #PROPERTY_WARMUP_QUERIES
+     */
+    private List<String> warmupQueries;
+    /**
+     * @see #PROPERTY_RELEASE_TIMEOUT
+     */
+    private long releaseTimeout;
     @Activate
     protected void activate(ComponentContext context) throws ConfigurationException {
         log.info("Activate ManagedSolrServer:");
@@ -274,6 +338,49 @@ public class ManagedSolrServerImpl implements ManagedSolrServer {
         } else {
             serverProperties.setPublishREST(Boolean.parseBoolean(value.toString()));
         }
+        //parse the hot swap configuration
+        value = context.getProperties().get(PROPERTY_HOT_SWAP);
+        if(value instanceof Boolean){
+            hotSwap = ((Boolean)value).booleanValue();
+        } else if(value != null && !value.toString().isEmpty()){
+            hotSwap = Boolean.parseBoolean(value.toString());
+        } else {
+            hotSwap = DEFAULT_HOT_SWAP;
+        }
+        value = context.getProperties().get(PROPERTY_WARMUP_QUERIES);
+        warmupQueries = new ArrayList<String>();
+        if(value instanceof String[]){
+            warmupQueries.addAll(Arrays.asList((String[])value));
+        } else if(value instanceof Collection<?>){
+            for(Object query : (Collection<?>)value){
+                if(query != null){
+                    warmupQueries.add(query.toString());
+                }
+            }
+        } else if(value != null){
+            warmupQueries.add(value.toString());
+        }
+        for(Iterator<String> it = warmupQueries.iterator();it.hasNext();){
+            if(it.next().trim().isEmpty()){
+                it.remove();
+            }
+        }
+        value = context.getProperties().get(PROPERTY_RELEASE_TIMEOUT);
+        if(value instanceof Number){
+            releaseTimeout = ((Number)value).longValue();
+        } else if(value != null && !value.toString().isEmpty()){
+            try {
+                releaseTimeout = Long.parseLong(value.toString());
+            }catch (NumberFormatException e) {
+               throw new ConfigurationException(PROPERTY_RELEASE_TIMEOUT, "The configured release timeout '"+
+                   value+" can not be converted to a Long!",e);
+            }
+        } else {
+            releaseTimeout = DEFAULT_RELEASE_TIMEOUT;
+        }
+        log.info(" > hotSwap = {} (warmupQueries: {}, releaseTimeout: {}ms)",
+            new Object[]{hotSwap, warmupQueries, releaseTimeout});
+        bundleContext = bc;
         try {
             server = new SolrServerAdapter(context.getBundleContext(), serverProperties);
         } catch (SolrException e) {
@@ -409,6 +516,7 @@ public class ManagedSolrServerImpl implements ManagedSolrServer {
         //stop tracking for uninitialised indexes
         indexArchiveTracker = null;
         managedCores = null;
+        bundleContext = null;
         //serverName and managedSolrDir are not set to null to allow access
         //in loggings even if the component is already deactivated
         //managedSolrDir = null;
@@ -708,7 +816,11 @@ public class ManagedSolrServerImpl implements ManagedSolrServer {
     /**
      * Updates the core with the parsed name with the data parsed within the
      * ArchiveInputStream and stores updated to the state of the index within the
-     * parsed {@link IndexMetadata} instance.
+     * parsed {@link IndexMetadata} instance.<p>
+     * If {@link #PROPERTY_HOT_SWAP hot swapping} is enabled and the index is
+     * currently active, the new version is warmed up in a side core and
+     * swapped in afterwards (see {@link #hotSwapCore(IndexMetadata, SolrServerAdapter, ServiceReference)}).
+     * If this fails the current version stays active.
      * @param metadata the metadata of the index to update. The parsed instance
      * is updated within this method
      * @param ais the data
@@ -775,21 +887,25 @@ public class ManagedSolrServerImpl implements ManagedSolrServer {
                 throw e;
             }
             try {
-                activateCore(metadata, server);
-                metadata.setState(ManagedIndexState.ACTIVE);
-                if(currentCoreDir != null){
-                    //remove the data of the old core
+                //false if the old version is still in use and gets deleted on close
+                boolean deleteCurrent = true;
+                if(coreRef != null && hotSwap){
                     try {
-                        FileUtils.deleteDirectory(currentCoreDir);
+                        deleteCurrent = hotSwapCore(metadata, server, coreRef, currentCoreDir);
                     } catch (IOException e) {
-                        //only log an Error and do not throw an Exception in that case
-                        log.error(String.format("Unable to delete Directory %s of the " +
-                                "old (and no longer needed) version of the index '%s' " +
-                                "of the managed SolrServer '{}'. Please try to " +
-                                "delete this directory manually!",
-                                currentCoreDir.getAbsolutePath(),coreName,
-                                serverName),e); 
+                        revertHotSwap(metadata, coreDir, currentCoreDir);
+                        throw e;
+                    } catch (RuntimeException e) {
+                        revertHotSwap(metadata, coreDir, currentCoreDir);
+                        throw e;
                     }
+                } else {
+                    activateCore(metadata, server);
+                }
+                metadata.setState(ManagedIndexState.ACTIVE);
+                if(currentCoreDir != null && deleteCurrent){
+                    //remove the data of the old core
+                    deleteOldCoreDir(currentCoreDir, coreName);
                 }
             }catch (IOException e) {
                 //store Errors in the metadata
@@ -848,6 +964,234 @@ public class ManagedSolrServerImpl implements ManagedSolrServer {
         }
     }
 
+    /**
+     * Installs the new version of an index in a side core, warms it up and
+     * swaps it with the currently active core of the index. Clients of the
+     * index are not affected as the new version is only visible after the
+     * swap.<p>
+     * After the swap the previous version is removed from the
+     * {@link #server}. As {@link SolrCore}s are reference counted it is only
+     * closed after all in-flight requests have released it. This method
+     * waits (max. {@link #releaseTimeout}) for this to happen so that the
+     * caller can safely delete the data of the previous version. If the
+     * previous version is still in use after the timeout its data are
+     * deleted as soon as it gets closed.
+     * @param metadata the metadata of the updated index. The
+     * {@link IndexMetadata#getDirectory() directory} MUST point to the data
+     * of the new version. Not modified by this method.
+     * @param server the server
+     * @param currentCoreRef the reference to the currently active core
+     * @param currentCoreDir the directory of the currently active core
+     * @return <code>true</code> if the caller can delete the data of the
+     * previous version. <code>false</code> if they are deleted when the
+     * previous version is closed.
+     * @throws IOException if the side core could not be created
+     */
+    private boolean hotSwapCore(IndexMetadata metadata, SolrServerAdapter server,
+                                ServiceReference currentCoreRef, File currentCoreDir) throws IOException {
+        String coreName = metadata.getIndexName();
+        String sideCoreName = coreName + HOT_SWAP_CORE_SUFFIX;
+        for(int i = 1; server.isCore(sideCoreName); i++){
+            sideCoreName = coreName + HOT_SWAP_CORE_SUFFIX + '-' + i;
+        }
+        BundleContext bc = this.bundleContext;
+        //the current SolrCore is only used to check if it is closed. NOTE that
+        //getService(..) does not change the reference count of the SolrCore
+        SolrCore currentCore = (SolrCore)bc.getService(currentCoreRef);
+        bc.ungetService(currentCoreRef);
+        SolrCoreProperties coreConfig = new SolrCoreProperties(sideCoreName);
+        coreConfig.setCoreDir(new File(managedSolrDir,metadata.getDirectory()));
+        Object token = new Object();
+        synchronized (serverInUser) {
+            //prevent shutting down the server while we swap the core
+            serverInUser.add(token);
+        }
+        boolean swapped = false;
+        try {
+            log.info(" ... install new version of index {} in side core {}",
+                coreName, sideCoreName);
+            try {
+                server.registerCore(coreConfig);
+            } catch (SolrException e) {
+                throw new IOException(String.format(
+                    "Unable to activate the side core '%s' for the update of " +
+                    "index '%s' of managed SolrServer '%s'",
+                    sideCoreName, coreName, serverName), e);
+            }
+            warmupCore(bc, server, sideCoreName);
+            server.swap(coreName, sideCoreName);
+            swapped = true;
+            log.info(" ... swapped in the new version of index {}",coreName);
+            //the side core does now refer to the previous version
+            try {
+                server.removeCore(sideCoreName);
+            } catch (RuntimeException e) {
+                //the new version is already active so do not fail the update
+                log.warn("Unable to remove the previous version of index '"+coreName+
+                    "' (side core: '"+sideCoreName+"') of managed SolrServer '"+
+                    serverName+"'!",e);
+            }
+        } finally {
+            if(!swapped){ //cleanup the side core and keep the current version
+                try {
+                    server.removeCore(sideCoreName);
+                } catch (RuntimeException e) {
+                    log.warn("Unable to remove side core '"+sideCoreName+
+                        "' of managed SolrServer '"+serverName+"'!",e);
+                }
+            }
+            synchronized (serverInUser) {
+                serverInUser.remove(token);
+                token = null;
+                serverInUser.notifyAll();
+            }
+        }
+        if(waitForRelease(currentCore, coreName) || currentCoreDir == null){
+            return true;
+        } else {
+            deleteOnClose(currentCore, currentCoreDir, coreName);
+            return false;
+        }
+    }
+    /**
+     * Executes the configured {@link #warmupQueries} on the parsed core.
+     * Queries are executed after the first searcher of the core is
+     * registered, meaning that the warm-up listeners configured in the
+     * <code>solrconfig.xml</code> have already completed.<p>
+     * Failed queries are logged but do not prevent the swap.
+     * @param bc the BundleContext used to lookup the SolrCore
+     * @param server the server
+     * @param coreName the name of the core to warm up
+     */
+    private void warmupCore(BundleContext bc, SolrServerAdapter server, String coreName) {
+        ServiceReference coreRef = server.getCore(coreName);
+        SolrCore core = coreRef != null ? (SolrCore)bc.getService(coreRef) : null;
+        if(core == null){
+            throw new IllegalStateException("The side core '"+coreName+
+                "' of managed SolrServer '"+serverName+"' is not available!");
+        }
+        try {
+            long start = System.currentTimeMillis();
+            //wait for the first searcher
+            core.getSearcher().decref();
+            EmbeddedSolrServer solrServer = new EmbeddedSolrServer(
+                core.getCoreDescriptor().getCoreContainer(), coreName);
+            for(String query : warmupQueries){
+                try {
+                    solrServer.query(new SolrQuery(query));
+                } catch (SolrServerException e) {
+                    log.warn("Unable to execute warm-up query '"+query+"' on side core '"+
+                        coreName+"' of managed SolrServer '"+serverName+"'!",e);
+                } catch (SolrException e) {
+                    log.warn("Unable to execute warm-up query '"+query+"' on side core '"+
+                        coreName+"' of managed SolrServer '"+serverName+"'!",e);
+                }
+            }
+            log.info(" ... warmed up side core {} in {}ms ({} queries)", new Object[]{
+                    coreName, System.currentTimeMillis()-start, warmupQueries.size()});
+        } finally {
+            bc.ungetService(coreRef);
+        }
+    }
+    /**
+     * Waits until the parsed {@link SolrCore} is closed. This is the case as
+     * soon as all in-flight requests have released it.
+     * @param core the core (may be <code>null</code>)
+     * @param indexName the name of the index (used for logging)
+     * @return <code>true</code> if the core is closed (or <code>null</code>)
+     * and <code>false</code> if it is still open
+     */
+    private boolean waitForRelease(SolrCore core, String indexName) {
+        if(core == null){
+            return true;
+        }
+        long end = System.currentTimeMillis() + releaseTimeout;
+        while(!core.isClosed() && System.currentTimeMillis() < end){
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                log.debug("Interrupted while waiting for the release of the " +
+                        "previous version of index {}",indexName);
+                Thread.currentThread().interrupt();
+                return core.isClosed();
+            }
+        }
+        if(!core.isClosed()){
+            log.warn("The previous version of index '{}' of managed SolrServer '{}' " +
+                "is still in use after {}ms. Some component might not have " +
+                "called SolrCore#close()!", new Object[]{indexName, serverName, releaseTimeout});
+            return false;
+        }
+        return true;
+    }
+    /**
+     * Deletes the parsed directory of a previous version of an index as soon
+     * as the parsed {@link SolrCore} is closed. Used if the previous version
+     * is still in use after the {@link #releaseTimeout}.
+     * @param core the core of the previous version
+     * @param coreDir the directory of the previous version
+     * @param indexName the name of the index (used for logging)
+     */
+    private void deleteOnClose(SolrCore core, final File coreDir, final String indexName) {
+        final AtomicBoolean deleted = new AtomicBoolean();
+        core.addCloseHook(new CloseHook() {
+            @Override
+            public void preClose(SolrCore core) {}
+            @Override
+            public void postClose(SolrCore core) {
+                if(deleted.compareAndSet(false, true)){
+                    log.info(" ... delete previous version of index {} (now closed)",indexName);
+                    deleteOldCoreDir(coreDir, indexName);
+                }
+            }
+        });
+        //the core might have been closed before the hook was added
+        if(core.isClosed() && deleted.compareAndSet(false, true)){
+            deleteOldCoreDir(coreDir, indexName);
+        } else {
+            log.info(" ... previous version of index {} will be deleted when " +
+                "it gets closed", indexName);
+        }
+    }
+    /**
+     * Deletes the directory of an old (and no longer needed) version of an
+     * index. Errors are only logged.
+     * @param coreDir the directory
+     * @param indexName the name of the index (used for logging)
+     */
+    private void deleteOldCoreDir(File coreDir, String indexName) {
+        try {
+            FileUtils.deleteDirectory(coreDir);
+        } catch (IOException e) {
+            //only log an Error and do not throw an Exception in that case
+            log.error(String.format("Unable to delete Directory %s of the " +
+                    "old (and no longer needed) version of the index '%s' " +
+                    "of the managed SolrServer '%s'. Please try to " +
+                    "delete this directory manually!",
+                    coreDir.getAbsolutePath(),indexName,
+                    serverName),e); 
+        }
+    }
+    /**
+     * Resets the parsed metadata to the version of the index that is still
+     * active after a failed hot swap and deletes the data of the new version.
+     * @param metadata the metadata
+     * @param coreDir the directory of the new version
+     * @param currentCoreDir the directory of the still active version
+     */
+    private void revertHotSwap(IndexMetadata metadata, File coreDir, File currentCoreDir) {
+        metadata.setDirectory(currentCoreDir.getName());
+        try {
+            FileUtils.deleteDirectory(coreDir);
+        } catch (IOException e) {
+            log.error(String.format("Unable to delete Directory %s of the " +
+                    "failed update of the index '%s' of the managed SolrServer '%s'. " +
+                    "Please try to delete this directory manually!",
+                    coreDir.getAbsolutePath(),metadata.getIndexName(),
+                    serverName),e);
+        }
+    }
+
     /**
      * Getter for the CoreDir based on the ServiceReference. In addition
      * it checks if the value exists and if the value is an Directory on the
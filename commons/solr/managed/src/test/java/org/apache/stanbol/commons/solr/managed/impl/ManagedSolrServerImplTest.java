@@ -0,0 +1,330 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.stanbol.commons.solr.managed.impl;
+
+import static org.apache.stanbol.commons.solr.SolrConstants.PROPERTY_CORE_NAME;
+import static org.apache.stanbol.commons.solr.SolrConstants.PROPERTY_SERVER_NAME;
+import static org.apache.stanbol.commons.solr.managed.ManagedSolrServer.MANAGED_SOLR_DIR_PROPERTY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.solr.core.SolrCore;
+import org.apache.stanbol.commons.solr.managed.IndexMetadata;
+import org.apache.stanbol.commons.solr.managed.ManagedIndexState;
+import org.apache.stanbol.commons.solr.utils.ConfigUtils;
+import org.apache.stanbol.commons.stanboltools.datafileprovider.DataFileProvider;
+import org.apache.stanbol.commons.stanboltools.datafileprovider.DataFileTracker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.component.ComponentContext;
+
+/**
+ * Tests the hot swapping of updated indexes by the {@link ManagedSolrServerImpl}.
+ * The OSGI service registry is replaced by an in-memory registry so that the
+ * {@link ManagedSolrServerImpl} can be activated outside an OSGI environment.
+ */
+public class ManagedSolrServerImplTest {
+
+    private static final String TEST_INDEX_ARCHIVE = "/solr/core/test.solrindex.zip";
+    private static final String TEST_INDEX_NAME = "test";
+    /**
+     * The release timeout used by the tested server
+     */
+    private static final long RELEASE_TIMEOUT = 500;
+
+    private File testDir;
+    private File managedDir;
+    private ServiceRegistry registry;
+    private ComponentContext context;
+    private ManagedSolrServerImpl managedSolrServer;
+
+    @Before
+    public void activate() throws Exception {
+        String baseDir = System.getProperty("basedir") == null ? "." : System.getProperty("basedir");
+        testDir = new File(baseDir, "target" + File.separatorChar + "hotswap-test").getCanonicalFile();
+        FileUtils.deleteQuietly(testDir);
+        managedDir = ConfigUtils.copyDefaultConfig((Class<?>) null, new File(testDir, "server"), false);
+        registry = new ServiceRegistry();
+        BundleContext bc = mock(BundleContext.class);
+        when(bc.registerService(anyString(), any(), any(Dictionary.class))).thenAnswer(registry);
+        when(bc.getService(any(ServiceReference.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                return registry.services.get(invocation.getArguments()[0]);
+            }
+        });
+        when(bc.getDataFile(anyString())).thenAnswer(new Answer<File>() {
+            @Override
+            public File answer(InvocationOnMock invocation) throws Throwable {
+                return new File(new File(testDir, "data"), (String) invocation.getArguments()[0]);
+            }
+        });
+        Dictionary<String,Object> properties = new Hashtable<String,Object>();
+        properties.put(PROPERTY_SERVER_NAME, "hotswap");
+        properties.put(Constants.SERVICE_PID, "hotswap.test");
+        properties.put(MANAGED_SOLR_DIR_PROPERTY, managedDir.getAbsolutePath());
+        properties.put(ManagedSolrServerImpl.PROPERTY_HOT_SWAP, Boolean.TRUE);
+        properties.put(ManagedSolrServerImpl.PROPERTY_WARMUP_QUERIES, new String[]{"*:*"});
+        properties.put(ManagedSolrServerImpl.PROPERTY_RELEASE_TIMEOUT, RELEASE_TIMEOUT);
+        context = mock(ComponentContext.class);
+        when(context.getProperties()).thenReturn(properties);
+        when(context.getBundleContext()).thenReturn(bc);
+
+        managedSolrServer = new ManagedSolrServerImpl();
+        managedSolrServer.dataFileTracker = mock(DataFileTracker.class);
+        managedSolrServer.dataFileProvider = mock(DataFileProvider.class);
+        managedSolrServer.activate(context);
+        //create the initial version of the index
+        IndexMetadata metadata = managedSolrServer.createSolrIndex(TEST_INDEX_NAME,
+            openArchive(false));
+        assertEquals(ManagedIndexState.ACTIVE, metadata.getState());
+    }
+
+    @After
+    public void deactivate() {
+        managedSolrServer.deactivate(context);
+        FileUtils.deleteQuietly(testDir);
+    }
+
+    /**
+     * Opens the test index archive
+     * @param brokenConfig if <code>true</code> the <code>solrconfig.xml</code>
+     * of the returned archive is not valid
+     */
+    private ArchiveInputStream openArchive(boolean brokenConfig) throws IOException {
+        InputStream in = getClass().getResourceAsStream(TEST_INDEX_ARCHIVE);
+        assertNotNull("Missing test index archive " + TEST_INDEX_ARCHIVE, in);
+        if(!brokenConfig){
+            return new ZipArchiveInputStream(in);
+        }
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        ZipArchiveInputStream zin = new ZipArchiveInputStream(in);
+        ZipArchiveOutputStream zout = new ZipArchiveOutputStream(bout);
+        try {
+            ZipArchiveEntry entry;
+            while((entry = zin.getNextZipEntry()) != null){
+                zout.putArchiveEntry(new ZipArchiveEntry(entry.getName()));
+                if(entry.getName().endsWith("solrconfig.xml")){
+                    zout.write("<config>".getBytes("UTF-8"));
+                } else if(!entry.isDirectory()){
+                    IOUtils.copy(zin, zout);
+                }
+                zout.closeArchiveEntry();
+            }
+        } finally {
+            zout.close();
+            zin.close();
+        }
+        return new ZipArchiveInputStream(new ByteArrayInputStream(bout.toByteArray()));
+    }
+
+    private File getIndexDir() {
+        return new File(managedDir, managedSolrServer.getIndexMetadata(TEST_INDEX_NAME).getDirectory());
+    }
+
+    /**
+     * Updates an active index. The new version needs to replace the previous
+     * one and the data of the previous version need to be deleted.
+     */
+    @Test
+    public void testUpdateActiveIndex() throws Exception {
+        File previousDir = getIndexDir();
+        SolrCore previousCore = registry.getCore(TEST_INDEX_NAME);
+        assertNotNull(previousCore);
+
+        IndexMetadata metadata = managedSolrServer.updateIndex(TEST_INDEX_NAME, openArchive(false));
+        assertEquals(ManagedIndexState.ACTIVE, metadata.getState());
+        File indexDir = getIndexDir();
+        assertFalse(previousDir.equals(indexDir));
+        assertTrue(indexDir.isDirectory());
+        //the new version is registered for the name of the index
+        SolrCore core = registry.getCore(TEST_INDEX_NAME);
+        assertNotNull(core);
+        assertNotSame(previousCore, core);
+        assertEquals(indexDir.getCanonicalFile(),
+            new File(core.getCoreDescriptor().getInstanceDir()).getCanonicalFile());
+        assertFalse(core.isClosed());
+        //the previous version is closed and deleted, the side core removed
+        assertTrue(previousCore.isClosed());
+        assertFalse(previousDir.exists());
+        assertNull(registry.getCore(TEST_INDEX_NAME + "-hotswap"));
+    }
+
+    /**
+     * Updates an active index with a version that can not be loaded. The
+     * previous version needs to stay active and the data of the new version
+     * need to be deleted.
+     */
+    @Test
+    public void testFailedUpdateOfActiveIndex() throws Exception {
+        File previousDir = getIndexDir();
+        SolrCore previousCore = registry.getCore(TEST_INDEX_NAME);
+        try {
+            managedSolrServer.updateIndex(TEST_INDEX_NAME, openArchive(true));
+            fail("IOException expected for an index with an invalid solrconfig.xml");
+        } catch (IOException e) {
+            //expected
+        }
+        //the previous version is still active
+        assertEquals(previousDir, getIndexDir());
+        assertTrue(previousDir.isDirectory());
+        assertEquals(previousCore, registry.getCore(TEST_INDEX_NAME));
+        assertFalse(previousCore.isClosed());
+        //the side core was removed and its data deleted
+        assertNull(registry.getCore(TEST_INDEX_NAME + "-hotswap"));
+        for(File file : managedDir.listFiles()){
+            if(file.isDirectory() && file.getName().startsWith(TEST_INDEX_NAME + '-')){
+                assertEquals(previousDir.getName(), file.getName());
+            }
+        }
+    }
+
+    /**
+     * Updates an active index while the previous version is still in use.
+     * The data of the previous version MUST only be deleted after it was
+     * closed.
+     */
+    @Test
+    public void testPreviousVersionDeletedOnClose() throws Exception {
+        File previousDir = getIndexDir();
+        SolrCore previousCore = registry.getCore(TEST_INDEX_NAME);
+        previousCore.open(); //simulates an in-flight request
+        managedSolrServer.updateIndex(TEST_INDEX_NAME, openArchive(false));
+        //the new version is active
+        assertFalse(previousDir.equals(getIndexDir()));
+        assertNotSame(previousCore, registry.getCore(TEST_INDEX_NAME));
+        //the previous version is still in use after the release timeout
+        assertFalse(previousCore.isClosed());
+        assertTrue(previousDir.isDirectory());
+        //releasing it closes the core and deletes its data
+        previousCore.close();
+        assertTrue(previousCore.isClosed());
+        assertFalse(previousDir.exists());
+    }
+
+    /**
+     * In-memory replacement of the OSGI service registry used by the
+     * mocked {@link BundleContext}
+     */
+    private static class ServiceRegistry implements Answer<ServiceRegistration> {
+
+        private final AtomicLong serviceId = new AtomicLong();
+        private final Map<ServiceReference,Object> services = new ConcurrentHashMap<ServiceReference,Object>();
+        private final Map<ServiceReference,Dictionary<String,Object>> properties =
+                new ConcurrentHashMap<ServiceReference,Dictionary<String,Object>>();
+
+        @Override
+        public ServiceRegistration answer(InvocationOnMock invocation) throws Throwable {
+            Object[] args = invocation.getArguments();
+            final ServiceReference ref = mock(ServiceReference.class);
+            final Long id = serviceId.incrementAndGet();
+            properties.put(ref, copy((Dictionary<?,?>) args[2], id));
+            when(ref.getProperty(anyString())).thenAnswer(new Answer<Object>() {
+                @Override
+                public Object answer(InvocationOnMock invocation) throws Throwable {
+                    Dictionary<String,Object> props = properties.get(ref);
+                    return props == null ? null : props.get(invocation.getArguments()[0]);
+                }
+            });
+            ServiceRegistration registration = mock(ServiceRegistration.class);
+            when(registration.getReference()).thenReturn(ref);
+            doAnswer(new Answer<Object>() {
+                @Override
+                public Object answer(InvocationOnMock invocation) throws Throwable {
+                    properties.put(ref, copy((Dictionary<?,?>) invocation.getArguments()[0], id));
+                    return null;
+                }
+            }).when(registration).setProperties(any(Dictionary.class));
+            doAnswer(new Answer<Object>() {
+                @Override
+                public Object answer(InvocationOnMock invocation) throws Throwable {
+                    if(services.remove(ref) == null){
+                        throw new IllegalStateException("Service already unregistered");
+                    }
+                    properties.remove(ref);
+                    return null;
+                }
+            }).when(registration).unregister();
+            services.put(ref, args[1]);
+            return registration;
+        }
+
+        private static Dictionary<String,Object> copy(Dictionary<?,?> dict, Long id) {
+            Dictionary<String,Object> props = new Hashtable<String,Object>();
+            if(dict != null){
+                for(Enumeration<?> keys = dict.keys(); keys.hasMoreElements();){
+                    Object key = keys.nextElement();
+                    props.put(key.toString(), dict.get(key));
+                }
+            }
+            props.put(Constants.SERVICE_ID, id);
+            return props;
+        }
+
+        /**
+         * The {@link SolrCore} registered for the parsed name
+         * @param name the name of the core
+         * @return the core or <code>null</code> if none is registered
+         */
+        SolrCore getCore(String name) {
+            for(Entry<ServiceReference,Object> entry : services.entrySet()){
+                Dictionary<String,Object> props = properties.get(entry.getKey());
+                if(entry.getValue() instanceof SolrCore && props != null
+                        && name.equals(props.get(PROPERTY_CORE_NAME))){
+                    return (SolrCore) entry.getValue();
+                }
+            }
+            return null;
+        }
+    }
+}
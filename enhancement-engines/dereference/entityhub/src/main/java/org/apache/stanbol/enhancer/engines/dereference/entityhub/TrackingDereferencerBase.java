@@ -49,6 +49,8 @@ import org.apache.stanbol.entityhub.core.mapping.DefaultFieldMapperImpl;
 import org.apache.stanbol.entityhub.core.mapping.FieldMappingUtils;
 import org.apache.stanbol.entityhub.core.mapping.ValueConverterFactory;
 import org.apache.stanbol.entityhub.ldpath.EntityhubLDPath;
+import org.apache.stanbol.entityhub.ldpath.backend.AbstractBackend;
+import org.apache.stanbol.entityhub.ldpath.backend.BatchingBackend;
 import org.apache.stanbol.entityhub.model.clerezza.RdfReference;
 import org.apache.stanbol.entityhub.model.clerezza.RdfRepresentation;
 import org.apache.stanbol.entityhub.model.clerezza.RdfValueFactory;
@@ -339,6 +341,12 @@ public abstract class TrackingDereferencerBase<T> implements EntityDereferencer
         //graph (we do not want partial results on an error
         Graph ldPathResults = new SimpleGraph();
         RdfRepresentation result = valueFactory.createRdfRepresentation(uri, ldPathResults);
+        if(rdfBackend instanceof AbstractBackend){
+            //load the nodes of each path step with a single request
+            BatchingBackend batchingBackend = new BatchingBackend((AbstractBackend)rdfBackend);
+            batchingBackend.prefetch(Collections.singleton(context), ldpathProgram);
+            rdfBackend = batchingBackend;
+        }
         //execute the LDPath Program and write results to the RDF ImmutableGraph
         try {
 	        for(org.apache.marmotta.ldpath.model.fields.FieldMapping<?,Object> mapping : ldpathProgram.getFields()) {
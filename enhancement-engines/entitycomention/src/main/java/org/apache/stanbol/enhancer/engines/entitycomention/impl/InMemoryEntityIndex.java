@@ -163,6 +163,22 @@ public class InMemoryEntityIndex implements EntitySearcher {
         return resultList;
     }
 
+    @Override
+    public Map<List<String>,Collection<? extends Entity>> lookup(IRI field,
+                                           Set<IRI> includeFields,
+                                           Collection<List<String>> searches, String[] languages,
+                                           Integer numResults, Integer offset) throws IllegalStateException {
+        //in-memory lookups are cheap. So just call lookup for every search
+        Map<List<String>,Collection<? extends Entity>> results = 
+                new HashMap<List<String>,Collection<? extends Entity>>(searches.size()*2);
+        for(List<String> search : searches){
+            if(!results.containsKey(search)){
+                results.put(search, lookup(field, includeFields, search, languages, numResults, offset));
+            }
+        }
+        return results;
+    }
+
     private static final Comparator<Collection<?>> COLLECTION_SIZE_COMPARATOR = new Comparator<Collection<?>>() {
 
         @Override
@@ -29,6 +29,10 @@ import static org.apache.stanbol.enhancer.engines.entitylinking.config.TextProce
 import static org.apache.stanbol.enhancer.engines.entitylinking.config.EntityLinkerConfig.DEFAULT_INCLUDE_SIMILAR_SCORE;
 import static org.apache.stanbol.enhancer.engines.entitylinking.config.EntityLinkerConfig.ENTITY_TYPES;
 import static org.apache.stanbol.enhancer.engines.entitylinking.config.EntityLinkerConfig.INCLUDE_SIMILAR_SCORE;
+import static org.apache.stanbol.enhancer.engines.entitylinking.config.EntityLinkerConfig.DEFAULT_LOOKUP_CACHE_SIZE;
+import static org.apache.stanbol.enhancer.engines.entitylinking.config.EntityLinkerConfig.DEFAULT_LOOKUP_CACHE_TTL;
+import static org.apache.stanbol.enhancer.engines.entitylinking.config.EntityLinkerConfig.LOOKUP_CACHE_SIZE;
+import static org.apache.stanbol.enhancer.engines.entitylinking.config.EntityLinkerConfig.LOOKUP_CACHE_TTL;
 import static org.apache.stanbol.enhancer.engines.entitylinking.config.EntityLinkerConfig.MIN_TOKEN_SCORE;
 import static org.apache.stanbol.enhancer.engines.entitylinking.config.EntityLinkerConfig.NAME_FIELD;
 import static org.apache.stanbol.enhancer.engines.entitylinking.config.EntityLinkerConfig.REDIRECT_FIELD;
@@ -130,6 +134,8 @@ import org.slf4j.LoggerFactory;
     @Property(name=DEREFERENCE_ENTITIES, boolValue=DEFAULT_DEREFERENCE_ENTITIES_STATE),
     @Property(name=DEREFERENCE_ENTITIES_FIELDS,cardinality=Integer.MAX_VALUE,
     	value={"rdfs:comment","geo:lat","geo:long","foaf:depiction","dbp-ont:thumbnail"}),
+    @Property(name=LOOKUP_CACHE_SIZE, intValue=DEFAULT_LOOKUP_CACHE_SIZE),
+    @Property(name=LOOKUP_CACHE_TTL, intValue=DEFAULT_LOOKUP_CACHE_TTL),
     @Property(name=SERVICE_RANKING,intValue=0)
 })
 public class EntityhubLinkingEngine implements ServiceTrackerCustomizer {
@@ -109,7 +109,8 @@ public final class ReferencedSiteSearcher extends TrackingEntitySearcher<Site> i
         if(site == null){
             throw new IllegalStateException("ReferencedSite "+siteId+" is currently not available");
         }
-        queryStats.begin();
+        //NOTE: use add(..) as lookups might be executed concurrently
+        long start = System.nanoTime();
         FieldQuery query = EntitySearcherUtils.createFieldQuery(site.getQueryFactory(), 
             field, includeFields, search, languages);
         if(limit != null && limit > 0){
@@ -128,14 +129,14 @@ public final class ReferencedSiteSearcher extends TrackingEntitySearcher<Site> i
                 search+'@'+Arrays.toString(languages)+"in the ReferencedSite "+
                 site.getId(), e);
         }
-        queryStats.complete();
+        queryStats.add(System.nanoTime() - start);
         if(!results.isEmpty()){
             Set<String> languagesSet = new HashSet<String>(Arrays.asList(languages));
             Collection<Entity> entities = new ArrayList<Entity>(results.size());
             for(Representation result : results){
-                resultStats.begin();
+                start = System.nanoTime();
                 entities.add(new EntityhubEntity(result, null, languagesSet));
-                resultStats.complete();
+                resultStats.add(System.nanoTime() - start);
             }
             return entities;
         } else {
@@ -16,10 +16,25 @@
 */
 package org.apache.stanbol.enhancer.engines.entityhublinking;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.apache.stanbol.enhancer.engines.entitylinking.EntitySearcher;
+import org.apache.clerezza.commons.rdf.IRI;
+import org.apache.stanbol.enhancer.engines.entitylinking.Entity;
+import org.apache.stanbol.enhancer.engines.entitylinking.EntitySearcherException;
+import org.apache.stanbol.enhancer.engines.entitylinking.VersionedEntitySearcher;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Filter;
 import org.osgi.framework.InvalidSyntaxException;
@@ -28,14 +43,35 @@ import org.osgi.util.tracker.ServiceTrackerCustomizer;
 /**
  * Abstract super class for EntitySearchers that need to track the OSGI service
  * used to lookup Entities. Used by the {@link EntityhubSearcher} and the 
- * {@link ReferencedSiteSearcher} implementation
+ * {@link ReferencedSiteSearcher} implementation<p>
+ * Batched lookups are implemented by executing the lookups of the single
+ * searches in parallel (up to {@link #MAX_CONCURRENT_LOOKUPS}). Results are
+ * de-multiplexed per search.<p>
+ * The {@link #getVersion() version} is based on the tracking count of the
+ * {@link ServiceTracker}. It changes whenever the tracked service is
+ * registered, modified or unregistered (e.g. if a Site is re-activated
+ * because a new version of its index was installed).
  * @author Rupert Westenthaler
  *
  */
-public abstract class TrackingEntitySearcher<T> implements EntitySearcher {
+public abstract class TrackingEntitySearcher<T> implements VersionedEntitySearcher {
+    
+    /**
+     * The maximum number of lookups executed in parallel for a call to the
+     * batched {@link #lookup(IRI, Set, Collection, String[], Integer, Integer)}
+     * method
+     */
+    public static final int MAX_CONCURRENT_LOOKUPS = 4;
+    
+    private static final AtomicInteger poolCount = new AtomicInteger();
     
     private ServiceTracker searchServiceTracker;
     protected BundleContext bundleContext; 
+    /**
+     * Used to execute batched lookups. Lazily initialised on the first
+     * call to {@link #lookup(IRI, Set, Collection, String[], Integer, Integer)}
+     */
+    private ExecutorService lookupExecutor;
     /**
      * Creates a new instance for the parsed parameter
      * @param context the BundleContexed used to create the {@link ServiceTracker}
@@ -91,12 +127,105 @@ public abstract class TrackingEntitySearcher<T> implements EntitySearcher {
         }
     }
     
+    /**
+     * Executes the lookups for the parsed searches in parallel and 
+     * de-multiplexes the results by search.
+     */
+    @Override
+    public Map<List<String>,Collection<? extends Entity>> lookup(final IRI field,
+                                           final Set<IRI> includeFields,
+                                           Collection<List<String>> searches,
+                                           final String[] languages,
+                                           final Integer limit, final Integer offset) throws EntitySearcherException {
+        if(searches == null){
+            throw new IllegalArgumentException("The parsed searches MUST NOT be NULL!");
+        }
+        Map<List<String>,Collection<? extends Entity>> results = 
+                new HashMap<List<String>,Collection<? extends Entity>>(searches.size()*2);
+        if(searches.size() < 2){ //no need to use the executor
+            for(List<String> search : searches){
+                results.put(search, lookup(field, includeFields, search, languages, limit, offset));
+            }
+            return results;
+        }
+        ExecutorService executor = getLookupExecutor();
+        Map<List<String>,Future<Collection<? extends Entity>>> futures = 
+                new LinkedHashMap<List<String>,Future<Collection<? extends Entity>>>(searches.size()*2);
+        for(final List<String> search : searches){
+            if(!futures.containsKey(search)){
+                futures.put(search, executor.submit(new Callable<Collection<? extends Entity>>() {
+                    @Override
+                    public Collection<? extends Entity> call() throws Exception {
+                        return lookup(field, includeFields, search, languages, limit, offset);
+                    }
+                }));
+            }
+        }
+        try {
+            for(Entry<List<String>,Future<Collection<? extends Entity>>> entry : futures.entrySet()){
+                results.put(entry.getKey(), entry.getValue().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EntitySearcherException("Interrupted while waiting for lookup results",e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof EntitySearcherException){
+                throw (EntitySearcherException)cause;
+            } else if(cause instanceof RuntimeException){
+                throw (RuntimeException)cause;
+            } else {
+                throw new EntitySearcherException("Exception while performing batched lookup",cause);
+            }
+        } finally { //cancel remaining lookups in case of an error
+            for(Future<?> future : futures.values()){
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+    
+    private synchronized ExecutorService getLookupExecutor(){
+        if(lookupExecutor == null){
+            final String prefix = "entitysearcher-lookup-" + poolCount.incrementAndGet() + '-';
+            lookupExecutor = Executors.newFixedThreadPool(MAX_CONCURRENT_LOOKUPS, new ThreadFactory() {
+                private final AtomicInteger threadCount = new AtomicInteger();
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, prefix + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return lookupExecutor;
+    }
+    
+    /**
+     * The tracking count of the {@link ServiceTracker} used to track the
+     * service. NOTE that this does not change if the index of the service
+     * is updated in place (e.g. Entities stored in the Yard of a Site).
+     */
+    @Override
+    public Object getVersion() {
+        ServiceTracker tracker = searchServiceTracker;
+        return Integer.valueOf(tracker == null ? -1 : tracker.getTrackingCount());
+    }
+    
     /**
      * Closes the {@link ServiceTracker} used to track the service.
      */
     public void close(){
-        searchServiceTracker.close();
-        searchServiceTracker = null;
+        synchronized (this) {
+            if(lookupExecutor != null){
+                lookupExecutor.shutdownNow();
+                lookupExecutor = null;
+            }
+        }
+        if(searchServiceTracker != null){
+            searchServiceTracker.close();
+            searchServiceTracker = null;
+        }
         bundleContext = null;
     }
     @Override
@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.stanbol.enhancer.engines.entityhublinking;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.clerezza.commons.rdf.IRI;
+import org.apache.clerezza.commons.rdf.RDFTerm;
+import org.apache.clerezza.commons.rdf.impl.utils.simple.SimpleGraph;
+import org.apache.stanbol.enhancer.engines.entitylinking.Entity;
+import org.apache.stanbol.enhancer.engines.entitylinking.EntitySearcherException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.BundleContext;
+
+/**
+ * Tests the batched lookup implemented by the {@link TrackingEntitySearcher}
+ */
+public class TrackingEntitySearcherTest {
+
+    private static final IRI NAME = new IRI("http://www.example.org/name");
+
+    private static final String[] LANGUAGES = new String[]{"en"};
+
+    private TestSearcher searcher;
+
+    @Before
+    public void createSearcher(){
+        searcher = new TestSearcher(mock(BundleContext.class));
+    }
+
+    @After
+    public void closeSearcher(){
+        searcher.release(); //do not keep lookups blocked
+        searcher.close();
+    }
+
+    @Test
+    public void testResultsPerSearch() throws Exception {
+        searcher.release();
+        List<String> paris = Arrays.asList("Paris");
+        List<String> newYork = Arrays.asList("New", "York");
+        List<String> london = Arrays.asList("London");
+        //the duplicated search is only looked up once
+        Map<List<String>,Collection<? extends Entity>> results = searcher.lookup(
+            NAME, null, Arrays.asList(paris, newYork, london, paris), LANGUAGES, 10, 0);
+        assertEquals(3, results.size());
+        assertEquals(3, searcher.lookups.size());
+        for(List<String> search : Arrays.asList(paris, newYork, london)){
+            Collection<? extends Entity> entities = results.get(search);
+            assertEquals(1, entities.size());
+            assertEquals(TestSearcher.getUri(search), entities.iterator().next().getUri());
+            assertEquals(Integer.valueOf(1), searcher.lookups.get(search));
+        }
+        //a single search is looked up by the calling thread
+        results = searcher.lookup(NAME, null, Collections.singleton(paris), LANGUAGES, 10, 0);
+        assertEquals(1, results.size());
+        assertEquals(TestSearcher.getUri(paris), results.get(paris).iterator().next().getUri());
+    }
+
+    @Test
+    public void testErrorPropagation() throws Exception {
+        searcher.release();
+        List<String> failing = Arrays.asList("fail");
+        try {
+            searcher.lookup(NAME, null, Arrays.asList(Arrays.asList("Paris"), failing,
+                Arrays.asList("London")), LANGUAGES, 10, 0);
+            fail("EntitySearcherException expected");
+        } catch (EntitySearcherException e) {
+            assertSame(searcher.failure, e);
+        }
+        searcher.runtimeFailure = true;
+        try {
+            searcher.lookup(NAME, null, Arrays.asList(Arrays.asList("Paris"), failing),
+                LANGUAGES, 10, 0);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testInterruptCancelsLookups() throws Exception {
+        //lookups block until released
+        final AtomicReference<Exception> thrown = new AtomicReference<Exception>();
+        Thread caller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    searcher.lookup(NAME, null, Arrays.asList(Arrays.asList("Paris"),
+                        Arrays.asList("London"), Arrays.asList("Rome")), LANGUAGES, 10, 0);
+                } catch (Exception e) {
+                    thrown.set(e);
+                }
+            }
+        });
+        caller.start();
+        assertTrue(searcher.started.await(5, TimeUnit.SECONDS));
+        caller.interrupt();
+        caller.join(5000);
+        assertTrue(thrown.get() instanceof EntitySearcherException);
+        //the running lookups get interrupted
+        assertTrue(searcher.interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Returns a single Entity per search. Lookups block until
+     * {@link #release() released}
+     */
+    private static class TestSearcher extends TrackingEntitySearcher<Object> {
+
+        private final Map<List<String>,Integer> lookups = new ConcurrentHashMap<List<String>,Integer>();
+        private final CountDownLatch released = new CountDownLatch(1);
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+        private final EntitySearcherException failure = new EntitySearcherException("Test failure");
+        private volatile boolean runtimeFailure;
+
+        TestSearcher(BundleContext context){
+            super(context, Object.class, null, null);
+        }
+
+        static IRI getUri(List<String> search){
+            StringBuilder uri = new StringBuilder("urn:test:");
+            for(String token : search){
+                uri.append(token);
+            }
+            return new IRI(uri.toString());
+        }
+
+        void release(){
+            released.countDown();
+        }
+
+        @Override
+        public Collection<? extends Entity> lookup(IRI field, Set<IRI> selectedFields,
+                List<String> search, String[] languages, Integer limit, Integer offset)
+                        throws EntitySearcherException {
+            started.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw new EntitySearcherException("Interrupted", e);
+            }
+            synchronized (lookups) {
+                Integer num = lookups.get(search);
+                lookups.put(search, num == null ? 1 : num + 1);
+            }
+            if(search.contains("fail")){
+                if(runtimeFailure){
+                    throw new IllegalStateException("Test failure");
+                } else {
+                    throw failure;
+                }
+            }
+            return Collections.singleton(new Entity(getUri(search), new SimpleGraph()));
+        }
+
+        @Override
+        public Entity get(IRI id, Set<IRI> selectedFields, String...languages) {
+            return null;
+        }
+
+        @Override
+        public boolean supportsOfflineMode() {
+            return true;
+        }
+
+        @Override
+        public Integer getLimit() {
+            return null;
+        }
+
+        @Override
+        public Map<IRI,Collection<RDFTerm>> getOriginInformation() {
+            return null;
+        }
+    }
+}
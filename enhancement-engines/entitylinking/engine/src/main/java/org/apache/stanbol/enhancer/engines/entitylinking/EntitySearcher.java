@@ -54,6 +54,34 @@ public interface EntitySearcher {
     Collection<? extends Entity> lookup(IRI field, Set<IRI> selectedFields, 
         List<String> search, String[] languages, Integer limit, Integer offset) 
                 throws EntitySearcherException;
+    /**
+     * Lookup Entities for several searches at once. This allows implementations
+     * to reduce the number of requests to remote services e.g. by combining
+     * the searches to a single request or by issuing requests in parallel.
+     * The results MUST BE the same as returned by calling 
+     * {@link #lookup(IRI, Set, List, String[], Integer, Integer)} for each
+     * of the parsed searches.
+     * @param field the field used to search for values in the parsed languages
+     * @param selectedFields A set of fields that need to be included within the 
+     * returned {@link Representation}. See 
+     * {@link #lookup(IRI, Set, List, String[], Integer, Integer)} for details
+     * @param searches the searches. Each search is a list of tokens. MUST NOT 
+     * be <code>null</code>
+     * @param languages the languages to include in the search 
+     * @param limit The maximum number of results per search or <code>null</code>
+     * to use the default
+     * @param offset The offset of the first requested search result
+     * @return the Entities found for the parsed searches. The map contains an
+     * entry for each of the parsed searches (with an empty collection if no 
+     * Entity was found)
+     * @throws EntitySearcherException An exception while searching for concepts
+     * @throws IllegalArgumentException if the parsed field is <code>null</code>;
+     * the collection with the searches is <code>null</code> or any of the 
+     * searches is <code>null</code> or empty
+     */
+    Map<List<String>,Collection<? extends Entity>> lookup(IRI field, Set<IRI> selectedFields,
+        Collection<List<String>> searches, String[] languages, Integer limit, Integer offset)
+                throws EntitySearcherException;
     /**
      * Lookup an Entity of the linked vocabulary by the id.
      * @param id the id
@@ -0,0 +1,36 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.enhancer.engines.entitylinking;
+
+/**
+ * Optional extension of the {@link EntitySearcher} interface for 
+ * implementations that can detect changes of the searched data 
+ * (e.g. a new version of the index used by the Yard/Site).<p>
+ * The version is used to invalidate cached lookup results. Implementations
+ * MUST return a different version as soon as results returned by
+ * {@link EntitySearcher#lookup(org.apache.clerezza.commons.rdf.IRI, java.util.Set, java.util.List, String[], Integer, Integer) lookup}
+ * queries might have changed.
+ */
+public interface VersionedEntitySearcher extends EntitySearcher {
+
+    /**
+     * The version of the data searched by this EntitySearcher. Compared by
+     * using {@link Object#equals(Object)}.
+     * @return the version. MUST NOT be <code>null</code>
+     */
+    Object getVersion();
+}
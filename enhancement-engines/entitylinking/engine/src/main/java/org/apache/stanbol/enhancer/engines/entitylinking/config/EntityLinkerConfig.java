@@ -33,6 +33,7 @@ import org.apache.clerezza.commons.rdf.IRI;
 import org.apache.stanbol.commons.namespaceprefix.NamespaceMappingUtils;
 import org.apache.stanbol.commons.namespaceprefix.NamespacePrefixService;
 import org.apache.stanbol.enhancer.engines.entitylinking.EntitySearcher;
+import org.apache.stanbol.enhancer.engines.entitylinking.impl.CachingEntitySearcher;
 import org.apache.stanbol.enhancer.engines.entitylinking.impl.EntityLinker;
 import org.apache.stanbol.enhancer.engines.entitylinking.impl.Suggestion;
 import org.apache.stanbol.enhancer.engines.entitylinking.impl.Suggestion.MATCH;
@@ -222,6 +223,26 @@ public class EntityLinkerConfig {
      * property to <code>fise:EntityAnnotation</code> created by the linking engine.
      */
     public static final String WRITE_ENTITY_RANKINGS = "enhancer.engines.linking.writeEntityRankings";
+    /**
+     * The maximum number of lookup results cached across processed documents.
+     * Values &lt;= 0 deactivate the lookup cache.<p>
+     * Cached results are only invalidated if the {@link EntitySearcher}
+     * reports a new version (see
+     * {@link org.apache.stanbol.enhancer.engines.entitylinking.VersionedEntitySearcher})
+     * or the {@link #LOOKUP_CACHE_TTL} expires. Updates of an index that do
+     * not change this version (e.g. Entities stored in a Yard) are not
+     * visible while results are cached. Therefore the cache is deactivated
+     * by default.
+     * @see CachingEntitySearcher
+     */
+    public static final String LOOKUP_CACHE_SIZE = "enhancer.engines.linking.lookupCache.size";
+    /**
+     * The time (in seconds) lookup results are cached. Values &lt;= 0 deactivate
+     * the expiration of cached results (they are still evicted if the
+     * {@link #LOOKUP_CACHE_SIZE} is reached or if the {@link EntitySearcher}
+     * reports a new version).
+     */
+    public static final String LOOKUP_CACHE_TTL = "enhancer.engines.linking.lookupCache.ttl";
 
     
     /**
@@ -256,6 +277,15 @@ public class EntityLinkerConfig {
      * The default is set to <code>3</code> 
      */
     public static final int DEFAULT_MAX_SEARCH_DISTANCE = 3;
+    /**
+     * By default the lookup cache is deactivated
+     * @see #LOOKUP_CACHE_SIZE
+     */
+    public static final int DEFAULT_LOOKUP_CACHE_SIZE = 0;
+    /**
+     * By default lookup results are cached for <code>600</code> seconds
+     */
+    public static final int DEFAULT_LOOKUP_CACHE_TTL = 600;
 
     /**
      * Default value for {@link #getNameField()} (rdfs:label)
@@ -398,6 +428,10 @@ public class EntityLinkerConfig {
      */
     private int maxSearchDistance = DEFAULT_MAX_SEARCH_DISTANCE;
     
+    private int lookupCacheSize = DEFAULT_LOOKUP_CACHE_SIZE;
+    
+    private int lookupCacheTtl = DEFAULT_LOOKUP_CACHE_TTL;
+    
     private boolean caseSensitiveMatchingState = DEFAULT_CASE_SENSITIVE_MATCHING_STATE;
     /**
      * Holds the mappings of rdf:type used by concepts to dc:type values used
@@ -760,6 +794,30 @@ public class EntityLinkerConfig {
             }
             linkerConfig.setMaxSearchDistance(maxSearchDistance);
         }
+        
+        //init the LOOKUP_CACHE_SIZE
+        value = configuration.get(LOOKUP_CACHE_SIZE);
+        if(value instanceof Number){
+            linkerConfig.setLookupCacheSize(((Number)value).intValue());
+        } else if (value != null && !value.toString().isEmpty()){
+            try {
+                linkerConfig.setLookupCacheSize(Integer.parseInt(value.toString()));
+            } catch(NumberFormatException e){
+                throw new ConfigurationException(LOOKUP_CACHE_SIZE, "Values MUST be valid Integer values",e);
+            }
+        }
+        
+        //init the LOOKUP_CACHE_TTL
+        value = configuration.get(LOOKUP_CACHE_TTL);
+        if(value instanceof Number){
+            linkerConfig.setLookupCacheTtl(((Number)value).intValue());
+        } else if (value != null && !value.toString().isEmpty()){
+            try {
+                linkerConfig.setLookupCacheTtl(Integer.parseInt(value.toString()));
+            } catch(NumberFormatException e){
+                throw new ConfigurationException(LOOKUP_CACHE_TTL, "Values MUST be valid Integer values",e);
+            }
+        }
 
         //init the REDIRECT_PROCESSING_MODE
         value = configuration.get(REDIRECT_MODE);
@@ -1343,6 +1401,38 @@ public class EntityLinkerConfig {
             this.maxSearchDistance = maxSearchDistance;
         }
     }
+    /**
+     * Getter for the maximum number of lookup results cached across
+     * processed documents
+     * @return the lookup cache size. Values &lt;= 0 indicate that the lookup
+     * cache is deactivated
+     */
+    public int getLookupCacheSize() {
+        return lookupCacheSize;
+    }
+    /**
+     * Setter for the maximum number of lookup results cached across
+     * processed documents
+     * @param lookupCacheSize the size. Values &lt;= 0 deactivate the cache
+     */
+    public void setLookupCacheSize(int lookupCacheSize) {
+        this.lookupCacheSize = lookupCacheSize;
+    }
+    /**
+     * Getter for the time (in seconds) lookup results are cached
+     * @return the time to live. Values &lt;= 0 indicate no expiration
+     */
+    public int getLookupCacheTtl() {
+        return lookupCacheTtl;
+    }
+    /**
+     * Setter for the time (in seconds) lookup results are cached
+     * @param lookupCacheTtl the time to live. Values &lt;= 0 deactivate
+     * the expiration of cached results
+     */
+    public void setLookupCacheTtl(int lookupCacheTtl) {
+        this.lookupCacheTtl = lookupCacheTtl;
+    }
     public boolean isLemmaMatching() {
         return lemmaMatchingState;
     }
@@ -56,6 +56,7 @@ import org.apache.stanbol.enhancer.engines.entitylinking.LabelTokenizer;
 import org.apache.stanbol.enhancer.engines.entitylinking.config.EntityLinkerConfig;
 import org.apache.stanbol.enhancer.engines.entitylinking.config.LanguageProcessingConfig;
 import org.apache.stanbol.enhancer.engines.entitylinking.config.TextProcessingConfig;
+import org.apache.stanbol.enhancer.engines.entitylinking.impl.CachingEntitySearcher;
 import org.apache.stanbol.enhancer.engines.entitylinking.impl.EntityLinker;
 import org.apache.stanbol.enhancer.engines.entitylinking.impl.LinkedEntity;
 import org.apache.stanbol.enhancer.engines.entitylinking.impl.LinkedEntity.Occurrence;
@@ -185,7 +186,14 @@ public class EntityLinkingEngine implements EnhancementEngine, ServiceProperties
         this.name = name;
         this.linkerConfig = linkingConfig != null ? linkingConfig : new EntityLinkerConfig();
         this.textProcessingConfig = textProcessingConfig;
-        this.entitySearcher = entitySearcher;
+        //cache lookup results across processed documents (if configured)
+        if(entitySearcher != null && this.linkerConfig.getLookupCacheSize() > 0){
+            this.entitySearcher = new CachingEntitySearcher(entitySearcher, 
+                this.linkerConfig.getLookupCacheSize(), 
+                this.linkerConfig.getLookupCacheTtl()*1000L);
+        } else {
+            this.entitySearcher = entitySearcher;
+        }
         this.labelTokenizer = labelTokenizer;
     }
     /**
@@ -268,6 +276,9 @@ public class EntityLinkingEngine implements EnhancementEngine, ServiceProperties
         }
         if(log.isInfoEnabled()){
             entityLinker.logStatistics(log);
+            if(entitySearcher instanceof CachingEntitySearcher){
+                log.info("    - {}", ((CachingEntitySearcher)entitySearcher).printStatistics());
+            }
         }
         //write results (requires a write lock)
         ci.getLock().writeLock().lock();
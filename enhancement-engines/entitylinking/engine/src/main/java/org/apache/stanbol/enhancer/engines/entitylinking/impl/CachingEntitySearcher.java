@@ -0,0 +1,416 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.enhancer.engines.entitylinking.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.clerezza.commons.rdf.Graph;
+import org.apache.clerezza.commons.rdf.IRI;
+import org.apache.clerezza.commons.rdf.RDFTerm;
+import org.apache.clerezza.commons.rdf.Triple;
+import org.apache.stanbol.commons.indexedgraph.IndexedGraph;
+import org.apache.stanbol.enhancer.engines.entitylinking.Entity;
+import org.apache.stanbol.enhancer.engines.entitylinking.EntitySearcher;
+import org.apache.stanbol.enhancer.engines.entitylinking.EntitySearcherException;
+import org.apache.stanbol.enhancer.engines.entitylinking.VersionedEntitySearcher;
+import org.apache.stanbol.enhancer.engines.entitylinking.config.EntityLinkerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link EntitySearcher} that caches the results of 
+ * {@link #lookup(IRI, Set, List, String[], Integer, Integer) lookups} of
+ * the wrapped EntitySearcher across processed documents.<p>
+ * Results are cached by field, search tokens, languages, limit and offset.
+ * The cache is bounded by a maximum size (least recently used entries are
+ * evicted) and entries expire after a configurable time. If the wrapped
+ * EntitySearcher is a {@link VersionedEntitySearcher} the whole cache is
+ * invalidated as soon as it reports a new version.<p>
+ * The cache keeps a private copy of the data of the looked up Entities and
+ * every cache hit returns new {@link Entity} instances with their own
+ * {@link Graph}. This is required because the {@link EntityLinker} adds
+ * data to the Entities (e.g. for
+ * {@link EntityLinkerConfig.RedirectProcessingMode#ADD_VALUES}).<p>
+ * This class is thread safe.
+ * @see EntityLinkerConfig#LOOKUP_CACHE_SIZE
+ * @see EntityLinkerConfig#LOOKUP_CACHE_TTL
+ */
+public class CachingEntitySearcher implements EntitySearcher {
+
+    private final Logger log = LoggerFactory.getLogger(CachingEntitySearcher.class);
+    
+    private final EntitySearcher searcher;
+    private final int maxSize;
+    private final long ttl;
+    /**
+     * LRU map with the cached results. Guarded by <code>this</code>
+     */
+    private final LinkedHashMap<LookupKey,CachedResult> cache;
+    /**
+     * The version of the {@link #searcher} the cached results are based on
+     * (or <code>null</code> if the searcher is not versioned)
+     */
+    private Object version;
+    
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+    
+    /**
+     * Creates a cache for the lookup results of the parsed searcher
+     * @param searcher the searcher
+     * @param maxSize the maximum number of cached lookups
+     * @param ttl the time to live of cached results in milliseconds. Values
+     * <code>&lt;= 0</code> deactivate the expiration of cached results.
+     */
+    public CachingEntitySearcher(EntitySearcher searcher, int maxSize, long ttl){
+        if(searcher == null){
+            throw new IllegalArgumentException("The parsed EntitySearcher MUST NOT be NULL!");
+        }
+        if(maxSize <= 0){
+            throw new IllegalArgumentException("The parsed maximum cache size MUST BE > 0!");
+        }
+        this.searcher = searcher;
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.cache = new LinkedHashMap<LookupKey,CachedResult>(16, 0.75f, true){
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(Entry<LookupKey,CachedResult> eldest) {
+                if(size() > CachingEntitySearcher.this.maxSize){
+                    evictions++;
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+        };
+    }
+    /**
+     * Getter for the wrapped {@link EntitySearcher}
+     * @return the wrapped searcher
+     */
+    public EntitySearcher getSearcher() {
+        return searcher;
+    }
+    
+    @Override
+    public Collection<? extends Entity> lookup(IRI field, Set<IRI> selectedFields, List<String> search,
+            String[] languages, Integer limit, Integer offset) throws EntitySearcherException {
+        LookupKey key = new LookupKey(field, selectedFields, search, languages, limit, offset);
+        Object currentVersion = getSearcherVersion();
+        CachedResult cached = getCached(key, currentVersion);
+        if(cached == null){
+            cached = cache(key, searcher.lookup(field, selectedFields, search, languages, limit, offset),
+                currentVersion);
+        }
+        return cached.copy();
+    }
+    
+    @Override
+    public Map<List<String>,Collection<? extends Entity>> lookup(IRI field, Set<IRI> selectedFields,
+            Collection<List<String>> searches, String[] languages, Integer limit, Integer offset) 
+                    throws EntitySearcherException {
+        Object currentVersion = getSearcherVersion();
+        Map<List<String>,Collection<? extends Entity>> results = 
+                new HashMap<List<String>,Collection<? extends Entity>>(searches.size()*2);
+        Map<List<String>,LookupKey> missing = new LinkedHashMap<List<String>,LookupKey>();
+        for(List<String> search : searches){
+            LookupKey key = new LookupKey(field, selectedFields, search, languages, limit, offset);
+            CachedResult cached = getCached(key, currentVersion);
+            if(cached != null){
+                results.put(search, cached.copy());
+            } else {
+                missing.put(search, key);
+            }
+        }
+        if(!missing.isEmpty()){ //lookup the missing with a single batch
+            Map<List<String>,Collection<? extends Entity>> looked = searcher.lookup(
+                field, selectedFields, missing.keySet(), languages, limit, offset);
+            for(Entry<List<String>,LookupKey> entry : missing.entrySet()){
+                Collection<? extends Entity> result = looked.get(entry.getKey());
+                if(result == null){
+                    result = Collections.emptyList();
+                }
+                results.put(entry.getKey(), cache(entry.getValue(), result, currentVersion).copy());
+            }
+        }
+        return results;
+    }
+    
+    private Object getSearcherVersion(){
+        return searcher instanceof VersionedEntitySearcher ? 
+                ((VersionedEntitySearcher)searcher).getVersion() : null;
+    }
+    
+    private synchronized CachedResult getCached(LookupKey key, Object currentVersion){
+        checkVersion(currentVersion);
+        CachedResult cached = cache.get(key);
+        if(cached == null){
+            misses++;
+            return null;
+        } else if(ttl > 0 && System.currentTimeMillis() - cached.created > ttl){
+            cache.remove(key);
+            expirations++;
+            misses++;
+            return null;
+        } else {
+            hits++;
+            return cached;
+        }
+    }
+    
+    /**
+     * Caches a copy of the parsed results. Callers need to return a
+     * {@link CachedResult#copy()} and not the parsed results, to ensure that
+     * their modifications do not affect the data of the wrapped 
+     * {@link EntitySearcher}.
+     * @return the cached data of the parsed results
+     */
+    private CachedResult cache(LookupKey key, Collection<? extends Entity> results, Object resultVersion){
+        CachedResult cached = new CachedResult(results);
+        synchronized (this) {
+            //do not cache results of an old version (if the version changed
+            //while performing the lookup)
+            if(version == null ? resultVersion == null : version.equals(resultVersion)){
+                cache.put(key, cached);
+            }
+        }
+        return cached;
+    }
+    /**
+     * Clears the cache if the version of the {@link #searcher} has changed.
+     * Needs to be called while holding the lock on <code>this</code>
+     */
+    private void checkVersion(Object currentVersion){
+        if(version == null ? currentVersion != null : !version.equals(currentVersion)){
+            if(!cache.isEmpty()){
+                log.debug("invalidate lookup cache for version {} (new version: {})",
+                    version, currentVersion);
+                invalidations++;
+                cache.clear();
+            }
+            version = currentVersion;
+        }
+    }
+    /**
+     * Removes all cached results
+     */
+    public synchronized void clear(){
+        cache.clear();
+    }
+    /**
+     * The number of cached lookups
+     * @return the size of the cache
+     */
+    public synchronized int size(){
+        return cache.size();
+    }
+    /**
+     * The number of lookups answered by the cache
+     * @return the number of cache hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+    /**
+     * The number of lookups forwarded to the wrapped {@link EntitySearcher}
+     * @return the number of cache misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+    /**
+     * The statistics of this cache
+     * @return the statistics as String
+     */
+    public synchronized String printStatistics(){
+        long requests = hits + misses;
+        return String.format("LookupCache [size: %d/%d | hits: %d | misses: %d | hit ratio: %.1f%% | " +
+                "evictions: %d | expirations: %d | invalidations: %d]", cache.size(), maxSize,
+                hits, misses, requests > 0 ? hits*100d/requests : 0d, 
+                evictions, expirations, invalidations);
+    }
+    
+    @Override
+    public Entity get(IRI id, Set<IRI> selectedFields, String... languages) throws EntitySearcherException {
+        return searcher.get(id, selectedFields, languages);
+    }
+
+    @Override
+    public boolean supportsOfflineMode() {
+        return searcher.supportsOfflineMode();
+    }
+
+    @Override
+    public Integer getLimit() {
+        return searcher.getLimit();
+    }
+
+    @Override
+    public Map<IRI,Collection<RDFTerm>> getOriginInformation() {
+        return searcher.getOriginInformation();
+    }
+    
+    @Override
+    public String toString() {
+        return "Cached " + searcher;
+    }
+    
+    /**
+     * The cached data of a lookup. Only the triples with the Entity as subject
+     * are copied as this is all the information of an {@link Entity}.
+     */
+    private static final class CachedResult {
+        
+        final IRI[] uris;
+        final Triple[][] data;
+        final Float[] rankings;
+        final long created;
+        
+        CachedResult(Collection<? extends Entity> results){
+            int size = results.size();
+            this.uris = new IRI[size];
+            this.data = new Triple[size][];
+            this.rankings = new Float[size];
+            int i = 0;
+            for(Entity entity : results){
+                uris[i] = entity.getUri();
+                List<Triple> triples = new ArrayList<Triple>();
+                for(Iterator<Triple> it = entity.getData().filter(entity.getUri(), null, null);
+                        it.hasNext();triples.add(it.next()));
+                data[i] = triples.toArray(new Triple[triples.size()]);
+                rankings[i] = entity.getEntityRanking();
+                i++;
+            }
+            this.created = System.currentTimeMillis();
+        }
+        /**
+         * Creates new {@link Entity} instances (each with its own {@link Graph})
+         * for the cached data
+         * @return the read-only list with the copied Entities
+         */
+        List<Entity> copy(){
+            List<Entity> entities = new ArrayList<Entity>(uris.length);
+            for(int i=0;i<uris.length;i++){
+                entities.add(new CachedEntity(uris[i], 
+                    new IndexedGraph(Arrays.asList(data[i])), rankings[i]));
+            }
+            return Collections.unmodifiableList(entities);
+        }
+    }
+    /**
+     * Entity created for cached results. Keeps the 
+     * {@link Entity#getEntityRanking() ranking} of the original entity.
+     */
+    private static final class CachedEntity extends Entity {
+        
+        private final Float ranking;
+        
+        CachedEntity(IRI uri, Graph data, Float ranking){
+            super(uri,data);
+            this.ranking = ranking;
+        }
+        @Override
+        public Float getEntityRanking() {
+            return ranking;
+        }
+    }
+    
+    /**
+     * The key used for cached lookups. Languages and selected fields are
+     * compared as sets.
+     */
+    private static final class LookupKey {
+        
+        private final IRI field;
+        private final Set<IRI> selectedFields;
+        private final List<String> search;
+        private final Set<String> languages;
+        private final Integer limit;
+        private final int offset;
+        private final int hash;
+        
+        LookupKey(IRI field, Set<IRI> selectedFields, List<String> search, String[] languages, 
+                Integer limit, Integer offset){
+            this.field = field;
+            this.selectedFields = selectedFields == null ? Collections.<IRI>emptySet() : 
+                new HashSet<IRI>(selectedFields);
+            this.search = new ArrayList<String>(search);
+            if(languages == null){
+                this.languages = Collections.emptySet();
+            } else {
+                Set<String> langs = new TreeSet<String>(NULL_FIRST);
+                langs.addAll(Arrays.asList(languages));
+                this.languages = langs;
+            }
+            this.limit = limit;
+            this.offset = offset == null ? 0 : offset.intValue();
+            int h = field == null ? 0 : field.hashCode();
+            h = 31 * h + this.selectedFields.hashCode();
+            h = 31 * h + this.search.hashCode();
+            h = 31 * h + this.languages.hashCode();
+            h = 31 * h + (limit == null ? 0 : limit.hashCode());
+            this.hash = 31 * h + this.offset;
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if(obj == this){
+                return true;
+            }
+            if(!(obj instanceof LookupKey)){
+                return false;
+            }
+            LookupKey o = (LookupKey)obj;
+            return hash == o.hash && offset == o.offset &&
+                    (field == null ? o.field == null : field.equals(o.field)) &&
+                    (limit == null ? o.limit == null : limit.equals(o.limit)) &&
+                    search.equals(o.search) && languages.equals(o.languages) &&
+                    selectedFields.equals(o.selectedFields);
+        }
+    }
+    /**
+     * Allows <code>null</code> as language (used for literals without language)
+     */
+    private static final Comparator<String> NULL_FIRST = new Comparator<String>() {
+        @Override
+        public int compare(String s1, String s2) {
+            return s1 == null ? (s2 == null ? 0 : -1) : s2 == null ? 1 : s1.compareTo(s2);
+        }
+    };
+}
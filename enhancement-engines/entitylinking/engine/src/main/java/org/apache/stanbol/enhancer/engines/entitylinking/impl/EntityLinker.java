@@ -27,6 +27,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.NavigableMap;
 import java.util.Set;
 import java.util.TreeMap;
@@ -86,6 +87,15 @@ public class EntityLinker {
     
     private Statistic textProcessingStats = new Statistic("Text Processing");
     private Statistic lookupStats = new Statistic("Vocabulary Lookup");
+    private Statistic batchLookupStats = new Statistic("Batched Vocabulary Lookup");
+    private int numBatchedSearches = 0;
+    private int batchedSearchHits = 0;
+    /**
+     * Batched searches whose results were never used (e.g. because tokens
+     * got consumed by a match). Those cause additional load on the
+     * {@link EntitySearcher}
+     */
+    private int wastedBatchedSearches = 0;
     private int cacheHits = 0;
     private int numQueryResults = 0;
     private int numFilteredResults = 0;
@@ -97,6 +107,19 @@ public class EntityLinker {
     private long processingTime = -1;
 
     private Map<List<String>,List<Entity>> lookupCache;
+    /**
+     * The section for that the {@link #batchedResults} where looked up
+     */
+    private Section batchedSection;
+    /**
+     * The (unfiltered) results of the first page of the searches expected for
+     * the linkable tokens of the {@link #batchedSection}. Those are looked up
+     * by a single call to the batched
+     * {@link EntitySearcher#lookup(IRI, Set, Collection, String[], Integer, Integer)}
+     * method.
+     */
+    private final Map<List<String>,Collection<? extends Entity>> batchedResults = 
+            new HashMap<List<String>,Collection<? extends Entity>>();
 
 
     public EntityLinker(AnalysedText analysedText, String language,
@@ -161,104 +184,7 @@ public class EntityLinker {
                         token.isLinkable, token.isMatchable, token.inChunk != null ? 
                                 (token.inChunk.chunk + " "+ token.inChunk.chunk.getSpan()) : "none"});
             }
-            List<TokenData> searchStrings = new ArrayList<TokenData>(linkerConfig.getMaxSearchTokens());
-            getSearchString(token);
-            searchStrings.add(token);
-            //Determine the range we are allowed to search for tokens
-            final int minIncludeIndex;
-            final int maxIndcludeIndex;
-            int consumedIndex = state.getConsumedIndex();
-            //NOTE: testing has shown that using Chunks to restrict search for
-            //      additional matchable tokens does have an negative impact on
-            //      recall. Because of that this restriction is for now deactivated
-//            if(token.inChunk != null && !textProcessingConfig.isIgnoreChunks()){
-//                minIncludeIndex = token.inChunk.getStartTokenIndex();
-//                maxIndcludeIndex = token.inChunk.getEndTokenIndex();
-//                log.debug("  - restrict context to chunk[{}, {}]",
-//                    minIncludeIndex, maxIndcludeIndex);
-//            } else {
-                maxIndcludeIndex = state.getTokens().size() - 1;
-                minIncludeIndex = 0;
-//            }
-            int prevIndex = token.index;
-            int pastIndex = token.index;
-            int pastNonMatchable = 0;
-            int prevNonMatchable = 0;
-            int distance = 0;
-            do { 
-                distance++;//keep track of the distance
-                //get the past token at the given distance (However ignore
-                //non AlphaNumeric tokens when calculating the distance)
-                pastIndex++;
-                TokenData pastToken = null;
-                while(pastToken == null && maxIndcludeIndex >= pastIndex &&
-                        pastNonMatchable <= 1){
-                    TokenData td = state.getTokens().get(pastIndex);
-                    if(td.hasAlphaNumeric){
-                        pastToken = td;
-                    } else {
-                        pastIndex++;
-                    }
-                }
-                //get the previous token at the given distance (However ignore
-                //non AlphaNumeric tokens when calculating the distance)
-                prevIndex--;
-                TokenData prevToken = null;
-                while(prevToken == null && minIncludeIndex <= prevIndex &&
-                        //allow one nonMatchable token if prevIndex > the last
-                        //consumed one and zero nonMatchable if prevIndex is <=
-                        //the last consumed one
-                        ((prevIndex > consumedIndex && prevNonMatchable <= 1) ||
-                                prevIndex <= consumedIndex && prevNonMatchable < 1)){
-                    TokenData td = state.getTokens().get(prevIndex);
-                    if(td.hasAlphaNumeric){
-                        prevToken = td;
-                    } else {
-                        prevIndex--;
-                    }
-                }
-                //now that we know the tokens at this distance check if they are matchable
-                //Fist the past token
-                if(pastToken != null){
-                    if(log.isDebugEnabled()){
-                        log.debug("    {} {}:'{}' (lemma: {}) linkable={}, matchable={}",new Object[]{
-                                pastToken.isMatchable? '+':'-',pastToken.index,
-                                pastToken.getTokenText(), pastToken.getTokenLemma(),
-                                pastToken.isLinkable, pastToken.isMatchable
-                        });
-                    }
-                    if(pastToken.isMatchable){
-                        searchStrings.add(pastToken);
-                    } else {
-                        pastNonMatchable++;
-                    }
-                }
-                //Second in the previous token
-                if(prevToken != null){
-                    if(log.isDebugEnabled()){
-                        log.debug("    {} {}:'{}' (lemma: {}) linkable={}, matchable={}",new Object[]{
-                            prevToken.isMatchable? '+':'-',prevToken.index,
-                            prevToken.getTokenText(), prevToken.getTokenLemma(),
-                            prevToken.isLinkable, prevToken.isMatchable
-                        });
-                    }
-                    if(prevToken.isMatchable){
-                        getSearchString(prevToken);
-                        searchStrings.add(0,prevToken);
-                    } else {
-                        prevNonMatchable++;
-                    }
-                }
-            } while(searchStrings.size() < linkerConfig.getMaxSearchTokens() && distance <
-                    linkerConfig.getMaxSearchDistance() &&
-                    (prevIndex > minIncludeIndex || pastIndex < maxIndcludeIndex) &&
-                    (prevNonMatchable <= 1 || pastNonMatchable <= 1));
-            //we might have an additional element in the list
-            if(searchStrings.size() > linkerConfig.getMaxSearchTokens()){
-                searchStrings = searchStrings.subList( //the last part of the list
-                    searchStrings.size()-linkerConfig.getMaxSearchTokens(), 
-                    searchStrings.size());
-            }
+            List<TokenData> searchStrings = getSearchTokens(token, state.getConsumedIndex());
             if(log.isDebugEnabled()){
                 List<String> list = new ArrayList<String>(searchStrings.size());
                 for(TokenData dt : searchStrings){
@@ -267,6 +193,11 @@ public class EntityLinker {
                 log.debug("  >> searchStrings {}",list);
             }
             textProcessingStats.complete();
+            //lookup the searches of all linkable tokens of a section at once
+            if(!state.getSentence().equals(batchedSection)){
+                batchedSection = state.getSentence();
+                lookupSection();
+            }
             //search for Entities
             List<Suggestion> suggestions = lookupEntities(searchStrings);
             //Treat partial matches that do match more as the best FULL match
@@ -404,8 +335,117 @@ public class EntityLinker {
         if(linkingStateAware != null && sentence != null){
             linkingStateAware.endSection(sentence);
         }
+        wastedBatchedSearches = wastedBatchedSearches + batchedResults.size();
+        batchedResults.clear();
         this.processingTime = System.currentTimeMillis()-startTime;
     }
+    /**
+     * Collects the matchable {@link TokenData tokens} around the parsed token
+     * used to search for Entities.
+     * @param token the current (linkable) token
+     * @param consumedIndex the index of the last consumed token
+     * @return the tokens to search Entities for. Includes the parsed token
+     */
+    private List<TokenData> getSearchTokens(TokenData token, int consumedIndex) {
+        List<TokenData> searchStrings = new ArrayList<TokenData>(linkerConfig.getMaxSearchTokens());
+        getSearchString(token);
+        searchStrings.add(token);
+        //Determine the range we are allowed to search for tokens
+        final int minIncludeIndex;
+        final int maxIndcludeIndex;
+        //NOTE: testing has shown that using Chunks to restrict search for
+        //      additional matchable tokens does have an negative impact on
+        //      recall. Because of that this restriction is for now deactivated
+//            if(token.inChunk != null && !textProcessingConfig.isIgnoreChunks()){
+//                minIncludeIndex = token.inChunk.getStartTokenIndex();
+//                maxIndcludeIndex = token.inChunk.getEndTokenIndex();
+//                log.debug("  - restrict context to chunk[{}, {}]",
+//                    minIncludeIndex, maxIndcludeIndex);
+//            } else {
+            maxIndcludeIndex = state.getTokens().size() - 1;
+            minIncludeIndex = 0;
+//            }
+        int prevIndex = token.index;
+        int pastIndex = token.index;
+        int pastNonMatchable = 0;
+        int prevNonMatchable = 0;
+        int distance = 0;
+        do { 
+            distance++;//keep track of the distance
+            //get the past token at the given distance (However ignore
+            //non AlphaNumeric tokens when calculating the distance)
+            pastIndex++;
+            TokenData pastToken = null;
+            while(pastToken == null && maxIndcludeIndex >= pastIndex &&
+                    pastNonMatchable <= 1){
+                TokenData td = state.getTokens().get(pastIndex);
+                if(td.hasAlphaNumeric){
+                    pastToken = td;
+                } else {
+                    pastIndex++;
+                }
+            }
+            //get the previous token at the given distance (However ignore
+            //non AlphaNumeric tokens when calculating the distance)
+            prevIndex--;
+            TokenData prevToken = null;
+            while(prevToken == null && minIncludeIndex <= prevIndex &&
+                    //allow one nonMatchable token if prevIndex > the last
+                    //consumed one and zero nonMatchable if prevIndex is <=
+                    //the last consumed one
+                    ((prevIndex > consumedIndex && prevNonMatchable <= 1) ||
+                            prevIndex <= consumedIndex && prevNonMatchable < 1)){
+                TokenData td = state.getTokens().get(prevIndex);
+                if(td.hasAlphaNumeric){
+                    prevToken = td;
+                } else {
+                    prevIndex--;
+                }
+            }
+            //now that we know the tokens at this distance check if they are matchable
+            //Fist the past token
+            if(pastToken != null){
+                if(log.isDebugEnabled()){
+                    log.debug("    {} {}:'{}' (lemma: {}) linkable={}, matchable={}",new Object[]{
+                            pastToken.isMatchable? '+':'-',pastToken.index,
+                            pastToken.getTokenText(), pastToken.getTokenLemma(),
+                            pastToken.isLinkable, pastToken.isMatchable
+                    });
+                }
+                if(pastToken.isMatchable){
+                    searchStrings.add(pastToken);
+                } else {
+                    pastNonMatchable++;
+                }
+            }
+            //Second in the previous token
+            if(prevToken != null){
+                if(log.isDebugEnabled()){
+                    log.debug("    {} {}:'{}' (lemma: {}) linkable={}, matchable={}",new Object[]{
+                        prevToken.isMatchable? '+':'-',prevToken.index,
+                        prevToken.getTokenText(), prevToken.getTokenLemma(),
+                        prevToken.isLinkable, prevToken.isMatchable
+                    });
+                }
+                if(prevToken.isMatchable){
+                    getSearchString(prevToken);
+                    searchStrings.add(0,prevToken);
+                } else {
+                    prevNonMatchable++;
+                }
+            }
+        } while(searchStrings.size() < linkerConfig.getMaxSearchTokens() && distance <
+                linkerConfig.getMaxSearchDistance() &&
+                (prevIndex > minIncludeIndex || pastIndex < maxIndcludeIndex) &&
+                (prevNonMatchable <= 1 || pastNonMatchable <= 1));
+        //we might have an additional element in the list
+        if(searchStrings.size() > linkerConfig.getMaxSearchTokens()){
+            searchStrings = searchStrings.subList( //the last part of the list
+                searchStrings.size()-linkerConfig.getMaxSearchTokens(), 
+                searchStrings.size());
+        }
+        return searchStrings;
+    }
     /**
      * @param suggestions
      */
@@ -577,16 +617,63 @@ public class EntityLinker {
         }
     }
     /**
-     * Searches for Entities in the {@link #entitySearcher} corresponding to the
-     * {@link Token#getText() words} of the current {@link #state position} in
-     * the text.
-     * @param searchTokens the list of {@link Token#getText() words} to search
-     * entities for.
-     * @return The sorted list with the suggestions.
-     * If there are no suggestions an empty list will be returned.
-     * @throws EntitySearcherException 
+     * Looks up the searches for all linkable tokens of the current section
+     * by using the batched 
+     * {@link EntitySearcher#lookup(IRI, Set, Collection, String[], Integer, Integer)}
+     * method. This replaces a lot of sequential requests with a single one.<p>
+     * Searches are calculated based on the state at the begin of the section.
+     * If tokens get consumed while processing the section the actual searches
+     * might differ. Such searches are looked up as usual by 
+     * {@link #performLookup(List, String[], List, List, List)}. The results
+     * of the batched searches are not used in this case. Those are counted
+     * as wasted in the {@link #logStatistics(Logger) statistics}, as they
+     * increase the load on the {@link EntitySearcher}.
+     * @throws EntitySearcherException on any error while looking up entities
      */
-    private List<Suggestion> lookupEntities(List<TokenData> searchTokens) throws EntitySearcherException {
+    private void lookupSection() throws EntitySearcherException {
+        wastedBatchedSearches = wastedBatchedSearches + batchedResults.size();
+        batchedResults.clear();
+        //searches with different numbers of tokens use a different limit
+        Map<Integer,Set<List<String>>> searchesByLimit = new HashMap<Integer,Set<List<String>>>();
+        int numSearches = 0;
+        for(TokenData token : state.getTokens()){
+            if(token.isLinkable && token.index >= state.getToken().index){
+                List<TokenData> searchTokens = getSearchTokens(token, state.getConsumedIndex());
+                List<String> searchStrings = getSearchStrings(searchTokens);
+                if(!lookupCache.containsKey(searchStrings)){
+                    Integer limit = getLookupLimit(searchTokens.size());
+                    Set<List<String>> searches = searchesByLimit.get(limit);
+                    if(searches == null){
+                        searches = new HashSet<List<String>>();
+                        searchesByLimit.put(limit, searches);
+                    }
+                    if(searches.add(searchStrings)){
+                        numSearches++;
+                    }
+                }
+            }
+        }
+        if(numSearches < 2){ //nothing to gain
+            return;
+        }
+        String[] languageArray = getLookupLanguages();
+        for(Entry<Integer,Set<List<String>>> entry : searchesByLimit.entrySet()){
+            log.debug("   > batched lookup for {} searches (limit: {})", 
+                entry.getValue().size(), entry.getKey());
+            batchLookupStats.begin();
+            Map<List<String>,Collection<? extends Entity>> results = entitySearcher.lookup(
+                linkerConfig.getNameField(), linkerConfig.getSelectedFields(), 
+                entry.getValue(), languageArray, entry.getKey(), 0);
+            batchLookupStats.complete();
+            batchedResults.putAll(results);
+            numBatchedSearches = numBatchedSearches + entry.getValue().size();
+        }
+    }
+    /**
+     * The languages used to lookup entities
+     * @return the languages
+     */
+    private String[] getLookupLanguages() {
         Set<String> languages = new HashSet<String>();
         languages.add(linkerConfig.getDefaultLanguage());
         languages.add(state.getLanguage());
@@ -594,11 +681,42 @@ public class EntityLinker {
         if(countryCodeIndex >= 2){
             languages.add(state.getLanguage().substring(0,countryCodeIndex));
         }
+        return languages.toArray(new String[languages.size()]);
+    }
+    /**
+     * Converts the parsed search tokens to the search strings
+     * @param searchTokens the search tokens
+     * @return the search strings
+     */
+    private List<String> getSearchStrings(List<TokenData> searchTokens) {
         List<String> searchStrings = new ArrayList<String>(searchTokens.size());
         for(Iterator<TokenData> it = searchTokens.iterator();it.hasNext();){
             searchStrings.add(getSearchString(it.next()));
         }
-        String[] languageArray = languages.toArray(new String[languages.size()]);
+        return searchStrings;
+    }
+    /**
+     * The number of entities requested for a search with the parsed number
+     * of search tokens
+     * @param numSearchTokens the number of search tokens
+     * @return the lookup limit
+     */
+    private int getLookupLimit(int numSearchTokens) {
+        return Math.max(MIN_SEARCH_LIMIT, linkerConfig.getMaxSuggestions()*2*numSearchTokens);
+    }
+    /**
+     * Searches for Entities in the {@link #entitySearcher} corresponding to the
+     * {@link Token#getText() words} of the current {@link #state position} in
+     * the text.
+     * @param searchTokens the list of {@link Token#getText() words} to search
+     * entities for.
+     * @return The sorted list with the suggestions.
+     * If there are no suggestions an empty list will be returned.
+     * @throws EntitySearcherException 
+     */
+    private List<Suggestion> lookupEntities(List<TokenData> searchTokens) throws EntitySearcherException {
+        List<String> searchStrings = getSearchStrings(searchTokens);
+        String[] languageArray = getLookupLanguages();
         List<Suggestion> suggestions = new ArrayList<Suggestion>();
         //check if we have the search strings in the cache
         List<Entity> results = lookupCache.get(searchStrings);
@@ -661,7 +779,7 @@ public class EntityLinker {
             List<Suggestion> suggestions, List<TokenData> searchTokens, 
             List<Entity> queryResults) throws EntitySearcherException {
         int minProcessedResults = linkerConfig.getMaxSuggestions()*3;
-        int lookupLimit = Math.max(MIN_SEARCH_LIMIT, linkerConfig.getMaxSuggestions()*2*searchTokens.size());
+        int lookupLimit = getLookupLimit(searchTokens.size());
         int maxResults = lookupLimit*2;
         int offset = 0;
         int numFiltered = 0;
@@ -681,12 +799,18 @@ public class EntityLinker {
                 moreResultsAvailable && (numResults-numFiltered) < (minProcessedResults) &&
                 numResults < maxResults){
             Collection<? extends Entity> results;
-            log.debug("   > request entities [{}-{}] entities ...",offset,(offset+lookupLimit));
-            lookupStats.begin(); //keep statistics
-            results = entitySearcher.lookup(linkerConfig.getNameField(),
-                linkerConfig.getSelectedFields(), searchStrings, languageArray,
-                lookupLimit, offset);
-            lookupStats.complete();
+            //check if the results where already looked up for the section
+            results = offset == 0 ? batchedResults.remove(searchStrings) : null;
+            if(results != null){
+                batchedSearchHits++;
+            } else {
+                log.debug("   > request entities [{}-{}] entities ...",offset,(offset+lookupLimit));
+                lookupStats.begin(); //keep statistics
+                results = entitySearcher.lookup(linkerConfig.getNameField(),
+                    linkerConfig.getSelectedFields(), searchStrings, languageArray,
+                    lookupLimit, offset);
+                lookupStats.complete();
+            }
             log.debug("      < found {} entities ...",results.size());
             //queries might return more as the requested results
             moreResultsAvailable = results.size() >= lookupLimit;
@@ -1275,7 +1399,7 @@ public class EntityLinker {
     public void logStatistics(Logger log){
         log.info("EntityLinking Statistics:");
         double textProcessingDuration = textProcessingStats.getDuration();
-        double lookupDuration = lookupStats.getDuration();
+        double lookupDuration = lookupStats.getDuration() + batchLookupStats.getDuration();
         double matchingDuration = matchingStats.getDuration();
         double rankingDuration = rankingStats.getDuration();
         double other = processingTime-textProcessingDuration-lookupDuration-matchingDuration;
@@ -1289,6 +1413,9 @@ public class EntityLinker {
         });
         textProcessingStats.printStatistics(log);
         lookupStats.printStatistics(log);
+        batchLookupStats.printStatistics(log);
+        log.info("    - batched searches: {} ({} used, {} wasted)", new Object[]{
+                numBatchedSearches, batchedSearchHits, wastedBatchedSearches});
         float cacheHitPercentage = lookupStats.count > 0 ? //avoid division by zero
                 cacheHits*100f/(float)lookupStats.count : Float.NaN;
         log.info("    - cache hits: {} ({}%)",cacheHits,cacheHitPercentage);
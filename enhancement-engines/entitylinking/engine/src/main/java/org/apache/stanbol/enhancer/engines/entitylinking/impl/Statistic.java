@@ -58,16 +58,32 @@ public class Statistic {
     public void complete(){
         if(started){
             long end = System.nanoTime();
-            closedCount++;
-            long dif = (end - start);
-            duration = duration + dif;
-            if(dif > max) {
-                max = dif;
-            } else if(dif < min){
-                min = dif;
-            }
+            record(end - start);
             started = false;
         } //else close without start ... ignore
+        printIfRequired();
+    }
+    /**
+     * Adds a measurement with the parsed duration. In contrast to
+     * {@link #begin()} and {@link #complete()} this can be used by
+     * multiple threads
+     * @param dif the duration in nano seconds
+     */
+    public synchronized void add(long dif){
+        count++;
+        record(dif);
+        printIfRequired();
+    }
+    private void record(long dif) {
+        closedCount++;
+        duration = duration + dif;
+        if(dif > max) {
+            max = dif;
+        } else if(dif < min){
+            min = dif;
+        }
+    }
+    private void printIfRequired() {
         if(log != null && numPrint > 0){
             if(count % numPrint == 0){
                 printStatistics(log);
@@ -34,11 +34,13 @@ import static org.junit.Assert.assertTrue;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.clerezza.commons.rdf.Literal;
 import org.apache.clerezza.rdf.core.LiteralFactory;
@@ -51,11 +53,14 @@ import org.apache.clerezza.commons.rdf.impl.utils.TripleImpl;
 import org.apache.stanbol.commons.indexedgraph.IndexedGraph;
 import org.apache.stanbol.enhancer.contentitem.inmemory.InMemoryContentItemFactory;
 import org.apache.stanbol.enhancer.engines.entitylinking.Entity;
+import org.apache.stanbol.enhancer.engines.entitylinking.EntitySearcher;
+import org.apache.stanbol.enhancer.engines.entitylinking.EntitySearcherException;
 import org.apache.stanbol.enhancer.engines.entitylinking.LabelTokenizer;
 import org.apache.stanbol.enhancer.engines.entitylinking.config.EntityLinkerConfig;
 import org.apache.stanbol.enhancer.engines.entitylinking.config.LanguageProcessingConfig;
 import org.apache.stanbol.enhancer.engines.entitylinking.config.TextProcessingConfig;
 import org.apache.stanbol.enhancer.engines.entitylinking.config.EntityLinkerConfig.RedirectProcessingMode;
+import org.apache.stanbol.enhancer.engines.entitylinking.impl.CachingEntitySearcher;
 import org.apache.stanbol.enhancer.engines.entitylinking.impl.EntityLinker;
 import org.apache.stanbol.enhancer.engines.entitylinking.impl.LinkedEntity;
 import org.apache.stanbol.enhancer.engines.entitylinking.impl.Suggestion;
@@ -272,7 +277,10 @@ public class EntityLinkingEngineTest {
         config.setRedirectProcessingMode(RedirectProcessingMode.FOLLOW);
         EntityLinker linker = new EntityLinker(TEST_ANALYSED_TEXT,"en",
             tpc, searcher, config, labelTokenizer);
+        int batchCount = searcher.getLookupBatchCount();
         linker.process();
+        //searches of linkable tokens are looked up by batched lookups
+        assertTrue(searcher.getLookupBatchCount() > batchCount);
         Map<String,List<String>> expectedResults = new HashMap<String,List<String>>();
         expectedResults.put("Patrick Marshall", new ArrayList<String>(
                 Arrays.asList("urn:test:PatrickMarshall")));
@@ -342,6 +350,89 @@ public class EntityLinkingEngineTest {
                 Arrays.asList("urn:test:UniversityOfOtago","urn:test:UniversityOfOtago_Texas")));
         validateEntityLinkerResults(linker, expectedResults);
     }
+    /**
+     * Tests that {@link RedirectProcessingMode#ADD_VALUES} for cached lookup
+     * results does not modify the cached data nor the data of the wrapped 
+     * EntitySearcher
+     * @throws Exception
+     */
+    @Test
+    public void testRedirectAddValuesWithLookupCache() throws Exception {
+        LanguageProcessingConfig tpc = new LanguageProcessingConfig();
+        tpc.setLinkedLexicalCategories(LanguageProcessingConfig.DEFAULT_LINKED_LEXICAL_CATEGORIES);
+        tpc.setLinkedPos(Collections.EMPTY_SET);
+        EntityLinkerConfig config = new EntityLinkerConfig();
+        config.setMinFoundTokens(2);//this is assumed by this test
+        config.setRedirectProcessingMode(RedirectProcessingMode.ADD_VALUES);
+        config.setRedirectField(REDIRECT);
+        CachingEntitySearcher cachingSearcher = new CachingEntitySearcher(searcher, 100, -1);
+        IRI geologist = new IRI("urn:test:Geologist");
+        Literal redirectLabel = new PlainLiteralImpl("Geologe (redirect)");
+        Graph previous = null;
+        for(int i=0; i < 2; i++){ //2nd run is answered by the cache
+            EntityLinker linker = new EntityLinker(TEST_ANALYSED_TEXT,"en",
+                tpc, cachingSearcher, config, labelTokenizer);
+            linker.process();
+            Entity entity = null;
+            for(LinkedEntity linkedEntity : linker.getLinkedEntities().values()){
+                for(Suggestion suggestion : linkedEntity.getSuggestions()){
+                    if(geologist.equals(suggestion.getEntity().getUri())){
+                        entity = suggestion.getEntity();
+                    }
+                }
+            }
+            assertNotNull(entity);
+            assertEquals(geologist, entity.getUri());
+            //the values of the redirect are added to the entity
+            assertTrue(entity.getData().contains(new TripleImpl(geologist, NAME, redirectLabel)));
+            //but every run uses its own copy of the data
+            assertFalse(entity.getData() == previous);
+            previous = entity.getData();
+        }
+        assertTrue(cachingSearcher.getHits() > 0);
+        //the data of the wrapped searcher are not modified
+        assertFalse(searcher.get(geologist, null).getData().contains(
+            new TripleImpl(geologist, NAME, redirectLabel)));
+    }
+    /**
+     * Tests that the batched lookup of the searches of a section does not
+     * change the results of the {@link EntityLinker}
+     * @throws Exception
+     */
+    @Test
+    public void testBatchedLookupEquivalence() throws Exception {
+        LanguageProcessingConfig tpc = new LanguageProcessingConfig();
+        tpc.setLinkedLexicalCategories(LanguageProcessingConfig.DEFAULT_LINKED_LEXICAL_CATEGORIES);
+        tpc.setLinkedPos(Collections.EMPTY_SET);
+        EntityLinkerConfig config = new EntityLinkerConfig();
+        config.setMinFoundTokens(2);//this is assumed by this test
+        config.setRedirectProcessingMode(RedirectProcessingMode.FOLLOW);
+        for(AnalysedText at : Arrays.asList(TEST_ANALYSED_TEXT, TEST_ANALYSED_TEXT_WO)){
+            EntityLinker batched = new EntityLinker(at,"en",
+                tpc, searcher, config, labelTokenizer);
+            int batchCount = searcher.getLookupBatchCount();
+            batched.process();
+            assertTrue(searcher.getLookupBatchCount() > batchCount);
+            EntityLinker unbatched = new EntityLinker(at,"en",
+                tpc, new UnbatchedSearcher(searcher), config, labelTokenizer);
+            unbatched.process();
+            assertEquals(getSuggestions(unbatched), getSuggestions(batched));
+        }
+    }
+    /**
+     * The ids and scores of the suggestions by selected text
+     */
+    private Map<String,List<String>> getSuggestions(EntityLinker linker){
+        Map<String,List<String>> suggestions = new HashMap<String,List<String>>();
+        for(LinkedEntity linkedEntity : linker.getLinkedEntities().values()){
+            List<String> values = new ArrayList<String>();
+            for(Suggestion suggestion : linkedEntity.getSuggestions()){
+                values.add(suggestion.getEntity().getId() + '|' + suggestion.getScore());
+            }
+            suggestions.put(linkedEntity.getSelectedText(), values);
+        }
+        return suggestions;
+    }
     private void validateEntityLinkerResults(EntityLinker linker, Map<String,List<String>> expectedResults) {
         log.info("---------------------");
         log.info("- Validating Results-");
@@ -454,4 +545,51 @@ public class EntityLinkingEngineTest {
         return entityAnnotationCount;
         
     }
+    /**
+     * {@link EntitySearcher} that does not answer batched lookups. The
+     * {@link EntityLinker} needs to look up all searches one by one.
+     */
+    private static class UnbatchedSearcher implements EntitySearcher {
+
+        private final EntitySearcher searcher;
+
+        UnbatchedSearcher(EntitySearcher searcher){
+            this.searcher = searcher;
+        }
+
+        @Override
+        public Collection<? extends Entity> lookup(IRI field, Set<IRI> selectedFields,
+                List<String> search, String[] languages, Integer limit, Integer offset) 
+                        throws EntitySearcherException {
+            return searcher.lookup(field, selectedFields, search, languages, limit, offset);
+        }
+
+        @Override
+        public Map<List<String>,Collection<? extends Entity>> lookup(IRI field,
+                Set<IRI> selectedFields, Collection<List<String>> searches, 
+                String[] languages, Integer limit, Integer offset) {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public Entity get(IRI id, Set<IRI> selectedFields, String...languages) 
+                throws EntitySearcherException {
+            return searcher.get(id, selectedFields, languages);
+        }
+
+        @Override
+        public boolean supportsOfflineMode() {
+            return searcher.supportsOfflineMode();
+        }
+
+        @Override
+        public Integer getLimit() {
+            return searcher.getLimit();
+        }
+
+        @Override
+        public Map<IRI,Collection<RDFTerm>> getOriginInformation() {
+            return searcher.getOriginInformation();
+        }
+    }
 }
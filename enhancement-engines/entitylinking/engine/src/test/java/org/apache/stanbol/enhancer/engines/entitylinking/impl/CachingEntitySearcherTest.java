@@ -0,0 +1,219 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.enhancer.engines.entitylinking.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.clerezza.commons.rdf.Graph;
+import org.apache.clerezza.commons.rdf.IRI;
+import org.apache.clerezza.commons.rdf.RDFTerm;
+import org.apache.clerezza.commons.rdf.impl.utils.PlainLiteralImpl;
+import org.apache.clerezza.commons.rdf.impl.utils.TripleImpl;
+import org.apache.stanbol.commons.indexedgraph.IndexedGraph;
+import org.apache.stanbol.enhancer.engines.entitylinking.Entity;
+import org.apache.stanbol.enhancer.engines.entitylinking.EntitySearcherException;
+import org.apache.stanbol.enhancer.engines.entitylinking.VersionedEntitySearcher;
+import org.apache.stanbol.enhancer.servicesapi.rdf.NamespaceEnum;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CachingEntitySearcherTest {
+
+    private static final IRI NAME = new IRI(NamespaceEnum.rdfs+"label");
+    
+    private CountingSearcher searcher;
+    
+    @Before
+    public void init(){
+        searcher = new CountingSearcher();
+    }
+    
+    @Test
+    public void testCachedLookup() throws EntitySearcherException {
+        CachingEntitySearcher cache = new CachingEntitySearcher(searcher, 10, -1);
+        Collection<? extends Entity> r1 = cache.lookup(NAME, null, Arrays.asList("Paris"), 
+            new String[]{"en",null}, 10, 0);
+        assertEquals(1, r1.size());
+        assertEquals(1, searcher.lookups);
+        //the order of languages is not relevant
+        Collection<? extends Entity> r2 = cache.lookup(NAME, null, Arrays.asList("Paris"), 
+            new String[]{null,"en"}, 10, 0);
+        assertEquals(1, searcher.lookups);
+        assertEquals(r1, r2);
+        //a different limit is a different lookup
+        cache.lookup(NAME, null, Arrays.asList("Paris"), new String[]{"en",null}, 20, 0);
+        assertEquals(2, searcher.lookups);
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+    
+    @Test
+    public void testCachedEntitiesAreCopies() throws EntitySearcherException {
+        CachingEntitySearcher cache = new CachingEntitySearcher(searcher, 10, -1);
+        Entity e1 = cache.lookup(NAME, null, Arrays.asList("Paris"), 
+            new String[]{"en"}, 10, 0).iterator().next();
+        //modify the data (as done by the EntityLinker for redirects)
+        e1.getData().add(new TripleImpl(e1.getUri(), NAME, new PlainLiteralImpl("Paname")));
+        Entity e2 = cache.lookup(NAME, null, Arrays.asList("Paris"), 
+            new String[]{"en"}, 10, 0).iterator().next();
+        assertEquals(1, searcher.lookups);
+        assertEquals(e1, e2);
+        assertNotSame(e1.getData(), e2.getData());
+        assertEquals(1, e2.getData().size());
+        assertEquals(2, e1.getData().size());
+    }
+    
+    @Test
+    public void testSelectedFieldsAreCopied() throws EntitySearcherException {
+        CachingEntitySearcher cache = new CachingEntitySearcher(searcher, 10, -1);
+        Set<IRI> selected = new HashSet<IRI>(Collections.singleton(NAME));
+        cache.lookup(NAME, selected, Arrays.asList("Paris"), new String[]{"en"}, 10, 0);
+        //modifying the set of the caller must not change the cached key
+        selected.add(new IRI(NamespaceEnum.rdfs+"comment"));
+        cache.lookup(NAME, Collections.singleton(NAME), Arrays.asList("Paris"), 
+            new String[]{"en"}, 10, 0);
+        assertEquals(1, searcher.lookups);
+        cache.lookup(NAME, selected, Arrays.asList("Paris"), new String[]{"en"}, 10, 0);
+        assertEquals(2, searcher.lookups);
+    }
+    
+    @Test
+    public void testVersionInvalidation() throws EntitySearcherException {
+        CachingEntitySearcher cache = new CachingEntitySearcher(searcher, 10, -1);
+        cache.lookup(NAME, null, Arrays.asList("Paris"), new String[]{"en"}, 10, 0);
+        cache.lookup(NAME, null, Arrays.asList("Paris"), new String[]{"en"}, 10, 0);
+        assertEquals(1, searcher.lookups);
+        searcher.version++; //simulate a new version of the index
+        cache.lookup(NAME, null, Arrays.asList("Paris"), new String[]{"en"}, 10, 0);
+        assertEquals(2, searcher.lookups);
+        assertEquals(1, cache.size());
+    }
+    
+    @Test
+    public void testSizeEviction() throws EntitySearcherException {
+        CachingEntitySearcher cache = new CachingEntitySearcher(searcher, 2, -1);
+        cache.lookup(NAME, null, Arrays.asList("Paris"), new String[]{"en"}, 10, 0);
+        cache.lookup(NAME, null, Arrays.asList("London"), new String[]{"en"}, 10, 0);
+        cache.lookup(NAME, null, Arrays.asList("Paris"), new String[]{"en"}, 10, 0); //hit
+        cache.lookup(NAME, null, Arrays.asList("Berlin"), new String[]{"en"}, 10, 0); //evicts London
+        assertEquals(2, cache.size());
+        assertEquals(3, searcher.lookups);
+        cache.lookup(NAME, null, Arrays.asList("Paris"), new String[]{"en"}, 10, 0);
+        assertEquals(3, searcher.lookups);
+        cache.lookup(NAME, null, Arrays.asList("London"), new String[]{"en"}, 10, 0);
+        assertEquals(4, searcher.lookups);
+    }
+    
+    @Test
+    public void testExpiration() throws Exception {
+        CachingEntitySearcher cache = new CachingEntitySearcher(searcher, 10, 1);
+        cache.lookup(NAME, null, Arrays.asList("Paris"), new String[]{"en"}, 10, 0);
+        Thread.sleep(10);
+        cache.lookup(NAME, null, Arrays.asList("Paris"), new String[]{"en"}, 10, 0);
+        assertEquals(2, searcher.lookups);
+    }
+    
+    @Test
+    public void testBatchedLookup() throws EntitySearcherException {
+        CachingEntitySearcher cache = new CachingEntitySearcher(searcher, 10, -1);
+        cache.lookup(NAME, null, Arrays.asList("Paris"), new String[]{"en"}, 10, 0);
+        List<List<String>> searches = new ArrayList<List<String>>();
+        searches.add(Arrays.asList("Paris"));
+        searches.add(Arrays.asList("London"));
+        Map<List<String>,Collection<? extends Entity>> results = cache.lookup(
+            NAME, null, searches, new String[]{"en"}, 10, 0);
+        assertEquals(2, results.size());
+        //only London is looked up by the batch
+        assertEquals(1, searcher.batchedSearches);
+        results = cache.lookup(NAME, null, searches, new String[]{"en"}, 10, 0);
+        assertEquals(2, results.size());
+        assertEquals(1, searcher.batchedSearches);
+        assertEquals(1, searcher.lookups);
+    }
+    
+    /**
+     * Searcher that returns a single Entity per search and counts lookups
+     */
+    private static class CountingSearcher implements VersionedEntitySearcher {
+
+        int lookups;
+        int batchedSearches;
+        int version;
+        
+        @Override
+        public Collection<? extends Entity> lookup(IRI field, Set<IRI> selectedFields, 
+                List<String> search, String[] languages, Integer limit, Integer offset) {
+            lookups++;
+            return Collections.singleton(createEntity(search.get(0)));
+        }
+
+        @Override
+        public Map<List<String>,Collection<? extends Entity>> lookup(IRI field, Set<IRI> selectedFields,
+                Collection<List<String>> searches, String[] languages, Integer limit, Integer offset) {
+            Map<List<String>,Collection<? extends Entity>> results = 
+                    new HashMap<List<String>,Collection<? extends Entity>>();
+            for(List<String> search : searches){
+                batchedSearches++;
+                results.put(search, Collections.singleton(createEntity(search.get(0))));
+            }
+            return results;
+        }
+        
+        private Entity createEntity(String label){
+            IRI uri = new IRI("urn:test:"+label);
+            Graph graph = new IndexedGraph();
+            graph.add(new TripleImpl(uri, NAME, new PlainLiteralImpl(label)));
+            return new Entity(uri, graph);
+        }
+
+        @Override
+        public Entity get(IRI id, Set<IRI> selectedFields, String... languages) {
+            return null;
+        }
+
+        @Override
+        public boolean supportsOfflineMode() {
+            return true;
+        }
+
+        @Override
+        public Integer getLimit() {
+            return null;
+        }
+
+        @Override
+        public Map<IRI,Collection<RDFTerm>> getOriginInformation() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public Object getVersion() {
+            return Integer.valueOf(version);
+        }
+    }
+}
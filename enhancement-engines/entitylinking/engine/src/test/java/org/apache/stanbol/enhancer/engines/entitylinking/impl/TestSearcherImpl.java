@@ -46,6 +46,7 @@ public class TestSearcherImpl implements EntitySearcher {
     private SortedMap<String,Collection<Entity>> data = new TreeMap<String,Collection<Entity>>(String.CASE_INSENSITIVE_ORDER);
     private Map<IRI,Entity> entities = new HashMap<IRI,Entity>();
     private Map<IRI,Collection<RDFTerm>> originInfo;
+    private int lookupBatchCount;
 
     
     public TestSearcherImpl(String siteId,IRI nameField, LabelTokenizer tokenizer) {
@@ -112,6 +113,28 @@ public class TestSearcherImpl implements EntitySearcher {
         }
     }
 
+    @Override
+    public Map<List<String>,Collection<? extends Entity>> lookup(IRI field,
+                                           Set<IRI> includeFields,
+                                           Collection<List<String>> searches,
+                                           String[] languages,Integer numResults, Integer offset) throws IllegalStateException {
+        lookupBatchCount++;
+        Map<List<String>,Collection<? extends Entity>> results = 
+                new HashMap<List<String>,Collection<? extends Entity>>();
+        for(List<String> search : searches){
+            results.put(search, lookup(field, includeFields, search, languages, numResults, offset));
+        }
+        return results;
+    }
+    
+    /**
+     * The number of calls to the batched lookup method
+     * @return the number of batched lookups
+     */
+    public int getLookupBatchCount() {
+        return lookupBatchCount;
+    }
+
     @Override
     public boolean supportsOfflineMode() {
         return true;
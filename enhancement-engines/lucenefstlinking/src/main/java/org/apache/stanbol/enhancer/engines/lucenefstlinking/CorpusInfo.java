@@ -84,6 +84,10 @@ public class CorpusInfo {
     public final Analyzer taggingAnalyzer;
     
     protected final ReadWriteLock corpusLock = new ReentrantReadWriteLock();
+    /**
+     * Used to prevent concurrent writes to the {@link #fst} file
+     */
+    private final Object fstFileLock = new Object();
     
     protected Reference<TaggerFstCorpus> taggerCorpusRef;
     
@@ -174,28 +178,23 @@ public class CorpusInfo {
         } finally {
             corpusLock.writeLock().unlock();
         }
-        //Store the newly built FST corpus to disc. A read level lock is sufficient
-        //for this.
+        //Store the newly built FST corpus to disc. This does not need the
+        //corpusLock as the FST is written to a temporary file that replaces
+        //the current FST file when completed. So concurrent loading from the
+        //fst file will always read a complete file.
         //NOTE: the WeakReference to the corpus can only be GC'ed after we
         //      have written the corpus to disc, as we still have a reference
         //      to corpus!
         if(corpus != null){
             try {
-                corpusLock.readLock().lock();
-                try { //STANBOL-1177: save FST models in AccessController.doPrivileged(..)
+                synchronized (fstFileLock) {
+                    //STANBOL-1177: save FST models in AccessController.doPrivileged(..)
                     AccessController.doPrivileged(new PrivilegedExceptionAction<Object>() {
                         public Object run() throws IOException {
-                            if(fst.exists()){
-                                if(!FileUtils.deleteQuietly(fst)){
-                                    log.warn("Unable to delete existing FST file for {}", fst);
-                                }
-                            }
-                            corpus.save(fst);
+                            saveCorpus(corpus);
                             return null; //not used
                         }
                     });
-                } finally {
-                    corpusLock.readLock().unlock();
                 }
             } catch (PrivilegedActionException pae) {
                 Exception e = pae.getException();
@@ -206,12 +205,13 @@ public class CorpusInfo {
                     //with a SoftReference to avoid frequent rebuilding of the corpus
                     corpusLock.writeLock().lock();
                     try {
-                        if(taggerCorpusRef instanceof WeakReference<?>){
+                        if(taggerCorpusRef instanceof WeakReference<?> && 
+                                taggerCorpusRef.get() == corpus){
                             taggerCorpusRef.clear();
                             taggerCorpusRef = new SoftReference<TaggerFstCorpus>(corpus);
                         }
                     } finally {
-                        corpusLock.writeLock().lock();
+                        corpusLock.writeLock().unlock();
                     }
                 } else { //Runtime exception
                     throw RuntimeException.class.cast(e);
@@ -219,6 +219,40 @@ public class CorpusInfo {
             }
         }
     }
+    
+    /**
+     * Saves the parsed corpus to a temporary file within the same directory
+     * as the {@link #fst} file and replaces the {@link #fst} file with
+     * the temporary one after the corpus was completely written. If the
+     * process is killed while writing the existing FST file stays valid.
+     * @param corpus the corpus to save
+     * @throws IOException on any error while writing the FST
+     */
+    private void saveCorpus(TaggerFstCorpus corpus) throws IOException {
+        File tmp = new File(fst.getParentFile(), fst.getName() + ".tmp");
+        if(tmp.exists() && !tmp.delete()){
+            throw new IOException("Unable to delete temporary FST file " + tmp);
+        }
+        try {
+            corpus.save(tmp);
+            //on Unix systems renaming replaces the existing file in an
+            //atomic operation. Other platforms require to delete the
+            //existing file first
+            if(!tmp.renameTo(fst)){
+                if(fst.exists() && !FileUtils.deleteQuietly(fst)){
+                    throw new IOException("Unable to delete existing FST file " + fst);
+                }
+                if(!tmp.renameTo(fst)){
+                    throw new IOException("Unable to rename temporary FST file " + tmp
+                        + " to " + fst);
+                }
+            }
+            log.debug(" ... saved FST corpus for index version {} to {}", 
+                corpus.getIndexVersion(), fst);
+        } finally {
+            FileUtils.deleteQuietly(tmp);
+        }
+    }
 
     public TaggerFstCorpus getCorpus() {
         TaggerFstCorpus corpus;
@@ -314,7 +348,7 @@ public class CorpusInfo {
      * @return <code>true</code> if the FST corpus is enqueued for (re)generation.
      */
     public boolean isEnqueued(){
-        return taggerCorpusRef != null;
+        return enqueuedCorpus != null;
     }
     
     
@@ -392,8 +392,12 @@ public class TaggingSession implements Closeable {
             }
         }
         //TODO: maybe make this configurable
-        int waitTime = fstCorpus == null ? 30 : 10; 
-        if(enqueuedCorpus != null){ //we needed to build a new corpus
+        int waitTime = fstCorpus == null ? 30 : 0; 
+        //If an outdated corpus is available linking is not blocked until the
+        //new corpus is built. The outdated corpus is used until the
+        //CorpusCreationTask sets the new one to the CorpusInfo.
+        if(enqueuedCorpus != null && //we needed to build a new corpus
+                (fstCorpus == null || enqueuedCorpus.isDone())){
             try {
                 log.debug(" - will wait max {}sec for creation of {}", waitTime, fstInfo);
                 fstCorpus = enqueuedCorpus.get(waitTime, TimeUnit.SECONDS);
@@ -251,6 +251,7 @@ public class WeightedChain extends AbstractChain implements Chain, ServiceTracke
         synchronized (epLock) {
             this.executionPlan = null;
         }
+        invalidateCompiledExecutionPlan();
     }
 
 }
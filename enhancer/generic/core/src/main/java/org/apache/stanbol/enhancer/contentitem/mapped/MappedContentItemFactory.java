@@ -0,0 +1,683 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.enhancer.contentitem.mapped;
+
+import static org.apache.stanbol.enhancer.servicesapi.helper.ContentItemHelper.DEFAULT_CONTENT_ITEM_PREFIX;
+import static org.apache.stanbol.enhancer.servicesapi.helper.ContentItemHelper.SHA1;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.clerezza.commons.rdf.Graph;
+import org.apache.clerezza.commons.rdf.IRI;
+import org.apache.commons.io.IOUtils;
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Properties;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Service;
+import org.apache.stanbol.commons.indexedgraph.IndexedGraph;
+import org.apache.stanbol.enhancer.servicesapi.Blob;
+import org.apache.stanbol.enhancer.servicesapi.BufferedBlob;
+import org.apache.stanbol.enhancer.servicesapi.ContentItem;
+import org.apache.stanbol.enhancer.servicesapi.ContentItemFactory;
+import org.apache.stanbol.enhancer.servicesapi.ContentSink;
+import org.apache.stanbol.enhancer.servicesapi.ContentSource;
+import org.apache.stanbol.enhancer.servicesapi.helper.ContentItemHelper;
+import org.apache.stanbol.enhancer.servicesapi.impl.AbstractContentItemFactory;
+import org.apache.stanbol.enhancer.servicesapi.impl.ContentItemImpl;
+import org.osgi.framework.Constants;
+import org.osgi.service.cm.ConfigurationException;
+import org.osgi.service.component.ComponentContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ContentItemFactory that stores the content of {@link Blob}s outside of the
+ * Java heap. Content up to the configured
+ * {@link #PARAM_MAX_IN_MEMORY_SIZE maximum in-memory size} is kept in direct
+ * {@link ByteBuffer}s. Larger content is spilled to temporary files that are
+ * memory mapped.<p>
+ * All Blobs created by this factory implement {@link BufferedBlob} so that
+ * engines can access the data without copying them to the Java heap. This
+ * avoids GC pressure caused by large <code>byte[]</code> blobs as used by the
+ * InMemoryContentItemFactory.<p>
+ * Temporary files are deleted as soon as the {@link MappedBlob#release() Blob}
+ * or the {@link MappedContentItem#release() ContentItem} is released. Users
+ * of this factory SHOULD release ContentItems after processing. Files of
+ * Blobs that are never released are only deleted on garbage collection.<p>
+ * The service ranking (40) is lower as the ranking of the InMemory- (100) and
+ * the FileContentItemFactory (50). So this factory needs to be explicitly
+ * selected.
+ */
+@Component(inherit=true)
+@Service(value=ContentItemFactory.class)
+@Properties(value={
+    @Property(name=MappedContentItemFactory.PARAM_BASE_DIR,value=""),
+    @Property(name=MappedContentItemFactory.PARAM_MAX_IN_MEMORY_SIZE,
+        intValue=MappedContentItemFactory.DEFAULT_MAX_IN_MEMORY_SIZE),
+    @Property(name=Constants.SERVICE_RANKING, intValue=40)
+})
+public class MappedContentItemFactory extends AbstractContentItemFactory implements ContentItemFactory {
+
+    private final Logger log = LoggerFactory.getLogger(MappedContentItemFactory.class);
+
+    public static final String DEFAULT_BINARY_MIMETYPE = "application/octet-stream";
+
+    /**
+     * The directory used for the memory mapped temp files. If not present
+     * the system temp directory is used.
+     */
+    public static final String PARAM_BASE_DIR = "stanbol.enhancer.contentitem.mapped.baseDir";
+    /**
+     * The maximum size (in bytes) of content that is kept in direct
+     * {@link ByteBuffer}s. Larger content is spilled to memory mapped
+     * temp files. <code>0</code> to store all content in files.
+     */
+    public static final String PARAM_MAX_IN_MEMORY_SIZE = "stanbol.enhancer.contentitem.mapped.maxInMemorySize";
+    /**
+     * The default maximum in memory size (1MByte)
+     */
+    public static final int DEFAULT_MAX_IN_MEMORY_SIZE = 1024 * 1024;
+    /**
+     * The initial capacity of direct buffers
+     */
+    private static final int INITIAL_CAPACITY = 8 * 1024;
+
+    private static MappedContentItemFactory instance;
+
+    /**
+     * Base directory used to create temp files
+     */
+    private File baseDir;
+
+    private int maxInMemorySize = DEFAULT_MAX_IN_MEMORY_SIZE;
+
+    /**
+     * Getter for the singleton instance of this factory. Within an OSGI 
+     * environment this should not be used as this Factory is also registered
+     * as OSGI service.
+     * @return the singleton instance using the system default temporary file
+     * directory and the {@link #DEFAULT_MAX_IN_MEMORY_SIZE}.
+     */
+    public static MappedContentItemFactory getInstance(){
+        if(instance == null){
+            instance = new MappedContentItemFactory();
+        }
+        return instance;
+    }
+
+    public MappedContentItemFactory() {
+        super(false); //dereference all data on construction
+    }
+
+    /**
+     * Creates a factory with the parsed configuration
+     * @param baseDir the directory for temp files or <code>null</code> to
+     * use the system temp directory
+     * @param maxInMemorySize the maximum size of content kept in direct
+     * buffers. 
+     * @throws IOException if the parsed base directory could not be created
+     * @throws IllegalArgumentException if the maximum in memory size is
+     * &lt; 0 or the parsed base directory exists, but is not a directory
+     */
+    public MappedContentItemFactory(File baseDir, int maxInMemorySize) throws IOException {
+        this();
+        if(maxInMemorySize < 0){
+            throw new IllegalArgumentException("The parsed maximum in memory size MUST NOT be < 0!");
+        }
+        this.maxInMemorySize = maxInMemorySize;
+        if(baseDir != null){
+            this.baseDir = baseDir;
+            initBaseDir();
+        }
+    }
+
+    @Activate
+    protected void activate(ComponentContext ctx) throws ConfigurationException {
+        Object value = ctx.getProperties().get(PARAM_MAX_IN_MEMORY_SIZE);
+        if(value instanceof Number){
+            maxInMemorySize = ((Number)value).intValue();
+        } else if(value != null && !value.toString().isEmpty()){
+            try {
+                maxInMemorySize = Integer.parseInt(value.toString());
+            } catch (NumberFormatException e) {
+                throw new ConfigurationException(PARAM_MAX_IN_MEMORY_SIZE, 
+                    "Unable to parse integer value from '" + value + "'!", e);
+            }
+        } else {
+            maxInMemorySize = DEFAULT_MAX_IN_MEMORY_SIZE;
+        }
+        if(maxInMemorySize < 0){
+            throw new ConfigurationException(PARAM_MAX_IN_MEMORY_SIZE, 
+                "The maximum in memory size MUST NOT be < 0 (parsed: " + value + ")!");
+        }
+        value = ctx.getProperties().get(PARAM_BASE_DIR);
+        if(value != null && !value.toString().isEmpty()){
+            String home = ctx.getBundleContext().getProperty("sling.home");
+            if(home != null){
+                baseDir = new File(home,value.toString());
+            } else {
+                baseDir = new File(value.toString());
+            }
+            try {
+                initBaseDir();
+            } catch (Exception e) {
+                throw new ConfigurationException(PARAM_BASE_DIR, "Unable to initialise "
+                    + "configured base Directory '"+value+"' (absolute path: '"
+                    + baseDir.getAbsolutePath()+"')!",e);
+            }
+        }
+    }
+
+    /**
+     * Internally used to initialise the {@link #baseDir}
+     * @throws IllegalArgumentException if the parsed Directory already exists
+     * but is not an directory.
+     * @throws IOException if the configured directory does not exists but
+     * could not be created
+     */
+    private void initBaseDir() throws IOException {
+        if(baseDir.exists() && !baseDir.isDirectory()){
+            File file = baseDir;
+            baseDir = null;
+            throw new IllegalArgumentException("A File with the configured Directory '"
+                + file.getAbsolutePath()+ "' already exists, but is not a Directory!");
+        }
+        log.info("activate {} with temp directory {} (max in-memory size: {} bytes)",
+            new Object[]{getClass().getSimpleName(), baseDir.getAbsolutePath(), maxInMemorySize});
+        if(!baseDir.isDirectory()){
+            if(!baseDir.mkdirs()){
+                throw new IOException("Unable to create "
+                        + "temp-directory '"+baseDir.getAbsolutePath()+")!");
+            }
+        }
+    }
+
+    @Deactivate
+    protected void deactivate(ComponentContext ctx){
+        baseDir = null;
+        maxInMemorySize = DEFAULT_MAX_IN_MEMORY_SIZE;
+    }
+
+    /**
+     * Getter for the maximum size of content kept in direct buffers
+     * @return the maximum in memory size in bytes
+     */
+    public int getMaxInMemorySize() {
+        return maxInMemorySize;
+    }
+
+    @Override
+    protected ContentItem createContentItem(IRI id, Blob blob, Graph metadata) {
+        return new MappedContentItem(id, blob, metadata);
+    }
+
+    @Override
+    protected ContentItem createContentItem(String prefix, Blob blob, Graph metadata) {
+        return new MappedContentItem(prefix, blob, metadata);
+    }
+
+    @Override
+    public Blob createBlob(ContentSource source) throws IOException {
+        if(source == null){
+            throw new IllegalArgumentException("The parsed ContentSource MUST NOT be NULL!");
+        }
+        return new MappedBlob(source);
+    }
+
+    @Override
+    public ContentSink createContentSink(String mediaType) throws IOException {
+        return new MappedContentSink(mediaType);
+    }
+
+    protected File createTempFile(String prefix){
+        File tmpFile;
+        try {
+            tmpFile = File.createTempFile(prefix, null, baseDir);
+        } catch (IOException e) {
+            if(baseDir != null){
+                log.warn("Unable to create temp-file in directory "+baseDir
+                    + " (try to create in system temp");
+                try {
+                    tmpFile = File.createTempFile(prefix, null, null);
+                } catch (IOException e1) {
+                    throw new IllegalStateException("Unable to create temp-file" +
+                            "in '"+baseDir+"' and system temp directory",e1);
+                }
+            } else {
+                throw new IllegalStateException("Unable to create temp-file",e);
+            }
+        }
+        return tmpFile;
+    }
+
+    /**
+     * Parses the media type to the mime type and the parameter map
+     * @return the parameters with the mime type stored under the
+     * <code>null</code> key
+     */
+    private static Map<String,String> parseMediaType(String mediaType){
+        Map<String,String> parameters;
+        if(mediaType == null){
+            parameters = new HashMap<String,String>();
+            parameters.put(null, DEFAULT_BINARY_MIMETYPE);
+        } else {
+            parameters = ContentItemHelper.parseMimeType(mediaType);
+        }
+        return parameters;
+    }
+
+    /**
+     * {@link OutputStream} that writes to a direct {@link ByteBuffer} until
+     * the {@link MappedContentItemFactory#getMaxInMemorySize()} is reached.
+     * Than all data are spilled to a temp file that is memory mapped by
+     * {@link #getBuffer()}.
+     */
+    protected class BufferOutputStream extends OutputStream {
+
+        /**
+         * The direct buffer. <code>null</code> after spilled to the file
+         */
+        private ByteBuffer buffer;
+        private File file;
+        private RandomAccessFile raf;
+        private FileChannel channel;
+        /**
+         * The last mapped region of the {@link #file}
+         */
+        private ByteBuffer mapped;
+        private long size;
+        private boolean closed;
+        private boolean released;
+        /**
+         * Used by {@link #write(int)} to avoid creating an array for every byte
+         */
+        private final byte[] single = new byte[1];
+
+        protected BufferOutputStream() {}
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            single[0] = (byte)b;
+            write(single, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            if(closed){
+                throw new IOException("Stream is already closed!");
+            }
+            if(off < 0 || len < 0 || off + len > b.length){
+                throw new IndexOutOfBoundsException();
+            }
+            if(len == 0){
+                return;
+            }
+            long newSize = size + len;
+            if(newSize > Integer.MAX_VALUE){ //a ByteBuffer can not map more
+                throw new IOException("Content larger as "+Integer.MAX_VALUE
+                    + " bytes is not supported!");
+            }
+            if(channel == null){
+                if(newSize > maxInMemorySize){
+                    spill();
+                } else if(buffer == null || buffer.remaining() < len){
+                    grow((int)newSize);
+                }
+            }
+            if(channel == null){
+                buffer.put(b, off, len);
+            } else {
+                ByteBuffer src = ByteBuffer.wrap(b, off, len);
+                while(src.hasRemaining()){
+                    channel.write(src);
+                }
+            }
+            size = newSize;
+        }
+
+        private void grow(int minCapacity){
+            int capacity = buffer == null ? Math.min(INITIAL_CAPACITY, maxInMemorySize) : buffer.capacity();
+            while(capacity < minCapacity){
+                capacity = (int)Math.min((long)maxInMemorySize, capacity * 2L);
+            }
+            ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+            if(buffer != null){
+                buffer.flip();
+                grown.put(buffer);
+            }
+            buffer = grown;
+        }
+
+        private void spill() throws IOException {
+            file = createTempFile("blob");
+            raf = new RandomAccessFile(file, "rw");
+            channel = raf.getChannel();
+            if(buffer != null){
+                buffer.flip();
+                while(buffer.hasRemaining()){
+                    channel.write(buffer);
+                }
+                buffer = null;
+            }
+            log.debug("spilled content to {}", file);
+        }
+
+        /**
+         * Getter for a read-only view on the data written to this stream
+         * @return the buffer with the data
+         */
+        protected synchronized ByteBuffer getBuffer(){
+            if(released){
+                throw new IllegalStateException("The data of this Blob are already released!");
+            }
+            if(channel == null){
+                if(buffer == null){
+                    return ByteBuffer.allocate(0).asReadOnlyBuffer();
+                }
+                ByteBuffer view = buffer.duplicate();
+                view.flip();
+                return view.asReadOnlyBuffer();
+            }
+            if(mapped == null || mapped.capacity() != size){
+                try {
+                    mapped = channel.map(MapMode.READ_ONLY, 0, size);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Unable to map temporary file '"
+                        + file.getAbsolutePath()+"'!",e);
+                }
+            }
+            return mapped.duplicate();
+        }
+
+        /**
+         * The number of bytes written to this stream
+         */
+        protected synchronized long getSize(){
+            return size;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if(!closed){
+                closed = true;
+                if(channel != null){
+                    getBuffer(); //mappings stay valid after the channel is closed
+                    channel.close();
+                    raf.close();
+                }
+            }
+        }
+
+        /**
+         * Closes this stream, releases the buffers and deletes the temporary
+         * file. Calling this method more than once has no effect.
+         */
+        protected synchronized void release(){
+            if(released){
+                return;
+            }
+            released = true;
+            IOUtils.closeQuietly(this);
+            buffer = null;
+            mapped = null;
+            if(file != null && !file.delete() && file.exists()){
+                log.warn("Unable to delete temporary file '{}'", file.getAbsolutePath());
+            }
+        }
+
+        /**
+         * Only a fallback for Blobs that were never released
+         */
+        @Override
+        protected void finalize() throws Throwable {
+            try {
+                release();
+            } finally {
+                super.finalize();
+            }
+        }
+    }
+
+    /**
+     * Read-only {@link InputStream} over a {@link ByteBuffer}
+     */
+    protected static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        protected ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if(len == 0){
+                return 0;
+            }
+            if(!buffer.hasRemaining()){
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if(n <= 0){
+                return 0;
+            }
+            int skip = (int)Math.min(n, buffer.remaining());
+            buffer.position(buffer.position() + skip);
+            return skip;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return buffer.remaining();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+            buffer.mark();
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            buffer.reset();
+        }
+    }
+
+    public class MappedContentSink implements ContentSink {
+
+        private final MappedBlob blob;
+
+        protected MappedContentSink(String mediaType){
+            blob = new MappedBlob(mediaType);
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return blob.data;
+        }
+
+        @Override
+        public Blob getBlob() {
+            return blob;
+        }
+    }
+
+    /**
+     * {@link BufferedBlob} implementation that stores its data in a direct
+     * {@link ByteBuffer} or a memory mapped temp file. NOTE that
+     * all the other information such as {@link #getMimeType()},
+     * {@link #getParameter()} are kept in memory.
+     */
+    public class MappedBlob implements BufferedBlob {
+
+        private final BufferOutputStream data;
+        /**
+         * The sha1 calculated while copying the data from the
+         * {@link ContentSource}. <code>null</code> for Blobs of a
+         * {@link ContentSink}
+         */
+        private final String sha1;
+
+        private final String mimeType;
+
+        private final Map<String,String> parameters;
+
+        protected MappedBlob(ContentSource source) throws IOException {
+            Map<String,String> parameters = parseMediaType(source.getMediaType());
+            this.mimeType = parameters.remove(null);
+            this.parameters = Collections.unmodifiableMap(parameters);
+            data = new BufferOutputStream();
+            InputStream in = null;
+            try {
+                in = source.getStream();
+                sha1 = ContentItemHelper.streamDigest(in, data, SHA1);
+            } catch (IOException e) {
+                data.release();
+                throw e;
+            } catch (RuntimeException e) {
+                data.release();
+                throw e;
+            } finally {
+                IOUtils.closeQuietly(in);
+                IOUtils.closeQuietly(data);
+            }
+        }
+
+        protected MappedBlob(String mediaType) {
+            Map<String,String> parameters = parseMediaType(mediaType);
+            this.mimeType = parameters.remove(null);
+            this.parameters = Collections.unmodifiableMap(parameters);
+            data = new BufferOutputStream();
+            sha1 = null;
+        }
+
+        /**
+         * The sha1 of this Blob - typically used to generate the default IDs
+         * of a ContentItem
+         * @return the sha1 or <code>null</code> if this blob was created by
+         * a {@link ContentSink}
+         */
+        protected final String getSha1() {
+            return sha1;
+        }
+
+        @Override
+        public String getMimeType() {
+            return mimeType;
+        }
+
+        @Override
+        public InputStream getStream() {
+            return new ByteBufferInputStream(data.getBuffer());
+        }
+
+        @Override
+        public ByteBuffer getBuffer() {
+            return data.getBuffer();
+        }
+
+        @Override
+        public Map<String,String> getParameter() {
+            return parameters;
+        }
+
+        @Override
+        public long getContentLength() {
+            return data.getSize();
+        }
+        /**
+         * Releases the data of this Blob and deletes the temporary file (if
+         * any). The Blob MUST NOT be used afterwards.
+         */
+        public void release() {
+            data.release();
+        }
+    }
+
+    /**
+     * Utility that returns the ID for a MappedContentItem. Uses
+     * {@link MappedBlob#getSha1()} if available.
+     * @param blob the blob
+     * @param prefix the prefix
+     * @return the id
+     * @throws IllegalArgumentException if the parsed {@link Blob} or the
+     * prefix is <code>null</code>
+     */
+    protected IRI getDefaultUri(Blob blob, String prefix) {
+        if(blob == null){
+            throw new IllegalArgumentException("The parsed Blob MUST NOT be NULL!");
+        }
+        if(prefix == null){
+            throw new IllegalArgumentException("The parsed prefix MUST NOT be NULL!");
+        }
+        if(blob instanceof MappedBlob && ((MappedBlob)blob).getSha1() != null) {
+            return new IRI(prefix+SHA1.toLowerCase()+ '-' + ((MappedBlob)blob).getSha1());
+        } else {
+            return ContentItemHelper.makeDefaultUri(prefix, blob);
+        }
+    }
+
+    public class MappedContentItem extends ContentItemImpl implements ContentItem {
+
+        public MappedContentItem(IRI id, Blob blob,Graph metadata) {
+            super(id == null ? getDefaultUri(blob, DEFAULT_CONTENT_ITEM_PREFIX) : id, blob,
+                    metadata == null ? new IndexedGraph() : metadata);
+        }
+        public MappedContentItem(String prefix, Blob blob,Graph metadata) {
+            super(getDefaultUri(blob, prefix), blob,
+                metadata == null ? new IndexedGraph() : metadata);
+        }
+        /**
+         * Releases all {@link MappedBlob}s of this ContentItem. This deletes
+         * their temporary files. The ContentItem MUST NOT be used afterwards.
+         */
+        public void release() {
+            for(Blob blob : ContentItemHelper.getContentParts(this, Blob.class).values()){
+                if(blob instanceof MappedBlob){
+                    ((MappedBlob)blob).release();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.enhancer.contentitem.mapped;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.apache.clerezza.commons.rdf.IRI;
+import org.apache.commons.io.IOUtils;
+import org.apache.stanbol.enhancer.contentitem.mapped.MappedContentItemFactory.MappedBlob;
+import org.apache.stanbol.enhancer.contentitem.mapped.MappedContentItemFactory.MappedContentItem;
+import org.apache.stanbol.enhancer.servicesapi.Blob;
+import org.apache.stanbol.enhancer.servicesapi.BufferedBlob;
+import org.apache.stanbol.enhancer.servicesapi.ContentItem;
+import org.apache.stanbol.enhancer.servicesapi.ContentItemFactory;
+import org.apache.stanbol.enhancer.servicesapi.ContentSink;
+import org.apache.stanbol.enhancer.servicesapi.helper.ContentItemHelper;
+import org.apache.stanbol.enhancer.servicesapi.impl.StringSource;
+import org.apache.stanbol.enhancer.test.ContentItemFactoryTest;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests the {@link MappedContentItemFactory} with a small in-memory size so
+ * that content is spilled to memory mapped files.
+ */
+public class SpillingMappedContentItemFactoryTest extends ContentItemFactoryTest {
+
+    private static final int MAX_IN_MEMORY_SIZE = 16;
+    
+    private static File customDir;
+    private static ContentItemFactory factory;
+    
+    @BeforeClass
+    public static void init(){
+        String prefix = System.getProperty("basedir",".");
+        File targetDir = new File(prefix,"target");
+        customDir = new File(targetDir,"mappedContentItem");
+    }
+    
+    @Override
+    protected ContentItemFactory createContentItemFactory() throws IOException {
+        if(factory == null){
+            factory = new MappedContentItemFactory(customDir, MAX_IN_MEMORY_SIZE);
+        }
+        return factory;
+    }
+    
+    private static String getContent(ByteBuffer buffer) throws IOException {
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        return new String(data, "UTF-8");
+    }
+
+    /**
+     * Content up to the max in-memory size MUST NOT create a file
+     */
+    @Test
+    public void testInMemoryBlob() throws IOException {
+        int numFiles = customDir.list().length;
+        String content = "small content";
+        Blob blob = contentItemFactory.createBlob(new StringSource(content));
+        assertTrue(blob instanceof BufferedBlob);
+        assertEquals(numFiles, customDir.list().length);
+        ByteBuffer buffer = ((BufferedBlob)blob).getBuffer();
+        assertTrue(buffer.isReadOnly());
+        assertEquals(content, getContent(buffer));
+        assertEquals(content, ContentItemHelper.getText(blob));
+        assertEquals(content.length(), blob.getContentLength());
+    }
+
+    /**
+     * Content larger as the max in-memory size MUST BE stored in a file
+     */
+    @Test
+    public void testSpilledBlob() throws IOException {
+        int numFiles = customDir.list().length;
+        String content = "This content is larger as the in-memory size of "
+            + MAX_IN_MEMORY_SIZE + " bytes and therefore stored in a mapped file";
+        Blob blob = contentItemFactory.createBlob(new StringSource(content));
+        assertTrue(blob instanceof BufferedBlob);
+        assertEquals(numFiles + 1, customDir.list().length);
+        ByteBuffer buffer = ((BufferedBlob)blob).getBuffer();
+        assertTrue(buffer.isReadOnly());
+        assertEquals(content, getContent(buffer));
+        //the consumed buffer MUST NOT affect other views
+        assertEquals(content, getContent(((BufferedBlob)blob).getBuffer()));
+        assertEquals(content, IOUtils.toString(blob.getStream(), "UTF-8"));
+        assertEquals(content, ContentItemHelper.getText(blob));
+        assertEquals(content.getBytes("UTF-8").length, blob.getContentLength());
+    }
+
+    /**
+     * Releasing a spilled Blob MUST delete its file
+     */
+    @Test
+    public void testReleaseBlob() throws IOException {
+        int numFiles = customDir.list().length;
+        String content = "This content is larger as the in-memory size of "
+            + MAX_IN_MEMORY_SIZE + " bytes and therefore stored in a mapped file";
+        Blob blob = contentItemFactory.createBlob(new StringSource(content));
+        assertEquals(numFiles + 1, customDir.list().length);
+        ((MappedBlob)blob).release();
+        assertEquals(numFiles, customDir.list().length);
+        ((MappedBlob)blob).release(); //a second call has no effect
+        try {
+            ((BufferedBlob)blob).getBuffer();
+            assertFalse("Accessing a released Blob MUST fail",true);
+        } catch (IllegalStateException e) {
+            //expected
+        }
+    }
+
+    /**
+     * Releasing a ContentItem MUST delete the files of all its Blobs
+     */
+    @Test
+    public void testReleaseContentItem() throws IOException {
+        int numFiles = customDir.list().length;
+        String content = "This content is larger as the in-memory size of "
+            + MAX_IN_MEMORY_SIZE + " bytes and therefore stored in a mapped file";
+        ContentItem ci = contentItemFactory.createContentItem(new StringSource(content));
+        Blob part = contentItemFactory.createBlob(new StringSource(content));
+        ci.addPart(new IRI("urn:test:part"), part);
+        assertEquals(numFiles + 2, customDir.list().length);
+        ((MappedContentItem)ci).release();
+        assertEquals(numFiles, customDir.list().length);
+    }
+
+    /**
+     * Writes to a content sink and reads the data before and after the data
+     * are spilled to the file
+     */
+    @Test
+    public void testSpillingContentSink() throws IOException {
+        ContentSink sink = contentItemFactory.createContentSink("text/plain; charset=UTF-8");
+        BufferedBlob blob = (BufferedBlob)sink.getBlob();
+        OutputStream out = sink.getOutputStream();
+        StringBuilder expected = new StringBuilder();
+        for(int i = 0; i < 10; i++){
+            String chunk = "chunk " + i + "; ";
+            out.write(chunk.getBytes("UTF-8"));
+            expected.append(chunk);
+            assertEquals(expected.toString(), getContent(blob.getBuffer()));
+            assertEquals(expected.length(), blob.getContentLength());
+        }
+        out.close();
+        assertEquals(expected.toString(), getContent(blob.getBuffer()));
+        assertEquals(expected.toString(), ContentItemHelper.getText(blob));
+        try {
+            out.write(1);
+            assertFalse("Writing to a closed sink MUST fail",true);
+        } catch (IOException e) {
+            //expected
+        }
+    }
+}
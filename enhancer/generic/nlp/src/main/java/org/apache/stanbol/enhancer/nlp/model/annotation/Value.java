@@ -21,6 +21,8 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.stanbol.enhancer.nlp.model.tag.Tag;
+
 public final class Value<T> {
 
     /**
@@ -65,7 +67,17 @@ public final class Value<T> {
         return probability;
     }
     
+    /**
+     * Creates a Value with an {@link #UNKNOWN_PROBABILITY unknown probability}.
+     * For {@link Tag}s the {@link Tag#asValue() shared instance} is returned.
+     * @param value the value
+     * @return the Value
+     */
+    @SuppressWarnings("unchecked")
     public static <T> Value<T> value(T value){
+        if(value instanceof Tag<?>){
+            return (Value<T>)((Tag<?>)value).asValue();
+        }
         return new Value<T>(value);
     }
     
@@ -76,7 +88,7 @@ public final class Value<T> {
     public static <T> List<Value<T>> values(T...values){
         List<Value<T>> valList = new ArrayList<Value<T>>(values.length);
         for(T value : values){
-            valList.add(new Value<T>(value));
+            valList.add(value(value));
         }
         return valList;
     }
@@ -17,8 +17,6 @@
 package org.apache.stanbol.enhancer.nlp.model.impl;
 
 import java.util.Iterator;
-import java.util.NavigableMap;
-import java.util.TreeMap;
 
 import org.apache.stanbol.enhancer.nlp.model.AnalysedText;
 import org.apache.stanbol.enhancer.nlp.model.Chunk;
@@ -41,7 +39,7 @@ public class AnalysedTextImpl extends SectionImpl implements AnalysedText {
      */
     private String text;
     
-    protected NavigableMap<Span,Span> spans = new TreeMap<Span,Span>();
+    protected final SpanIndex spans = new SpanIndex();
     
     public AnalysedTextImpl(Blob blob, String text){
         super(SpanTypeEnum.Text,0,text.length());
@@ -68,7 +66,7 @@ public class AnalysedTextImpl extends SectionImpl implements AnalysedText {
      */
     @Override
     public Iterator<Sentence> getSentences(){
-        return filter(Sentence.class);
+        return filter(SpanTypeEnum.Sentence);
     }
         
     /* (non-Javadoc)
@@ -84,7 +82,7 @@ public class AnalysedTextImpl extends SectionImpl implements AnalysedText {
      */
     @Override
     public Iterator<Chunk> getChunks(){
-        return filter(Chunk.class);
+        return filter(SpanTypeEnum.Chunk);
     }
     /**
      * Reference to the Blob those data got analysed
@@ -18,30 +18,154 @@ package org.apache.stanbol.enhancer.nlp.model.impl;
 
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import org.apache.stanbol.enhancer.nlp.model.annotation.Annotated;
 import org.apache.stanbol.enhancer.nlp.model.annotation.Annotation;
 import org.apache.stanbol.enhancer.nlp.model.annotation.Value;
 
+/**
+ * Compact implementation of {@link Annotated}. As an {@link AnalysedTextImpl}
+ * holds a lot of {@link SpanImpl} instances with only some annotations
+ * each, annotations are not stored in a {@link java.util.Map} but in a
+ * small open addressing hash table (linear probing) with the keys at even and
+ * the values at odd positions. Values are stored as {@link Value} or - for
+ * multiple values - as {@link Value} array sorted by
+ * {@link Value#PROBABILITY_COMPARATOR}.<p>
+ * Keys are interned ({@link String#intern()}) so that spans annotated with
+ * parsed (e.g. deserialized) keys do not hold their own String instances.
+ * Unlike a static map the JVM string pool does not keep unused keys forever.
+ */
 public class AnnotatedImpl implements Annotated{
 
-    private Map<String,Object> annotations;
+    /**
+     * The initial capacity (number of key/value pairs). MUST BE a power of two
+     */
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * The hash table with the keys at even and the values at odd indexes.
+     * Lazily initialised.
+     */
+    private Object[] annotations;
+    private int size;
+
+    /**
+     * The index of the key within {@link #annotations} or <code>-1</code>
+     * if not present
+     */
+    private int indexOf(String key){
+        Object[] table = annotations;
+        if(table == null || key == null){
+            return -1;
+        }
+        int mask = (table.length >> 1) - 1;
+        int i = key.hashCode() & mask;
+        while(true){
+            Object current = table[i << 1];
+            if(current == null){
+                return -1;
+            } else if(current == key || current.equals(key)){
+                return i << 1;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+    
+    private Object get(String key){
+        int idx = indexOf(key);
+        return idx < 0 ? null : annotations[idx + 1];
+    }
+    /**
+     * Sets the parsed value (a {@link Value} or a {@link Value} array) for
+     * the key.
+     */
+    private void put(String key, Object value){
+        int idx = indexOf(key);
+        if(idx >= 0){
+            annotations[idx + 1] = value;
+            return;
+        }
+        if(annotations == null){
+            annotations = new Object[INITIAL_CAPACITY << 1];
+        } else if((size + 1) << 2 > annotations.length * 3 >> 1){ //load factor 0.75
+            rehash(annotations.length); //double the capacity
+        }
+        insert(annotations, key.intern(), value);
+        size++;
+    }
+    
+    private static void insert(Object[] table, Object key, Object value){
+        int mask = (table.length >> 1) - 1;
+        int i = key.hashCode() & mask;
+        while(table[i << 1] != null){
+            i = (i + 1) & mask;
+        }
+        table[i << 1] = key;
+        table[(i << 1) + 1] = value;
+    }
+    
+    private void rehash(int capacity){
+        Object[] old = annotations;
+        annotations = new Object[capacity << 1];
+        for(int i = 0; i < old.length; i += 2){
+            if(old[i] != null){
+                insert(annotations, old[i], old[i + 1]);
+            }
+        }
+    }
+    /**
+     * Removes the key by shifting back following entries of the same
+     * cluster (no tombstones needed)
+     */
+    private void remove(String key){
+        int idx = indexOf(key);
+        if(idx < 0){
+            return;
+        }
+        Object[] table = annotations;
+        int mask = (table.length >> 1) - 1;
+        int i = idx >> 1;
+        int j = i;
+        while(true){
+            table[i << 1] = null;
+            table[(i << 1) + 1] = null;
+            Object k;
+            int h;
+            do {
+                j = (j + 1) & mask;
+                k = table[j << 1];
+                if(k == null){
+                    size--;
+                    return;
+                }
+                h = k.hashCode() & mask;
+                //skip entries with a home slot cyclically in (i, j]
+            } while(i <= j ? (i < h && h <= j) : (i < h || h <= j));
+            table[i << 1] = k;
+            table[(i << 1) + 1] = table[(j << 1) + 1];
+            i = j;
+        }
+    }
     
-    @SuppressWarnings("unchecked")
     public Set<String> getKeys(){
-        return annotations == null ? Collections.EMPTY_SET : annotations.keySet();
+        if(size == 0){
+            return Collections.emptySet();
+        }
+        Set<String> keys = new HashSet<String>(size * 2);
+        for(int i = 0; i < annotations.length; i += 2){
+            if(annotations[i] != null){
+                keys.add((String)annotations[i]);
+            }
+        }
+        return Collections.unmodifiableSet(keys);
     }
     
     @Override
     public final Value<?> getValue(String key) {
-        if(annotations == null){
-            return null;
-        }
-        Object value = annotations.get(key);
+        Object value = get(key);
         if(value instanceof Value<?>){
             return (Value<?>)value;
         } else if(value != null){
@@ -53,10 +177,7 @@ public class AnnotatedImpl implements Annotated{
     @SuppressWarnings("unchecked")
     @Override
     public final List<Value<?>> getValues(String key) {
-        if(annotations == null){
-            return Collections.emptyList();
-        }
-        Object value = annotations.get(key);
+        Object value = get(key);
         if(value instanceof Value<?>){
             List<?> singleton = Collections.singletonList((Value<?>)value);
             return (List<Value<?>>)singleton;
@@ -69,10 +190,7 @@ public class AnnotatedImpl implements Annotated{
     @SuppressWarnings("unchecked")
     @Override
     public final <V> Value<V> getAnnotation(Annotation<V> annotation) {
-        if(annotations == null){
-            return null;
-        }
-        Object value = annotations.get(annotation.getKey());
+        Object value = get(annotation.getKey());
         if(value instanceof Value<?>){
             return (Value<V>)value;
         } else if(value != null){
@@ -85,10 +203,7 @@ public class AnnotatedImpl implements Annotated{
     @SuppressWarnings("unchecked")
     @Override
     public final <V> List<Value<V>> getAnnotations(Annotation<V> annotation) {
-        if(annotations == null){
-            return Collections.emptyList();
-        }
-        Object value = annotations.get(annotation.getKey());
+        Object value = get(annotation.getKey());
         if(value instanceof Value<?>){
             List<?> singleton = Collections.singletonList((Value<?>)value);
             return (List<Value<V>>)singleton;
@@ -116,8 +231,7 @@ public class AnnotatedImpl implements Annotated{
         if(values == null || values.isEmpty()){
             return;
         }
-        Map<String, Object> map = initAnnotations();
-        Object currentValue = annotations.get(key);
+        Object currentValue = get(key);
         Object newValues;
         if(currentValue == null){
             if(values.size() == 1){
@@ -145,7 +259,7 @@ public class AnnotatedImpl implements Annotated{
             }
             Arrays.sort((Value<?>[])newValues,Value.PROBABILITY_COMPARATOR);
         }
-        map.put(key, newValues);
+        put(key, newValues);
     }
     @Override
     public <V> void setAnnotations(Annotation<V> annotation, List<Value<V>> values) {
@@ -161,26 +275,19 @@ public class AnnotatedImpl implements Annotated{
      * @param values
      */
     private void setValuesInternal(String key, List<?> values){
-        Map<String, Object> map = initAnnotations();
         if(values == null || values.isEmpty()){
-            map.remove(key);
+            remove(key);
         } else if(values.size() == 1){
-            map.put(key, values.get(0));
+            put(key, values.get(0));
         } else {
             //we need to copy, because users might change the parsed Array!
             Value<?>[] copy = values.toArray(new Value<?>[values.size()]);
             Arrays.sort(copy,Value.PROBABILITY_COMPARATOR);
-            map.put(key,copy);
+            put(key,copy);
         }
         
     }
     
-    private Map<String,Object> initAnnotations(){
-        if(annotations == null){ //avoid sync for the typical case
-            annotations = new HashMap<String,Object>();
-        }
-        return annotations;
-    }
     @Override
     public <V> void addAnnotation(Annotation<V> annotation, Value<V> value) {
         addValue(annotation.getKey(), value);
@@ -188,21 +295,20 @@ public class AnnotatedImpl implements Annotated{
     @Override
     public void addValue(String key, Value<?> value) {
         if(value != null){
-          Map<String,Object> map = initAnnotations();  
-          Object currentValue = map.get(key);
+          Object currentValue = get(key);
           if(currentValue == null){
-              map.put(key, value);
+              put(key, value);
           } else if (currentValue instanceof Value<?>){
               Value<?>[] newValues =  new Value<?>[]{(Value<?>)currentValue,value};
               Arrays.sort(newValues,Value.PROBABILITY_COMPARATOR);
-              map.put(key, newValues);
+              put(key, newValues);
           } else { //array
               int length = ((Value<?>[])currentValue).length;
               Value<?>[] newValues = new Value<?>[length+1];
               System.arraycopy(currentValue, 0, newValues, 0, length);
               newValues[length] = value;
               Arrays.sort(newValues,Value.PROBABILITY_COMPARATOR);
-              map.put(key, newValues);
+              put(key, newValues);
           }
         } 
     }
@@ -212,14 +318,10 @@ public class AnnotatedImpl implements Annotated{
     }
     @Override
     public void setValue(String key, Value<?> value) {
-        if(annotations == null && value == null){
-            return;
-        }
-        Map<String,Object> map = initAnnotations();
         if(value == null){
-            map.remove(key);
+            remove(key);
         } else {
-            map.put(key,value);
+            put(key,value);
         }
     }
 }
@@ -19,14 +19,8 @@ package org.apache.stanbol.enhancer.nlp.model.impl;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
-import java.util.NavigableMap;
-import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.SortedSet;
 
-import org.apache.commons.collections.IteratorUtils;
-import org.apache.commons.collections.Predicate;
-import org.apache.commons.collections.functors.InstanceofPredicate;
 import org.apache.stanbol.enhancer.nlp.model.AnalysedText;
 import org.apache.stanbol.enhancer.nlp.model.Chunk;
 import org.apache.stanbol.enhancer.nlp.model.Section;
@@ -66,20 +60,13 @@ public abstract class SectionImpl extends SpanImpl implements Section {
 
     
     @Override
-    @SuppressWarnings("unchecked")
-    public Iterator<Span> getEnclosed(final Set<SpanTypeEnum> types) {
-        return IteratorUtils.filteredIterator(getIterator(), 
-            new Predicate() {
-                @Override
-                public boolean evaluate(Object span) {
-                    return types.contains(((Span)span).getType());
-                }
-            });
+    public Iterator<Span> getEnclosed(Set<SpanTypeEnum> types) {
+        return context.spans.iterator(SpanIndex.toMask(types), 
+            span[0], span[1], getType().ordinal(), span[1]);
     }
     
     @Override
-    @SuppressWarnings("unchecked")
-    public Iterator<Span> getEnclosed(final Set<SpanTypeEnum> types, int startOffset, int endOffset) {
+    public Iterator<Span> getEnclosed(Set<SpanTypeEnum> types, int startOffset, int endOffset) {
         if(startOffset >= (span[1] - span[0])){ //start is outside the span
             return Collections.<Span>emptySet().iterator();
         }
@@ -90,86 +77,22 @@ public abstract class SectionImpl extends SpanImpl implements Section {
         } else if(endIdx > span[1]){
             endIdx = span[1];
         }
-        return IteratorUtils.filteredIterator(getIterator(new SubSetHelperSpan(startIdx, endIdx)), 
-            new Predicate() {
-                @Override
-                public boolean evaluate(Object span) {
-                    return types.contains(((Span)span).getType());
-                }
-            });
+        //use [startIdx,endIdx] with the lowest type (Text) as lower bound
+        return context.spans.iterator(SpanIndex.toMask(types), 
+            startIdx, endIdx, SpanTypeEnum.Text.ordinal(), endIdx);
     }
     /**
      * Iterator that does not throw {@link ConcurrentModificationException} but
-     * considers modifications to the underlying set by using the
-     * {@link NavigableMap#higherKey(Object)} method for iterating over the
-     * Elements!<p>
+     * considers modifications to the underlying {@link SpanIndex} by
+     * continuing after the last returned {@link Span}.<p>
      * This allows to add new {@link Span}s to the {@link Section} while
      * iterating (e.g. add {@link Token}s and/or {@link Chunk}s while iterating
      * over the {@link Sentence}s of an {@link AnalysedText})
      * @return the iterator
      */
     protected Iterator<Span> getIterator(){
-        return getIterator(null);
-    }
-    /**
-     * Iterator that does not throw {@link ConcurrentModificationException} but
-     * considers modifications to the underlying set by using the
-     * {@link NavigableMap#higherKey(Object)} method for iterating over the
-     * Elements!<p>
-     * This allows to add new {@link Span}s to the {@link Section} while
-     * iterating (e.g. add {@link Token}s and/or {@link Chunk}s while iterating
-     * over the {@link Sentence}s of an {@link AnalysedText})
-     * @param section the (sub-)section of the current section to iterate or
-     * <code>null</code> to iterate the whole section.
-     * @return the iterator
-     */
-    protected Iterator<Span> getIterator(final SubSetHelperSpan section){
-        //create a virtual Span with the end of the section to iterate over
-        final Span end = new SubSetHelperSpan(
-            section == null ? getEnd() : //if no section is defined use the parent
-                section.getEnd()); //use the end of the desired section
-        return new Iterator<Span>() {
-            
-            boolean init = false;
-            boolean removed = true;
-            //init with the first span of the iterator
-            private Span span = section == null ? 
-                    SectionImpl.this : section; 
-            
-            @Override
-            public boolean hasNext() {
-                return getNext() != null;
-            }
-            
-            private Span getNext(){
-                Span next = context.spans.higherKey(span);
-                return next == null || next.compareTo(end) >= 0 ? null : next;
-            }
-            
-            @Override
-            public Span next() {
-                init = true;
-                span = getNext();
-                removed = false;
-                if(span == null){
-                    throw new NoSuchElementException();
-                }
-                return span;
-            }
-
-            @Override
-            public void remove() {
-                if(!init){
-                    throw new IllegalStateException("remove can not be called before the first call to next");
-                }
-                if(removed){
-                    throw new IllegalStateException("the current Span was already removed!");
-                }
-                context.spans.remove(span);
-                removed = true;
-            }
-            
-        };
+        return context.spans.iterator(SpanIndex.ALL_TYPES, 
+            span[0], span[1], getType().ordinal(), span[1]);
     }
     
     /**
@@ -208,11 +131,10 @@ public abstract class SectionImpl extends SpanImpl implements Section {
     protected <T extends Span> T register(T span){
         //check if this token already exists
         @SuppressWarnings("unchecked")
-        T current = (T)context.spans.get(span);
+        T current = (T)context.spans.putIfAbsent((SpanImpl)span);
         //NOTE: type safety is ensured by the SpanTypeEnum in combination with the
         //      Compareable implementation of SpanImpl.
-        if(current == null){ //add the new one
-            context.spans.put(span, span);
+        if(current == null){ //the new one was added
             return span;
         } else { //else return the already contained token
             return current;
@@ -220,52 +142,20 @@ public abstract class SectionImpl extends SpanImpl implements Section {
     }
 
     public Iterator<Token> getTokens(){
-        return filter(Token.class);
+        return filter(SpanTypeEnum.Token);
     }
     /**
      * Internal helper to generate correctly generic typed {@link Iterator}s for
-     * filtered {@link Span} types
-     * @param interfaze the Span interface e.g. {@link Token}
-     * @param clazz the actual Span implementation e.g. {@link TokenImpl}
+     * the {@link Span}s of a specific type enclosed by this section
+     * @param type the Span type e.g. {@link SpanTypeEnum#Token}
      * @return the {@link Iterator} of type {interface} iterating over 
      * {implementation} instances (e.g. 
      * <code>{@link Iterator}&lt;{@link Token}&gt;</code> returning 
      * <code>{@link TokenImpl}</code> instances on calls to {@link Iterator#next()}
      */
-    @SuppressWarnings("unchecked")
-    protected <T extends Span> Iterator<T> filter(
-        final Class<T> clazz){
-        return IteratorUtils.filteredIterator(
-            getIterator(),
-            new InstanceofPredicate(clazz));
-    }
-    
-    /**
-     * Internal helper class used for building {@link SortedSet#subSet(Object, Object)}.
-     * 
-     * @author Rupert Westenthaler
-     *
-     */
-    class SubSetHelperSpan extends SpanImpl implements Span{
-        /**
-         * Create the start constraint for {@link SortedSet#subSet(Object, Object)}
-         * @param start
-         * @param end
-         */
-        protected SubSetHelperSpan(int start,int end){
-            super(SpanTypeEnum.Text, //lowest pos type
-                start,end);
-            setContext(SectionImpl.this.context);
-        }
-        /**
-         * Creates the end constraint for {@link SortedSet#subSet(Object, Object)}
-         * @param pos
-         */
-        protected SubSetHelperSpan(int pos){
-            super(SpanTypeEnum.Token, //highest pos type,
-                pos,Integer.MAX_VALUE);
-            setContext(SectionImpl.this.context);
-        }
+    protected <T extends Span> Iterator<T> filter(SpanTypeEnum type){
+        return context.spans.iterator(SpanIndex.toMask(type), 
+            span[0], span[1], getType().ordinal(), span[1]);
     }
 
 }
@@ -44,6 +44,6 @@ public final class SentenceImpl extends SectionImpl implements Sentence {
      */
     @Override
     public Iterator<Chunk> getChunks(){
-        return filter(Chunk.class);
+        return filter(SpanTypeEnum.Chunk);
     }
 }
@@ -0,0 +1,329 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.enhancer.nlp.model.impl;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.stanbol.enhancer.nlp.model.Span;
+import org.apache.stanbol.enhancer.nlp.model.SpanTypeEnum;
+
+/**
+ * Stores the {@link Span}s of an {@link AnalysedTextImpl}.<p>
+ * For every {@link SpanTypeEnum} an array sorted by the natural order of
+ * {@link Span}s (start ASC, end DESC) is used. This allows to lookup the
+ * first Span of a type enclosed by a section with a binary search and to
+ * iterate over only those types requested by the caller. Iterations over
+ * several types merge the per type arrays so that Spans are returned in the
+ * same order as defined by {@link SpanImpl#compareTo(Span)}.<p>
+ * As Spans are typically added in the order of the text, additions
+ * are in most cases appended to the end of the arrays.<p>
+ * NOTE: This class is not thread safe. Iterators do NOT throw
+ * {@link ConcurrentModificationException}s. Instead they continue after the
+ * last returned Span if the index was modified. This allows to add
+ * {@link Span}s while iterating (e.g. adding Tokens while iterating over
+ * Sentences).
+ *
+ */
+final class SpanIndex {
+
+    private static final SpanTypeEnum[] TYPES = SpanTypeEnum.values();
+    /**
+     * Bit mask including all {@link SpanTypeEnum}s
+     */
+    static final int ALL_TYPES = (1 << TYPES.length) - 1;
+
+    private static final SpanImpl[] EMPTY = new SpanImpl[0];
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final SpanImpl[][] spans = new SpanImpl[TYPES.length][];
+    private final int[] sizes = new int[TYPES.length];
+    /**
+     * Incremented for every addition or removal. Used by iterators to
+     * re-position their cursors after modifications.
+     */
+    private int modCount = 0;
+
+    SpanIndex(){
+        for(int i = 0; i < TYPES.length; i++){
+            spans[i] = EMPTY;
+        }
+    }
+
+    /**
+     * Converts the parsed set of types to the bit mask used by
+     * {@link #iterator(int, int, int, int, int)}
+     * @param types the types
+     * @return the bit mask
+     */
+    static int toMask(Set<SpanTypeEnum> types){
+        int mask = 0;
+        for(SpanTypeEnum type : types){
+            mask |= 1 << type.ordinal();
+        }
+        return mask;
+    }
+
+    /**
+     * Converts the parsed type to the bit mask used by
+     * {@link #iterator(int, int, int, int, int)}
+     * @param type the type
+     * @return the bit mask
+     */
+    static int toMask(SpanTypeEnum type){
+        return 1 << type.ordinal();
+    }
+
+    /**
+     * Compares the parsed span with the position defined by start, end and
+     * the ordinal of the type. Consistent with {@link SpanImpl#compareTo(Span)}.
+     */
+    private static int compare(SpanImpl span, int start, int end, int ordinal){
+        int s = span.span[0];
+        if(s != start){
+            return s < start ? -1 : 1;
+        }
+        int e = span.span[1];
+        if(e != end){ //end is sorted DESC
+            return e > end ? -1 : 1;
+        }
+        int o = span.type.ordinal();
+        return o < ordinal ? -1 : o == ordinal ? 0 : 1;
+    }
+
+    /**
+     * Binary search for a span with the parsed start and end within the
+     * spans of the parsed type.
+     * @return the index or <code>(-(insertion point) - 1)</code> if not present
+     */
+    private int indexOf(int t, int start, int end){
+        SpanImpl[] a = spans[t];
+        int lo = 0;
+        int hi = sizes[t] - 1;
+        while(lo <= hi){
+            int mid = (lo + hi) >>> 1;
+            int c = compare(a[mid], start, end, t);
+            if(c < 0){
+                lo = mid + 1;
+            } else if(c > 0){
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    /**
+     * The index of the first span of the type that is sorted after the
+     * parsed position
+     */
+    private int higher(int t, int start, int end, int ordinal){
+        SpanImpl[] a = spans[t];
+        int size = sizes[t];
+        if(size == 0 || compare(a[size - 1], start, end, ordinal) <= 0){
+            return size; //shortcut for the common case of appending
+        }
+        int lo = 0;
+        int hi = size;
+        while(lo < hi){
+            int mid = (lo + hi) >>> 1;
+            if(compare(a[mid], start, end, ordinal) > 0){
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Getter for the already present Span with the same type, start and end
+     * @param span the span
+     * @return the contained span or <code>null</code> if not present
+     */
+    SpanImpl get(Span span){
+        int t = span.getType().ordinal();
+        int idx = indexOf(t, span.getStart(), span.getEnd());
+        return idx < 0 ? null : spans[t][idx];
+    }
+
+    /**
+     * Adds the parsed span if no span with the same type, start and end is
+     * already present.
+     * @param span the span to add
+     * @return the already present span or <code>null</code> if the parsed
+     * one was added
+     */
+    SpanImpl putIfAbsent(SpanImpl span){
+        int t = span.type.ordinal();
+        int idx = indexOf(t, span.span[0], span.span[1]);
+        if(idx >= 0){
+            return spans[t][idx];
+        }
+        idx = -(idx + 1);
+        SpanImpl[] a = spans[t];
+        int size = sizes[t];
+        if(size == a.length){
+            SpanImpl[] grown = new SpanImpl[Math.max(INITIAL_CAPACITY, size + (size >> 1))];
+            System.arraycopy(a, 0, grown, 0, idx);
+            System.arraycopy(a, idx, grown, idx + 1, size - idx);
+            spans[t] = a = grown;
+        } else if(idx < size){
+            System.arraycopy(a, idx, a, idx + 1, size - idx);
+        }
+        a[idx] = span;
+        sizes[t] = size + 1;
+        modCount++;
+        return null;
+    }
+
+    /**
+     * Removes the span with the same type, start and end as the parsed one
+     * @param span the span to remove
+     * @return if a span was removed
+     */
+    boolean remove(Span span){
+        int t = span.getType().ordinal();
+        int idx = indexOf(t, span.getStart(), span.getEnd());
+        if(idx < 0){
+            return false;
+        }
+        SpanImpl[] a = spans[t];
+        int size = sizes[t] - 1;
+        System.arraycopy(a, idx + 1, a, idx, size - idx);
+        a[size] = null;
+        sizes[t] = size;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Creates an iterator over the spans of the types selected by the parsed
+     * mask that are sorted after the parsed position (<code>start</code>,
+     * <code>end</code>, <code>ordinal</code>) and that start before
+     * <code>endBound</code>.
+     * @param typeMask the types to iterate over. See {@link #toMask(Set)}
+     * @param start the start of the lower bound (exclusive)
+     * @param end the end of the lower bound (exclusive)
+     * @param ordinal the ordinal of the span type of the lower bound (exclusive)
+     * @param endBound the first start index NOT included in the iteration
+     * @return the iterator
+     */
+    <T extends Span> Iterator<T> iterator(int typeMask, int start, int end, int ordinal, int endBound){
+        return new SpanIterator<T>(typeMask, start, end, ordinal, endBound);
+    }
+
+    /**
+     * Merges the per type arrays selected by the type mask. Cursors are
+     * re-positioned relative to the last returned span if the index was
+     * modified.
+     */
+    private final class SpanIterator<T extends Span> implements Iterator<T> {
+
+        private final int typeMask;
+        private final int endBound;
+        private final int[] cursors = new int[TYPES.length];
+        /*
+         * The position of the last returned span (initially the lower bound)
+         */
+        private int start;
+        private int end;
+        private int ordinal;
+        private int expectedModCount;
+        /**
+         * the last returned span (<code>null</code> before the first call to
+         * {@link #next()} and after {@link #remove()})
+         */
+        private SpanImpl current;
+        private boolean init = false;
+
+        SpanIterator(int typeMask, int start, int end, int ordinal, int endBound){
+            this.typeMask = typeMask;
+            this.endBound = endBound;
+            this.start = start;
+            this.end = end;
+            this.ordinal = ordinal;
+            seek();
+        }
+
+        private void seek(){
+            for(int t = 0; t < TYPES.length; t++){
+                if((typeMask & (1 << t)) != 0){
+                    cursors[t] = higher(t, start, end, ordinal);
+                }
+            }
+            expectedModCount = modCount;
+        }
+
+        /**
+         * @return the type of the next span or <code>-1</code> if none
+         */
+        private int nextType(){
+            if(expectedModCount != modCount){
+                seek();
+            }
+            SpanImpl min = null;
+            int minType = -1;
+            for(int t = 0; t < TYPES.length; t++){
+                if((typeMask & (1 << t)) != 0 && cursors[t] < sizes[t]){
+                    SpanImpl candidate = spans[t][cursors[t]];
+                    if(candidate.span[0] < endBound && (min == null ||
+                            compare(candidate, min.span[0], min.span[1], minType) < 0)){
+                        min = candidate;
+                        minType = t;
+                    }
+                }
+            }
+            return minType;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextType() >= 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            int t = nextType();
+            if(t < 0){
+                throw new NoSuchElementException();
+            }
+            init = true;
+            current = spans[t][cursors[t]++];
+            start = current.span[0];
+            end = current.span[1];
+            ordinal = t;
+            return (T)current;
+        }
+
+        @Override
+        public void remove() {
+            if(!init){
+                throw new IllegalStateException("remove can not be called before the first call to next");
+            }
+            if(current == null){
+                throw new IllegalStateException("the current Span was already removed!");
+            }
+            SpanIndex.this.remove(current);
+            current = null;
+        }
+    }
+}
@@ -16,6 +16,7 @@
 */
 package org.apache.stanbol.enhancer.nlp.model.tag;
 
+import org.apache.stanbol.enhancer.nlp.model.annotation.Value;
 import org.apache.stanbol.enhancer.nlp.pos.PosTag;
 
 
@@ -24,6 +25,10 @@ public abstract class Tag<T extends Tag<T>> { //lol ??!! is that how to define T
     
     protected final String tag;
     private TagSet<T> annotationModel;
+    /**
+     * Lazily initialised shared Value with an unknown probability
+     */
+    private Value<T> value;
 
     /**
      * Creates a PosTag for the given String
@@ -56,6 +61,25 @@ public abstract class Tag<T extends Tag<T>> { //lol ??!! is that how to define T
         this.annotationModel = annotationModel;
     }
     
+    /**
+     * Getter for the shared {@link Value} with an 
+     * {@link Value#UNKNOWN_PROBABILITY unknown probability} for this Tag.
+     * Used by {@link Value#value(Object)} so that Tags (e.g. the 
+     * {@link PosTag}s of a {@link TagSet}) used to annotate a lot of
+     * {@link org.apache.stanbol.enhancer.nlp.model.Span}s do not create an
+     * own Value instance for every annotation.
+     * @return the shared Value for this Tag
+     */
+    @SuppressWarnings("unchecked")
+    public final Value<T> asValue(){
+        Value<T> v = value;
+        if(v == null){ //Value is immutable so there is no need to sync
+            v = new Value<T>((T)this);
+            value = v;
+        }
+        return v;
+    }
+    
     @Override
     public String toString() {
         return String.format("%s %s ", getClass().getSimpleName(), tag);
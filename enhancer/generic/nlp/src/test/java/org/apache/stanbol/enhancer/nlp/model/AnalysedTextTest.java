@@ -36,6 +36,8 @@ import org.apache.commons.collections.CollectionUtils;
 import org.apache.stanbol.enhancer.contentitem.inmemory.InMemoryContentItemFactory;
 import org.apache.stanbol.enhancer.nlp.model.annotation.Annotation;
 import org.apache.stanbol.enhancer.nlp.model.annotation.Value;
+import org.apache.stanbol.enhancer.nlp.pos.LexicalCategory;
+import org.apache.stanbol.enhancer.nlp.pos.PosTag;
 import org.apache.stanbol.enhancer.nlp.utils.NIFHelper;
 import org.apache.stanbol.enhancer.nlp.utils.NlpEngineHelper;
 import org.apache.stanbol.enhancer.servicesapi.Blob;
@@ -418,6 +420,50 @@ public class AnalysedTextTest {
     }
 
 
+    /**
+     * Tests that Spans added (in any order) while iterating are considered
+     * by iterators and that Spans can be removed by using the iterator
+     */
+    @Test
+    public void testModificationWhileIterating(){
+        Sentence sent1 = at.addSentence(0, 91);
+        Sentence sent2 = at.addSentence(92, text.length());
+        Iterator<Sentence> sentences = at.getSentences();
+        Assert.assertEquals(sent1, sentences.next());
+        //add tokens in reverse order while iterating
+        sent1.addToken(12, 20);
+        sent1.addToken(4, 11);
+        sent1.addToken(0, 3);
+        //adding an existing token MUST return the existing instance
+        Token the = sent1.addToken(0, 3);
+        Assert.assertSame(the, at.addToken(0, 3));
+        //sentences added after the current one are returned in the natural
+        //order of spans (start ASC, end DESC)
+        Sentence sent1b = at.addSentence(40, 91);
+        Sentence sent1a = at.addSentence(0, 3);
+        Assert.assertEquals(sent1a, sentences.next());
+        Assert.assertEquals(sent1b, sentences.next());
+        Assert.assertEquals(sent2, sentences.next());
+        Assert.assertFalse(sentences.hasNext());
+
+        Iterator<Token> tokens = sent1.getTokens();
+        int[] expectedStarts = new int[]{0, 4, 12};
+        for(int start : expectedStarts){
+            Token token = tokens.next();
+            Assert.assertEquals(start, token.getStart());
+            if(start == 4){
+                tokens.remove();
+            }
+        }
+        Assert.assertFalse(tokens.hasNext());
+        Iterator<Span> enclosed = sent1.getEnclosed(EnumSet.of(SpanTypeEnum.Sentence, SpanTypeEnum.Token));
+        Assert.assertEquals(sent1a, enclosed.next()); //Sentence [0,3]
+        Assert.assertEquals(the, enclosed.next()); //Token [0,3]
+        Assert.assertEquals(SpanTypeEnum.Token, enclosed.next().getType()); //Token [12,20]
+        Assert.assertEquals(sent1b, enclosed.next()); //Sentence [40,91]
+        Assert.assertFalse(enclosed.hasNext());
+    }
+
     /**
      * @param span
      * @param testSpan
@@ -474,5 +520,44 @@ public class AnalysedTextTest {
         }
         
     }
+    /**
+     * Tests setting, replacing and removing of a lot of annotations for a
+     * single span (forces rehashing and the removal of colliding keys)
+     */
+    @Test
+    public void testManyAnnotations(){
+        Token token = at.addToken(0, 3);
+        Assert.assertTrue(token.getKeys().isEmpty());
+        for(int i = 0; i < 50; i++){
+            token.setValue("key" + i, Value.value(i));
+        }
+        token.addValue("key7", Value.value(Integer.valueOf(7), 0.5));
+        token.setValue("key8", Value.value(Integer.valueOf(88)));
+        Assert.assertEquals(50, token.getKeys().size());
+        for(int i = 0; i < 50; i += 2){
+            token.setValue("key" + i, null);
+        }
+        Assert.assertEquals(25, token.getKeys().size());
+        for(int i = 0; i < 50; i++){
+            Value<?> value = token.getValue("key" + i);
+            if(i % 2 == 0){
+                Assert.assertNull(value);
+                Assert.assertTrue(token.getValues("key" + i).isEmpty());
+            } else if(i == 7){
+                Assert.assertEquals(0.5, value.probability(), 0.0d);
+                Assert.assertEquals(2, token.getValues("key7").size());
+            } else {
+                Assert.assertEquals(Integer.valueOf(i), value.value());
+            }
+        }
+    }
+    
+    @Test
+    public void testSharedTagValues(){
+        PosTag noun = new PosTag("NN", LexicalCategory.Noun);
+        Assert.assertSame(Value.value(noun), Value.value(noun));
+        Assert.assertEquals(Value.UNKNOWN_PROBABILITY, Value.value(noun).probability(), 0.0d);
+        Assert.assertNotSame(Value.value(noun, 0.9), Value.value(noun, 0.9));
+    }
     
 }
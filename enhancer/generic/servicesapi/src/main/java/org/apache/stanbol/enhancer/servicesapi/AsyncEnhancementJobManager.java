@@ -0,0 +1,68 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.enhancer.servicesapi;
+
+import java.util.concurrent.Future;
+
+/**
+ * Optional extension of the {@link EnhancementJobManager} interface for
+ * implementations that can process {@link ContentItem}s without blocking
+ * the calling thread until the enhancement process has completed.<p>
+ * Callers (e.g. the RESTful interface of the Stanbol Enhancer) should check
+ * if the {@link EnhancementJobManager} service implements this interface and
+ * fall back to the blocking {@link #enhanceContent(ContentItem, Chain)}
+ * method otherwise.
+ */
+public interface AsyncEnhancementJobManager extends EnhancementJobManager {
+
+    /**
+     * Starts the enhancement of the parsed {@link ContentItem} by using the
+     * {@link Chain#getExecutionPlan() execution plan} provided by the
+     * {@link Chain} and returns immediately.
+     * @param ci the ContentItem to be enhanced
+     * @param chain the enhancement Chain used to process the content item
+     * @param callback the callback notified as soon as the enhancement process
+     * has completed or failed. <code>null</code> if no callback is needed
+     * @return the Future for the parsed content item. {@link Future#get()}
+     * throws an {@link java.util.concurrent.ExecutionException} wrapping the
+     * {@link EnhancementException} if the enhancement process failed.
+     * @throws EnhancementException if the enhancement process could not be
+     * started (e.g. because the execution plan of the chain is not available)
+     */
+    Future<ContentItem> enhanceContentAsync(ContentItem ci, Chain chain,
+            EnhancementCallback callback) throws EnhancementException;
+
+    /**
+     * Callback notified by the {@link AsyncEnhancementJobManager} as soon as
+     * an asynchronously processed {@link ContentItem} is enhanced.
+     * Implementations MUST NOT block as callbacks are called by threads of
+     * the job manager.
+     */
+    interface EnhancementCallback {
+        /**
+         * Called after the parsed content item was successfully enhanced
+         * @param ci the enhanced content item
+         */
+        void completed(ContentItem ci);
+        /**
+         * Called if the enhancement of the parsed content item failed
+         * @param ci the content item
+         * @param e the exception describing the failure
+         */
+        void failed(ContentItem ci, EnhancementException e);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.enhancer.servicesapi;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link Blob} that holds its data in a {@link ByteBuffer} (e.g. a direct
+ * buffer or a memory mapped file). Engines that can process a
+ * {@link ByteBuffer} can use {@link #getBuffer()} to access the data without
+ * copying them to the Java heap as done when reading from
+ * {@link #getStream()}.
+ * @since 1.0.1
+ */
+public interface BufferedBlob extends Blob {
+
+    /**
+     * Getter for a read-only view on the data of this Blob. Multiple calls
+     * return multiple instances so that users can change the position and
+     * limit of the returned buffer without affecting others. The position of
+     * the returned buffer is <code>0</code> and the limit is the
+     * {@link #getContentLength() content length}.<p>
+     * The returned buffer MUST NOT be used after the Blob is no longer
+     * referenced, as memory mapped or direct buffers might be released.
+     * @return the read-only buffer with the data of this Blob
+     */
+    ByteBuffer getBuffer();
+}
@@ -22,6 +22,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.nio.charset.Charset;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
@@ -36,6 +37,7 @@ import java.util.StringTokenizer;
 import org.apache.clerezza.commons.rdf.IRI;
 import org.apache.commons.io.IOUtils;
 import org.apache.stanbol.enhancer.servicesapi.Blob;
+import org.apache.stanbol.enhancer.servicesapi.BufferedBlob;
 import org.apache.stanbol.enhancer.servicesapi.ContentItem;
 import org.apache.stanbol.enhancer.servicesapi.NoSuchPartException;
 
@@ -326,7 +328,8 @@ public final class ContentItemHelper {
     /**
      * Getter for the Text of an {@link Blob}. This method respects the
      * "charset" if present in the {@link Blob#getParameter() parameter} of the
-     * Blob.
+     * Blob. For {@link BufferedBlob}s the text is decoded directly from the
+     * {@link BufferedBlob#getBuffer() buffer}.
      * @param blob the {@link Blob}. MUST NOT be <code>null</code>.
      * @return the text
      * @throws IOException on any exception while reading from the
@@ -338,7 +341,22 @@ public final class ContentItemHelper {
             throw new IllegalArgumentException("The parsed Blob MUST NOT be NULL!");
         }
         String charset = blob.getParameter().get("charset");
-        return IOUtils.toString(blob.getStream(), charset != null ? charset : UTF8);
+        if(charset == null){
+            charset = UTF8;
+        }
+        if(blob instanceof BufferedBlob){
+            //decode directly from the buffer (no copy to the heap)
+            Charset cs;
+            try {
+                cs = Charset.forName(charset);
+            } catch (IllegalArgumentException e) {
+                cs = null; //unsupported charset: use the stream to get the IOException
+            }
+            if(cs != null){
+                return cs.decode(((BufferedBlob)blob).getBuffer()).toString();
+            }
+        }
+        return IOUtils.toString(blob.getStream(), charset);
     }
     /**
      * Creates the "{type}/{subtime}; [{param}={value}]+" mime type representation
@@ -55,10 +55,13 @@ import org.apache.clerezza.commons.rdf.impl.utils.PlainLiteralImpl;
 import org.apache.clerezza.commons.rdf.impl.utils.TripleImpl;
 import org.apache.clerezza.rdf.core.LiteralFactory;
 import org.apache.stanbol.commons.indexedgraph.IndexedGraph;
+import org.apache.stanbol.enhancer.servicesapi.Chain;
 import org.apache.stanbol.enhancer.servicesapi.ChainException;
 import org.apache.stanbol.enhancer.servicesapi.EnhancementEngine;
 import org.apache.stanbol.enhancer.servicesapi.EnhancementEngineManager;
 import org.apache.stanbol.enhancer.servicesapi.ServiceProperties;
+import org.apache.stanbol.enhancer.servicesapi.helper.execution.CompiledExecutionPlan;
+import org.apache.stanbol.enhancer.servicesapi.impl.AbstractChain;
 import org.apache.stanbol.enhancer.servicesapi.impl.EnginesTracker;
 import org.apache.stanbol.enhancer.servicesapi.rdf.ExecutionPlan;
 import org.apache.stanbol.enhancer.servicesapi.rdf.NamespaceEnum;
@@ -488,6 +491,26 @@ public final class ExecutionPlanHelper {
         }
 
     }
+    /**
+     * Getter for the {@link CompiledExecutionPlan} of the parsed {@link Chain}.
+     * For {@link AbstractChain} implementations the cached version is
+     * returned (see {@link AbstractChain#getCompiledExecutionPlan()}). For
+     * other chains the execution plan is compiled on every call.
+     * @param chain the chain
+     * @return the compiled execution plan of the chain
+     * @throws ChainException if the execution plan of the chain is not
+     * available or not valid
+     */
+    public static CompiledExecutionPlan getCompiledExecutionPlan(Chain chain) throws ChainException {
+        if(chain == null){
+            throw new IllegalArgumentException("The parsed Chain MUST NOT be NULL!");
+        }
+        if(chain instanceof AbstractChain){
+            return ((AbstractChain)chain).getCompiledExecutionPlan();
+        } else {
+            return CompiledExecutionPlan.compile(chain.getExecutionPlan());
+        }
+    }
     /**
      * Getter for the set of ExecutionNodes part of an execution plan.
      * @param ep the execution plan graph
@@ -0,0 +1,282 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.enhancer.servicesapi.helper.execution;
+
+import static org.apache.stanbol.enhancer.servicesapi.rdf.ExecutionPlan.DEPENDS_ON;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.ExecutionPlan.EXECUTION_NODE;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.ExecutionPlan.EXECUTION_PLAN;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.RDF_TYPE;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.clerezza.commons.rdf.BlankNodeOrIRI;
+import org.apache.clerezza.commons.rdf.Graph;
+import org.apache.clerezza.commons.rdf.RDFTerm;
+import org.apache.clerezza.commons.rdf.Triple;
+import org.apache.stanbol.enhancer.servicesapi.ChainException;
+import org.apache.stanbol.enhancer.servicesapi.helper.ExecutionPlanHelper;
+import org.apache.stanbol.enhancer.servicesapi.rdf.ExecutionPlan;
+
+/**
+ * Immutable, index based representation of an execution plan. The
+ * ep:ExecutionNodes of the plan are assigned to <code>int</code> indexes
+ * <code>[0..{@link #size()})</code> and the <code>ep:dependsOn</code> relations
+ * are stored as arrays in both directions. This allows job managers to
+ * track the state of an enhancement process with primitive (and atomic)
+ * per node counters instead of filtering the execution plan graph on every
+ * step (as done by {@link ExecutionPlanHelper#getExecutable(Graph, java.util.Set)}).
+ * <p>
+ * Instances are thread safe and can be shared between enhancement jobs.
+ * Chains extending <code>AbstractChain</code> cache the compiled version of
+ * their execution plan.
+ *
+ * @see ExecutionPlanHelper
+ * @see ExecutionPlanHelper#getCompiledExecutionPlan(org.apache.stanbol.enhancer.servicesapi.Chain)
+ */
+public final class CompiledExecutionPlan {
+
+    private static final int[] EMPTY = new int[]{};
+
+    private final Graph executionPlan;
+    private final BlankNodeOrIRI executionPlanNode;
+    private final BlankNodeOrIRI[] nodes;
+    private final Map<BlankNodeOrIRI,Integer> indexes;
+    private final String[] engines;
+    private final boolean[] optional;
+    private final int[][] dependsOn;
+    private final int[][] dependents;
+    private final int[] roots;
+
+    private CompiledExecutionPlan(BlankNodeOrIRI executionPlanNode, List<BlankNodeOrIRI> nodes, 
+            Graph executionPlan) throws ChainException {
+        this.executionPlan = executionPlan;
+        this.executionPlanNode = executionPlanNode;
+        int size = nodes.size();
+        this.nodes = nodes.toArray(new BlankNodeOrIRI[size]);
+        Map<BlankNodeOrIRI,Integer> indexes = new HashMap<BlankNodeOrIRI,Integer>(size*2);
+        for(int i = 0; i < size; i++){
+            indexes.put(this.nodes[i], i);
+        }
+        this.indexes = Collections.unmodifiableMap(indexes);
+        this.engines = new String[size];
+        this.optional = new boolean[size];
+        this.dependsOn = new int[size][];
+        int[] dependentCount = new int[size];
+        int rootCount = 0;
+        for(int i = 0; i < size; i++){
+            BlankNodeOrIRI node = this.nodes[i];
+            engines[i] = ExecutionPlanHelper.getEngine(executionPlan, node);
+            if(engines[i] == null){
+                throw new ChainException("Execution Node "+node+" does not define " +
+                        "the required property "+ExecutionPlan.ENGINE+"!");
+            }
+            optional[i] = ExecutionPlanHelper.isOptional(executionPlan, node);
+            List<Integer> depends = new ArrayList<Integer>(4);
+            for(Iterator<Triple> it = executionPlan.filter(node, DEPENDS_ON, null); it.hasNext();){
+                RDFTerm o = it.next().getObject();
+                Integer index = indexes.get(o);
+                if(index == null){
+                    throw new ChainException("Execution Node "+node+
+                        " defines a dependency to an non existent ex:ExectutionNode "+
+                        o+"!");
+                }
+                if(!depends.contains(index)){
+                    depends.add(index);
+                }
+            }
+            if(depends.isEmpty()){
+                dependsOn[i] = EMPTY;
+                rootCount++;
+            } else {
+                dependsOn[i] = new int[depends.size()];
+                for(int j = 0; j < dependsOn[i].length; j++){
+                    dependsOn[i][j] = depends.get(j);
+                    dependentCount[dependsOn[i][j]]++;
+                }
+            }
+        }
+        //invert the dependsOn relation
+        this.dependents = new int[size][];
+        for(int i = 0; i < size; i++){
+            dependents[i] = dependentCount[i] == 0 ? EMPTY : new int[dependentCount[i]];
+        }
+        int[] pos = new int[size];
+        this.roots = new int[rootCount];
+        int rootPos = 0;
+        for(int i = 0; i < size; i++){
+            if(dependsOn[i].length == 0){
+                roots[rootPos++] = i;
+            }
+            for(int dependency : dependsOn[i]){
+                dependents[dependency][pos[dependency]++] = i;
+            }
+        }
+    }
+    /**
+     * Compiles the parsed execution plan.
+     * @param executionPlan the execution plan. This might also be a graph
+     * that contains additional information (e.g. the execution metadata).
+     * However it MUST only contain a single execution plan. The parsed graph
+     * MUST NOT be changed afterwards as it is referenced by the compiled plan.
+     * @return the compiled execution plan
+     * @throws ChainException if the parsed execution plan is not valid
+     */
+    public static CompiledExecutionPlan compile(Graph executionPlan) throws ChainException {
+        if(executionPlan == null){
+            throw new IllegalArgumentException("The parsed execution plan MUST NOT be NULL!");
+        }
+        Iterator<Triple> planIt = executionPlan.filter(null, RDF_TYPE, EXECUTION_PLAN);
+        if(!planIt.hasNext()){
+            throw new ChainException("The parsed graph does not contain an ep:ExecutionPlan!");
+        }
+        BlankNodeOrIRI executionPlanNode = planIt.next().getSubject();
+        if(planIt.hasNext()){
+            throw new ChainException("The parsed graph contains multiple ep:ExecutionPlans!");
+        }
+        List<BlankNodeOrIRI> nodes = new ArrayList<BlankNodeOrIRI>();
+        for(Iterator<Triple> it = executionPlan.filter(null, RDF_TYPE, EXECUTION_NODE);it.hasNext();){
+            nodes.add(it.next().getSubject());
+        }
+        return new CompiledExecutionPlan(executionPlanNode, nodes, executionPlan);
+    }
+    /**
+     * The graph this execution plan was compiled from
+     * @return the execution plan graph
+     */
+    public Graph getExecutionPlan(){
+        return executionPlan;
+    }
+    /**
+     * The ep:ExecutionPlan node
+     * @return the ep:ExecutionPlan node
+     */
+    public BlankNodeOrIRI getExecutionPlanNode(){
+        return executionPlanNode;
+    }
+    /**
+     * The number of ep:ExecutionNodes
+     * @return the number of nodes
+     */
+    public int size(){
+        return nodes.length;
+    }
+    /**
+     * Getter for the ep:ExecutionNode with the parsed index
+     * @param index the index
+     * @return the node
+     * @throws IndexOutOfBoundsException if the parsed index is not valid
+     */
+    public BlankNodeOrIRI getNode(int index){
+        return nodes[index];
+    }
+    /**
+     * Getter for the index of the parsed ep:ExecutionNode
+     * @param node the node
+     * @return the index or <code>-1</code> if the parsed node is not part of
+     * this execution plan
+     */
+    public int getIndex(BlankNodeOrIRI node){
+        Integer index = indexes.get(node);
+        return index == null ? -1 : index.intValue();
+    }
+    /**
+     * The name of the engine executed by the node with the parsed index
+     * @param index the index
+     * @return the name of the engine
+     */
+    public String getEngine(int index){
+        return engines[index];
+    }
+    /**
+     * If the execution of the node with the parsed index is optional
+     * @param index the index
+     * @return the optional state
+     */
+    public boolean isOptional(int index){
+        return optional[index];
+    }
+    /**
+     * The number of nodes the node with the parsed index depends on
+     * @param index the index
+     * @return the number of <code>ep:dependsOn</code> relations
+     */
+    public int getDependsOnCount(int index){
+        return dependsOn[index].length;
+    }
+    /**
+     * Getter for the n-th node the node with the parsed index depends on
+     * @param index the index of the node
+     * @param n the position <code>[0..{@link #getDependsOnCount(int)})</code>
+     * @return the index of the node the parsed one depends on
+     */
+    public int getDependsOn(int index, int n){
+        return dependsOn[index][n];
+    }
+    /**
+     * The number of nodes that depend on the node with the parsed index
+     * @param index the index
+     * @return the number of inverse <code>ep:dependsOn</code> relations
+     */
+    public int getDependentCount(int index){
+        return dependents[index].length;
+    }
+    /**
+     * Getter for the n-th node that depends on the node with the parsed index
+     * @param index the index of the node
+     * @param n the position <code>[0..{@link #getDependentCount(int)})</code>
+     * @return the index of the depending node
+     */
+    public int getDependent(int index, int n){
+        return dependents[index][n];
+    }
+    /**
+     * The number of nodes without any dependencies
+     * @return the number of nodes executable at the start of an enhancement
+     * process
+     */
+    public int getRootCount(){
+        return roots.length;
+    }
+    /**
+     * Getter for the n-th node without dependencies
+     * @param n the position <code>[0..{@link #getRootCount()})</code>
+     * @return the index of the node
+     */
+    public int getRoot(int n){
+        return roots[n];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("CompiledExecutionPlan[");
+        for(int i = 0; i < nodes.length; i++){
+            if(i > 0){
+                sb.append(", ");
+            }
+            sb.append(engines[i]);
+            if(optional[i]){
+                sb.append("(optional)");
+            }
+        }
+        return sb.append(']').toString();
+    }
+}
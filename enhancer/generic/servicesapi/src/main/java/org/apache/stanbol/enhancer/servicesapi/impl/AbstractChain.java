@@ -22,12 +22,15 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 
+import org.apache.clerezza.commons.rdf.ImmutableGraph;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Properties;
 import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Service;
 import org.apache.stanbol.enhancer.servicesapi.Chain;
+import org.apache.stanbol.enhancer.servicesapi.ChainException;
 import org.apache.stanbol.enhancer.servicesapi.helper.ConfigUtils;
+import org.apache.stanbol.enhancer.servicesapi.helper.execution.CompiledExecutionPlan;
 import org.osgi.framework.Constants;
 import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.component.ComponentContext;
@@ -44,6 +47,11 @@ import org.osgi.service.component.ComponentContext;
  * This annotations can be {@link Component#inherit()} to sub classes and would
  * allow users to specify the name and the ranking of an engine by using e.g. the
  * Apache Felix Webconsole.<p>
+ * The {@link #getCompiledExecutionPlan() compiled execution plan} is cached
+ * as long as {@link #getExecutionPlan()} returns the same instance. Sub classes
+ * that re-create their execution plan (e.g. on changes of the active
+ * EnhancementEngines) can also explicitly 
+ * {@link #invalidateCompiledExecutionPlan() invalidate} the cached version.<p>
  * @author Rupert Westenthaler
  *
  */
@@ -71,6 +79,10 @@ public abstract class AbstractChain implements Chain {
     protected ComponentContext context;
 
     private Map<String,Object> chainProperties;
+    /**
+     * The cached compiled execution plan
+     */
+    private volatile CompiledExecutionPlan compiledExecutionPlan;
     
     protected void activate(ComponentContext ctx) throws ConfigurationException {
         this.context = ctx;
@@ -114,6 +126,7 @@ public abstract class AbstractChain implements Chain {
     protected void deactivate(ComponentContext ctx){
         this.context = null;
         name = null;
+        invalidateCompiledExecutionPlan();
     }
     
     @Override
@@ -124,5 +137,31 @@ public abstract class AbstractChain implements Chain {
     protected Map<String,Object> getChainProperties(){
         return chainProperties;
     }
+    /**
+     * Getter for the compiled version of the {@link #getExecutionPlan()}. The
+     * compiled plan is cached and only recompiled if {@link #getExecutionPlan()}
+     * returns an other instance or after a call to
+     * {@link #invalidateCompiledExecutionPlan()}.
+     * @return the compiled execution plan
+     * @throws ChainException if the execution plan is not available or not
+     * valid
+     */
+    public CompiledExecutionPlan getCompiledExecutionPlan() throws ChainException {
+        ImmutableGraph executionPlan = getExecutionPlan();
+        CompiledExecutionPlan compiled = compiledExecutionPlan;
+        if(compiled == null || compiled.getExecutionPlan() != executionPlan){
+            compiled = CompiledExecutionPlan.compile(executionPlan);
+            compiledExecutionPlan = compiled;
+        }
+        return compiled;
+    }
+    /**
+     * Removes the cached {@link #getCompiledExecutionPlan() compiled execution
+     * plan}. Intended to be called by sub classes whenever their execution
+     * plan changes.
+     */
+    protected void invalidateCompiledExecutionPlan(){
+        compiledExecutionPlan = null;
+    }
 
 }
@@ -0,0 +1,97 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.enhancer.serviceapi.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.clerezza.commons.rdf.BlankNode;
+import org.apache.clerezza.commons.rdf.BlankNodeOrIRI;
+import org.apache.clerezza.commons.rdf.Graph;
+import org.apache.stanbol.commons.indexedgraph.IndexedGraph;
+import org.apache.stanbol.enhancer.servicesapi.ChainException;
+import org.apache.stanbol.enhancer.servicesapi.helper.ExecutionPlanHelper;
+import org.apache.stanbol.enhancer.servicesapi.helper.execution.CompiledExecutionPlan;
+import org.junit.Test;
+
+/**
+ * Tests that the {@link CompiledExecutionPlan} correctly represents the
+ * dependencies of an execution plan.
+ */
+public class CompiledExecutionPlanTest {
+
+    @Test
+    public void testDependencies() throws ChainException {
+        Graph ep = new IndexedGraph();
+        BlankNodeOrIRI epNode = ExecutionPlanHelper.createExecutionPlan(ep, "test", null);
+        BlankNodeOrIRI langid = ExecutionPlanHelper.writeExecutionNode(ep, epNode,
+            "langid", false, null, null);
+        BlankNodeOrIRI ner = ExecutionPlanHelper.writeExecutionNode(ep, epNode,
+            "ner", false, Collections.singleton(langid), null);
+        BlankNodeOrIRI pos = ExecutionPlanHelper.writeExecutionNode(ep, epNode,
+            "pos", true, Collections.singleton(langid), null);
+        Set<BlankNodeOrIRI> linkingDeps = new HashSet<BlankNodeOrIRI>();
+        linkingDeps.add(ner);
+        linkingDeps.add(pos);
+        BlankNodeOrIRI linking = ExecutionPlanHelper.writeExecutionNode(ep, epNode,
+            "linking", false, linkingDeps, null);
+
+        CompiledExecutionPlan plan = CompiledExecutionPlan.compile(ep);
+        assertEquals(4, plan.size());
+        assertSame(ep, plan.getExecutionPlan());
+        assertEquals(epNode, plan.getExecutionPlanNode());
+        assertEquals(1, plan.getRootCount());
+        int langidIdx = plan.getIndex(langid);
+        int nerIdx = plan.getIndex(ner);
+        int posIdx = plan.getIndex(pos);
+        int linkingIdx = plan.getIndex(linking);
+        assertEquals(langidIdx, plan.getRoot(0));
+        assertEquals(-1, plan.getIndex(new BlankNode()));
+        assertEquals("langid", plan.getEngine(langidIdx));
+        assertEquals("pos", plan.getEngine(posIdx));
+        assertTrue(plan.isOptional(posIdx));
+        assertFalse(plan.isOptional(nerIdx));
+
+        assertEquals(2, plan.getDependentCount(langidIdx));
+        Set<Integer> dependents = new HashSet<Integer>();
+        for(int n = 0; n < plan.getDependentCount(langidIdx); n++){
+            dependents.add(plan.getDependent(langidIdx, n));
+        }
+        assertTrue(dependents.contains(nerIdx));
+        assertTrue(dependents.contains(posIdx));
+
+        assertEquals(2, plan.getDependsOnCount(linkingIdx));
+        assertEquals(0, plan.getDependentCount(linkingIdx));
+        assertEquals(1, plan.getDependentCount(posIdx));
+        assertEquals(linkingIdx, plan.getDependent(posIdx, 0));
+    }
+
+    @Test(expected=ChainException.class)
+    public void testMissingDependency() throws ChainException {
+        Graph ep = new IndexedGraph();
+        BlankNodeOrIRI epNode = ExecutionPlanHelper.createExecutionPlan(ep, "test", null);
+        ExecutionPlanHelper.writeExecutionNode(ep, epNode, "ner", false,
+            Collections.<BlankNodeOrIRI>singleton(new BlankNode()), null);
+        CompiledExecutionPlan.compile(ep);
+    }
+}
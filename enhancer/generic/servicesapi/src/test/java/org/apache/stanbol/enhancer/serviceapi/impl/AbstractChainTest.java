@@ -0,0 +1,119 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.enhancer.serviceapi.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.clerezza.commons.rdf.BlankNodeOrIRI;
+import org.apache.clerezza.commons.rdf.Graph;
+import org.apache.clerezza.commons.rdf.ImmutableGraph;
+import org.apache.stanbol.commons.indexedgraph.IndexedGraph;
+import org.apache.stanbol.enhancer.servicesapi.ChainException;
+import org.apache.stanbol.enhancer.servicesapi.helper.ExecutionPlanHelper;
+import org.apache.stanbol.enhancer.servicesapi.helper.execution.CompiledExecutionPlan;
+import org.apache.stanbol.enhancer.servicesapi.impl.AbstractChain;
+import org.junit.Test;
+
+/**
+ * Tests the caching of the {@link CompiledExecutionPlan} by the
+ * {@link AbstractChain}.
+ */
+public class AbstractChainTest {
+
+    private static ImmutableGraph createExecutionPlan(String...engines){
+        Graph ep = new IndexedGraph();
+        BlankNodeOrIRI epNode = ExecutionPlanHelper.createExecutionPlan(ep, "test", null);
+        BlankNodeOrIRI previous = null;
+        for(String engine : engines){
+            previous = ExecutionPlanHelper.writeExecutionNode(ep, epNode, engine, false,
+                previous == null ? null : Collections.singleton(previous), null);
+        }
+        return ep.getImmutableGraph();
+    }
+
+    @Test
+    public void testCachedCompiledExecutionPlan() throws ChainException {
+        TestChain chain = new TestChain(createExecutionPlan("langid", "ner"));
+        CompiledExecutionPlan compiled = chain.getCompiledExecutionPlan();
+        assertEquals(2, compiled.size());
+        assertSame(chain.executionPlan, compiled.getExecutionPlan());
+        //as long as the execution plan does not change the cached version is used
+        assertSame(compiled, chain.getCompiledExecutionPlan());
+        assertSame(compiled, ExecutionPlanHelper.getCompiledExecutionPlan(chain));
+    }
+
+    @Test
+    public void testChangedExecutionPlan() throws ChainException {
+        TestChain chain = new TestChain(createExecutionPlan("langid", "ner"));
+        CompiledExecutionPlan compiled = chain.getCompiledExecutionPlan();
+        //a new execution plan instance (e.g. after a change of the engines)
+        chain.executionPlan = createExecutionPlan("langid", "ner", "linking");
+        CompiledExecutionPlan changed = chain.getCompiledExecutionPlan();
+        assertNotSame(compiled, changed);
+        assertEquals(3, changed.size());
+        assertSame(chain.executionPlan, changed.getExecutionPlan());
+        assertSame(changed, chain.getCompiledExecutionPlan());
+    }
+
+    @Test
+    public void testInvalidateCompiledExecutionPlan() throws ChainException {
+        TestChain chain = new TestChain(createExecutionPlan("langid", "ner"));
+        CompiledExecutionPlan compiled = chain.getCompiledExecutionPlan();
+        chain.invalidate();
+        CompiledExecutionPlan recompiled = chain.getCompiledExecutionPlan();
+        assertNotSame(compiled, recompiled);
+        assertSame(compiled.getExecutionPlan(), recompiled.getExecutionPlan());
+        assertSame(recompiled, chain.getCompiledExecutionPlan());
+    }
+
+    /**
+     * Chain that returns the {@link #executionPlan} set by the test
+     */
+    private static class TestChain extends AbstractChain {
+
+        private ImmutableGraph executionPlan;
+
+        TestChain(ImmutableGraph executionPlan){
+            this.executionPlan = executionPlan;
+        }
+
+        @Override
+        public ImmutableGraph getExecutionPlan() throws ChainException {
+            return executionPlan;
+        }
+
+        @Override
+        public Set<String> getEngines() throws ChainException {
+            CompiledExecutionPlan compiled = getCompiledExecutionPlan();
+            Set<String> engines = new HashSet<String>();
+            for(int i = 0; i < compiled.size(); i++){
+                engines.add(compiled.getEngine(i));
+            }
+            return engines;
+        }
+
+        void invalidate(){
+            invalidateCompiledExecutionPlan();
+        }
+    }
+}
@@ -36,6 +36,7 @@ import java.io.IOException;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
@@ -44,6 +45,8 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
@@ -59,6 +62,8 @@ import org.apache.stanbol.commons.web.base.resource.LayoutConfiguration;
 import org.apache.stanbol.commons.web.base.resource.TemplateLayoutConfiguration;
 import org.apache.stanbol.commons.web.base.utils.MediaTypeUtil;
 import org.apache.stanbol.enhancer.jersey.utils.RequestPropertiesHelper;
+import org.apache.stanbol.enhancer.servicesapi.AsyncEnhancementJobManager;
+import org.apache.stanbol.enhancer.servicesapi.AsyncEnhancementJobManager.EnhancementCallback;
 import org.apache.stanbol.enhancer.servicesapi.Chain;
 import org.apache.stanbol.enhancer.servicesapi.ChainException;
 import org.apache.stanbol.enhancer.servicesapi.ChainManager;
@@ -83,6 +88,13 @@ import org.apache.stanbol.enhancer.servicesapi.rdf.ExecutionMetadata;
  */
 public abstract class AbstractEnhancerResource extends TemplateLayoutConfiguration {
 
+    /**
+     * The maximum time (in ms) an asynchronously processed enhancement
+     * request is suspended (10min). This is intended as a safety net as the
+     * {@link EnhancementJobManager} is expected to time out earlier.
+     */
+    protected static final long ASYNC_RESPONSE_TIMEOUT = 10 * 60 * 1000;
+    
     protected final EnhancementJobManager jobManager;
     protected final EnhancementEngineManager engineManager;
     protected final ChainManager chainManager;
@@ -157,7 +169,11 @@ public abstract class AbstractEnhancerResource extends TemplateLayoutConfigurati
     }
 
     /**
-     * Media-Type based handling of the raw POST data.
+     * Media-Type based handling of the raw POST data.<p>
+     * If the {@link EnhancementJobManager} implements 
+     * {@link AsyncEnhancementJobManager} the request is completed 
+     * asynchronously and the request thread is not blocked while the
+     * content is enhanced.
      * 
      * @param data
      *            binary payload to analyze
@@ -169,7 +185,7 @@ public abstract class AbstractEnhancerResource extends TemplateLayoutConfigurati
      */
     @POST
     @Consumes(WILDCARD)
-    public Response enhanceFromData(ContentItem ci,
+    public void enhanceFromData(ContentItem ci,
             //NOTE: The 'uri' parameter is already consumed by the ContentItemReader
             //@QueryParam(value = "uri") String uri,
             @QueryParam(value = "executionmetadata") boolean inclExecMetadata,
@@ -178,7 +194,43 @@ public abstract class AbstractEnhancerResource extends TemplateLayoutConfigurati
             @QueryParam(value = "outputContentPart") Set<String> contentParts,
             @QueryParam(value = "omitMetadata") boolean omitMetadata,
             @QueryParam(value = "rdfFormat") String rdfFormat,
-            @Context HttpHeaders headers) throws EnhancementException, IOException {
+            @Context HttpHeaders headers,
+            @Suspended final AsyncResponse asyncResponse) throws EnhancementException, IOException {
+        Map<String,Object> reqProp = initRequestProperties(ci, inclExecMetadata, mediaTypes, 
+            omitParsed, contentParts, omitMetadata, rdfFormat);
+        final MediaType mediaType = MediaTypeUtil.getAcceptableMediaType(headers, null);
+        //the EnhancementJobManager is expected to time out earlier. This only
+        //ensures that the request is not suspended forever
+        asyncResponse.setTimeout(ASYNC_RESPONSE_TIMEOUT, TimeUnit.MILLISECONDS);
+        enhance(ci,reqProp, new EnhancementCallback() {
+            
+            @Override
+            public void completed(ContentItem ci) {
+                try {
+                    asyncResponse.resume(createEnhancementResponse(ci, mediaType));
+                } catch (RuntimeException e) {
+                    //the callback is notified by the EnhancementJobManager
+                    //that would only log the exception
+                    asyncResponse.resume(e);
+                }
+            }
+            
+            @Override
+            public void failed(ContentItem ci, EnhancementException e) {
+                asyncResponse.resume(e);
+            }
+        });
+    }
+    /**
+     * Initialises the request properties content part of the parsed
+     * content item based on the parameters of an enhancement request
+     * @return the request properties
+     * @throws WebApplicationException if the parsed rdfFormat is not a valid
+     * media type
+     */
+    protected Map<String,Object> initRequestProperties(ContentItem ci, boolean inclExecMetadata,
+            Set<String> mediaTypes, boolean omitParsed, Set<String> contentParts, 
+            boolean omitMetadata, String rdfFormat) {
         Map<String,Object> reqProp = ContentItemHelper.initRequestPropertiesContentPart(ci);
         reqProp.put(INCLUDE_EXECUTION_METADATA, inclExecMetadata);
         if(mediaTypes != null && !mediaTypes.isEmpty()){
@@ -210,9 +262,16 @@ public abstract class AbstractEnhancerResource extends TemplateLayoutConfigurati
                     .build());
             }
         }
-        enhance(ci,reqProp);
+        return reqProp;
+    }
+    /**
+     * Creates the response for an enhanced content item
+     * @param ci the enhanced content item
+     * @param mediaType the acceptable media type or <code>null</code> if none
+     * @return the response
+     */
+    protected Response createEnhancementResponse(ContentItem ci, MediaType mediaType) {
         ResponseBuilder rb = Response.ok(ci);
-        MediaType mediaType = MediaTypeUtil.getAcceptableMediaType(headers, null);
         if (mediaType != null) {
             rb.header(HttpHeaders.CONTENT_TYPE, mediaType);
         }
@@ -230,6 +289,48 @@ public abstract class AbstractEnhancerResource extends TemplateLayoutConfigurati
         if (jobManager != null) {
             jobManager.enhanceContent(ci, getChain());
         }
+        addExecutionMetadata(ci, reqProp);
+    }
+    /**
+     * Enhances the parsed ContentItem without blocking the calling thread
+     * if the {@link #jobManager} is an {@link AsyncEnhancementJobManager}.
+     * Otherwise the content item is enhanced by the calling thread before
+     * the callback is notified.
+     * @param ci the content item to enhance
+     * @param reqProp the request properties or <code>null</code> if none
+     * @param callback the callback notified about the completion
+     * @throws EnhancementException if the enhancement process could not be
+     * started or (for synchronous processing) has failed
+     */
+    protected void enhance(ContentItem ci, final Map<String,Object> reqProp, 
+            final EnhancementCallback callback) throws EnhancementException {
+        if(jobManager instanceof AsyncEnhancementJobManager){
+            ((AsyncEnhancementJobManager)jobManager).enhanceContentAsync(ci, getChain(), 
+                new EnhancementCallback() {
+                    
+                    @Override
+                    public void completed(ContentItem ci) {
+                        addExecutionMetadata(ci, reqProp);
+                        callback.completed(ci);
+                    }
+                    
+                    @Override
+                    public void failed(ContentItem ci, EnhancementException e) {
+                        callback.failed(ci, e);
+                    }
+                });
+        } else {
+            enhance(ci, reqProp);
+            callback.completed(ci);
+        }
+    }
+    /**
+     * Adds the execution metadata to the metadata of the parsed content item
+     * if requested by the parsed request properties
+     * @param ci the enhanced content item
+     * @param reqProp the request properties or <code>null</code> if none
+     */
+    private void addExecutionMetadata(ContentItem ci, Map<String,Object> reqProp) {
         Graph graph = ci.getMetadata();
         Boolean includeExecutionMetadata = RequestPropertiesHelper.isIncludeExecutionMetadata(reqProp);
         if (includeExecutionMetadata != null && includeExecutionMetadata.booleanValue()) {
@@ -22,6 +22,7 @@ import static javax.ws.rs.core.MediaType.TEXT_HTML;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
 import javax.ws.rs.Consumes;
@@ -44,6 +45,7 @@ import org.apache.clerezza.rdf.core.sparql.QueryEngine;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.stanbol.commons.web.base.resource.LayoutConfiguration;
+import org.apache.stanbol.commons.web.base.utils.MediaTypeUtil;
 import org.apache.stanbol.commons.web.viewable.Viewable;
 import org.apache.stanbol.enhancer.servicesapi.Chain;
 import org.apache.stanbol.enhancer.servicesapi.ChainException;
@@ -144,7 +146,10 @@ public class GenericEnhancerUiResource extends AbstractEnhancerResource {
         }
         ContentItem ci = ciFactory.createContentItem(new StringSource(content));
         if(!buildAjaxview){ //rewrite to a normal EnhancementRequest
-            return enhanceFromData(ci, false, null, false, null, false, null, headers);
+            Map<String,Object> reqProp = initRequestProperties(ci, false, null, false, 
+                null, false, null);
+            enhance(ci, reqProp);
+            return createEnhancementResponse(ci, MediaTypeUtil.getAcceptableMediaType(headers, null));
         } else { //enhance and build the AJAX response
             EnhancementException enhancementException;
             try {
@@ -50,6 +50,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
 
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.HttpHeaders;
@@ -189,8 +190,15 @@ public class ContentItemWriter implements MessageBodyWriter<ContentItem> {
                 ctb.append(";charset=").append(UTF8.name());
                 String contentType = ctb.toString();
                 httpHeaders.putSingle(HttpHeaders.CONTENT_TYPE, contentType);
+                StreamingGraphSerializer streamingSerializer = 
+                        StreamingGraphSerializer.getInstance(mediaType);
                 try {
-                	serializer.serialize(entityStream, ci.getMetadata(), contentType);
+                    if(streamingSerializer != null){ //write triples while iterating
+                        streamingSerializer.serialize(entityStream, ci.getMetadata(), 
+                            UTF8, ci.getLock().readLock());
+                    } else {
+                        serializer.serialize(entityStream, ci.getMetadata(), contentType);
+                    }
                 } catch (UnsupportedSerializationFormatException e) {
                     throw new WebApplicationException("The enhancement results "
                         + "cannot be serialized in the requested media type: "
@@ -260,7 +268,8 @@ public class ContentItemWriter implements MessageBodyWriter<ContentItem> {
             //(2) serialising the metadata
             if(!isOmitMetadata(reqProp)){
                 entityBuilder.addPart("metadata", new ClerezzaContentBody(
-                    ci.getUri().getUnicodeString(), ci.getMetadata(), rdfFormat));
+                    ci.getUri().getUnicodeString(), ci.getMetadata(), ci.getLock().readLock(), 
+                    rdfFormat));
 //                entity.addBodyPart(new FormBodyPart("metadata", new ClerezzaContentBody(
 //                    ci.getUri().getUnicodeString(), ci.getMetadata(),
 //                    rdfFormat)));
@@ -309,7 +318,7 @@ public class ContentItemWriter implements MessageBodyWriter<ContentItem> {
                         entry.getKey())){
                         entityBuilder.addPart(entry.getKey().getUnicodeString(), 
                             new ClerezzaContentBody(null, //no file name
-                                entry.getValue(),rdfFormat));
+                                entry.getValue(), ci.getLock().readLock(), rdfFormat));
                     } // else ignore this content part
                 }
             }
@@ -506,10 +515,12 @@ public class ContentItemWriter implements MessageBodyWriter<ContentItem> {
     private class ClerezzaContentBody extends AbstractContentBody implements ContentBody,ContentDescriptor {
 
         private Graph graph;
+        private Lock readLock;
         private String charset;
         private String name;
+        private StreamingGraphSerializer streamingSerializer;
 
-        protected ClerezzaContentBody(String name, Graph graph, MediaType mimeType){
+        protected ClerezzaContentBody(String name, Graph graph, Lock readLock, MediaType mimeType){
             super(ContentType.create(new StringBuilder(mimeType.getType())
             .append('/').append(mimeType.getSubtype()).toString(), UTF8));
             charset = mimeType.getParameters().get("charset");
@@ -518,6 +529,8 @@ public class ContentItemWriter implements MessageBodyWriter<ContentItem> {
             }
             this.name = name;
             this.graph = graph;
+            this.readLock = readLock;
+            this.streamingSerializer = StreamingGraphSerializer.getInstance(mimeType);
         }
 
         @Override
@@ -542,7 +555,13 @@ public class ContentItemWriter implements MessageBodyWriter<ContentItem> {
 
         @Override
         public void writeTo(OutputStream out) throws IOException {
-            serializer.serialize(out, graph, getMediaType()+'/'+getSubType());
+            if(streamingSerializer != null){
+                streamingSerializer.serialize(out, graph, Charset.forName(charset), readLock);
+            } else {
+                serializer.serialize(out, graph, getMediaType()+'/'+getSubType());
+            }
+            //send the serialized part to the client (as chunk)
+            out.flush();
         }
     }
     
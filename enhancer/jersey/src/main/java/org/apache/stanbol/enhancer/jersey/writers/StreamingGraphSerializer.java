@@ -0,0 +1,262 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.enhancer.jersey.writers;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+import javax.ws.rs.core.MediaType;
+
+import org.apache.clerezza.commons.rdf.BlankNode;
+import org.apache.clerezza.commons.rdf.BlankNodeOrIRI;
+import org.apache.clerezza.commons.rdf.Graph;
+import org.apache.clerezza.commons.rdf.IRI;
+import org.apache.clerezza.commons.rdf.Language;
+import org.apache.clerezza.commons.rdf.Literal;
+import org.apache.clerezza.commons.rdf.RDFTerm;
+import org.apache.clerezza.commons.rdf.Triple;
+import org.apache.clerezza.rdf.core.serializedform.Serializer;
+import org.apache.clerezza.rdf.core.serializedform.SupportedFormat;
+import org.apache.stanbol.enhancer.servicesapi.rdf.NamespaceEnum;
+
+/**
+ * Writes the triples of a {@link Graph} directly from the iterator of the
+ * graph to an {@link OutputStream} in N-Triples or Turtle.<p>
+ * In contrast to the Clerezza {@link Serializer} no copy of the graph (e.g.
+ * a Jena model) and no serialized form of the whole graph is created in
+ * memory. Only a buffer of {@link #BUFFER_SIZE} chars is used. This reduces
+ * the memory needed for the serialization of large enhancement results and
+ * allows the container to send the first bytes (and chunks) before the
+ * whole graph is serialized.<p>
+ * For Turtle consecutive triples with the same subject (and predicate) are
+ * grouped. As graphs used for enhancement results iterate triples ordered
+ * by subject this results in similar output as with the Clerezza
+ * {@link Serializer}. IRIs within the {@link NamespaceEnum} namespaces are
+ * written as prefixed names.
+ */
+final class StreamingGraphSerializer {
+
+    /**
+     * The size of the char buffer (8k)
+     */
+    static final int BUFFER_SIZE = 8 * 1024;
+
+    private static final String XSD_STRING = "http://www.w3.org/2001/XMLSchema#string";
+    private static final String RDF_LANG_STRING = "http://www.w3.org/1999/02/22-rdf-syntax-ns#langString";
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final boolean turtle;
+
+    private StreamingGraphSerializer(boolean turtle) {
+        this.turtle = turtle;
+    }
+
+    /**
+     * Getter for the serializer for the parsed media type
+     * @param mediaType the media type
+     * @return the serializer or <code>null</code> if the parsed media type
+     * is not supported for streaming serialization
+     */
+    static StreamingGraphSerializer getInstance(MediaType mediaType){
+        if(mediaType == null){
+            return null;
+        }
+        String type = mediaType.getType() + '/' + mediaType.getSubtype();
+        if(SupportedFormat.N_TRIPLE.equalsIgnoreCase(type) ||
+                SupportedFormat.TEXT_RDF_NT.equalsIgnoreCase(type)){
+            return new StreamingGraphSerializer(false);
+        } else if(SupportedFormat.TURTLE.equalsIgnoreCase(type) ||
+                SupportedFormat.X_TURTLE.equalsIgnoreCase(type)){
+            return new StreamingGraphSerializer(true);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Serializes the parsed graph. The parsed stream is flushed but not
+     * closed.
+     * @param out the stream to write the data to
+     * @param graph the graph
+     * @param charset the charset
+     * @param readLock the read lock acquired while iterating over the graph
+     * or <code>null</code> to use the lock of the graph
+     * @throws IOException on any error while writing to the stream
+     */
+    void serialize(OutputStream out, Graph graph, Charset charset, Lock readLock) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, charset), BUFFER_SIZE);
+        Map<BlankNode,String> bNodeLabels = new HashMap<BlankNode,String>();
+        if(turtle){
+            for(NamespaceEnum ns : NamespaceEnum.values()){
+                writer.append("@prefix ").append(ns.getPrefix()).append(": <")
+                    .append(ns.getNamespace()).append("> .\n");
+            }
+            writer.append('\n');
+        }
+        Lock lock = readLock == null ? graph.getLock().readLock() : readLock;
+        lock.lock();
+        try {
+            BlankNodeOrIRI subject = null;
+            IRI predicate = null;
+            Iterator<Triple> it = graph.iterator();
+            while(it.hasNext()){
+                Triple t = it.next();
+                if(!turtle){
+                    writeTerm(writer, t.getSubject(), bNodeLabels);
+                    writer.append(' ');
+                    writeTerm(writer, t.getPredicate(), bNodeLabels);
+                    writer.append(' ');
+                    writeTerm(writer, t.getObject(), bNodeLabels);
+                    writer.append(" .\n");
+                } else if(t.getSubject().equals(subject)){
+                    if(t.getPredicate().equals(predicate)){
+                        writer.append(" ,\n        ");
+                    } else {
+                        predicate = t.getPredicate();
+                        writer.append(" ;\n    ");
+                        writeTerm(writer, predicate, bNodeLabels);
+                        writer.append(' ');
+                    }
+                    writeTerm(writer, t.getObject(), bNodeLabels);
+                } else {
+                    if(subject != null){
+                        writer.append(" .\n");
+                    }
+                    subject = t.getSubject();
+                    predicate = t.getPredicate();
+                    writeTerm(writer, subject, bNodeLabels);
+                    writer.append("\n    ");
+                    writeTerm(writer, predicate, bNodeLabels);
+                    writer.append(' ');
+                    writeTerm(writer, t.getObject(), bNodeLabels);
+                }
+            }
+            if(subject != null){
+                writer.append(" .\n");
+            }
+        } finally {
+            lock.unlock();
+        }
+        writer.flush();
+    }
+
+    private void writeTerm(Writer writer, RDFTerm term, Map<BlankNode,String> bNodeLabels) throws IOException {
+        if(term instanceof IRI){
+            writeIri(writer, ((IRI)term).getUnicodeString());
+        } else if(term instanceof BlankNode){
+            String label = bNodeLabels.get(term);
+            if(label == null){
+                label = "b" + bNodeLabels.size();
+                bNodeLabels.put((BlankNode)term, label);
+            }
+            writer.append("_:").append(label);
+        } else if(term instanceof Literal){
+            Literal literal = (Literal)term;
+            writer.append('"');
+            writeEscaped(writer, literal.getLexicalForm());
+            writer.append('"');
+            Language lang = literal.getLanguage();
+            if(lang != null){
+                writer.append('@').append(lang.toString());
+            } else {
+                IRI dataType = literal.getDataType();
+                if(dataType != null && !XSD_STRING.equals(dataType.getUnicodeString()) &&
+                        !RDF_LANG_STRING.equals(dataType.getUnicodeString())){
+                    writer.append("^^");
+                    writeIri(writer, dataType.getUnicodeString());
+                }
+            }
+        } else {
+            throw new IllegalStateException("Unsupported RDFTerm type " + term.getClass());
+        }
+    }
+
+    private void writeIri(Writer writer, String iri) throws IOException {
+        if(turtle){
+            for(NamespaceEnum ns : NamespaceEnum.values()){
+                String namespace = ns.getNamespace();
+                if(iri.startsWith(namespace) && isLocalName(iri, namespace.length())){
+                    writer.append(ns.getPrefix()).append(':')
+                        .append(iri, namespace.length(), iri.length());
+                    return;
+                }
+            }
+        }
+        writer.append('<');
+        for(int i = 0; i < iri.length(); i++){
+            char c = iri.charAt(i);
+            if(c <= 0x20 || c == '<' || c == '>' || c == '"' || c == '{' || c == '}' ||
+                    c == '|' || c == '^' || c == '`' || c == '\\'){
+                writeUnicodeEscape(writer, c);
+            } else {
+                writer.append(c);
+            }
+        }
+        writer.append('>');
+    }
+
+    /**
+     * Conservative check if the part of the IRI starting at the parsed index
+     * can be written as local name of a prefixed name
+     */
+    private static boolean isLocalName(String iri, int start){
+        if(start >= iri.length()){
+            return false;
+        }
+        for(int i = start; i < iri.length(); i++){
+            char c = iri.charAt(i);
+            boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' ||
+                    (i > start && ((c >= '0' && c <= '9') || c == '-'));
+            if(!valid){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeEscaped(Writer writer, String value) throws IOException {
+        for(int i = 0; i < value.length(); i++){
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\': writer.append("\\\\"); break;
+                case '"': writer.append("\\\""); break;
+                case '\n': writer.append("\\n"); break;
+                case '\r': writer.append("\\r"); break;
+                case '\t': writer.append("\\t"); break;
+                default:
+                    if(c < 0x20 || c == 0x7F){
+                        writeUnicodeEscape(writer, c);
+                    } else {
+                        writer.append(c);
+                    }
+            }
+        }
+    }
+
+    private static void writeUnicodeEscape(Writer writer, char c) throws IOException {
+        writer.append("\\u").append(HEX[(c >> 12) & 0xF]).append(HEX[(c >> 8) & 0xF])
+            .append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+    }
+}
@@ -51,13 +51,19 @@ import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.ext.RuntimeDelegate;
 
+import org.apache.clerezza.commons.rdf.BlankNode;
 import org.apache.clerezza.commons.rdf.Graph;
+import org.apache.clerezza.commons.rdf.Language;
+import org.apache.clerezza.commons.rdf.Triple;
 import org.apache.clerezza.commons.rdf.BlankNodeOrIRI;
 import org.apache.clerezza.commons.rdf.IRI;
 import org.apache.clerezza.commons.rdf.impl.utils.simple.SimpleGraph;
+import org.apache.clerezza.commons.rdf.impl.utils.PlainLiteralImpl;
 import org.apache.clerezza.commons.rdf.impl.utils.TripleImpl;
+import org.apache.clerezza.rdf.core.LiteralFactory;
 import org.apache.clerezza.rdf.core.serializedform.Parser;
 import org.apache.clerezza.rdf.core.serializedform.Serializer;
+import org.apache.clerezza.rdf.core.serializedform.SupportedFormat;
 import org.apache.clerezza.rdf.ontologies.RDF;
 import org.apache.commons.io.IOUtils;
 import org.apache.stanbol.enhancer.contentitem.inmemory.InMemoryContentItemFactory;
@@ -69,6 +75,7 @@ import org.apache.stanbol.enhancer.servicesapi.ContentItemFactory;
 import org.apache.stanbol.enhancer.servicesapi.helper.ContentItemHelper;
 import org.apache.stanbol.enhancer.servicesapi.impl.StringSource;
 import org.apache.stanbol.enhancer.servicesapi.rdf.ExecutionMetadata;
+import org.apache.stanbol.enhancer.servicesapi.rdf.NamespaceEnum;
 import org.glassfish.jersey.internal.RuntimeDelegateImpl;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -244,4 +251,70 @@ public class ContentItemReaderWriterTest {
         assertEquals(outputContentPart.iterator().next(), "*");
     }
 
+    /**
+     * Tests the streaming serialization used for N-Triples and Turtle by
+     * parsing the serialized metadata.
+     */
+    @Test
+    public void testStreamingRdfSerialization() throws Exception {
+        ContentItem ci = ciFactory.createContentItem(new StringSource("Streaming test"));
+        Graph metadata = ci.getMetadata();
+        IRI subject = new IRI("urn:test:streaming");
+        metadata.add(new TripleImpl(subject, RDF.type, new IRI("urn:types:Document")));
+        metadata.add(new TripleImpl(subject, new IRI(NamespaceEnum.fise + "selected-text"), 
+            new PlainLiteralImpl("A \"quoted\"\ttext\nwith ümlauts", new Language("de"))));
+        metadata.add(new TripleImpl(subject, new IRI(NamespaceEnum.fise + "start"), 
+            LiteralFactory.getInstance().createTypedLiteral(42)));
+        metadata.add(new TripleImpl(subject, new IRI(NamespaceEnum.fise + "start"), 
+            LiteralFactory.getInstance().createTypedLiteral(43)));
+        metadata.add(new TripleImpl(new BlankNode(), RDF.type, new IRI("urn:types:Other")));
+        for(String format : new String[]{SupportedFormat.TURTLE, SupportedFormat.N_TRIPLE}){
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            MultivaluedMap<String,Object> headers = new MultivaluedHashMap<String, Object>();
+            ciWriter.writeTo(ci, ContentItem.class, null, null, MediaType.valueOf(format), 
+                headers , out);
+            log.debug("{} serialization:\n{}", format, new String(out.toByteArray(), "UTF-8"));
+            Graph parsed = new SimpleGraph();
+            Parser.getInstance().parse(parsed, new ByteArrayInputStream(out.toByteArray()), format);
+            assertEquals(metadata.size(), parsed.size());
+            for(Triple triple : metadata){
+                if(!(triple.getSubject() instanceof BlankNode)){
+                    assertTrue("Missing " + triple + " in " + format, parsed.contains(triple));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Tests multipart serialization with Turtle as RDF format (including
+     * the execution metadata with blank nodes)
+     */
+    @Test
+    public void testMultipartWithStreamingRdfFormat() throws Exception {
+        ContentItem ci = ciFactory.createContentItem(new StringSource("Multipart streaming test"));
+        ci.getMetadata().add(new TripleImpl(
+            new IRI("urn:test"), RDF.type, new IRI("urn:types:Document")));
+        Map<String,Object> properties = initRequestPropertiesContentPart(ci);
+        properties.put(OUTPUT_CONTENT, Collections.singleton("*/*"));
+        properties.put(OUTPUT_CONTENT_PART, Collections.singleton("*"));
+        properties.put(RDF_FORMAT, SupportedFormat.TURTLE);
+        Graph em = initExecutionMetadataContentPart(ci);
+        BlankNodeOrIRI ep = createExecutionPlan(em, "testChain",null);
+        writeExecutionNode(em, ep, "testEngine", true, null,null);
+        initExecutionMetadata(em, em, ci.getUri(), "testChain", false);
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MultivaluedMap<String,Object> headers = new MultivaluedHashMap<String, Object>();
+        ciWriter.writeTo(ci, ContentItem.class, null, null, MediaType.MULTIPART_FORM_DATA_TYPE, 
+            headers , out);
+        MediaType contentType = MediaType.valueOf((String)headers.getFirst(HttpHeaders.CONTENT_TYPE));
+        ContentItem read = ciReader.readFrom(ContentItem.class, null, null, contentType, null, 
+            new ByteArrayInputStream(out.toByteArray()));
+        Graph copy = new SimpleGraph();
+        copy.addAll(ci.getMetadata());
+        assertTrue(copy.removeAll(read.getMetadata()));
+        assertTrue(copy.isEmpty());
+        assertEquals(em.size(), read.getPart(ExecutionMetadata.CHAIN_EXECUTION, Graph.class).size());
+    }
+
 }
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.stanbol.enhancer.jersey.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.RuntimeDelegate;
+
+import org.apache.stanbol.enhancer.contentitem.inmemory.InMemoryContentItemFactory;
+import org.apache.stanbol.enhancer.servicesapi.AsyncEnhancementJobManager;
+import org.apache.stanbol.enhancer.servicesapi.AsyncEnhancementJobManager.EnhancementCallback;
+import org.apache.stanbol.enhancer.servicesapi.Chain;
+import org.apache.stanbol.enhancer.servicesapi.ChainException;
+import org.apache.stanbol.enhancer.servicesapi.ContentItem;
+import org.apache.stanbol.enhancer.servicesapi.ContentItemFactory;
+import org.apache.stanbol.enhancer.servicesapi.EnhancementException;
+import org.apache.stanbol.enhancer.servicesapi.EnhancementJobManager;
+import org.apache.stanbol.enhancer.servicesapi.impl.StringSource;
+import org.glassfish.jersey.internal.RuntimeDelegateImpl;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Tests that {@link AbstractEnhancerResource#enhanceFromData} resumes the
+ * suspended {@link AsyncResponse} for asynchronous and synchronous
+ * {@link EnhancementJobManager}s.
+ */
+public class AbstractEnhancerResourceTest {
+
+    private static final ContentItemFactory ciFactory = InMemoryContentItemFactory.getInstance();
+
+    private Chain chain;
+    private ContentItem ci;
+    private HttpHeaders headers;
+    private AsyncResponse asyncResponse;
+
+    @BeforeClass
+    public static void initRuntimeDelegate(){
+        RuntimeDelegate.setInstance(new RuntimeDelegateImpl());
+    }
+
+    @Before
+    public void init() throws IOException {
+        chain = mock(Chain.class);
+        when(chain.getName()).thenReturn("test");
+        ci = ciFactory.createContentItem(new StringSource("Test content"));
+        headers = mock(HttpHeaders.class);
+        when(headers.getAcceptableMediaTypes()).thenReturn(
+            Collections.singletonList(MediaType.valueOf("text/turtle")));
+        asyncResponse = mock(AsyncResponse.class);
+    }
+
+    private AbstractEnhancerResource createResource(EnhancementJobManager jobManager){
+        return new AbstractEnhancerResource(jobManager, null, null, ciFactory, null, null) {
+            @Override
+            protected Chain getChain() throws ChainException {
+                return chain;
+            }
+        };
+    }
+
+    private void enhanceFromData(AbstractEnhancerResource resource) throws Exception {
+        resource.enhanceFromData(ci, false, null, false, null, false, null, headers, asyncResponse);
+    }
+    /**
+     * Asserts that the {@link #asyncResponse} was resumed with a response
+     * for the {@link #ci}
+     */
+    private void assertResumedWithContentItem() {
+        ArgumentCaptor<Object> response = ArgumentCaptor.forClass(Object.class);
+        verify(asyncResponse).resume(response.capture());
+        assertTrue(response.getValue() instanceof Response);
+        Response r = (Response)response.getValue();
+        assertEquals(200, r.getStatus());
+        assertSame(ci, r.getEntity());
+        assertEquals(MediaType.valueOf("text/turtle"), r.getMetadata().getFirst(HttpHeaders.CONTENT_TYPE));
+    }
+
+    @Test
+    public void testAsyncEnhancement() throws Exception {
+        AsyncEnhancementJobManager jobManager = mock(AsyncEnhancementJobManager.class);
+        final AtomicReference<EnhancementCallback> callback = new AtomicReference<EnhancementCallback>();
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                callback.set((EnhancementCallback)invocation.getArguments()[2]);
+                return null;
+            }
+        }).when(jobManager).enhanceContentAsync(eq(ci), eq(chain), any(EnhancementCallback.class));
+        enhanceFromData(createResource(jobManager));
+        verify(asyncResponse).setTimeout(anyLong(), any(TimeUnit.class));
+        //the request thread MUST NOT wait for the enhancement results
+        verify(jobManager, never()).enhanceContent(any(ContentItem.class), any(Chain.class));
+        verify(asyncResponse, never()).resume(any());
+        assertNotNull(callback.get());
+        //the completion of the enhancement job resumes the response
+        callback.get().completed(ci);
+        assertResumedWithContentItem();
+    }
+
+    @Test
+    public void testAsyncEnhancementFailure() throws Exception {
+        AsyncEnhancementJobManager jobManager = mock(AsyncEnhancementJobManager.class);
+        final EnhancementException failure = new ChainException("Test failure");
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                ((EnhancementCallback)invocation.getArguments()[2]).failed(ci, failure);
+                return null;
+            }
+        }).when(jobManager).enhanceContentAsync(eq(ci), eq(chain), any(EnhancementCallback.class));
+        enhanceFromData(createResource(jobManager));
+        verify(asyncResponse).resume(failure);
+    }
+
+    @Test
+    public void testSyncEnhancement() throws Exception {
+        EnhancementJobManager jobManager = mock(EnhancementJobManager.class);
+        enhanceFromData(createResource(jobManager));
+        verify(jobManager).enhanceContent(ci, chain);
+        assertResumedWithContentItem();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.enhancer.jmh;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.stanbol.enhancer.contentitem.inmemory.InMemoryContentItemFactory;
+import org.apache.stanbol.enhancer.nlp.model.AnalysedText;
+import org.apache.stanbol.enhancer.nlp.model.AnalysedTextFactory;
+import org.apache.stanbol.enhancer.nlp.model.Sentence;
+import org.apache.stanbol.enhancer.nlp.model.Span;
+import org.apache.stanbol.enhancer.nlp.model.SpanTypeEnum;
+import org.apache.stanbol.enhancer.nlp.model.Token;
+import org.apache.stanbol.enhancer.servicesapi.Blob;
+import org.apache.stanbol.enhancer.servicesapi.impl.StringSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures adding Sentences and Tokens to an {@link AnalysedText} (as done
+ * by sentence detection and tokenizing engines) and the navigation over the
+ * added {@link Span}s (as done by NER and entity linking engines).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalysedTextBenchmark {
+
+    private static final Set<SpanTypeEnum> TOKEN_TYPE = EnumSet.of(SpanTypeEnum.Token);
+    private static final int WINDOW_SIZE = 200;
+
+    @Param({"10000", "100000"})
+    public int textLength;
+
+    private String text;
+    private Blob blob;
+    private AnalysedTextFactory atFactory;
+    private AnalysedText analysedText;
+
+    @Setup
+    public void setup() throws IOException {
+        text = SampleTexts.getText(textLength);
+        blob = InMemoryContentItemFactory.getInstance().createBlob(new StringSource(text));
+        atFactory = AnalysedTextFactory.getDefaultInstance();
+        analysedText = createAnnotatedText();
+    }
+
+    private AnalysedText createAnnotatedText() throws IOException {
+        AnalysedText at = atFactory.createAnalysedText(blob);
+        int sentStart = 0;
+        for(int i = 0; i < text.length(); i++){
+            char c = text.charAt(i);
+            if(c == '.' || c == '!' || c == '?' || i == text.length() - 1){
+                addTokens(at.addSentence(sentStart, i + 1));
+                sentStart = i + 1;
+            }
+        }
+        return at;
+    }
+
+    /**
+     * Adds a Token for every sequence of letters or digits and for every
+     * other non whitespace char of the parsed sentence
+     */
+    private void addTokens(Sentence sentence){
+        String span = sentence.getSpan();
+        int tokenStart = -1;
+        for(int i = 0; i <= span.length(); i++){
+            char c = i < span.length() ? span.charAt(i) : ' ';
+            if(Character.isLetterOrDigit(c)){
+                if(tokenStart < 0){
+                    tokenStart = i;
+                }
+            } else {
+                if(tokenStart >= 0){
+                    sentence.addToken(tokenStart, i);
+                    tokenStart = -1;
+                }
+                if(!Character.isWhitespace(c)){
+                    sentence.addToken(i, i + 1);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public AnalysedText annotate() throws IOException {
+        return createAnnotatedText();
+    }
+
+    @Benchmark
+    public void iterateSentenceTokens(Blackhole bh){
+        Iterator<Sentence> sentences = analysedText.getSentences();
+        while(sentences.hasNext()){
+            Iterator<Token> tokens = sentences.next().getTokens();
+            while(tokens.hasNext()){
+                bh.consume(tokens.next().getStart());
+            }
+        }
+    }
+
+    @Benchmark
+    public void enclosedTokens(Blackhole bh){
+        Iterator<Span> tokens = analysedText.getEnclosed(TOKEN_TYPE);
+        while(tokens.hasNext()){
+            bh.consume(tokens.next().getEnd());
+        }
+    }
+
+    @Benchmark
+    public void enclosedTokenWindows(Blackhole bh){
+        for(int start = 0; start < text.length(); start += WINDOW_SIZE){
+            Iterator<Span> tokens = analysedText.getEnclosed(TOKEN_TYPE, 
+                start, Math.min(start + WINDOW_SIZE, text.length()));
+            while(tokens.hasNext()){
+                bh.consume(tokens.next().getEnd());
+            }
+        }
+    }
+}
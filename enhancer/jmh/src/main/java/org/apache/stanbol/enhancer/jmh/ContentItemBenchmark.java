@@ -0,0 +1,90 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.enhancer.jmh;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.stanbol.enhancer.contentitem.inmemory.InMemoryContentItemFactory;
+import org.apache.stanbol.enhancer.servicesapi.ContentItem;
+import org.apache.stanbol.enhancer.servicesapi.ContentItemFactory;
+import org.apache.stanbol.enhancer.servicesapi.impl.StringSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the creation of {@link ContentItem}s for plain text content by
+ * using the {@link InMemoryContentItemFactory}. This includes the
+ * calculation of the content based URI (SHA1 digest) and the copying of the
+ * content to the Blob. {@link #createAndReadContentItem(Blackhole)} also
+ * reads the content of the Blob.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentItemBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int textLength;
+
+    private String text;
+    private ContentItemFactory ciFactory;
+    private final byte[] buffer = new byte[8192];
+
+    @Setup
+    public void setup(){
+        text = SampleTexts.getText(textLength);
+        ciFactory = InMemoryContentItemFactory.getInstance();
+    }
+
+    @Benchmark
+    public ContentItem createContentItem() throws IOException {
+        return ciFactory.createContentItem(new StringSource(text));
+    }
+
+    /**
+     * Creates the ContentItem and reads the whole content of its Blob
+     */
+    @Benchmark
+    public void createAndReadContentItem(Blackhole bh) throws IOException {
+        ContentItem ci = ciFactory.createContentItem(new StringSource(text));
+        InputStream in = ci.getStream();
+        try {
+            int read;
+            while((read = in.read(buffer)) != -1){
+                bh.consume(read);
+                bh.consume(buffer);
+            }
+        } finally {
+            in.close();
+        }
+    }
+}
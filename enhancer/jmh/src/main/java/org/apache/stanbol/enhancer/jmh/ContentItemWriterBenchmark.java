@@ -0,0 +1,100 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.enhancer.jmh;
+
+import static org.apache.stanbol.enhancer.jersey.utils.RequestPropertiesHelper.OUTPUT_CONTENT;
+import static org.apache.stanbol.enhancer.jersey.utils.RequestPropertiesHelper.RDF_FORMAT;
+import static org.apache.stanbol.enhancer.servicesapi.helper.ContentItemHelper.initRequestPropertiesContentPart;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.ext.RuntimeDelegate;
+
+import org.apache.clerezza.rdf.core.serializedform.Serializer;
+import org.apache.stanbol.enhancer.contentitem.inmemory.InMemoryContentItemFactory;
+import org.apache.stanbol.enhancer.jersey.writers.ContentItemWriter;
+import org.apache.stanbol.enhancer.servicesapi.ContentItem;
+import org.apache.stanbol.enhancer.servicesapi.impl.StringSource;
+import org.glassfish.jersey.internal.RuntimeDelegateImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the serialization of enhancement results by the
+ * {@link ContentItemWriter} as done for every response of the
+ * <code>/enhancer</code> endpoint. For <code>multipart/form-data</code> the
+ * content and all content parts are included in the response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentItemWriterBenchmark {
+
+    @Param({"application/rdf+xml", "text/turtle", "multipart/form-data"})
+    public String mediaType;
+
+    @Param({"10000", "100000"})
+    public int textLength;
+
+    private ContentItemWriter ciWriter;
+    private ContentItem contentItem;
+    private MediaType type;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setup() throws IOException {
+        RuntimeDelegate.setInstance(new RuntimeDelegateImpl());
+        String text = SampleTexts.getText(textLength);
+        contentItem = InMemoryContentItemFactory.getInstance().createContentItem(
+            new StringSource(text));
+        SampleEnhancements.addEnhancements(contentItem.getMetadata(), contentItem.getUri(), text);
+        type = MediaType.valueOf(mediaType);
+        if(MediaType.MULTIPART_FORM_DATA_TYPE.isCompatible(type)){
+            Map<String,Object> properties = initRequestPropertiesContentPart(contentItem);
+            properties.put(OUTPUT_CONTENT, Collections.singleton("*/*"));
+            properties.put(RDF_FORMAT, "application/rdf+xml");
+        }
+        ciWriter = new ContentItemWriter(Serializer.getInstance());
+        out = new ByteArrayOutputStream(textLength * 16);
+    }
+
+    @Benchmark
+    public int writeContentItem() throws IOException {
+        out.reset();
+        ciWriter.writeTo(contentItem, ContentItem.class, null, null, type, 
+            new MultivaluedHashMap<String,Object>(), out);
+        return out.size();
+    }
+}
@@ -0,0 +1,135 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.enhancer.jmh;
+
+import static org.apache.stanbol.enhancer.servicesapi.helper.ExecutionPlanHelper.createExecutionPlan;
+import static org.apache.stanbol.enhancer.servicesapi.helper.ExecutionPlanHelper.writeExecutionNode;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.clerezza.commons.rdf.BlankNodeOrIRI;
+import org.apache.clerezza.commons.rdf.Graph;
+import org.apache.stanbol.commons.indexedgraph.IndexedGraph;
+import org.apache.stanbol.enhancer.contentitem.inmemory.InMemoryContentItemFactory;
+import org.apache.stanbol.enhancer.jobmanager.event.impl.EnhancementJob;
+import org.apache.stanbol.enhancer.servicesapi.ChainException;
+import org.apache.stanbol.enhancer.servicesapi.ContentItem;
+import org.apache.stanbol.enhancer.servicesapi.helper.ExecutionMetadataHelper;
+import org.apache.stanbol.enhancer.servicesapi.helper.execution.CompiledExecutionPlan;
+import org.apache.stanbol.enhancer.servicesapi.impl.StringSource;
+import org.apache.stanbol.enhancer.servicesapi.rdf.ExecutionMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the overhead of the {@link EnhancementJob} for the execution of
+ * an execution plan similar to a typical NLP processing chain. No engines
+ * are called. The benchmark only initialises the job and walks through the
+ * executable engines - marking them as running and completed - until the
+ * job is finished. This covers the bookkeeping done by the EventJobManager
+ * for every enhancement request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnhancementJobBenchmark {
+
+    private static final String CHAIN_NAME = "benchmark";
+
+    private Graph executionPlan;
+    private CompiledExecutionPlan compiledPlan;
+    private ContentItem contentItem;
+
+    @Setup
+    public void setup() throws IOException, ChainException {
+        executionPlan = createNlpChainExecutionPlan();
+        compiledPlan = CompiledExecutionPlan.compile(executionPlan);
+        contentItem = InMemoryContentItemFactory.getInstance().createContentItem(
+            new StringSource(SampleTexts.getText(1000)));
+        //executeJob() removes the execution metadata of the previous call
+        //before creating the job. As removePart(..) fails for missing parts
+        //the first call needs them to be present.
+        ExecutionMetadataHelper.initExecutionMetadataContentPart(contentItem);
+    }
+
+    /**
+     * Creates an execution plan with the dependencies of a typical NLP
+     * processing and entity linking chain
+     */
+    private static Graph createNlpChainExecutionPlan(){
+        Graph ep = new IndexedGraph();
+        BlankNodeOrIRI epNode = createExecutionPlan(ep, CHAIN_NAME, null);
+        BlankNodeOrIRI tika = writeExecutionNode(ep, epNode, "tika", true, null, null);
+        BlankNodeOrIRI langdetect = writeExecutionNode(ep, epNode, "langdetect", false, 
+            Collections.singleton(tika), null);
+        BlankNodeOrIRI sentence = writeExecutionNode(ep, epNode, "opennlp-sentence", false, 
+            Collections.singleton(langdetect), null);
+        BlankNodeOrIRI token = writeExecutionNode(ep, epNode, "opennlp-token", false, 
+            Collections.singleton(sentence), null);
+        BlankNodeOrIRI pos = writeExecutionNode(ep, epNode, "opennlp-pos", false, 
+            Collections.singleton(token), null);
+        BlankNodeOrIRI chunker = writeExecutionNode(ep, epNode, "opennlp-chunker", true, 
+            Collections.singleton(pos), null);
+        BlankNodeOrIRI ner = writeExecutionNode(ep, epNode, "opennlp-ner", false, 
+            Collections.singleton(token), null);
+        BlankNodeOrIRI linking = writeExecutionNode(ep, epNode, "entityhub-linking", false, 
+            new HashSet<BlankNodeOrIRI>(Arrays.asList(ner, pos, chunker)), null);
+        BlankNodeOrIRI disambiguation = writeExecutionNode(ep, epNode, "disambiguation", true, 
+            Collections.singleton(linking), null);
+        writeExecutionNode(ep, epNode, "dereference", true, 
+            Collections.singleton(disambiguation), null);
+        return ep;
+    }
+
+    @Benchmark
+    public CompiledExecutionPlan compileExecutionPlan() throws ChainException {
+        return CompiledExecutionPlan.compile(executionPlan);
+    }
+
+    @Benchmark
+    public boolean executeJob(){
+        //remove the execution metadata of the previous call
+        contentItem.removePart(ExecutionMetadata.CHAIN_EXECUTION);
+        EnhancementJob job = new EnhancementJob(contentItem, CHAIN_NAME, compiledPlan, false);
+        while(!job.isFinished()){
+            Set<BlankNodeOrIRI> executable = job.getExecutable();
+            for(BlankNodeOrIRI execution : executable){
+                job.setRunning(execution);
+            }
+            for(BlankNodeOrIRI execution : executable){
+                job.setCompleted(execution);
+            }
+        }
+        return job.markFinished();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.enhancer.jmh;
+
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.DC_RELATION;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.ENHANCER_END;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.ENHANCER_SELECTED_TEXT;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.ENHANCER_START;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.RDF_TYPE;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.TechnicalClasses.ENHANCER_TEXTANNOTATION;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.clerezza.commons.rdf.BlankNodeOrIRI;
+import org.apache.clerezza.commons.rdf.Graph;
+import org.apache.clerezza.commons.rdf.IRI;
+import org.apache.clerezza.commons.rdf.Triple;
+import org.apache.stanbol.commons.indexedgraph.CompactIndexedGraph;
+import org.apache.stanbol.commons.indexedgraph.IndexedGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the typical access patterns of enhancement engines and
+ * post-processing components on the metadata of a ContentItem: writing the
+ * enhancements, selecting all fise:TextAnnotations and reading their
+ * properties and following the dc:relation of fise:EntityAnnotations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetadataGraphBenchmark {
+
+    private static final IRI CI_URI = new IRI("urn:content-item-sha1-benchmark");
+
+    @Param({"IndexedGraph", "CompactIndexedGraph"})
+    public String implementation;
+
+    @Param({"10000", "100000"})
+    public int textLength;
+
+    private String text;
+    private Graph graph;
+    private List<BlankNodeOrIRI> textAnnotations;
+
+    @Setup
+    public void setup(){
+        text = SampleTexts.getText(textLength);
+        graph = createGraph();
+        SampleEnhancements.addEnhancements(graph, CI_URI, text);
+        textAnnotations = new ArrayList<BlankNodeOrIRI>();
+        Iterator<Triple> it = graph.filter(null, RDF_TYPE, ENHANCER_TEXTANNOTATION);
+        while(it.hasNext()){
+            textAnnotations.add(it.next().getSubject());
+        }
+    }
+
+    private Graph createGraph(){
+        if("CompactIndexedGraph".equals(implementation)){
+            return new CompactIndexedGraph();
+        } else {
+            return new IndexedGraph();
+        }
+    }
+
+    @Benchmark
+    public Graph writeEnhancements(){
+        Graph g = createGraph();
+        SampleEnhancements.addEnhancements(g, CI_URI, text);
+        return g;
+    }
+
+    @Benchmark
+    public void readTextAnnotations(Blackhole bh){
+        Iterator<Triple> it = graph.filter(null, RDF_TYPE, ENHANCER_TEXTANNOTATION);
+        while(it.hasNext()){
+            BlankNodeOrIRI ta = it.next().getSubject();
+            consume(graph.filter(ta, ENHANCER_SELECTED_TEXT, null), bh);
+            consume(graph.filter(ta, ENHANCER_START, null), bh);
+            consume(graph.filter(ta, ENHANCER_END, null), bh);
+        }
+    }
+
+    @Benchmark
+    public void followRelations(Blackhole bh){
+        for(BlankNodeOrIRI ta : textAnnotations){
+            consume(graph.filter(null, DC_RELATION, ta), bh);
+        }
+    }
+
+    private static void consume(Iterator<Triple> it, Blackhole bh){
+        while(it.hasNext()){
+            bh.consume(it.next().getObject());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.enhancer.jmh;
+
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.DC_RELATION;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.DC_TYPE;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.ENHANCER_CONFIDENCE;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.ENHANCER_END;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.ENHANCER_ENTITY_LABEL;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.ENHANCER_ENTITY_REFERENCE;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.ENHANCER_EXTRACTED_FROM;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.ENHANCER_SELECTED_TEXT;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.ENHANCER_START;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.RDF_TYPE;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.TechnicalClasses.ENHANCER_ENHANCEMENT;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.TechnicalClasses.ENHANCER_ENTITYANNOTATION;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.TechnicalClasses.ENHANCER_TEXTANNOTATION;
+
+import java.util.Random;
+
+import org.apache.clerezza.commons.rdf.Graph;
+import org.apache.clerezza.commons.rdf.IRI;
+import org.apache.clerezza.commons.rdf.Language;
+import org.apache.clerezza.commons.rdf.impl.utils.PlainLiteralImpl;
+import org.apache.clerezza.commons.rdf.impl.utils.TripleImpl;
+import org.apache.clerezza.rdf.core.LiteralFactory;
+import org.apache.stanbol.enhancer.servicesapi.rdf.OntologicalClasses;
+
+/**
+ * Writes simulated enhancement results to a graph. For every word with an
+ * upper case first letter a fise:TextAnnotation and a linked
+ * fise:EntityAnnotation is created. This results in metadata similar to
+ * those of a typical NER + entity linking chain.
+ */
+public final class SampleEnhancements {
+
+    private static final String ENTITY_NS = "http://www.example.org/entity/";
+
+    private static final IRI[] NER_TYPES = new IRI[]{
+        OntologicalClasses.DBPEDIA_PERSON, OntologicalClasses.DBPEDIA_PLACE,
+        OntologicalClasses.DBPEDIA_ORGANISATION};
+
+    private SampleEnhancements(){/* no instances allowed */}
+
+    /**
+     * Adds simulated fise:TextAnnotations and fise:EntityAnnotations for the
+     * parsed text to the graph
+     * @param graph the graph to add the enhancements
+     * @param ciUri the URI of the content item
+     * @param text the text
+     * @return the number of fise:TextAnnotations added to the graph
+     */
+    public static int addEnhancements(Graph graph, IRI ciUri, String text){
+        LiteralFactory lf = LiteralFactory.getInstance();
+        Language lang = new Language("en");
+        Random rnd = new Random(42);
+        int count = 0;
+        int start = -1;
+        for(int i = 0; i <= text.length(); i++){
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if(start < 0){
+                if(Character.isUpperCase(c)){
+                    start = i;
+                }
+            } else if(!Character.isLetter(c)){
+                String selected = text.substring(start, i);
+                IRI ta = new IRI("urn:enhancement-ta-" + count);
+                graph.add(new TripleImpl(ta, RDF_TYPE, ENHANCER_ENHANCEMENT));
+                graph.add(new TripleImpl(ta, RDF_TYPE, ENHANCER_TEXTANNOTATION));
+                graph.add(new TripleImpl(ta, ENHANCER_EXTRACTED_FROM, ciUri));
+                graph.add(new TripleImpl(ta, ENHANCER_SELECTED_TEXT, 
+                    new PlainLiteralImpl(selected, lang)));
+                graph.add(new TripleImpl(ta, ENHANCER_START, lf.createTypedLiteral(start)));
+                graph.add(new TripleImpl(ta, ENHANCER_END, lf.createTypedLiteral(i)));
+                graph.add(new TripleImpl(ta, DC_TYPE, NER_TYPES[rnd.nextInt(NER_TYPES.length)]));
+                graph.add(new TripleImpl(ta, ENHANCER_CONFIDENCE, 
+                    lf.createTypedLiteral(rnd.nextDouble())));
+                IRI ea = new IRI("urn:enhancement-ea-" + count);
+                graph.add(new TripleImpl(ea, RDF_TYPE, ENHANCER_ENHANCEMENT));
+                graph.add(new TripleImpl(ea, RDF_TYPE, ENHANCER_ENTITYANNOTATION));
+                graph.add(new TripleImpl(ea, ENHANCER_EXTRACTED_FROM, ciUri));
+                graph.add(new TripleImpl(ea, DC_RELATION, ta));
+                graph.add(new TripleImpl(ea, ENHANCER_ENTITY_REFERENCE, 
+                    new IRI(ENTITY_NS + selected)));
+                graph.add(new TripleImpl(ea, ENHANCER_ENTITY_LABEL, 
+                    new PlainLiteralImpl(selected, lang)));
+                graph.add(new TripleImpl(ea, ENHANCER_CONFIDENCE, 
+                    lf.createTypedLiteral(rnd.nextDouble())));
+                count++;
+                start = -1;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.enhancer.jmh;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Provides plain text documents of a requested length build from the sample
+ * texts bundled with this module (<code>/texts/*.txt</code>). This allows to
+ * run the benchmarks without any network access.
+ */
+public final class SampleTexts {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String[] TEXTS = new String[]{
+        "harbour.txt", "research.txt", "football.txt"};
+
+    private SampleTexts(){/* no instances allowed */}
+
+    /**
+     * Creates a text with exactly the parsed number of chars by
+     * concatenating the bundled sample texts.
+     * @param length the length of the text
+     * @return the text
+     * @throws IllegalStateException if the sample texts can not be loaded
+     */
+    public static String getText(int length){
+        if(length < 1){
+            throw new IllegalArgumentException("The parsed length MUST BE > 0!");
+        }
+        StringBuilder sb = new StringBuilder(length + 4096);
+        for(int i = 0; sb.length() < length; i++){
+            if(sb.length() > 0){
+                sb.append("\n\n");
+            }
+            sb.append(loadText(TEXTS[i % TEXTS.length]));
+        }
+        sb.setLength(length);
+        return sb.toString();
+    }
+
+    private static String loadText(String name){
+        InputStream in = SampleTexts.class.getResourceAsStream("/texts/" + name);
+        if(in == null){
+            throw new IllegalStateException("Missing sample text '" + name + "'!");
+        }
+        try {
+            return IOUtils.toString(in, UTF8.name());
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read sample text '" + name + "'!", e);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+}
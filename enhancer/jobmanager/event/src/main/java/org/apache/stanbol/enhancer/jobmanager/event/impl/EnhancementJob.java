@@ -18,6 +18,8 @@ package org.apache.stanbol.enhancer.jobmanager.event.impl;
 
 import static org.apache.stanbol.enhancer.servicesapi.helper.EnhancementEngineHelper.getReference;
 import static org.apache.stanbol.enhancer.servicesapi.helper.EnhancementEngineHelper.getString;
+import static org.apache.stanbol.enhancer.servicesapi.helper.ExecutionMetadataHelper.createChainExecutionNode;
+import static org.apache.stanbol.enhancer.servicesapi.helper.ExecutionMetadataHelper.createEngineExecution;
 import static org.apache.stanbol.enhancer.servicesapi.helper.ExecutionMetadataHelper.getChainExecution;
 import static org.apache.stanbol.enhancer.servicesapi.helper.ExecutionMetadataHelper.getExecutionPlanNode;
 import static org.apache.stanbol.enhancer.servicesapi.helper.ExecutionMetadataHelper.initExecutionMetadata;
@@ -26,20 +28,20 @@ import static org.apache.stanbol.enhancer.servicesapi.helper.ExecutionMetadataHe
 import static org.apache.stanbol.enhancer.servicesapi.helper.ExecutionMetadataHelper.setExecutionCompleted;
 import static org.apache.stanbol.enhancer.servicesapi.helper.ExecutionMetadataHelper.setExecutionFaild;
 import static org.apache.stanbol.enhancer.servicesapi.helper.ExecutionMetadataHelper.setExecutionInProgress;
-import static org.apache.stanbol.enhancer.servicesapi.helper.ExecutionPlanHelper.getDependend;
-import static org.apache.stanbol.enhancer.servicesapi.helper.ExecutionPlanHelper.getEngine;
-import static org.apache.stanbol.enhancer.servicesapi.helper.ExecutionPlanHelper.isOptional;
 import static org.apache.stanbol.enhancer.servicesapi.rdf.ExecutionMetadata.STATUS;
 import static org.apache.stanbol.enhancer.servicesapi.rdf.ExecutionMetadata.STATUS_IN_PROGRESS;
 import static org.apache.stanbol.enhancer.servicesapi.rdf.ExecutionPlan.CHAIN;
 
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 
@@ -47,15 +49,14 @@ import org.apache.clerezza.commons.rdf.ImmutableGraph;
 import org.apache.clerezza.commons.rdf.Graph;
 import org.apache.clerezza.commons.rdf.BlankNodeOrIRI;
 import org.apache.clerezza.commons.rdf.IRI;
-import org.apache.commons.collections.BidiMap;
-import org.apache.commons.collections.bidimap.DualHashBidiMap;
 import org.apache.stanbol.enhancer.servicesapi.Chain;
+import org.apache.stanbol.enhancer.servicesapi.ChainException;
 import org.apache.stanbol.enhancer.servicesapi.ContentItem;
 import org.apache.stanbol.enhancer.servicesapi.EnhancementEngine;
 import org.apache.stanbol.enhancer.servicesapi.EnhancementJobManager;
 import org.apache.stanbol.enhancer.servicesapi.NoSuchPartException;
 import org.apache.stanbol.enhancer.servicesapi.helper.ExecutionMetadataHelper;
-import org.apache.stanbol.enhancer.servicesapi.helper.ExecutionPlanHelper;
+import org.apache.stanbol.enhancer.servicesapi.helper.execution.CompiledExecutionPlan;
 import org.apache.stanbol.enhancer.servicesapi.rdf.ExecutionMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -64,31 +65,45 @@ import org.slf4j.LoggerFactory;
  * Represents the enhancement of a {@link ContentItem} by following the
  * execution plan provided by a {@link Chain} as parsed to an
  * {@link EnhancementJobManager}.<p>
+ * The state of the execution is tracked by atomic per node states and
+ * counters of unfinished dependencies based on the 
+ * {@link CompiledExecutionPlan}. Therefore state transitions do not require
+ * to acquire the {@link #getLock() lock} of the {@link ContentItem}. Only
+ * updates of the execution metadata are synchronised by using the lock of
+ * the execution metadata graph.<p>
  * TODO: This might become part of the Stanbol Enhancer Services API.
  * 
  * @author Rupert Westenthaler
  */
 public class EnhancementJob {
 
-    /*
-     * NOTE on debug level Loggings
-     * 
-     *  ++ ... init some activity
-     *  >> ... started some activity (thread has the requested lock)
-     *  << ... completed some activity (thread has released the lock)
-     *  
-     *  n: ... no lock
-     *  r: ... read lock
-     *  w: ... write lock
-     */
     private final Logger log = LoggerFactory.getLogger(EnhancementJob.class);
 
-    private final Lock readLock;
-    private final Lock writeLock;
+    /**
+     * State of an ep:ExecutionNode with uncompleted dependencies
+     */
+    private static final int STATE_PENDING = 0;
+    /**
+     * State of an ep:ExecutionNode that can be executed
+     */
+    private static final int STATE_EXECUTABLE = 1;
+    /**
+     * State of a running ep:ExecutionNode
+     */
+    private static final int STATE_RUNNING = 2;
+    /**
+     * State of a completed (or failed) ep:ExecutionNode
+     */
+    private static final int STATE_COMPLETED = 3;
+    
     /**
      * The read only executionPlan
      */
-    private final ImmutableGraph executionPlan;
+    private final Graph executionPlan;
+    /**
+     * The compiled execution plan
+     */
+    private final CompiledExecutionPlan plan;
     /**
      * The read/write able execution metadata. Also accessible via
      * {@link ContentItem#getPart(IRI, Class)} with the URI
@@ -96,10 +111,19 @@ public class EnhancementJob {
      */
     private final Graph executionMetadata;
     /**
-     * Map with the em:Execution nodes of the em:ChainExecution for this
-     * ContentItem. Values are are ep:ExecutionNodes of the ep:ExecutionPlan
+     * The lock used to synchronise updates of the {@link #executionMetadata}
+     */
+    private final Lock metadataLock;
+    /**
+     * The em:Execution nodes of the em:ChainExecution for this
+     * ContentItem. The index is the same as used by the {@link #plan} for the
+     * linked ep:ExecutionNodes
      */
-    private final BidiMap executionsMap;
+    private final BlankNodeOrIRI[] executions;
+    /**
+     * The indexes for the em:Execution nodes
+     */
+    private final Map<BlankNodeOrIRI,Integer> executionIndexes;
     /**
      * The em:ChainExecution for this {@link ContentItem}
      */
@@ -116,34 +140,32 @@ public class EnhancementJob {
      * The ContentItem
      */
     private final ContentItem contentItem;
-
     /**
-     * The completed ep:ExecutionPlan nodes. <p>
-     * NOTE: This contains ep:ExecutionNodes and NOT em:Exetution instances!
+     * The states of the ep:ExecutionNodes (see <code>STATE_*</code> constants)
      */
-    private final Set<BlankNodeOrIRI> completed = new HashSet<BlankNodeOrIRI>();
+    private final AtomicIntegerArray states;
     /**
-     * Unmodifiable and final set of completed executables. Replaced by a new
-     * instance every time {@link #completed} changes
+     * The number of not yet completed dependencies of the ep:ExecutionNodes
      */
-    private Set<BlankNodeOrIRI> completedExec = Collections.emptySet();
+    private final AtomicIntegerArray pendingDependencies;
     /**
-     * The running ep:ExecutionPlan nodes <p>
-     * NOTE: This contains ep:ExecutionNodes and NOT em:Exetution instances!
+     * The number of currently running executions
      */
-    private final Set<BlankNodeOrIRI> running = new HashSet<BlankNodeOrIRI>();
+    private final AtomicInteger runningCount = new AtomicInteger();
     /**
-     * Unmodifiable and final set of running executables. Replaced by a new
-     * instance every time {@link #running} changes.
+     * The em:Execution nodes in the {@link #STATE_EXECUTABLE}.
      */
-    private Set<BlankNodeOrIRI> runningExec = Collections.emptySet();
-
+    private final Set<BlankNodeOrIRI> executable = Collections.newSetFromMap(
+        new ConcurrentHashMap<BlankNodeOrIRI,Boolean>());
     /**
-     * Unmodifiable and final set of executable em:Execution nodes. 
-     * Replaced by a new instance every time {@link #running} or 
-     * {@link #completed} changes.
+     * If the execution of a required engine has failed
      */
-    private Set<BlankNodeOrIRI> executable;
+    private volatile boolean failed;
+    /**
+     * Ensures that only a single component {@link #markFinished() finishes}
+     * this job.
+     */
+    private final AtomicBoolean finished = new AtomicBoolean(false);
     /**
      * Used to store any {@link Exception} parsed with the call to
      * {@link #setFailed(BlankNodeOrIRI, EnhancementEngine, Exception)} causing the
@@ -151,7 +173,7 @@ public class EnhancementJob {
      * {@link EnhancementJobManager#enhanceContent(ContentItem, Chain)} method.
      * @see #getError()
      */
-    private Exception error = null;
+    private volatile Exception error = null;
     /**
      * Constructor used to create and initialise a new enhancement job. This
      * will create the initial set of ExecutionMetadata and add them as
@@ -163,29 +185,56 @@ public class EnhancementJob {
      * @param isDefaultChain
      */
     public EnhancementJob(ContentItem contentItem, String chainName, ImmutableGraph executionPlan, boolean isDefaultChain) {
-        if (contentItem == null || chainName == null || executionPlan == null) {
+        this(contentItem, chainName, executionPlan == null ? null : compile(executionPlan), isDefaultChain);
+    }
+    /**
+     * Constructor used to create and initialise a new enhancement job for an
+     * already compiled execution plan (e.g. as cached by the {@link Chain}).
+     * Only the per request execution state and the initial ExecutionMetadata
+     * are created. Those are added as ContentPart with the URI 
+     * {@link ExecutionMetadata#CHAIN_EXECUTION} to the ContentItem.
+     * @param contentItem the content item
+     * @param chainName the name of the chain
+     * @param plan the compiled execution plan of the chain
+     * @param isDefaultChain if the chain is the default chain
+     */
+    public EnhancementJob(ContentItem contentItem, String chainName, CompiledExecutionPlan plan, boolean isDefaultChain) {
+        if (contentItem == null || chainName == null || plan == null) {
             throw new IllegalArgumentException("The parsed contentItem and executionPlan MUST NOT be NULL");
         }
-        this.readLock = contentItem.getLock().readLock();
-        this.writeLock = contentItem.getLock().writeLock();
+        this.plan = plan;
         executionMetadata = initExecutionMetadataContentPart(contentItem);
-        if(executionMetadata.isEmpty()){
-            //if we init from scratch 
-            this.executionsMap = new DualHashBidiMap(initExecutionMetadata(executionMetadata, executionPlan, 
-                contentItem.getUri(), chainName, isDefaultChain));
-            chainExecutionNode = getChainExecution(executionMetadata, contentItem.getUri());
-            executionPlanNode = getExecutionPlanNode(executionMetadata, chainExecutionNode);
-            executionMetadata.addAll(executionPlan);
-        } else {
+        this.metadataLock = executionMetadata.getLock().writeLock();
+        if(!executionMetadata.isEmpty()){
             throw new IllegalArgumentException("Unable to create EnhancementJob for "
                     + "a parsed execution plan if the ContentItem already contains "
                     + "some Execution Metadata!");
         }
+        //init from scratch by using the nodes of the compiled plan
+        this.executions = new BlankNodeOrIRI[plan.size()];
+        Map<BlankNodeOrIRI,Integer> executionIndexes = new HashMap<BlankNodeOrIRI,Integer>(plan.size()*2);
+        metadataLock.lock();
+        try {
+            executionPlanNode = plan.getExecutionPlanNode();
+            chainExecutionNode = createChainExecutionNode(executionMetadata, 
+                executionPlanNode, contentItem.getUri(), isDefaultChain);
+            for(int i = 0; i < executions.length; i++){
+                executions[i] = createEngineExecution(executionMetadata, 
+                    chainExecutionNode, plan.getNode(i));
+                executionIndexes.put(executions[i], i);
+            }
+            executionMetadata.addAll(plan.getExecutionPlan());
+        } finally {
+            metadataLock.unlock();
+        }
         this.contentItem = contentItem;
-        this.executionPlan = executionPlan;
+        this.executionPlan = plan.getExecutionPlan();
         this.chain = chainName;
+        this.executionIndexes = Collections.unmodifiableMap(executionIndexes);
+        this.states = new AtomicIntegerArray(plan.size());
+        this.pendingDependencies = new AtomicIntegerArray(plan.size());
         //check the first engines to execute
-        checkExecutable();
+        initState(Collections.<Integer>emptySet());
     }
     /**
      * Creates an EnhancemenJob based on already existing execution metadata present
@@ -201,8 +250,6 @@ public class EnhancementJob {
             throw new IllegalArgumentException("The parsed ContentItem MUST NOT be NULL!");
         }
         this.contentItem = contentItem;
-        this.readLock = contentItem.getLock().readLock();
-        this.writeLock = contentItem.getLock().writeLock();
         try {
             contentItem.getPart(ExecutionMetadata.CHAIN_EXECUTION, Graph.class);
         } catch (NoSuchPartException e) {
@@ -210,7 +257,9 @@ public class EnhancementJob {
                     "without existing execution metadata content part!",e);
         }
         executionMetadata = initExecutionMetadataContentPart(contentItem);
+        this.metadataLock = executionMetadata.getLock().writeLock();
         this.executionPlan = executionMetadata.getImmutableGraph();
+        this.plan = compile(executionPlan);
         chainExecutionNode = getChainExecution(executionMetadata, contentItem.getUri());
         if(chainExecutionNode == null){
             throw new IllegalArgumentException("Cannot (re)initialise an EnhancementJob" +
@@ -233,6 +282,9 @@ public class EnhancementJob {
         //the executionPlan is part of the execution metadata
         Map<BlankNodeOrIRI,BlankNodeOrIRI> executionsMap = initExecutionMetadata(executionMetadata, 
             executionPlan, contentItem.getUri(), null, null);
+        this.executions = new BlankNodeOrIRI[plan.size()];
+        this.executionIndexes = initExecutions(executionsMap);
+        Set<Integer> completed = new HashSet<Integer>();
         for(Entry<BlankNodeOrIRI,BlankNodeOrIRI> executionEntry : executionsMap.entrySet()){
             IRI status = getReference(executionMetadata, executionEntry.getKey(), STATUS);
             if(status == null){
@@ -246,12 +298,90 @@ public class EnhancementJob {
                 ExecutionMetadataHelper.setExecutionScheduled(executionMetadata, executionEntry.getKey());
             } else if(status.equals(ExecutionMetadata.STATUS_COMPLETED) ||
                     status.equals(ExecutionMetadata.STATUS_FAILED)){
-               completed.add(executionEntry.getValue());
+               completed.add(plan.getIndex(executionEntry.getValue()));
             }
         }
-        this.executionsMap = new DualHashBidiMap(executionsMap);
+        this.failed = isExecutionFailed(executionMetadata, chainExecutionNode);
+        this.states = new AtomicIntegerArray(plan.size());
+        this.pendingDependencies = new AtomicIntegerArray(plan.size());
         //check the first engines to execute after continuation
-        checkExecutable();
+        initState(completed);
+    }
+    /**
+     * Compiles the parsed execution plan
+     * @throws IllegalArgumentException if the execution plan is not valid
+     */
+    private static CompiledExecutionPlan compile(Graph executionPlan) {
+        try {
+            return CompiledExecutionPlan.compile(executionPlan);
+        } catch (ChainException e) {
+            throw new IllegalArgumentException("The parsed execution plan is not valid!",e);
+        }
+    }
+    /**
+     * Initialises the {@link #executions} array based on the parsed map and
+     * returns the indexes for the em:Execution nodes 
+     * @param executionsMap em:Execution nodes as keys and ep:ExecutionNodes as
+     * values
+     * @return the index for the em:Executions
+     */
+    private Map<BlankNodeOrIRI,Integer> initExecutions(Map<BlankNodeOrIRI,BlankNodeOrIRI> executionsMap) {
+        Map<BlankNodeOrIRI,Integer> executionIndexes = new HashMap<BlankNodeOrIRI,Integer>(executionsMap.size()*2);
+        for(Entry<BlankNodeOrIRI,BlankNodeOrIRI> entry : executionsMap.entrySet()){
+            int index = plan.getIndex(entry.getValue());
+            if(index < 0){
+                throw new IllegalArgumentException("The em:Execution '"+entry.getKey()
+                    + "' refers the unknown ep:ExecutionNode '"+entry.getValue()+"'!");
+            }
+            executions[index] = entry.getKey();
+            executionIndexes.put(entry.getKey(), index);
+        }
+        for(int i = 0; i < executions.length; i++){
+            if(executions[i] == null){
+                throw new IllegalArgumentException("Missing em:Execution for ep:ExecutionNode '"
+                    + plan.getNode(i) + "' (engine: " + plan.getEngine(i)+ ")!");
+            }
+        }
+        return Collections.unmodifiableMap(executionIndexes);
+    }
+    /**
+     * Initialises the {@link #states} and {@link #pendingDependencies} 
+     * based on the parsed completed nodes
+     * @param completed the indexes of already completed nodes
+     */
+    private void initState(Set<Integer> completed){
+        for(int i = 0; i < plan.size(); i++){
+            if(completed.contains(i)){
+                states.set(i, STATE_COMPLETED);
+            } else {
+                int pending = 0;
+                for(int n = 0; n < plan.getDependsOnCount(i); n++){
+                    if(!completed.contains(plan.getDependsOn(i, n))){
+                        pending++;
+                    }
+                }
+                pendingDependencies.set(i, pending);
+                if(pending == 0){
+                    states.set(i, STATE_EXECUTABLE);
+                    executable.add(executions[i]);
+                }
+            }
+        }
+        if(log.isTraceEnabled()){
+            log.trace("MARK {} as executeable",getEngines(executable));
+        }
+    }
+    /**
+     * Getter for the index of the parsed em:Execution
+     * @throws IllegalArgumentException if the parsed em:Execution is not
+     * part of the execution metadata of this enhancement job
+     */
+    private int getIndex(BlankNodeOrIRI execution){
+        Integer index = executionIndexes.get(execution);
+        if(index == null){
+            throw new IllegalArgumentException("Unknown em:Execution instance "+execution);
+        }
+        return index.intValue();
     }
 
     /**
@@ -261,11 +391,7 @@ public class EnhancementJob {
      * part of the execution metadata of this enhancement job
      */
     public BlankNodeOrIRI getExecutionNode(BlankNodeOrIRI execution){
-        BlankNodeOrIRI node = (BlankNodeOrIRI)executionsMap.get(execution);
-        if(node == null){
-            throw new IllegalArgumentException("Unknown sp:ExecutionNode instance "+node);
-        }
-        return node;
+        return plan.getNode(getIndex(execution));
     }
     /**
      * Getter for the em:Execution linked to a ep:ExecutionNode
@@ -274,11 +400,21 @@ public class EnhancementJob {
      * part of the execution plan of this enhancement job
      */
     public BlankNodeOrIRI getExecution(BlankNodeOrIRI executionNode){
-        BlankNodeOrIRI execution = (BlankNodeOrIRI)executionsMap.getKey(executionNode);
-        if(execution == null){
-            throw new IllegalArgumentException("Unknown em:Execution instance "+executionNode);
+        int index = plan.getIndex(executionNode);
+        if(index < 0){
+            throw new IllegalArgumentException("Unknown ep:ExecutionNode instance "+executionNode);
         }
-        return execution;
+        return executions[index];
+    }
+    /**
+     * Getter for the name of the engine executed by the parsed em:Execution
+     * @param execution the em:Execution
+     * @return the name of the engine
+     * @throws IllegalArgumentException if the parsed em:Execution is not
+     * part of the execution metadata of this enhancement job
+     */
+    public String getEngine(BlankNodeOrIRI execution){
+        return plan.getEngine(getIndex(execution));
     }
 
     /**
@@ -286,9 +422,16 @@ public class EnhancementJob {
      * 
      * @return the executionPlan
      */
-    public final ImmutableGraph getExecutionPlan() {
+    public final Graph getExecutionPlan() {
         return executionPlan;
     }
+    /**
+     * The compiled version of the {@link #getExecutionPlan()}
+     * @return the compiled execution plan
+     */
+    public final CompiledExecutionPlan getCompiledExecutionPlan() {
+        return plan;
+    }
 
     /**
      * The ContentItem enhanced by this job.
@@ -314,48 +457,45 @@ public class EnhancementJob {
     }
 
     /**
-     * Getter for the lock used to synchronise read/write to this enhancement job. This returns the lock
-     * provided by {@link ContentItem#getLock()}
+     * Getter for the lock of the {@link ContentItem} processed by this job.
+     * This lock is NOT used to synchronise state changes of this enhancement
+     * job. It is only used to ensure exclusive access to the content item
+     * for {@link EnhancementEngine#ENHANCE_SYNCHRONOUS synchronous} engines.
      * 
-     * @return the read/write lock for this enhancement job
+     * @return the read/write lock of the enhanced content item
      */
     public final ReadWriteLock getLock() {
         return contentItem.getLock();
     }
 
-
     /**
-     * Getter for a read only view over the currently running executions.
+     * Getter for a snapshot of the currently running executions.
      * 
      * @return the currently running executions.
      */
     public Set<BlankNodeOrIRI> getRunning() {
-        log.trace("++ r: {}","getRunning");
-        readLock.lock();
-        try {
-            log.trace(">> r: {}","getRunning");
-            return runningExec;
-        } finally {
-            log.trace("<< r: {}","getRunning");
-            readLock.unlock();
-        }
+        return getExecutions(STATE_RUNNING);
     }
 
     /**
-     * Getter for a read only view over the completed execution.
+     * Getter for a snapshot of the completed execution.
      * 
      * @return the completed execution nodes
      */
     public Set<BlankNodeOrIRI> getCompleted() {
-        log.trace("++ r: {}","getCompleted");
-        readLock.lock();
-        try {
-            log.trace(">> r: {}","getCompleted");
-            return completedExec;
-        } finally {
-            log.trace("<< r: {}","getCompleted");
-            readLock.unlock();
+        return getExecutions(STATE_COMPLETED);
+    }
+    /**
+     * Getter for a read only snapshot of all em:Executions with the parsed state
+     */
+    private Set<BlankNodeOrIRI> getExecutions(int state){
+        Set<BlankNodeOrIRI> executions = new HashSet<BlankNodeOrIRI>();
+        for(int i = 0; i < this.executions.length; i++){
+            if(states.get(i) == state){
+                executions.add(this.executions[i]);
+            }
         }
+        return Collections.unmodifiableSet(executions);
     }
 
     /**
@@ -375,210 +515,168 @@ public class EnhancementJob {
         if(execution == null) {
             throw new IllegalArgumentException("The parsed em:Execution instance MUST NOT be NULL!");
         }
-        writeLock.lock();
-        BlankNodeOrIRI executionNode = getExecutionNode(execution);
-        log.trace("++ w: {}: {}","setCompleted",getEngine(executionPlan, executionNode));
+        int index = getIndex(execution);
+        log.trace("++ n: {}: {}","setCompleted",plan.getEngine(index));
+        //NOTE: update the metadata before the state as other threads will
+        //      finish the job based on the state
+        metadataLock.lock();
         try {
-            log.trace(">> w: {}: {}","setCompleted",getEngine(executionPlan, executionNode));
-            setNodeCompleted(executionNode);
             setExecutionCompleted(executionMetadata, execution, null);
         } finally {
-            log.trace("<< w: {}: {}","setCompleted",getEngine(executionPlan, executionNode));
-            writeLock.unlock();
+            metadataLock.unlock();
         }
+        setNodeCompleted(index);
+        log.trace("<< n: {}: {}","setCompleted",plan.getEngine(index));
     }
     /**
-     * Internally used to update the state kept in {@link #completed} and
-     * {@link #running} and {@link #executable} after an execution was set to
+     * Internally used to update the {@link #states}, {@link #pendingDependencies}, 
+     * {@link #runningCount} and {@link #executable} after an execution was set to
      * {@link #setCompleted(BlankNodeOrIRI) completed} or 
      * {@link #setFailed(BlankNodeOrIRI, EnhancementEngine, Exception) failed}.<p>
-     * This method expects to be called within an active {@link #writeLock}.
-     * @param executionNode the ep:ExecutionNode linked to the em:Execution that
-     * finished. 
-     */
-    private void setNodeCompleted(BlankNodeOrIRI executionNode) {
-        String engine = getEngine(executionPlan, executionNode);
-        boolean optional = isOptional(executionPlan, executionNode);
-        Set<BlankNodeOrIRI> dependsOn = getDependend(executionPlan, executionNode);
-        if (completed.contains(executionNode)) {
-            log.warn("Execution of Engine '{}' for ContentItem {} already "
-                     + "marked as completed(chain: {}, node: {}, optional {})."
-                     + " -> call ignored", 
-                     new Object[] {engine, contentItem.getUri().getUnicodeString(),
-                                   chain, executionNode, optional});
-            return;
+     * This only uses atomic operations and requires O(out-degree) time.
+     * @param index the index of the ep:ExecutionNode linked to the em:Execution 
+     * that finished.
+     * @return <code>true</code> if the state was updated by this call or
+     * <code>false</code> if the node was already marked as completed
+     */
+    private boolean setNodeCompleted(int index) {
+        int state;
+        do {
+            state = states.get(index);
+            if(state == STATE_COMPLETED){
+                log.warn("Execution of Engine '{}' for ContentItem {} already "
+                         + "marked as completed(chain: {}, node: {}, optional {})."
+                         + " -> call ignored", 
+                         new Object[] {plan.getEngine(index), contentItem.getUri().getUnicodeString(),
+                                       chain, plan.getNode(index), plan.isOptional(index)});
+                return false;
+            }
+            if(state == STATE_PENDING){
+                // TODO maybe define an own Exception for such cases
+                throw new IllegalStateException("Unable to set state of ExectionNode '"
+                        + plan.getNode(index)+ "' (chain '"+ chain
+                        + "' | contentItem '"+ contentItem.getUri()
+                        + "') to completed, because some of its depended "
+                        + "nodes are not marked completed yet. This indicates an Bug in the "
+                        + "implementation of the JobManager used to execute the ExecutionPlan. "
+                        + "(pending dependencies=" + pendingDependencies.get(index) 
+                        + "| chain.completed " + getCompleted()
+                        + " | chain.running " + getRunning() + ")!");
+            }
+        } while(!states.compareAndSet(index, state, STATE_COMPLETED));
+        if(state == STATE_EXECUTABLE){
+            executable.remove(executions[index]);
         }
-        if (!completed.containsAll(dependsOn)) {
-            // TODO maybe define an own Exception for such cases
-            throw new IllegalStateException("Unable to set state of ExectionNode '"
-                    + executionNode+ "' (chain '"+ chain
-                    + "' | contentItem '"+ contentItem.getUri()
-                    + "') to completed, because some of its depended "
-                    + "nodes are not marked completed yet. This indicates an Bug in the "
-                    + "implementation of the JobManager used to execute the ExecutionPlan. "
-                    + "(this.dependsOn=" + dependsOn + "| chain.completed " + completed
-                    + " | chain.running " + running + ")!");
-        }
-        if (running.remove(executionNode)) {
-            log.trace(
-                "Execution of '{}' for ContentItem {} completed "
+        //NOTE: mark dependent nodes as executable BEFORE decreasing the
+        //      running count. Otherwise other threads might think that
+        //      this job is finished.
+        if(!failed){
+            for(int n = 0; n < plan.getDependentCount(index); n++){
+                int dependent = plan.getDependent(index, n);
+                if(pendingDependencies.decrementAndGet(dependent) == 0 &&
+                        states.compareAndSet(dependent, STATE_PENDING, STATE_EXECUTABLE)){
+                    log.trace("MARK {} as executeable",plan.getEngine(dependent));
+                    executable.add(executions[dependent]);
+                }
+            }
+        }
+        if(state == STATE_RUNNING){
+            runningCount.decrementAndGet();
+            log.trace("Execution of '{}' for ContentItem {} completed "
                 + "(chain: {}, node: {}, optional {})",
-                new Object[] {engine, contentItem.getUri().getUnicodeString(), 
-                              chain, executionNode, optional});
+                new Object[] {plan.getEngine(index), contentItem.getUri().getUnicodeString(), 
+                              chain, plan.getNode(index), plan.isOptional(index)});
         }
-        completed.add(executionNode);
-        //update the set with the completed and running executables
-        updateCompletedExec();
-        updateRunningExec();
-        // update the executables ... this will also recognise if finished 
-        checkExecutable();
+        return true;
     }
 
     /**
      * Sets the state of the parsed execution to running. This also validates if the new state
      * confirms to the ExectionPlan (e.g. if all nodes the parsed node depends on are already marked as
-     * completed).
+     * completed).<p>
+     * If several threads try to start the same execution only a single one
+     * will succeed.
      * 
      * @param execution
      *            the execution to be marked as running
+     * @return <code>true</code> if the execution was marked as running by this
+     * call. <code>false</code> if it was already running.
      * @throws IllegalArgumentException
      *             if <code>null</code> is parsed as execution node
      * @throws IllegalStateException
      *             if the parsed execution node can not be marked as running because some of its depended
      *             nodes are not yet marked as completed.
      */
-    public void setRunning(BlankNodeOrIRI execution) {
+    public boolean setRunning(BlankNodeOrIRI execution) {
         if(execution == null) {
             throw new IllegalArgumentException("The parsed em:Execution instance MUST NOT be NULL!");
         }
-        BlankNodeOrIRI executionNode = getExecutionNode(execution);
-        String engine = getEngine(executionPlan, executionNode);
-        boolean optional = isOptional(executionPlan, executionNode);
-        Set<BlankNodeOrIRI> dependsOn = getDependend(executionPlan, executionNode);
-        log.trace("++ w: {}: {}","setRunning",ExecutionPlanHelper.getEngine(executionPlan, executionNode));
-        writeLock.lock();
-        try {
-            log.trace(">> w: {}: {}","setRunning",ExecutionPlanHelper.getEngine(executionPlan, executionNode));
-            if (completed.contains(executionNode)) {
-                String message = "Unable to set state of ExectionNode '" + executionNode + "'(chain '"
-                                 + chain + "' | contentItem '" + contentItem.getUri()
-                                 + "') to running, because"
-                                 + "it is already marked as completed. This indicates "
-                                 + "an Bug in the implementation of the JobManager "
-                                 + "used to execute the ExecutionPlan (chain state: " + "completed "
-                                 + completed + " | running " + running + ")!";
-                log.error(message);
-                throw new IllegalStateException(message);
-            }
-            if (!completed.containsAll(dependsOn)) {
-                // TODO maybe define an own Exception for such cases
-                String message = "Unable to set state of ExectionNode '" + executionNode + "' (chain '"
-                                 + chain + "' | contentItem '" + contentItem.getUri()
-                                 + "') to running, because " + "some of its depended nodes are not marked "
-                                 + "completed yet. This indicates an Bug in the "
-                                 + "implementation of the JobManager used to execute "
-                                 + "the ExecutionPlan (this.dependsOn=" + dependsOn + "| chain.completed "
-                                 + completed + " | chain.running " + running + ")!";
-                log.error(message);
-                throw new IllegalStateException(message);
-            }
-            if (!running.add(executionNode)) {
-                log.warn("Execution of Engine '{}' for ContentItem {} already "
-                         + "marked as running(chain: {}, node: {}, optional {})."
-                         + " -> call ignored", 
-                         new Object[] {engine, contentItem.getUri().getUnicodeString(),
-                                       chain, executionNode, optional});
-                return;
-            } else { //added an engine to running
-                log.trace("Started Execution of '{}' for ContentItem {} "
-                         + "(chain: {}, node: {}, optional {})",
-                    new Object[] {engine, contentItem.getUri().getUnicodeString(), chain,
-                                  executionNode, optional});
-                //set the status of the execution to be in progress
-                ExecutionMetadataHelper.setExecutionInProgress(executionMetadata, execution);
-                // update the executables ... this will also recognise if finished
-                updateRunningExec();
-                //update executables
-                checkExecutable();
-            }
-        } finally {
-            log.trace("<< w: {}: {}","setRunning",ExecutionPlanHelper.getEngine(executionPlan, executionNode));
-            writeLock.unlock();
-        }
-    }
-    /**
-     * updates the {@link #runningExec} based on {@link #running}
-     */
-    private void updateRunningExec() {
-        Set<BlankNodeOrIRI> runningExec = new HashSet<BlankNodeOrIRI>(running.size());
-        for(BlankNodeOrIRI node : running){
-            runningExec.add(getExecution(node));
-        }
-        this.runningExec = Collections.unmodifiableSet(runningExec);
-    }
-    /**
-     * updates the {@link #runningExec} based on {@link #running}
-     */
-    private void updateCompletedExec() {
-        Set<BlankNodeOrIRI> completedExec = new HashSet<BlankNodeOrIRI>(completed.size());
-        for(BlankNodeOrIRI node : completed){
-            completedExec.add(getExecution(node));
-        }
-        this.completedExec = Collections.unmodifiableSet(completedExec);
-    }
-    /**
-     * updated the {@link #executable} and also checks for {@link #finished}<p>
-     * Assumed to be called within a write lock!
-     */
-    private void checkExecutable(){
-        Set<BlankNodeOrIRI> executeableNodes = 
-                ExecutionPlanHelper.getExecutable(executionPlan, completed);
-        //a Chain finishes if no engine is running and no more nodes are executable
-        if(!ExecutionMetadata.STATUS_FAILED.equals(
-                getReference(executionMetadata, chainExecutionNode, STATUS))) { 
-            executeableNodes.removeAll(running);
-            if(log.isDebugEnabled()){
-                Collection<String> engines = new ArrayList<String>(executeableNodes.size());
-                for(BlankNodeOrIRI node : executeableNodes){
-                    engines.add(getEngine(executionPlan, node));
-                }
-                log.trace("MARK {} as executeable",engines);
+        int index = getIndex(execution);
+        String engine = plan.getEngine(index);
+        log.trace("++ n: {}: {}","setRunning",engine);
+        //NOTE: increase the running count BEFORE changing the state. Otherwise
+        //      other threads might think that this job is finished.
+        runningCount.incrementAndGet();
+        if(states.compareAndSet(index, STATE_EXECUTABLE, STATE_RUNNING)){
+            executable.remove(execution);
+            log.trace("Started Execution of '{}' for ContentItem {} "
+                     + "(chain: {}, node: {}, optional {})",
+                new Object[] {engine, contentItem.getUri().getUnicodeString(), chain,
+                              plan.getNode(index), plan.isOptional(index)});
+            //set the status of the execution to be in progress
+            metadataLock.lock();
+            try {
+                setExecutionInProgress(executionMetadata, execution);
+            } finally {
+                metadataLock.unlock();
             }
-            //we need to get the em:Executables for the ep:ExecutionNodes ...
-            if(executeableNodes.isEmpty()){
-                this.executable = Collections.emptySet();
-            } else if( executeableNodes.size() == 1){
-                this.executable = Collections.singleton(getExecution(executeableNodes.iterator().next()));
-            } else {
-                Set<BlankNodeOrIRI> executable = new HashSet<BlankNodeOrIRI>(executeableNodes.size());
-                for(BlankNodeOrIRI exeutableNode : executeableNodes){
-                    executable.add(getExecution(exeutableNode));
-                }
-                this.executable = Collections.unmodifiableSet(executable);
-            }
-        } else {
-            //do not mark engines as executeable if chain already failed
-            this.executable = Collections.emptySet();
+            log.trace("<< n: {}: {}","setRunning",engine);
+            return true;
         }
-        if(isFinished() && !isFailed()){
-            //mark the execution process as completed
-            setExecutionCompleted(executionMetadata, chainExecutionNode, null);
+        runningCount.decrementAndGet();
+        int state = states.get(index);
+        if (state == STATE_COMPLETED) {
+            String message = "Unable to set state of ExectionNode '" + plan.getNode(index) + "'(chain '"
+                             + chain + "' | contentItem '" + contentItem.getUri()
+                             + "') to running, because"
+                             + "it is already marked as completed. This indicates "
+                             + "an Bug in the implementation of the JobManager "
+                             + "used to execute the ExecutionPlan (chain state: " + "completed "
+                             + getCompleted() + " | running " + getRunning() + ")!";
+            log.error(message);
+            throw new IllegalStateException(message);
+        } else if (state == STATE_PENDING) {
+            // TODO maybe define an own Exception for such cases
+            String message = "Unable to set state of ExectionNode '" + plan.getNode(index) + "' (chain '"
+                             + chain + "' | contentItem '" + contentItem.getUri()
+                             + "') to running, because " + "some of its depended nodes are not marked "
+                             + "completed yet. This indicates an Bug in the "
+                             + "implementation of the JobManager used to execute "
+                             + "the ExecutionPlan (pending dependencies=" + pendingDependencies.get(index)
+                             + "| chain.completed " + getCompleted() 
+                             + " | chain.running " + getRunning() + ")!";
+            log.error(message);
+            throw new IllegalStateException(message);
+        } else { //already running
+            log.warn("Execution of Engine '{}' for ContentItem {} already "
+                     + "marked as running(chain: {}, node: {}, optional {})."
+                     + " -> call ignored", 
+                     new Object[] {engine, contentItem.getUri().getUnicodeString(),
+                                   chain, plan.getNode(index), plan.isOptional(index)});
+            return false;
         }
     }
     /**
      * Getter for the executable nodes.
-     * @return the nodes that can be executed next based on the completed and
-     * currently running engines.
+     * @return a snapshot of the em:Executions that can be executed next based 
+     * on the completed and currently running engines. An empty set if this
+     * job has {@link #isFailed() failed}.
      */
     public Set<BlankNodeOrIRI> getExecutable(){
-        log.trace("++ r: {}","getExecutable");
-        readLock.lock();
-        log.trace(">> r: {}","getExecutable");
-        try {
-            return executable;
-        } finally {
-            log.trace("<< r: {}:{}","getExecutable",executable);
-            readLock.unlock();  
+        if(failed || executable.isEmpty()){
+            return Collections.emptySet();
+        } else {
+            return Collections.unmodifiableSet(new HashSet<BlankNodeOrIRI>(executable));
         }
     }
     /**
@@ -586,15 +684,32 @@ public class EnhancementJob {
      * @return if this enhancement job is finished.
      */
     public boolean isFinished(){
-        log.trace("++ r: {}","isFinished");
-        readLock.lock();
-        try {
-            log.trace(">> r: {}","isFinished");
-            return running.isEmpty() && // wait for running engine (regard if failed or not)
-                    (executable.isEmpty() || isFailed()); //no more engines or already failed
-        } finally {
-            log.trace("<< r: {}","isFinished");
-            readLock.unlock();
+        return runningCount.get() == 0 && // wait for running engine (regard if failed or not)
+                (failed || executable.isEmpty()); //no more engines or already failed
+    }
+    /**
+     * Marks this job as finished if it {@link #isFinished()}. If not 
+     * {@link #isFailed() failed} this also sets the state of the 
+     * em:ChainExecution to completed.<p>
+     * This method will return <code>true</code> exactly once. This allows
+     * components that concurrently process executions to decide which one
+     * finishes the enhancement job.
+     * @return <code>true</code> if this call marked the job as finished
+     */
+    public boolean markFinished(){
+        if(isFinished() && finished.compareAndSet(false, true)){
+            if(!failed){
+                //mark the execution process as completed
+                metadataLock.lock();
+                try {
+                    setExecutionCompleted(executionMetadata, chainExecutionNode, null);
+                } finally {
+                    metadataLock.unlock();
+                }
+            }
+            return true;
+        } else {
+            return false;
         }
     }
 
@@ -602,28 +717,28 @@ public class EnhancementJob {
         if(execution == null) {
             throw new IllegalArgumentException("The parsed em:Execution instance MUST NOT be NULL!");
         }
-        BlankNodeOrIRI executionNode = getExecutionNode(execution);
-        final boolean optional = isOptional(executionPlan, executionNode);
-        final String engineName = getEngine(executionPlan, executionNode);
-        log.trace("++ w: {}: {}","setFailed",ExecutionPlanHelper.getEngine(executionPlan, executionNode));
-        writeLock.lock();
+        int index = getIndex(execution);
+        final boolean optional = plan.isOptional(index);
+        final String engineName = plan.getEngine(index);
+        log.trace("++ n: {}: {}","setFailed",engineName);
+        StringBuilder message = new StringBuilder();
+        message.append(String.format("Unable to process ContentItem '%s' with " +
+        		"Enhancement Engine '%s' because the engine ", 
+        		contentItem.getUri(), engineName));
+        if(engine == null){
+            message.append("is currently not active");
+        } else {
+            message.append(String.format("was unable to process the content " +
+            		"(Engine class: %s)",engine.getClass().getName()));
+        }
+        if(exception != null){
+            message.append("(Reason: ").append(exception.getMessage()).append(')');
+        }
+        message.append('!');
+        //NOTE: update the metadata and the failed state before the state of
+        //      the node as other threads will finish the job based on the state
+        metadataLock.lock();
         try {
-            log.trace(">> w: {}: {}","setFailed",ExecutionPlanHelper.getEngine(executionPlan, executionNode));
-            StringBuilder message = new StringBuilder();
-            message.append(String.format("Unable to process ContentItem '%s' with " +
-            		"Enhancement Engine '%s' because the engine ", 
-            		contentItem.getUri(), engineName));
-            if(engine == null){
-                message.append("is currently not active");
-            } else {
-                message.append(String.format("was unable to process the content " +
-                		"(Engine class: %s)",engine.getClass().getName()));
-            }
-            if(exception != null){
-                message.append("(Reason: ").append(exception.getMessage()).append(')');
-            }
-            message.append('!');
-            setNodeCompleted(executionNode); //update the internal state
             //set this execution to failed
             setExecutionFaild(executionMetadata, execution, message.toString());
             //if not optional and the chain is not yet failed
@@ -635,12 +750,13 @@ public class EnhancementJob {
                 setExecutionFaild(executionMetadata, chainExecutionNode, chainMessage);
                 error = exception; //this member stores the exception to allow
                 //re-throwing by the EnhancementJobManager.
+                failed = true;
             }
         } finally {
-            log.trace("<< w: {}: {}","setFailed",ExecutionPlanHelper.getEngine(executionPlan, executionNode));
-            writeLock.unlock();
+            metadataLock.unlock();
         }
-
+        setNodeCompleted(index); //update the internal state
+        log.trace("<< n: {}: {}","setFailed",engineName);
     }
     /**
      * Getter for the failed state. Note that EnhancementJobs might be already
@@ -648,15 +764,7 @@ public class EnhancementJob {
      * @return if the EnhancementJob has failed or not.
      */
     public boolean isFailed() {
-        log.trace("++ r: {}","isFailed");
-        readLock.lock();
-        try {
-            log.trace(">> r: {}","isFailed");
-            return isExecutionFailed(executionMetadata, chainExecutionNode);
-        } finally {
-            log.trace("<< r: {}","isFailed");
-            readLock.unlock();
-        }
+        return failed;
     }
 // NOTE: use default implementations of hashCode and equals for now as we need
 //       to support the concurrent enhancement of ContentItems with the same
@@ -685,12 +793,7 @@ public class EnhancementJob {
         return error;
     }
     public String getErrorMessage() {
-        readLock.lock();
-        try {
-            return getString(executionMetadata, chainExecutionNode, ExecutionMetadata.STATUS_MESSAGE);
-        } finally {
-            readLock.unlock();
-        }
+        return getString(executionMetadata, chainExecutionNode, ExecutionMetadata.STATUS_MESSAGE);
     }
     /**
      * Getter for the ExecutionMetadata.
@@ -706,12 +809,21 @@ public class EnhancementJob {
      * {@link ExecutionMetadata#STATUS_IN_PROGRESS}
      */
     public void startProcessing() {
-        writeLock.lock();
+        metadataLock.lock();
         try {
             setExecutionInProgress(executionMetadata, chainExecutionNode);
         } finally {
-            writeLock.unlock();
+            metadataLock.unlock();
+        }
+    }
+    /**
+     * Getter for the engine names of the parsed em:Executions (used for logging)
+     */
+    private Set<String> getEngines(Set<BlankNodeOrIRI> executions){
+        Set<String> engines = new HashSet<String>(executions.size());
+        for(BlankNodeOrIRI execution : executions){
+            engines.add(getEngine(execution));
         }
-        
+        return engines;
     }
 }
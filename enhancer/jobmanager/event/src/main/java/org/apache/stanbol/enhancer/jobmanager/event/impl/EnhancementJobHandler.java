@@ -19,7 +19,6 @@ package org.apache.stanbol.enhancer.jobmanager.event.impl;
 import static org.apache.stanbol.enhancer.jobmanager.event.Constants.PROPERTY_EXECUTION;
 import static org.apache.stanbol.enhancer.jobmanager.event.Constants.PROPERTY_JOB_MANAGER;
 import static org.apache.stanbol.enhancer.jobmanager.event.Constants.TOPIC_JOB_MANAGER;
-import static org.apache.stanbol.enhancer.servicesapi.helper.ExecutionPlanHelper.getEngine;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -30,6 +29,7 @@ import java.util.Hashtable;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
@@ -56,6 +56,11 @@ public class EnhancementJobHandler implements EventHandler {
 
     private EnhancementEngineManager engineManager;
     private EventAdmin eventAdmin;
+    /**
+     * If not <code>null</code> ExecutionNodes are executed by this executor
+     * instead of sending events to the {@link EventAdmin}
+     */
+    private ExecutorService executor;
 
     /*
      * NOTE on debug level Loggings
@@ -67,6 +72,10 @@ public class EnhancementJobHandler implements EventHandler {
      *  n: ... no lock
      *  r: ... read lock
      *  w: ... write lock
+     *  
+     *  NOTE: the state of EnhancementJobs is tracked without locks. The write
+     *        lock of the ContentItem is only acquired for the execution
+     *        of synchronous EnhancementEngines.
      */
     private static Logger log = LoggerFactory.getLogger(EnhancementJobHandler.class);
     /**
@@ -80,6 +89,21 @@ public class EnhancementJobHandler implements EventHandler {
     
     public EnhancementJobHandler(EventAdmin eventAdmin, 
                                  EnhancementEngineManager engineManager) {
+        this(eventAdmin, engineManager, null);
+    }
+    /**
+     * Creates an EnhancementJobHandler that uses the parsed executor to
+     * execute the ExecutionNodes of {@link EnhancementJob}s.
+     * @param eventAdmin the event admin
+     * @param engineManager the engine manager
+     * @param executor the executor used to execute ExecutionNodes or 
+     * <code>null</code> to send {@link #TOPIC_JOB_MANAGER} events to the 
+     * {@link EventAdmin} instead. The lifecycle of the executor is managed
+     * by the caller.
+     */
+    public EnhancementJobHandler(EventAdmin eventAdmin, 
+                                 EnhancementEngineManager engineManager,
+                                 ExecutorService executor) {
         if(eventAdmin == null){
             throw new IllegalArgumentException("The parsed EventAdmin service MUST NOT be NULL!");
         }
@@ -88,6 +112,7 @@ public class EnhancementJobHandler implements EventHandler {
         }
         this.eventAdmin = eventAdmin;
         this.engineManager = engineManager;
+        this.executor = executor;
         processingLock.writeLock().lock();
         try {
             processingJobs = new LinkedHashMap<EnhancementJob,EnhancementJobObserver>();
@@ -106,17 +131,20 @@ public class EnhancementJobHandler implements EventHandler {
      */
     public void close(){
         log.info("deactivate {}",getClass().getName());
+        Collection<EnhancementJobObserver> observers;
         processingLock.writeLock().lock();
         try {
-            for(Object o : processingJobs.values()){
-                synchronized (o) {
-                    o.notifyAll();
-                }
-            }
+            observers = processingJobs.values();
             processingJobs = null;
         } finally {
             processingLock.writeLock().unlock();
         }
+        //release all waiting components. As the jobs are not finished they
+        //will fail with an exception
+        for(EnhancementJobObserver observer : observers){
+            observer.release();
+            observer.notifyListener();
+        }
         observerDaemon = null;
     }
     
@@ -140,7 +168,21 @@ public class EnhancementJobHandler implements EventHandler {
      * {@link EnhancementJob#isFinished()} or this instance is deactivated
      */
     public EnhancementJobObserver register(EnhancementJob enhancementJob){
+        return register(enhancementJob, null);
+    }
+    /**
+     * Registers an EnhancementJob and will start the enhancement process.
+     * The parsed listener is notified as soon as the job has finished or 
+     * this handler is closed. In contrast to waiting for the returned
+     * {@link EnhancementJobObserver} this does not block the calling thread. 
+     * @param enhancementJob the enhancement job to register
+     * @param listener the listener or <code>null</code> if none
+     * @return the observer for the registered job
+     */
+    public EnhancementJobObserver register(EnhancementJob enhancementJob, 
+                                           EnhancementJobListener listener){
         final boolean init;
+        EnhancementJobObserver finished = null;
         EnhancementJobObserver observer;
         processingLock.writeLock().lock();
         try {
@@ -149,7 +191,7 @@ public class EnhancementJobHandler implements EventHandler {
             }
             observer = processingJobs.get(enhancementJob);
             if(observer == null){
-                observer = new EnhancementJobObserver(enhancementJob);
+                observer = new EnhancementJobObserver(enhancementJob, listener);
                 if(log.isDebugEnabled()){
                     logJobInfo(log, enhancementJob, "Add EnhancementJob:",log.isTraceEnabled());
                 }
@@ -166,21 +208,20 @@ public class EnhancementJobHandler implements EventHandler {
         if(init){
             observer.acquire();
             enhancementJob.startProcessing();
-            log.trace("++ w: {}","init execution");
-            enhancementJob.getLock().writeLock().lock();
-            try {
-                log.trace(">> w: {}","init execution");
-                if(!executeNextNodes(enhancementJob)){
+            log.trace(">> n: {}","init execution");
+            if(!executeNextNodes(enhancementJob)){
+                if(!enhancementJob.markFinished()){
                     String message = "Unable to start Execution of "+enhancementJob.getContentItem().getUri();
                     log.warn(message);
                     logJobInfo(log, enhancementJob, null, true);
                     log.warn("finishing job ...");
-                    finish(enhancementJob);
-                }
-            } finally {
-                log.trace("<< w: {}","init execution");
-                enhancementJob.getLock().writeLock().unlock();
+                } //else empty execution plan
+                finished = finish(enhancementJob);
             }
+            log.trace("<< n: {}","init execution");
+        }
+        if(finished != null){
+            finished.notifyListener();
         }
         return observer;
     }
@@ -193,6 +234,17 @@ public class EnhancementJobHandler implements EventHandler {
             log.warn("Unable to process EnhancementEvent where EnhancementJob " +
             		"{} or Execution node {} is null -> ignore",job,execution);
         }
+        execute(job, execution);
+    }
+    /**
+     * Executes the parsed em:Execution of the parsed job and triggers the
+     * execution of the next nodes. Called by {@link #handleEvent(Event)} or
+     * by the {@link #executor} (if present).
+     * @param job the enhancement job
+     * @param execution the execution
+     */
+    private void execute(EnhancementJob job, BlankNodeOrIRI execution) {
+        EnhancementJobObserver finished = null;
         try {
             processEvent(job, execution);
         } catch (Throwable t) {
@@ -204,33 +256,26 @@ public class EnhancementJobHandler implements EventHandler {
            log.error(message,t);
         }
         //(2) trigger the next actions
-        log.trace("++ w: {}","check for next Executions");
-        job.getLock().writeLock().lock();
-        log.trace(">> w: {}","check for next Executions");
-        try {
-            if(job.isFinished()){
-                finish(job);
-            } else if(!job.isFailed()){
-                if(!executeNextNodes(job) && job.getRunning().isEmpty()){
-                    log.warn("Unexpected state in the Execution of ContentItem {}:"
-                        + " Job is not finished AND no executions are running AND"
-                        + " no further execution could be started! -> finishing"
-                        + " this job :(");
-                    finish(job);
-                } //else execution started of other jobs are running
-            } else {
-                if(log.isInfoEnabled()){
-                    Collection<String> running = new ArrayList<String>(3);
-                    for(BlankNodeOrIRI runningNode : job.getRunning()){
-                        running.add(getEngine(job.getExecutionPlan(), job.getExecutionNode(runningNode)));
-                    }
-                    log.info("Job {} failed, but {} still running!",
-                        job.getContentItem().getUri(),running);
+        log.trace(">> n: {}","check for next Executions");
+        if(job.markFinished()){ //only true for a single thread
+            finished = finish(job);
+        } else if(!job.isFailed()){
+            //NOTE: returns false if the executable nodes where already started
+            //      by an other thread
+            executeNextNodes(job);
+        } else {
+            if(log.isInfoEnabled()){
+                Collection<String> running = new ArrayList<String>(3);
+                for(BlankNodeOrIRI runningNode : job.getRunning()){
+                    running.add(job.getEngine(runningNode));
                 }
+                log.info("Job {} failed, but {} still running!",
+                    job.getContentItem().getUri(),running);
             }
-        } finally {
-            log.trace("<< w: {}","check for next Executions");
-            job.getLock().writeLock().unlock();
+        }
+        log.trace("<< n: {}","check for next Executions");
+        if(finished != null){
+            finished.notifyListener();
         }
     }
     /**
@@ -238,8 +283,7 @@ public class EnhancementJobHandler implements EventHandler {
      * @param execution
      */
     private void processEvent(EnhancementJob job, BlankNodeOrIRI execution) {
-        String engineName = getEngine(job.getExecutionPlan(), 
-            job.getExecutionNode(execution));
+        String engineName = job.getEngine(execution);
         //(1) execute the parsed ExecutionNode
         EnhancementEngine engine = engineManager.getEngine(engineName);
         if(engine != null){
@@ -300,10 +344,13 @@ public class EnhancementJobHandler implements EventHandler {
     }
     /**
      * Removes a finished job from {@link #processingJobs} and notifies
-     * all waiting components
+     * all waiting components. {@link EnhancementJobListener}s are NOT notified
+     * by this method.
      * @param job the finished job
+     * @return the observer of the finished job or <code>null</code> if the
+     * job was not registered
      */
-    private void finish(EnhancementJob job){
+    private EnhancementJobObserver finish(EnhancementJob job){
         processingLock.writeLock().lock();
         EnhancementJobObserver observer;
         try {
@@ -327,7 +374,8 @@ public class EnhancementJobHandler implements EventHandler {
             log.warn("EnhancementJob for ContentItem {} is not " +
                     "registered with {}. Will not send notification!",
                     job.getContentItem().getUri(), getClass().getName());
-        }            
+        }
+        return observer;
     }
     /**
      * triggers the execution of the next nodes or if 
@@ -336,23 +384,32 @@ public class EnhancementJobHandler implements EventHandler {
      * @param job the enhancement job to process
      * @return if an Execution event was sent
      */
-    protected boolean executeNextNodes(EnhancementJob job) {
+    protected boolean executeNextNodes(final EnhancementJob job) {
         //getExecutable returns an snapshot so we do not need to lock
         boolean startedExecution = false;
-        for(BlankNodeOrIRI executable : job.getExecutable()){
+        for(final BlankNodeOrIRI executable : job.getExecutable()){
             if(log.isTraceEnabled()){
-                log.trace("PREPARE execution of Engine {}",
-                    getEngine(job.getExecutionPlan(), job.getExecutionNode(executable)));
+                log.trace("PREPARE execution of Engine {}", job.getEngine(executable));
+            }
+            if(!job.setRunning(executable)){
+                continue; //already started by an other thread
             }
-            Dictionary<String,Object> properties = new Hashtable<String,Object>();
-            properties.put(PROPERTY_JOB_MANAGER, job);
-            properties.put(PROPERTY_EXECUTION, executable);
-            job.setRunning(executable);
             if(log.isTraceEnabled()){
-                log.trace("SHEDULE execution of Engine {}",
-                    getEngine(job.getExecutionPlan(), job.getExecutionNode(executable)));
+                log.trace("SHEDULE execution of Engine {}", job.getEngine(executable));
+            }
+            if(executor != null){
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        execute(job, executable);
+                    }
+                });
+            } else {
+                Dictionary<String,Object> properties = new Hashtable<String,Object>();
+                properties.put(PROPERTY_JOB_MANAGER, job);
+                properties.put(PROPERTY_EXECUTION, executable);
+                eventAdmin.postEvent(new Event(TOPIC_JOB_MANAGER,properties));
             }
-            eventAdmin.postEvent(new Event(TOPIC_JOB_MANAGER,properties));
             startedExecution = true;
         }
         return startedExecution;
@@ -425,16 +482,13 @@ public class EnhancementJobHandler implements EventHandler {
         if(logExecutions){
             log.info("  executions:");
             for(BlankNodeOrIRI completedExec : job.getCompleted()){
-                log.info("    - {} completed",getEngine(job.getExecutionMetadata(), 
-                    job.getExecutionNode(completedExec)));
+                log.info("    - {} completed",job.getEngine(completedExec));
             }
             for(BlankNodeOrIRI runningExec : job.getRunning()){
-                log.info("    - {} running",getEngine(job.getExecutionMetadata(), 
-                    job.getExecutionNode(runningExec)));
+                log.info("    - {} running",job.getEngine(runningExec));
             }
             for(BlankNodeOrIRI executeable : job.getExecutable()){
-                log.info("    - {} executeable",getEngine(job.getExecutionMetadata(), 
-                    job.getExecutionNode(executeable)));
+                log.info("    - {} executeable",job.getEngine(executeable));
             }
         }
         if(job.getErrorMessage() != null){
@@ -444,18 +498,49 @@ public class EnhancementJobHandler implements EventHandler {
             log.info("Reported Exception:",job.getError());
         }
     }
+    /**
+     * Listener that gets notified as soon as a registered {@link EnhancementJob}
+     * has finished or the {@link EnhancementJobHandler} was closed.
+     * Listeners are called outside of the write lock of the job.
+     */
+    public interface EnhancementJobListener {
+        /**
+         * Called as soon as the job has finished. Implementations need to
+         * check {@link EnhancementJob#isFinished()} as this is also called
+         * if the {@link EnhancementJobHandler} is closed.
+         * @param job the enhancement job
+         */
+        void finished(EnhancementJob job);
+    }
+    
     public final class EnhancementJobObserver{
         
         private static final int MIN_WAIT_TIME = 500;
         private final EnhancementJob enhancementJob;
         private final Semaphore semaphore;
+        private final EnhancementJobListener listener;
         
-        private EnhancementJobObserver(EnhancementJob job){
+        private EnhancementJobObserver(EnhancementJob job, EnhancementJobListener listener){
             if(job == null){
                 throw new IllegalArgumentException("The parsed EnhancementJob MUST NOT be NULL!");
             }
             this.enhancementJob = job;
             this.semaphore = new Semaphore(1);
+            this.listener = listener;
+        }
+        /**
+         * Notifies the {@link EnhancementJobListener} (if present). MUST BE
+         * called without holding the write lock of the job.
+         */
+        protected void notifyListener() {
+            if(listener != null){
+                try {
+                    listener.finished(enhancementJob);
+                } catch (RuntimeException e) {
+                    log.warn("Exception while notifying EnhancementJobListener for "
+                        + enhancementJob + "!",e);
+                }
+            }
         }
 
         protected void acquire() {
@@ -472,12 +557,7 @@ public class EnhancementJobHandler implements EventHandler {
         }
 
         public boolean hasCompleted() {
-            enhancementJob.getLock().readLock().lock();
-            try {
-                return enhancementJob.isFinished();
-            } finally {
-                enhancementJob.getLock().readLock().unlock();
-            }
+            return enhancementJob.isFinished();
         }
 
         public boolean waitForCompletion(int maxEnhancementJobWaitTime) {
@@ -543,13 +623,7 @@ public class EnhancementJobHandler implements EventHandler {
                     observerLog.debug(" -- {} active Enhancement Jobs",jobs.size());
                     if(observerLog.isDebugEnabled()){
                         for(EnhancementJob job : jobs){
-                            Lock jobLock = job.getLock().readLock();
-                            jobLock.lock();
-                            try {
-                                logJobInfo(observerLog,job,null,true);
-                            } finally {
-                                jobLock.unlock();
-                            }
+                            logJobInfo(observerLog,job,null,true);
                         }
                     }
                 } else {
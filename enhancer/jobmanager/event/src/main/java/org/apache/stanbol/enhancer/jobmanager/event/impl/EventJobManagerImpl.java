@@ -25,6 +25,18 @@ import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.clerezza.commons.rdf.ImmutableGraph;
 import org.apache.clerezza.commons.rdf.Triple;
@@ -38,7 +50,9 @@ import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.apache.stanbol.enhancer.jobmanager.event.impl.EnhancementJobHandler.EnhancementJobListener;
 import org.apache.stanbol.enhancer.jobmanager.event.impl.EnhancementJobHandler.EnhancementJobObserver;
+import org.apache.stanbol.enhancer.servicesapi.AsyncEnhancementJobManager;
 import org.apache.stanbol.enhancer.servicesapi.Chain;
 import org.apache.stanbol.enhancer.servicesapi.ChainException;
 import org.apache.stanbol.enhancer.servicesapi.ChainManager;
@@ -63,9 +77,10 @@ import org.slf4j.LoggerFactory;
 @Properties(value={
     //register with a ranking lower than 0 to allow easy overriding by specific
     @Property(name=Constants.SERVICE_RANKING,intValue=EventJobManagerImpl.DEFAULT_SERVICE_RANKING),
-    @Property(name=EventJobManagerImpl.MAX_ENHANCEMENT_JOB_WAIT_TIME,intValue=EventJobManagerImpl.DEFAULT_MAX_ENHANCEMENT_JOB_WAIT_TIME)
+    @Property(name=EventJobManagerImpl.MAX_ENHANCEMENT_JOB_WAIT_TIME,intValue=EventJobManagerImpl.DEFAULT_MAX_ENHANCEMENT_JOB_WAIT_TIME),
+    @Property(name=EventJobManagerImpl.EXECUTION_THREAD_POOL_SIZE,intValue=EventJobManagerImpl.DEFAULT_EXECUTION_THREAD_POOL_SIZE)
 })
-public class EventJobManagerImpl implements EnhancementJobManager {
+public class EventJobManagerImpl implements AsyncEnhancementJobManager {
 
     private final Logger log = LoggerFactory.getLogger(EventJobManagerImpl.class);
     /**
@@ -83,6 +98,19 @@ public class EventJobManagerImpl implements EnhancementJobManager {
      */
     public static final int DEFAULT_MAX_ENHANCEMENT_JOB_WAIT_TIME = 60 * 1000;
     
+    /**
+     * The number of threads used to execute EnhancementEngines. If 
+     * <code>&lt;= 0</code> ExecutionNodes are executed by sending events to 
+     * the {@link EventAdmin} (and therefore by the thread pool of the
+     * EventAdmin implementation).
+     */
+    public static final String EXECUTION_THREAD_POOL_SIZE = "stanbol.enhancer.jobmanager.event.threadPoolSize";
+    
+    /**
+     * By default the {@link EventAdmin} is used to execute EnhancementEngines
+     */
+    public static final int DEFAULT_EXECUTION_THREAD_POOL_SIZE = 0;
+    
     @Reference
     protected ChainManager chainManager;
     @Reference
@@ -101,6 +129,18 @@ public class EventJobManagerImpl implements EnhancementJobManager {
     private ServiceRegistration jobHandlerRegistration;
     private EnhancementJobHandler jobHandler;
     private int maxEnhancementJobWaitTime = DEFAULT_MAX_ENHANCEMENT_JOB_WAIT_TIME;
+    /**
+     * The bounded executor used to execute ExecutionNodes or <code>null</code>
+     * if the {@link EventAdmin} is used
+     */
+    private ExecutorService executor;
+    /**
+     * Used to time out asynchronously processed {@link EnhancementJob}s.
+     * Timeouts of completed jobs are canceled and {@link 
+     * ScheduledThreadPoolExecutor#purge() purged} from the queue as they
+     * would otherwise keep the ContentItem reachable until they expire
+     */
+    private volatile ScheduledThreadPoolExecutor timeoutService;
     
     
     /**
@@ -112,7 +152,32 @@ public class EventJobManagerImpl implements EnhancementJobManager {
     @Activate
     protected void activate(ComponentContext ctx){
         log.info("activate {}",getClass().getName());
-        jobHandler = new EnhancementJobHandler(eventAdmin,engineManager);
+        Object poolSize = ctx.getProperties().get(EXECUTION_THREAD_POOL_SIZE);
+        int threadPoolSize = DEFAULT_EXECUTION_THREAD_POOL_SIZE;
+        if(poolSize instanceof Number){
+            threadPoolSize = ((Number)poolSize).intValue();
+        } else if(poolSize != null){
+            try {
+                threadPoolSize = Integer.parseInt(poolSize.toString());
+            } catch (NumberFormatException e) {
+                log.warn("Unable to parse integer value for property '{}' from "
+                    + "configured value '{}'! Use default: {}", new Object[]{
+                            EXECUTION_THREAD_POOL_SIZE, poolSize, 
+                            DEFAULT_EXECUTION_THREAD_POOL_SIZE});
+            }
+        }
+        if(threadPoolSize > 0){
+            log.info(" ... use thread pool with {} threads to execute EnhancementEngines",
+                threadPoolSize);
+            executor = Executors.newFixedThreadPool(threadPoolSize, 
+                new NamedDaemonThreadFactory("Event Job Manager Execution Thread"));
+        } else {
+            log.info(" ... use EventAdmin to execute EnhancementEngines");
+            executor = null;
+        }
+        timeoutService = new ScheduledThreadPoolExecutor(1, 
+            new NamedDaemonThreadFactory("Event Job Manager Timeout Thread"));
+        jobHandler = new EnhancementJobHandler(eventAdmin,engineManager,executor);
         Dictionary<String,Object> properties = new Hashtable<String,Object>();
         properties.put(org.osgi.service.event.EventConstants.EVENT_TOPIC, TOPIC_JOB_MANAGER);
         jobHandlerRegistration = ctx.getBundleContext().registerService(
@@ -138,6 +203,12 @@ public class EventJobManagerImpl implements EnhancementJobManager {
         jobHandler.close();
         jobHandlerRegistration.unregister();
         jobHandlerRegistration = null;
+        if(executor != null){
+            executor.shutdown();
+            executor = null;
+        }
+        timeoutService.shutdownNow();
+        timeoutService = null;
     }
     
     @Override
@@ -153,6 +224,39 @@ public class EventJobManagerImpl implements EnhancementJobManager {
 
     @Override
     public void enhanceContent(ContentItem ci, Chain chain) throws EnhancementException {
+        long start = System.currentTimeMillis();
+        EnhancementJob job = createJob(ci, chain);
+        //start the execution
+        //wait for the results
+        EnhancementJobObserver observer = jobHandler.register(job);
+        //now wait for the execution to finish for the configured maximum time
+        boolean completed = observer.waitForCompletion(maxEnhancementJobWaitTime);
+        if(!completed){ //throw timeout exception
+            throw createTimeoutException(job, start);
+        }
+        checkCompletedJob(job, chain, start);
+    }
+    
+    @Override
+    public Future<ContentItem> enhanceContentAsync(ContentItem ci, Chain chain,
+            EnhancementCallback callback) throws EnhancementException {
+        long start = System.currentTimeMillis();
+        EnhancementJob job = createJob(ci, chain);
+        final EnhancementJobFuture future = new EnhancementJobFuture(job, chain, start, callback);
+        future.setTimeout(timeoutService.schedule(new Runnable() {
+            @Override
+            public void run() {
+                future.timeout();
+            }
+        }, maxEnhancementJobWaitTime, TimeUnit.MILLISECONDS));
+        jobHandler.register(job, future);
+        return future;
+    }
+    /**
+     * Validates the parameter and creates the {@link EnhancementJob} for the
+     * parsed content item and chain
+     */
+    private EnhancementJob createJob(ContentItem ci, Chain chain) throws ChainException {
         if(ci == null) {
             throw new IllegalArgumentException("The parsed contentItem MUST NOT be NULL!");
         }
@@ -160,27 +264,39 @@ public class EventJobManagerImpl implements EnhancementJobManager {
             throw new IllegalArgumentException("Unable to enhance ContentItem '"+ci.getUri()+
                 "' because NULL was passed as enhancement chain");
         }
-        long start = System.currentTimeMillis();
         enhancementJobManagerLog.debug(">> enhance {} with chain {}", ci.getUri(), chain.getName());
         boolean isDefaultChain = chain.equals(chainManager.getDefault());
-        EnhancementJob job = new EnhancementJob(ci, chain.getName(), chain.getExecutionPlan(),isDefaultChain);
-        //start the execution
-        //wait for the results
-        EnhancementJobObserver observer = jobHandler.register(job);
-        //now wait for the execution to finish for the configured maximum time
-        boolean completed = observer.waitForCompletion(maxEnhancementJobWaitTime);
-        if(!completed){ //throw timeout exception
-            StringBuilder sb = new StringBuilder("Status:\n");
-            ExecutionMetadata em = ExecutionMetadata.parseFrom(job.getExecutionMetadata(), ci.getUri());
-            for(Entry<String,Execution> ex : em.getEngineExecutions().entrySet()){
-                sb.append("  -").append(ex.getKey()).append(": ").append(ex.getValue().getStatus()).append('\n');
-            }
-            throw new ChainException("Execution timeout after "
-                    +((System.currentTimeMillis()-start)/1000f)+"sec (timeout:"+(maxEnhancementJobWaitTime/1000)
-                + "sec) for ContentItem "+ci.getUri()+"\n"+sb.toString()
-                + " \n To change the timeout change value of property '"+
-                    MAX_ENHANCEMENT_JOB_WAIT_TIME+"' for the service "+getClass());
+        return new EnhancementJob(ci, chain.getName(), 
+            ExecutionPlanHelper.getCompiledExecutionPlan(chain), isDefaultChain);
+    }
+    /**
+     * Creates the Exception thrown if the parsed job has not finished within
+     * the {@link #maxEnhancementJobWaitTime}
+     */
+    private ChainException createTimeoutException(EnhancementJob job, long start) {
+        ContentItem ci = job.getContentItem();
+        StringBuilder sb = new StringBuilder("Status:\n");
+        ExecutionMetadata em = ExecutionMetadata.parseFrom(job.getExecutionMetadata(), ci.getUri());
+        for(Entry<String,Execution> ex : em.getEngineExecutions().entrySet()){
+            sb.append("  -").append(ex.getKey()).append(": ").append(ex.getValue().getStatus()).append('\n');
         }
+        return new ChainException("Execution timeout after "
+                +((System.currentTimeMillis()-start)/1000f)+"sec (timeout:"+(maxEnhancementJobWaitTime/1000)
+            + "sec) for ContentItem "+ci.getUri()+"\n"+sb.toString()
+            + " \n To change the timeout change value of property '"+
+                MAX_ENHANCEMENT_JOB_WAIT_TIME+"' for the service "+getClass());
+    }
+    /**
+     * Checks the state of an {@link EnhancementJob} after the 
+     * {@link EnhancementJobHandler} has signaled its completion and logs
+     * the execution.
+     * @param job the job
+     * @param chain the chain
+     * @param start the start time of the enhancement process
+     * @throws EnhancementException if the job has failed or is not finished
+     * @throws SecurityException if an engine has thrown a SecurityException
+     */
+    private void checkCompletedJob(EnhancementJob job, Chain chain, long start) throws EnhancementException {
         log.info("Execution of Chain {} {} after {}ms for ContentItem {}",
             new Object[]{ chain.getName(), job.isFailed() ? "failed" : "finished",
                     System.currentTimeMillis()-start,
@@ -282,4 +398,188 @@ public class EventJobManagerImpl implements EnhancementJobManager {
     }
 
 
+    /**
+     * {@link Future} for asynchronously processed {@link EnhancementJob}s. 
+     * Notified by the {@link EnhancementJobHandler} on completion and by the
+     * {@link EventJobManagerImpl#timeoutService} if the job does not finish
+     * within the {@link EventJobManagerImpl#maxEnhancementJobWaitTime}.
+     */
+    private final class EnhancementJobFuture implements Future<ContentItem>, EnhancementJobListener {
+        
+        private final EnhancementJob job;
+        private final Chain chain;
+        private final long start;
+        private final EnhancementCallback callback;
+        private final CountDownLatch latch = new CountDownLatch(1);
+        /**
+         * The exception of the enhancement process. Only valid after the
+         * {@link #latch} was released
+         */
+        private Exception exception;
+        /**
+         * If this future was canceled. Only valid after the {@link #latch}
+         * was released
+         */
+        private boolean canceled;
+        /**
+         * The scheduled {@link #timeout()}. Canceled on completion
+         */
+        private volatile ScheduledFuture<?> timeout;
+        
+        private EnhancementJobFuture(EnhancementJob job, Chain chain, long start, 
+                EnhancementCallback callback){
+            this.job = job;
+            this.chain = chain;
+            this.start = start;
+            this.callback = callback;
+        }
+        
+        @Override
+        public void finished(EnhancementJob job) {
+            Exception exception = null;
+            try {
+                checkCompletedJob(job, chain, start);
+            } catch (EnhancementException e) {
+                exception = e;
+            } catch (RuntimeException e) {
+                exception = e;
+            }
+            complete(exception, false);
+        }
+        /**
+         * Sets the scheduled {@link #timeout()} so that it can be canceled
+         * on completion
+         * @param timeout the scheduled timeout
+         */
+        protected void setTimeout(ScheduledFuture<?> timeout){
+            this.timeout = timeout;
+            if(isDone()){ //completed before the timeout was set
+                cancelTimeout();
+            }
+        }
+        /**
+         * Called by the {@link EventJobManagerImpl#timeoutService} after the
+         * {@link EventJobManagerImpl#maxEnhancementJobWaitTime}
+         */
+        protected void timeout(){
+            if(latch.getCount() > 0){
+                complete(createTimeoutException(job, start), false);
+            }
+        }
+        /**
+         * Completes this future and notifies the {@link EnhancementCallback}.
+         * Only the first call has an effect.
+         * @param exception the exception or <code>null</code> on success
+         * @param canceled if the future is completed because it was canceled
+         * @return <code>true</code> if this call has completed the future
+         */
+        private boolean complete(Exception exception, boolean canceled){
+            synchronized (latch) {
+                if(latch.getCount() < 1){
+                    return false; //already completed (e.g. timed out)
+                }
+                this.exception = exception;
+                this.canceled = canceled;
+                latch.countDown();
+            }
+            cancelTimeout();
+            if(callback != null){
+                try {
+                    if(exception == null){
+                        callback.completed(job.getContentItem());
+                    } else if(exception instanceof EnhancementException){
+                        callback.failed(job.getContentItem(), (EnhancementException)exception);
+                    } else {
+                        callback.failed(job.getContentItem(), new ChainException(
+                            exception.getMessage(),exception));
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Exception while notifying EnhancementCallback for "
+                        + job + "!", e);
+                }
+            }
+            return true;
+        }
+        /**
+         * Cancels the scheduled {@link #timeout()} (if any) and purges it
+         * from the queue of the {@link EventJobManagerImpl#timeoutService}
+         */
+        private void cancelTimeout() {
+            ScheduledFuture<?> timeout = this.timeout;
+            if(timeout != null && timeout.cancel(false)){
+                ScheduledThreadPoolExecutor timeoutService = EventJobManagerImpl.this.timeoutService;
+                if(timeoutService != null){
+                    timeoutService.purge();
+                }
+            }
+        }
+        /**
+         * Cancels waiting for the {@link EnhancementJob}. The 
+         * {@link EnhancementCallback} is notified with a {@link ChainException}.
+         * Already started EnhancementEngines are not interrupted, but the
+         * result of the job is ignored.
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return complete(new ChainException("Enhancement of ContentItem "
+                + job.getContentItem().getUri() + " was canceled"), true);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return isDone() && canceled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return latch.getCount() < 1;
+        }
+
+        @Override
+        public ContentItem get() throws InterruptedException, ExecutionException {
+            latch.await();
+            return getResult();
+        }
+
+        @Override
+        public ContentItem get(long timeout, TimeUnit unit) throws InterruptedException,
+                ExecutionException, TimeoutException {
+            if(!latch.await(timeout, unit)){
+                throw new TimeoutException("EnhancementJob for ContentItem "
+                    + job.getContentItem().getUri() +" has not finished within "
+                    + timeout + " " + unit);
+            }
+            return getResult();
+        }
+        
+        private ContentItem getResult() throws ExecutionException {
+            if(canceled){
+                throw new CancellationException(exception.getMessage());
+            } else if(exception != null){
+                throw new ExecutionException(exception);
+            } else {
+                return job.getContentItem();
+            }
+        }
+    }
+    /**
+     * {@link ThreadFactory} creating named daemon threads
+     */
+    private static final class NamedDaemonThreadFactory implements ThreadFactory {
+        
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+        
+        private NamedDaemonThreadFactory(String name){
+            this.name = name;
+        }
+        
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, name + " " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
 }
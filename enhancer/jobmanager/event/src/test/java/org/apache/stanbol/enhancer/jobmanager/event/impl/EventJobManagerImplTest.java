@@ -0,0 +1,278 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.enhancer.jobmanager.event.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.stanbol.enhancer.contentitem.inmemory.InMemoryContentItemFactory;
+import org.apache.stanbol.enhancer.servicesapi.AsyncEnhancementJobManager.EnhancementCallback;
+import org.apache.stanbol.enhancer.servicesapi.Chain;
+import org.apache.stanbol.enhancer.servicesapi.ChainException;
+import org.apache.stanbol.enhancer.servicesapi.ChainManager;
+import org.apache.stanbol.enhancer.servicesapi.ContentItem;
+import org.apache.stanbol.enhancer.servicesapi.ContentItemFactory;
+import org.apache.stanbol.enhancer.servicesapi.EngineException;
+import org.apache.stanbol.enhancer.servicesapi.EnhancementEngine;
+import org.apache.stanbol.enhancer.servicesapi.EnhancementEngineManager;
+import org.apache.stanbol.enhancer.servicesapi.EnhancementException;
+import org.apache.stanbol.enhancer.servicesapi.impl.SingleEngineChain;
+import org.apache.stanbol.enhancer.servicesapi.impl.StringSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.event.EventAdmin;
+
+/**
+ * Tests the asynchronous processing of {@link ContentItem}s by the
+ * {@link EventJobManagerImpl}. ExecutionNodes are executed by the internal
+ * thread pool so that no {@link EventAdmin} implementation is required.
+ */
+public class EventJobManagerImplTest {
+
+    /**
+     * The timeout used by the tested job manager
+     */
+    private static final int MAX_WAIT_TIME = 500;
+
+    private static final ContentItemFactory ciFactory = InMemoryContentItemFactory.getInstance();
+
+    private TestEngine engine;
+    private Chain chain;
+    private EventJobManagerImpl jobManager;
+    private ComponentContext ctx;
+
+    @Before
+    public void activateJobManager() {
+        engine = new TestEngine();
+        chain = new SingleEngineChain(engine);
+        EnhancementEngineManager engineManager = mock(EnhancementEngineManager.class);
+        when(engineManager.getEngine(anyString())).thenReturn(engine);
+        jobManager = new EventJobManagerImpl();
+        jobManager.chainManager = mock(ChainManager.class);
+        jobManager.engineManager = engineManager;
+        jobManager.eventAdmin = mock(EventAdmin.class);
+
+        Dictionary<String,Object> properties = new Hashtable<String,Object>();
+        properties.put(EventJobManagerImpl.MAX_ENHANCEMENT_JOB_WAIT_TIME, MAX_WAIT_TIME);
+        properties.put(EventJobManagerImpl.EXECUTION_THREAD_POOL_SIZE, 2);
+        BundleContext bc = mock(BundleContext.class);
+        when(bc.registerService(anyString(), any(), any(Dictionary.class)))
+            .thenReturn(mock(ServiceRegistration.class));
+        ctx = mock(ComponentContext.class);
+        when(ctx.getProperties()).thenReturn(properties);
+        when(ctx.getBundleContext()).thenReturn(bc);
+        jobManager.activate(ctx);
+    }
+
+    @After
+    public void deactivateJobManager() {
+        engine.release(); //do not keep engines blocked
+        jobManager.deactivate(ctx);
+    }
+
+    private static ContentItem createContentItem() throws IOException {
+        return ciFactory.createContentItem(new StringSource("Test content"));
+    }
+
+    @Test
+    public void testAsyncCompletion() throws Exception {
+        engine.release();
+        ContentItem ci = createContentItem();
+        RecordingCallback callback = new RecordingCallback();
+        Future<ContentItem> future = jobManager.enhanceContentAsync(ci, chain, callback);
+        assertSame(ci, future.get(5, TimeUnit.SECONDS));
+        assertTrue(future.isDone());
+        assertFalse(future.isCancelled());
+        assertTrue(callback.await());
+        assertSame(ci, callback.completed);
+        assertNull(callback.failed);
+        assertEquals(1, engine.executions.get());
+    }
+
+    @Test
+    public void testAsyncFailure() throws Exception {
+        engine.fail = true;
+        engine.release();
+        RecordingCallback callback = new RecordingCallback();
+        Future<ContentItem> future = jobManager.enhanceContentAsync(
+            createContentItem(), chain, callback);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("ExecutionException expected for a failed EnhancementJob");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof EnhancementException);
+        }
+        assertTrue(callback.await());
+        assertNull(callback.completed);
+        assertNotNull(callback.failed);
+    }
+
+    @Test
+    public void testAsyncTimeout() throws Exception {
+        //the engine is not released and will therefore block
+        RecordingCallback callback = new RecordingCallback();
+        long start = System.currentTimeMillis();
+        Future<ContentItem> future = jobManager.enhanceContentAsync(
+            createContentItem(), chain, callback);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("ExecutionException expected for a timed out EnhancementJob");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ChainException);
+        }
+        assertTrue(System.currentTimeMillis() - start >= MAX_WAIT_TIME);
+        assertTrue(callback.await());
+        assertNull(callback.completed);
+        assertTrue(callback.failed instanceof ChainException);
+        assertFalse(future.isCancelled());
+        //completing the job after the timeout MUST NOT notify the callback again
+        engine.release();
+        assertTrue(engine.awaitExecution());
+        Thread.sleep(100);
+        assertEquals(1, callback.calls.get());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        //the engine is not released and will therefore block
+        RecordingCallback callback = new RecordingCallback();
+        Future<ContentItem> future = jobManager.enhanceContentAsync(
+            createContentItem(), chain, callback);
+        assertFalse(future.isDone());
+        assertTrue(future.cancel(true));
+        assertTrue(future.isDone());
+        assertTrue(future.isCancelled());
+        assertFalse(future.cancel(true)); //already canceled
+        try {
+            future.get();
+            fail("CancellationException expected for a canceled EnhancementJob");
+        } catch (CancellationException e) {
+            //expected
+        }
+        assertTrue(callback.await());
+        assertNull(callback.completed);
+        assertNotNull(callback.failed);
+        //neither the completion nor the timeout notify the callback again
+        engine.release();
+        assertTrue(engine.awaitExecution());
+        Thread.sleep(MAX_WAIT_TIME + 100);
+        assertEquals(1, callback.calls.get());
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    public void testSyncCompletion() throws Exception {
+        engine.release();
+        ContentItem ci = createContentItem();
+        jobManager.enhanceContent(ci, chain);
+        assertEquals(1, engine.executions.get());
+    }
+
+    /**
+     * {@link EnhancementEngine} that blocks until {@link #release() released}
+     */
+    private static class TestEngine implements EnhancementEngine {
+
+        private final CountDownLatch released = new CountDownLatch(1);
+        private final CountDownLatch executed = new CountDownLatch(1);
+        private final AtomicInteger executions = new AtomicInteger();
+        private volatile boolean fail;
+
+        @Override
+        public int canEnhance(ContentItem ci) throws EngineException {
+            return ENHANCE_ASYNC;
+        }
+
+        @Override
+        public void computeEnhancements(ContentItem ci) throws EngineException {
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executions.incrementAndGet();
+            executed.countDown();
+            if(fail){
+                throw new EngineException("Test failure");
+            }
+        }
+
+        @Override
+        public String getName() {
+            return "test";
+        }
+
+        void release(){
+            released.countDown();
+        }
+
+        boolean awaitExecution() throws InterruptedException {
+            return executed.await(5, TimeUnit.SECONDS);
+        }
+    }
+    /**
+     * {@link EnhancementCallback} recording its notifications
+     */
+    private static class RecordingCallback implements EnhancementCallback {
+
+        private final CountDownLatch notified = new CountDownLatch(1);
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile ContentItem completed;
+        private volatile EnhancementException failed;
+
+        @Override
+        public void completed(ContentItem ci) {
+            completed = ci;
+            calls.incrementAndGet();
+            notified.countDown();
+        }
+
+        @Override
+        public void failed(ContentItem ci, EnhancementException e) {
+            failed = e;
+            calls.incrementAndGet();
+            notified.countDown();
+        }
+
+        boolean await() throws InterruptedException {
+            return notified.await(5, TimeUnit.SECONDS);
+        }
+    }
+}
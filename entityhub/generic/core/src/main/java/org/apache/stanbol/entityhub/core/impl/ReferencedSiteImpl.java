@@ -17,19 +17,27 @@
 package org.apache.stanbol.entityhub.core.impl;
 
 import static java.util.Collections.singletonMap;
+import static org.apache.stanbol.entityhub.core.utils.SiteUtils.copy;
 import static org.apache.stanbol.entityhub.core.utils.SiteUtils.initEntityMetadata;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import org.apache.stanbol.commons.namespaceprefix.NamespacePrefixService;
 import org.apache.stanbol.entityhub.core.mapping.DefaultFieldMapperImpl;
 import org.apache.stanbol.entityhub.core.mapping.FieldMappingUtils;
 import org.apache.stanbol.entityhub.core.mapping.ValueConverterFactory;
 import org.apache.stanbol.entityhub.core.model.EntityImpl;
+import org.apache.stanbol.entityhub.core.model.InMemoryValueFactory;
 import org.apache.stanbol.entityhub.core.query.DefaultQueryFactory;
 import org.apache.stanbol.entityhub.core.query.QueryResultListImpl;
 import org.apache.stanbol.entityhub.servicesapi.mapping.FieldMapper;
@@ -78,6 +86,12 @@ import org.slf4j.LoggerFactory;
  * {@link CacheStrategy#all} the Cache is also used to search for Entities. Otherwise only
  * dereferencing of Entities is done via the Cache.
  * </ul>
+ * Concurrent {@link #getEntity(String)} calls for the same id share a single
+ * lookup in the Cache and/or on the remote site. Every caller gets its own
+ * copy of the looked up Representation. Ids that were not found are not
+ * dereferenced from the remote site for {@link #NOT_FOUND_TTL} milliseconds.
+ * The Cache is still used for such ids, so Entities stored in the Cache
+ * in the meantime are found.
  * 
  * @author Rupert Westenthaler
  * 
@@ -98,6 +112,26 @@ public class ReferencedSiteImpl implements Site {
      * Stores keys -> values to be added to the metadata of {@link Entity Entities} created by this site.
      */
     private Map<String,Object> siteMetadata;
+    /**
+     * The time (in ms) ids not found on the remote site are not dereferenced
+     * again (10sec)
+     */
+    public static final long NOT_FOUND_TTL = 10 * 1000;
+    /**
+     * The maximum number of ids remembered as not found. If exceeded expired
+     * entries are removed.
+     */
+    private static final int MAX_NOT_FOUND = 10000;
+    /**
+     * Lookups for {@link #getEntity(String)} currently in progress
+     */
+    private final ConcurrentMap<String,FutureTask<Lookup>> inFlight = 
+            new ConcurrentHashMap<String,FutureTask<Lookup>>();
+    /**
+     * ids not found on the remote site by {@link #getEntity(String)} and the
+     * time until they are remembered
+     */
+    private final ConcurrentMap<String,Long> notFound = new ConcurrentHashMap<String,Long>();
 
     public ReferencedSiteImpl(ReferencedSiteConfiguration config, 
             EntityDereferencer dereferencer, EntitySearcher searcher,
@@ -305,7 +339,92 @@ public class ReferencedSiteImpl implements Site {
     }
 
     @Override
-    public Entity getEntity(String id) throws SiteException {
+    public Entity getEntity(final String id) throws SiteException {
+        FutureTask<Lookup> lookup = new FutureTask<Lookup>(new Callable<Lookup>() {
+            @Override
+            public Lookup call() throws SiteException {
+                return lookup(id);
+            }
+        });
+        FutureTask<Lookup> current = inFlight.putIfAbsent(id, lookup);
+        boolean shared = current != null;
+        if(!shared){ //perform the lookup
+            current = lookup;
+            try {
+                lookup.run();
+            } finally {
+                inFlight.remove(id, lookup);
+            }
+        } //else wait for the lookup of the other thread
+        Lookup result;
+        try {
+            result = current.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SiteException("Interrupted while waiting for Entity "+id, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof SiteException){
+                throw shared ? new SiteException(cause.getMessage(), cause) : (SiteException)cause;
+            } else if(cause instanceof RuntimeException){
+                throw (RuntimeException)cause;
+            } else if(cause instanceof Error){
+                throw (Error)cause;
+            } else {
+                throw new SiteException("Unable to get Entity "+id, cause);
+            }
+        }
+        if(result.rep == null){
+            return null;
+        }
+        //callers may modify the Representation so the looked up one is kept
+        //private and every caller (including the one that performed the
+        //lookup) gets a copy
+        Representation rep = copy(result.rep, InMemoryValueFactory.getInstance());
+        Entity entity = new EntityImpl(getId(), rep, null);
+        initEntityMetadata(entity, siteMetadata,
+            singletonMap(RdfResourceEnum.isChached.getUri(), (Object) result.cached));
+        return entity;
+    }
+    /**
+     * Checks if the parsed id was recently not found
+     * @return <code>true</code> if the id is remembered in {@link #notFound}
+     */
+    private boolean isRecentlyNotFound(String id){
+        Long expires = notFound.get(id);
+        if(expires != null){
+            if(expires.longValue() > System.currentTimeMillis()){
+                return true;
+            }
+            notFound.remove(id, expires);
+        }
+        return false;
+    }
+    /**
+     * Adds the parsed id to {@link #notFound}
+     */
+    private void rememberNotFound(String id){
+        long now = System.currentTimeMillis();
+        if(notFound.size() >= MAX_NOT_FOUND){ //remove expired entries
+            for(Iterator<Long> it = notFound.values().iterator(); it.hasNext();){
+                if(it.next().longValue() <= now){
+                    it.remove();
+                }
+            }
+            if(notFound.size() >= MAX_NOT_FOUND){
+                notFound.clear();
+            }
+        }
+        notFound.put(id, Long.valueOf(now + NOT_FOUND_TTL));
+    }
+    /**
+     * Looks up the Representation for the parsed id in the Cache and/or on
+     * the remote site
+     * @param id the id
+     * @return the result of the lookup
+     * @throws SiteException on any error while dereferencing the Entity
+     */
+    private Lookup lookup(String id) throws SiteException {
         Representation rep = null;
         Boolean cachedVersion = Boolean.FALSE;
         long start = System.currentTimeMillis();
@@ -314,10 +433,11 @@ public class ReferencedSiteImpl implements Site {
                 rep = cache.getRepresentation(id);
                 if (rep == null){
                     if(siteConfiguration.getCacheStrategy() == CacheStrategy.all) {
-                        return null; // do no remote lookups on CacheStrategy.all!!
+                        return new Lookup(null, cachedVersion); // do no remote lookups on CacheStrategy.all!!
                     }
                 } else {
                     cachedVersion = Boolean.TRUE;
+                    notFound.remove(id); //stored in the cache in the meantime
                 }
             } catch (YardException e) {
                 if (dereferencer == null) {
@@ -332,6 +452,9 @@ public class ReferencedSiteImpl implements Site {
             }
         }
         if (rep == null && dereferencer != null) {
+            if(isRecentlyNotFound(id)){
+                return new Lookup(null, cachedVersion); //do not ask the remote site again
+            }
             try {
                 rep = dereferencer.dereference(id);
             } catch (IOException e) {
@@ -339,6 +462,9 @@ public class ReferencedSiteImpl implements Site {
                     "Unable to load Representation for entity %s form remote site %s with dereferencer %s",
                     id, siteConfiguration.getAccessUri(), siteConfiguration.getEntityDereferencerType()), e);
             }
+            if (rep == null) {
+                rememberNotFound(id);
+            }
             // representation loaded from remote site and cache is available
             if (rep != null && cache != null) {// -> cache the representation
                 try {
@@ -355,13 +481,18 @@ public class ReferencedSiteImpl implements Site {
                 }
             }
         }
-        if(rep != null){
-            Entity entity = new EntityImpl(getId(), rep, null);
-            initEntityMetadata(entity, siteMetadata,
-                singletonMap(RdfResourceEnum.isChached.getUri(), (Object) cachedVersion));
-            return entity;
-        } else {
-            return null;
+        return new Lookup(rep, cachedVersion);
+    }
+    /**
+     * The result of a lookup shared by concurrent {@link #getEntity(String)}
+     * calls
+     */
+    private static final class Lookup {
+        final Representation rep;
+        final Boolean cached;
+        Lookup(Representation rep, Boolean cached){
+            this.rep = rep;
+            this.cached = cached;
         }
     }
 
@@ -24,16 +24,30 @@ import java.util.Collections;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Properties;
+import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.ReferencePolicy;
@@ -42,25 +56,63 @@ import org.apache.felix.scr.annotations.Service;
 import org.apache.stanbol.entityhub.core.query.QueryResultListImpl;
 import org.apache.stanbol.entityhub.servicesapi.model.Representation;
 import org.apache.stanbol.entityhub.servicesapi.model.Entity;
+import org.apache.stanbol.entityhub.servicesapi.model.rdf.RdfResourceEnum;
 import org.apache.stanbol.entityhub.servicesapi.query.FieldQuery;
 import org.apache.stanbol.entityhub.servicesapi.query.QueryResultList;
 import org.apache.stanbol.entityhub.servicesapi.site.Site;
 import org.apache.stanbol.entityhub.servicesapi.site.SiteException;
 import org.apache.stanbol.entityhub.servicesapi.site.SiteManager;
+import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
-
-@Component(immediate = true)
+/**
+ * Default {@link SiteManager} implementation.<p>
+ * Queries over all {@link Site}s are sent to the sites in parallel. Sites
+ * that do not respond within the configured {@link #SITE_TIMEOUT} are
+ * ignored (partial results). The results of the sites are merged based on
+ * the {@link RdfResourceEnum#resultScore} of the results.
+ */
+@Component(immediate = true, metatype = true)
 @Service
 @Properties(value={
+    @Property(name = SiteManagerImpl.SITE_TIMEOUT, longValue = SiteManagerImpl.DEFAULT_SITE_TIMEOUT),
+    @Property(name = SiteManagerImpl.POOL_SIZE, intValue = SiteManagerImpl.DEFAULT_POOL_SIZE)
 })
 public class SiteManagerImpl implements SiteManager {
 
+    /**
+     * The maximum time (in ms) to wait for the results of a site for queries
+     * over all sites. Results of sites that do not respond in time are
+     * ignored. Values &lt;= 0 deactivate the timeout.
+     */
+    public static final String SITE_TIMEOUT = "org.apache.stanbol.entityhub.sitemanager.siteTimeout";
+    /**
+     * The default for the {@link #SITE_TIMEOUT} (10sec)
+     */
+    public static final long DEFAULT_SITE_TIMEOUT = 10000;
+    /**
+     * The maximum number of threads used to query sites in parallel. Values
+     * &lt;= 0 deactivate parallel queries (sites are queried one after the
+     * other by the calling thread).
+     */
+    public static final String POOL_SIZE = "org.apache.stanbol.entityhub.sitemanager.poolSize";
+    /**
+     * The default for the {@link #POOL_SIZE}
+     */
+    public static final int DEFAULT_POOL_SIZE = 10;
+
     private final Logger log;
 
+    private long siteTimeout = DEFAULT_SITE_TIMEOUT;
+    /**
+     * Used to query sites in parallel. If <code>null</code> (not activated)
+     * sites are queried by the calling thread.
+     */
+    private volatile ExecutorService executor;
+
 //    private ComponentContext context;
     public SiteManagerImpl(){
         super();
@@ -100,12 +152,64 @@ public class SiteManagerImpl implements SiteManager {
         new HashSet<Site>());
 
     @Activate
-    protected void activate(ComponentContext context) {
+    protected void activate(ComponentContext context) throws ConfigurationException {
         log.debug("Activate ReferenceManager");
+        Object value = context.getProperties().get(SITE_TIMEOUT);
+        if(value instanceof Number){
+            siteTimeout = ((Number)value).longValue();
+        } else if(value != null && !value.toString().trim().isEmpty()){
+            try {
+                siteTimeout = Long.parseLong(value.toString().trim());
+            } catch (NumberFormatException e) {
+                throw new ConfigurationException(SITE_TIMEOUT, 
+                    "The site timeout MUST BE an integer value!",e);
+            }
+        } else {
+            siteTimeout = DEFAULT_SITE_TIMEOUT;
+        }
+        log.debug(" - site timeout: {}ms",siteTimeout);
+        value = context.getProperties().get(POOL_SIZE);
+        int poolSize;
+        if(value instanceof Number){
+            poolSize = ((Number)value).intValue();
+        } else if(value != null && !value.toString().trim().isEmpty()){
+            try {
+                poolSize = Integer.parseInt(value.toString().trim());
+            } catch (NumberFormatException e) {
+                throw new ConfigurationException(POOL_SIZE, 
+                    "The pool size MUST BE an integer value!",e);
+            }
+        } else {
+            poolSize = DEFAULT_POOL_SIZE;
+        }
+        log.debug(" - pool size: {}",poolSize);
+        if(poolSize > 0){
+            final AtomicInteger count = new AtomicInteger();
+            //queries exceeding the pool size wait for a free thread. The
+            //site timeout also covers this time
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), 
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "Entityhub SiteManager Query-"+count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        } else {
+            executor = null;
+        }
     }
     @Deactivate
     protected void deactivate(ComponentContext context) {
         log.debug("Deactivate ReferenceManager");
+        if(executor != null){
+            executor.shutdownNow();
+            executor = null;
+        }
         synchronized (prefixMap) {
             this.prefixList.clear();
             this.prefixMap.clear();
@@ -251,91 +355,55 @@ public class SiteManagerImpl implements SiteManager {
     @Override
     public QueryResultList<String> findIds(FieldQuery query) {
         log.debug("findIds for query{}", query);
-        // We need to search all referenced Sites
-        Set<String> entityIds = new HashSet<String>();
-        //TODO: The QueryResultList expects that the query as executed is added
-        //to the response. However when executing queries on multiple site they
-        //might support a different set of features and therefore execute
-        //different variants. For now I return simple the query as executed by
-        //the first Site that contributes results
-        FieldQuery processedQuery = null;
-        FieldQuery queryWithResults = null; 
-        for(Site site : referencedSites){
-            if(site.supportsSearch()){
-                log.debug(" > query site {}",site.getId());
-                try {
-                    QueryResultList<String> results = site.findReferences(query);
-                    if(processedQuery == null){
-                        processedQuery = results.getQuery();
-                    }
-                    if(!results.isEmpty() && queryWithResults == null){
-                        processedQuery = results.getQuery();
-                    }
-                    for(String entityId : results){
-                        entityIds.add(entityId);
-                    }
-                } catch (SiteException e) {
-                    log.warn("Unable to access Site "+site.getConfiguration().getName()+
-                        " (id = "+site.getId()+")",e);
-                }
-            } else {
-                log.debug(" > Site {} does not support queries",site.getId());
-            }
-        }
-        return new QueryResultListImpl<String>(
-                queryWithResults != null ? queryWithResults : //use the query with results
-                    processedQuery != null ? processedQuery : //if not a processed
-                        query, //else the parsed one
-                            entityIds.iterator(),String.class);
+        return query(query, FIND_IDS, String.class);
     }
     @Override
     public QueryResultList<Representation> find(FieldQuery query) {
         log.debug("find with query{}", query);
-        Set<Representation> representations = new HashSet<Representation>();
-        //TODO: The QueryResultList expects that the query as executed is added
-        //to the response. However when executing queries on multiple site they
-        //might support a different set of features and therefore execute
-        //different variants. For now I return simple the query as executed by
-        //the first Site that contributes results
-        FieldQuery processedQuery = null;
-        FieldQuery queryWithResults = null; 
+        return query(query, FIND, Representation.class);
+    }
+    @Override
+    public QueryResultList<Entity> findEntities(FieldQuery query) {
+        log.debug("findEntities for query{}", query);
+        return query(query, FIND_ENTITIES, Entity.class);
+    }
+    /**
+     * Sends the parsed query to all {@link Site}s that support search and
+     * merges the results.
+     * @param query the query
+     * @param siteQuery executes the query on a site
+     * @param type the type of the results
+     * @return the merged results
+     */
+    private <T> QueryResultList<T> query(final FieldQuery query, final SiteQuery<T> siteQuery, Class<T> type){
+        List<Site> sites = new ArrayList<Site>(referencedSites.size());
         for(Site site : referencedSites){
-            if(site.supportsSearch()){
-                log.debug(" > query site {}",site.getId());
-                try {
-                    QueryResultList<Representation> results = site.find(query);
-                    if(processedQuery == null){
-                        processedQuery = results.getQuery();
-                    }
-                    if(!results.isEmpty() && queryWithResults == null){
-                        processedQuery = results.getQuery();
-                    }
-                    for(Representation rep : results){
-                        if(!representations.contains(rep)){ //do not override
-                            representations.add(rep);
-                        } else {
-                            log.info("Entity {} found on more than one Referenced Site" +
-                            		" -> Representation of Site {} is ignored",
-                            		rep.getId(),site.getConfiguration().getName());
-                        }
-                    }
-                } catch (SiteException e) {
-                    log.warn("Unable to access Site "+site.getConfiguration().getName()+
-                        " (id = "+site.getId()+")",e);
-                }
+            if(site.supportsSearch()){ //do not search on sites that do not support it
+                sites.add(site);
             } else {
                 log.debug(" > Site {} does not support queries",site.getId());
             }
         }
-        return new QueryResultListImpl<Representation>(
-                queryWithResults != null ? queryWithResults : //use the query with results
-                    processedQuery != null ? processedQuery : //if not a processed
-                        query, //else the parsed one
-                            representations,Representation.class);
-    }
-    @Override
-    public QueryResultList<Entity> findEntities(FieldQuery query) {
-        log.debug("findEntities for query{}", query);
+        //send the query to all sites
+        ExecutorService executor = this.executor;
+        List<Future<QueryResultList<T>>> futures = new ArrayList<Future<QueryResultList<T>>>(sites.size());
+        for(final Site site : sites){
+            log.debug(" > query site {}",site.getId());
+            Callable<QueryResultList<T>> task = new Callable<QueryResultList<T>>() {
+                @Override
+                public QueryResultList<T> call() throws SiteException {
+                    return siteQuery.query(site, query);
+                }
+            };
+            if(executor != null && sites.size() > 1){
+                futures.add(executor.submit(task));
+            } else { //no need to use an other thread
+                FutureTask<QueryResultList<T>> future = new FutureTask<QueryResultList<T>>(task);
+                future.run();
+                futures.add(future);
+            }
+        }
+        //collect the results
         //TODO: The QueryResultList expects that the query as executed is added
         //to the response. However when executing queries on multiple site they
         //might support a different set of features and therefore execute
@@ -343,42 +411,178 @@ public class SiteManagerImpl implements SiteManager {
         //the first Site that contributes results
         FieldQuery processedQuery = null;
         FieldQuery queryWithResults = null; 
-        Set<Entity> entities = new HashSet<Entity>();
-        for(Site site : referencedSites){
-            if(site.supportsSearch()){ //do not search on sites that do not support it
-                log.debug(" > query site {}",site.getId());
-                try {
-                    QueryResultList<Entity> results = site.findEntities(query);
-                    if(processedQuery == null){
-                        processedQuery = results.getQuery();
-                    }
-                    if(!results.isEmpty() && queryWithResults == null){
-                        processedQuery = results.getQuery();
-                    }
-                    for(Entity rep : results){
-                        if(!entities.contains(rep)){ //do not override
-                            entities.add(rep);
-                        } else {
-                            //TODO: find a solution for this problem
-                            //      e.g. allow to add the site for entities
-                            log.info("Entity {} found on more than one Referenced Site" +
-                            		" -> Representation of Site {} is ignored",
-                            		rep.getId(),site.getConfiguration().getName());
-                        }
-                    }
-                } catch (SiteException e) {
-                    log.warn("Unable to access Site "+site.getConfiguration().getName()+
-                        " (id = "+site.getId()+")",e);
+        PriorityQueue<ResultCursor<T>> cursors = new PriorityQueue<ResultCursor<T>>(
+                Math.max(1, sites.size()));
+        long deadline = System.currentTimeMillis() + siteTimeout;
+        boolean interrupted = false;
+        for(int i = 0; i < sites.size() && !interrupted; i++){
+            Site site = sites.get(i);
+            Future<QueryResultList<T>> future = futures.get(i);
+            QueryResultList<T> results = null;
+            try {
+                if(siteTimeout > 0){
+                    results = future.get(Math.max(0, deadline - System.currentTimeMillis()), 
+                        TimeUnit.MILLISECONDS);
+                } else {
+                    results = future.get();
+                }
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                log.warn("Site {} (id = {}) did not respond within {}ms -> results of this "
+                    + "Site are ignored", new Object[]{site.getConfiguration().getName(),
+                            site.getId(), siteTimeout});
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                interrupted = true;
+                log.warn("Interrupted while waiting for results of Site {} (id = {}) "
+                    + "-> return partial results", site.getConfiguration().getName(), site.getId());
+            } catch (ExecutionException e) {
+                log.warn("Unable to access Site "+site.getConfiguration().getName()+
+                    " (id = "+site.getId()+")",e.getCause());
+            }
+            if(results != null){
+                if(processedQuery == null){
+                    processedQuery = results.getQuery();
+                }
+                if(!results.isEmpty() && queryWithResults == null){
+                    queryWithResults = results.getQuery();
+                }
+                Iterator<T> it = results.iterator();
+                if(it.hasNext()){
+                    cursors.add(new ResultCursor<T>(site, i, it, siteQuery));
                 }
+            }
+        }
+        if(interrupted){ //cancel the remaining queries
+            for(Future<QueryResultList<T>> future : futures){
+                future.cancel(true);
+            }
+        }
+        //k-way merge of the results based on the score
+        List<T> merged = new ArrayList<T>();
+        Set<String> ids = new HashSet<String>();
+        while(!cursors.isEmpty()){
+            ResultCursor<T> cursor = cursors.poll();
+            T result = cursor.current;
+            if(ids.add(siteQuery.getId(result))){ //do not override
+                merged.add(result);
             } else {
-                log.debug(" > Site {} does not support queries",site.getId());
+                //TODO: find a solution for this problem
+                //      e.g. allow to add the site for entities
+                log.info("Entity {} found on more than one Referenced Site" +
+                        " -> Representation of Site {} is ignored",
+                        siteQuery.getId(result),cursor.site.getConfiguration().getName());
+            }
+            if(cursor.next()){
+                cursors.add(cursor);
             }
         }
-        return new QueryResultListImpl<Entity>(
+        return new QueryResultListImpl<T>(
                 queryWithResults != null ? queryWithResults : //use the query with results
                     processedQuery != null ? processedQuery : //if not a processed
                         query, //else the parsed one
-                            entities,Entity.class);
+                            merged,type);
+    }
+    /**
+     * Executes a query on a {@link Site} and provides the id and score of
+     * the results
+     */
+    private static abstract class SiteQuery<T> {
+        abstract QueryResultList<T> query(Site site, FieldQuery query) throws SiteException;
+        abstract String getId(T result);
+        /**
+         * Getter for the score of the result. Results without score are
+         * sorted after those with a score.
+         */
+        float getScore(T result){
+            return Float.NEGATIVE_INFINITY;
+        }
+        /**
+         * Getter for the {@link RdfResourceEnum#resultScore} of the parsed
+         * Representation
+         */
+        static float scoreOf(Representation rep){
+            Object value = rep == null ? null : rep.getFirst(RdfResourceEnum.resultScore.getUri());
+            return value instanceof Number ? ((Number)value).floatValue() : Float.NEGATIVE_INFINITY;
+        }
+    }
+    private static final SiteQuery<String> FIND_IDS = new SiteQuery<String>() {
+        @Override
+        QueryResultList<String> query(Site site, FieldQuery query) throws SiteException {
+            return site.findReferences(query);
+        }
+        @Override
+        String getId(String result) {
+            return result;
+        }
+    };
+    private static final SiteQuery<Representation> FIND = new SiteQuery<Representation>() {
+        @Override
+        QueryResultList<Representation> query(Site site, FieldQuery query) throws SiteException {
+            return site.find(query);
+        }
+        @Override
+        String getId(Representation result) {
+            return result.getId();
+        }
+        @Override
+        float getScore(Representation result) {
+            return scoreOf(result);
+        }
+    };
+    private static final SiteQuery<Entity> FIND_ENTITIES = new SiteQuery<Entity>() {
+        @Override
+        QueryResultList<Entity> query(Site site, FieldQuery query) throws SiteException {
+            return site.findEntities(query);
+        }
+        @Override
+        String getId(Entity result) {
+            return result.getId();
+        }
+        @Override
+        float getScore(Entity result) {
+            return scoreOf(result.getRepresentation());
+        }
+    };
+    /**
+     * The current position within the results of a {@link Site}. Sorted by
+     * the score of the current result (DESC) and the index of the site.
+     */
+    private static final class ResultCursor<T> implements Comparable<ResultCursor<T>> {
+        final Site site;
+        private final int index;
+        private final Iterator<T> results;
+        private final SiteQuery<T> siteQuery;
+        T current;
+        private float score;
+
+        ResultCursor(Site site, int index, Iterator<T> results, SiteQuery<T> siteQuery){
+            this.site = site;
+            this.index = index;
+            this.results = results;
+            this.siteQuery = siteQuery;
+            next();
+        }
+        /**
+         * Moves to the next result
+         * @return <code>false</code> if there are no more results
+         */
+        boolean next(){
+            while(results.hasNext()){
+                current = results.next();
+                if(current != null){
+                    score = siteQuery.getScore(current);
+                    return true;
+                }
+            }
+            current = null;
+            return false;
+        }
+        @Override
+        public int compareTo(ResultCursor<T> o) {
+            int c = Float.compare(o.score, score);
+            return c != 0 ? c : index < o.index ? -1 : index == o.index ? 0 : 1;
+        }
     }
     @Override
     public InputStream getContent(String entityId, String contentType) {
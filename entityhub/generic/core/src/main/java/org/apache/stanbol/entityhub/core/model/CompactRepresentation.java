@@ -0,0 +1,512 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.stanbol.entityhub.core.model;
+
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.stanbol.entityhub.servicesapi.model.Reference;
+import org.apache.stanbol.entityhub.servicesapi.model.Representation;
+import org.apache.stanbol.entityhub.servicesapi.model.Text;
+import org.apache.stanbol.entityhub.servicesapi.model.UnsupportedTypeException;
+import org.apache.stanbol.entityhub.servicesapi.model.ValueFactory;
+import org.apache.stanbol.entityhub.servicesapi.util.ModelUtils;
+import org.apache.stanbol.entityhub.servicesapi.util.TextIterator;
+import org.apache.stanbol.entityhub.servicesapi.util.TypeSafeIterator;
+
+/**
+ * Compact {@link Representation} implementation intended for results of
+ * read-only operations (e.g. Representations retrieved from a Yard).<p>
+ * Instead of a {@link HashMap} with a {@link HashSet} for every field with
+ * multiple values this implementation stores the data in three arrays:
+ * the (interned) field names, the start offsets of the values of each field
+ * and the values of all fields. Instances are created by using a
+ * {@link Builder} (see {@link #builder(String)}).<p>
+ * Read operations directly access those arrays. On the first call to any
+ * method that modifies the state of the Representation the data are copied
+ * to an {@link InMemoryRepresentation} and all further calls are forwarded
+ * to this copy (copy-on-write). Because of that users can not distinguish
+ * this implementation from an {@link InMemoryRepresentation}.<p>
+ * NOTE: Read operations on unmodified instances are thread safe. As for the
+ * {@link InMemoryRepresentation} modifications are not.
+ */
+public final class CompactRepresentation implements Representation, Cloneable {
+
+    private static final ValueFactory valueFactory = InMemoryValueFactory.getInstance();
+
+    private static final String[] NO_FIELDS = new String[]{};
+    private static final int[] NO_OFFSETS = new int[]{0};
+    private static final Object[] NO_VALUES = new Object[]{};
+
+    private final String id;
+    /**
+     * The interned field names
+     */
+    private final String[] fields;
+    /**
+     * The values of <code>fields[i]</code> are stored in
+     * <code>values[offsets[i]]</code> to <code>values[offsets[i+1]-1]</code>
+     */
+    private final int[] offsets;
+    private final Object[] values;
+    /**
+     * The modifiable copy created by the first modification
+     */
+    private InMemoryRepresentation modifiable;
+
+    private CompactRepresentation(String id, String[] fields, int[] offsets, Object[] values){
+        this.id = id;
+        this.fields = fields;
+        this.offsets = offsets;
+        this.values = values;
+    }
+    /**
+     * Creates a {@link Builder} for a Representation with the parsed id
+     * @param id the id
+     * @return the builder
+     * @throws IllegalArgumentException if the parsed id is <code>null</code>
+     * or empty
+     */
+    public static Builder builder(String id){
+        return new Builder(id);
+    }
+    /**
+     * If this Representation was already modified
+     * @return <code>true</code> if a modifiable copy of the data was created
+     */
+    public boolean isModified(){
+        return modifiable != null;
+    }
+    /**
+     * Getter for the modifiable copy. Creates the copy on the first call.
+     */
+    private InMemoryRepresentation modifiable(){
+        if(modifiable == null){
+            Map<String,Object> data = new HashMap<String,Object>(
+                Math.max(16, (int)(fields.length / .75f) + 1));
+            for(int i = 0; i < fields.length; i++){
+                int start = offsets[i];
+                int end = offsets[i+1];
+                if(end - start == 1){
+                    data.put(fields[i], values[start]);
+                } else {
+                    Collection<Object> fieldValues = new HashSet<Object>(
+                        (int)((end - start) / .75f) + 1);
+                    for(int j = start; j < end; j++){
+                        fieldValues.add(values[j]);
+                    }
+                    data.put(fields[i], fieldValues);
+                }
+            }
+            modifiable = new InMemoryRepresentation(id, data);
+        }
+        return modifiable;
+    }
+    /**
+     * Checks the parsed field and returns the index within {@link #fields}
+     * @return the index or <code>-1</code> if the field is not present
+     */
+    private int indexOf(String field){
+        if(field == null){
+            throw new IllegalArgumentException("The parsed field MUST NOT be NULL");
+        } else if(field.isEmpty()){
+            throw new IllegalArgumentException("The parsed field MUST NOT be Empty");
+        }
+        for(int i = 0; i < fields.length; i++){ //fast check for interned strings
+            if(fields[i] == field){
+                return i;
+            }
+        }
+        for(int i = 0; i < fields.length; i++){
+            if(fields[i].equals(field)){
+                return i;
+            }
+        }
+        return -1;
+    }
+    /**
+     * Iterator over the values of the parsed field
+     */
+    private Iterator<Object> values(String field){
+        int index = indexOf(field);
+        if(index < 0){
+            return new ValueIterator<Object>(values, 0, 0);
+        } else {
+            return new ValueIterator<Object>(values, offsets[index], offsets[index+1]);
+        }
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public Object getFirst(String field) {
+        if(modifiable != null){
+            return modifiable.getFirst(field);
+        }
+        int index = indexOf(field);
+        return index < 0 || offsets[index] >= offsets[index+1] ? null : values[offsets[index]];
+    }
+
+    @Override
+    public <T> T getFirst(String field, Class<T> type) throws UnsupportedTypeException {
+        if(modifiable != null){
+            return modifiable.getFirst(field, type);
+        }
+        Iterator<T> it = get(field, type);
+        return it.hasNext() ? it.next() : null;
+    }
+
+    @Override
+    public Text getFirst(String field, String... languages) {
+        if(modifiable != null){
+            return modifiable.getFirst(field, languages);
+        }
+        Iterator<Text> it = get(field, languages);
+        return it.hasNext() ? it.next() : null;
+    }
+
+    @Override
+    public Reference getFirstReference(String field) {
+        if(modifiable != null){
+            return modifiable.getFirstReference(field);
+        }
+        Iterator<Reference> it = getReferences(field);
+        return it.hasNext() ? it.next() : null;
+    }
+
+    @Override
+    public Iterator<Object> get(String field) {
+        if(modifiable != null){
+            return modifiable.get(field);
+        }
+        return values(field);
+    }
+
+    @Override
+    public <T> Iterator<T> get(String field, Class<T> type) throws UnsupportedTypeException {
+        if(modifiable != null){
+            return modifiable.get(field, type);
+        }
+        return new TypeSafeIterator<T>(values(field), type);
+    }
+
+    @Override
+    public Iterator<Text> getText(String field) {
+        if(modifiable != null){
+            return modifiable.getText(field);
+        }
+        return new TextIterator(valueFactory, values(field));
+    }
+
+    @Override
+    public Iterator<Text> get(String field, String... languages) {
+        if(modifiable != null){
+            return modifiable.get(field, languages);
+        }
+        return new TextIterator(valueFactory, values(field), languages);
+    }
+
+    @Override
+    public Iterator<Reference> getReferences(String field) {
+        if(modifiable != null){
+            return modifiable.getReferences(field);
+        }
+        return new TypeSafeIterator<Reference>(values(field), Reference.class);
+    }
+
+    @Override
+    public Iterator<String> getFieldNames() {
+        if(modifiable != null){
+            return modifiable.getFieldNames();
+        }
+        return new ValueIterator<String>(fields, 0, fields.length);
+    }
+
+    @Override
+    public void add(String field, Object value) {
+        modifiable().add(field, value);
+    }
+
+    @Override
+    public void addReference(String field, String reference) {
+        modifiable().addReference(field, reference);
+    }
+
+    @Override
+    public void addNaturalText(String field, String text, String... languages) {
+        modifiable().addNaturalText(field, text, languages);
+    }
+
+    @Override
+    public void set(String field, Object value) {
+        modifiable().set(field, value);
+    }
+
+    @Override
+    public void setReference(String field, String reference) {
+        modifiable().setReference(field, reference);
+    }
+
+    @Override
+    public void setNaturalText(String field, String text, String... languages) {
+        modifiable().setNaturalText(field, text, languages);
+    }
+
+    @Override
+    public void remove(String field, Object value) {
+        modifiable().remove(field, value);
+    }
+
+    @Override
+    public void removeReference(String field, String reference) {
+        modifiable().removeReference(field, reference);
+    }
+
+    @Override
+    public void removeNaturalText(String field, String text, String... languages) {
+        modifiable().removeNaturalText(field, text, languages);
+    }
+
+    @Override
+    public void removeAll(String field) {
+        modifiable().removeAll(field);
+    }
+
+    @Override
+    public void removeAllNaturalText(String field, String... languages) {
+        modifiable().removeAllNaturalText(field, languages);
+    }
+
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        if(modifiable != null){
+            return modifiable.clone();
+        }
+        //the arrays are never modified and can therefore be shared
+        return new CompactRepresentation(id, fields, offsets, values);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " " + getId();
+    }
+    @Override
+    public int hashCode() {
+        return getId().hashCode();
+    }
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Representation && ((Representation)obj).getId().equals(getId());
+    }
+
+    /**
+     * Read only Iterator over a range of an array
+     */
+    private static final class ValueIterator<T> implements Iterator<T> {
+
+        private final T[] array;
+        private final int end;
+        private int index;
+
+        ValueIterator(T[] array, int start, int end){
+            this.array = array;
+            this.index = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < end;
+        }
+
+        @Override
+        public T next() {
+            if(index >= end){
+                throw new NoSuchElementException();
+            }
+            return array[index++];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Values can not be removed by using the Iterator");
+        }
+    }
+
+    /**
+     * Builder for {@link CompactRepresentation}s. Values can be added in any
+     * order. Values of the same field are collected and duplicated values are
+     * removed when {@link #build()} is called. Field names are
+     * {@link String#intern() interned}.<p>
+     * Instances are not thread safe.
+     */
+    public static final class Builder {
+
+        private final String id;
+        private String[] fields = new String[8];
+        private int fieldCount = 0;
+        /**
+         * the index of the field used by the last call to add. Used to avoid
+         * lookups for consecutive values of the same field
+         */
+        private int lastField = -1;
+        private int[] valueFields = new int[16];
+        private Object[] values = new Object[16];
+        private int size = 0;
+
+        private Builder(String id){
+            if(id == null){
+                throw new IllegalArgumentException("The id of a Representation instance MUST NOT be NULL!");
+            } else if(id.isEmpty()){
+                throw new IllegalArgumentException("The id of a Representation instance MUST NOT be empty!");
+            }
+            this.id = id;
+        }
+        /**
+         * Adds a value for the parsed field. Supports the same values as
+         * {@link Representation#add(String, Object)}.
+         * @param field the field
+         * @param value the value
+         * @return this builder
+         * @throws IllegalArgumentException if the field is <code>null</code>
+         * or empty or the value is <code>null</code>
+         */
+        public Builder add(String field, Object value){
+            if(field == null){
+                throw new IllegalArgumentException("The parsed field MUST NOT be NULL");
+            } else if(field.isEmpty()){
+                throw new IllegalArgumentException("The parsed field MUST NOT be Empty");
+            }
+            if(value == null){
+                throw new IllegalArgumentException("NULL values are not supported by Representations");
+            }
+            if(value instanceof Iterable<?> || value instanceof Iterator<?> ||
+                    value instanceof Enumeration<?> || value instanceof URI ||
+                    value instanceof URL || value instanceof String[]){
+                Collection<Object> checked = new ArrayList<Object>();
+                ModelUtils.checkValues(valueFactory, value, checked);
+                if(!checked.isEmpty()){ //do not register fields without values
+                    int fieldIndex = fieldIndex(field);
+                    for(Object checkedValue : checked){
+                        append(fieldIndex, checkedValue);
+                    }
+                }
+            } else {
+                append(fieldIndex(field), value);
+            }
+            return this;
+        }
+
+        private int fieldIndex(String field){
+            if(lastField >= 0 && (fields[lastField] == field || fields[lastField].equals(field))){
+                return lastField;
+            }
+            for(int i = 0; i < fieldCount; i++){
+                if(fields[i] == field || fields[i].equals(field)){
+                    lastField = i;
+                    return i;
+                }
+            }
+            if(fieldCount == fields.length){
+                fields = Arrays.copyOf(fields, fieldCount * 2);
+            }
+            fields[fieldCount] = field.intern();
+            lastField = fieldCount;
+            fieldCount++;
+            return lastField;
+        }
+
+        private void append(int fieldIndex, Object value){
+            if(size == values.length){
+                values = Arrays.copyOf(values, size * 2);
+                valueFields = Arrays.copyOf(valueFields, size * 2);
+            }
+            values[size] = value;
+            valueFields[size] = fieldIndex;
+            size++;
+        }
+        /**
+         * Builds the {@link CompactRepresentation}
+         * @return the Representation
+         */
+        public CompactRepresentation build(){
+            if(fieldCount == 0){
+                return new CompactRepresentation(id, NO_FIELDS, NO_OFFSETS, NO_VALUES);
+            }
+            //(1) sort the values by field (counting sort)
+            int[] offsets = new int[fieldCount + 1];
+            for(int i = 0; i < size; i++){
+                offsets[valueFields[i] + 1]++;
+            }
+            for(int i = 0; i < fieldCount; i++){
+                offsets[i + 1] += offsets[i];
+            }
+            int[] positions = Arrays.copyOf(offsets, fieldCount);
+            Object[] sorted = new Object[size];
+            for(int i = 0; i < size; i++){
+                sorted[positions[valueFields[i]]++] = values[i];
+            }
+            //(2) remove duplicated values of the same field
+            int write = 0;
+            for(int i = 0; i < fieldCount; i++){
+                int start = offsets[i];
+                int end = offsets[i + 1];
+                offsets[i] = write;
+                if(end - start > 8){ //use a set for fields with many values
+                    Set<Object> present = new HashSet<Object>();
+                    for(int j = start; j < end; j++){
+                        if(present.add(sorted[j])){
+                            sorted[write++] = sorted[j];
+                        }
+                    }
+                } else {
+                    for(int j = start; j < end; j++){
+                        if(!contains(sorted, offsets[i], write, sorted[j])){
+                            sorted[write++] = sorted[j];
+                        }
+                    }
+                }
+            }
+            offsets[fieldCount] = write;
+            return new CompactRepresentation(id,
+                fieldCount == fields.length ? fields : Arrays.copyOf(fields, fieldCount),
+                offsets, write == size ? sorted : Arrays.copyOf(sorted, write));
+        }
+
+        private static boolean contains(Object[] array, int start, int end, Object value){
+            for(int i = start; i < end; i++){
+                if(array[i].equals(value)){
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
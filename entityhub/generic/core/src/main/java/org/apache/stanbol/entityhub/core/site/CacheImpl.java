@@ -16,6 +16,15 @@
  */
 package org.apache.stanbol.entityhub.core.site;
 
+import static org.apache.stanbol.entityhub.core.utils.SiteUtils.copy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.ConfigurationPolicy;
@@ -46,15 +55,69 @@ import org.slf4j.LoggerFactory;
 /**
  * This is the Implementation of the {@link Cache} Interface as defined by the
  * entityhub services API.<p>
+ * If a {@link #WRITE_BEHIND_QUEUE_SIZE} &gt; 0 is configured Representations
+ * parsed to {@link #store(Representation)} are not directly stored in the
+ * Yard. Instead they are added to a queue and stored in batches by a
+ * background thread. Multiple stores of the same Representation in the queue
+ * are coalesced. If the queue is full callers are blocked until the writer
+ * catches up (backpressure). Representations in the queue are returned by
+ * {@link #getRepresentation(String)} but are not considered by queries.
+ * The queue holds private copies and callers only get copies of queued
+ * Representations, so modifications of callers can not affect the data
+ * written to the Yard.
  * 
  * @author Rupert Westenthaler
  */
 public class CacheImpl implements Cache {
     private Logger log = LoggerFactory.getLogger(CacheImpl.class);
 
+    /**
+     * The maximum number of Representations queued for storage by the write
+     * behind mode. If <code>0</code> (the default) Representations are
+     * stored synchronously.
+     */
+    public static final String WRITE_BEHIND_QUEUE_SIZE = "org.apache.stanbol.entityhub.yard.cache.writeBehindQueueSize";
+    /**
+     * The default for {@link #WRITE_BEHIND_QUEUE_SIZE} (<code>0</code>)
+     */
+    public static final int DEFAULT_WRITE_BEHIND_QUEUE_SIZE = 0;
+    /**
+     * The maximum number of Representations stored by a single
+     * {@link Yard#store(Iterable)} call of the write behind thread
+     */
+    public static final int WRITE_BEHIND_BATCH_SIZE = 100;
+    /**
+     * The maximum time (in ms) a caller is blocked if the write behind queue
+     * is full. If this time is exceeded the Representation is stored
+     * synchronously.
+     */
+    private static final long MAX_BACKPRESSURE_WAIT = 30000;
+
     private FieldMapper baseMapper;
     private FieldMapper additionalMapper;
     private final Yard yard;
+    /**
+     * The queue size for the write behind mode (<code>0</code> if disabled)
+     */
+    private final int writeBehindQueueSize;
+    /**
+     * Representations queued for storage. Also used as lock for the write
+     * behind mode
+     */
+    private final Map<String,Representation> pending = new LinkedHashMap<String,Representation>();
+    /**
+     * Representations currently stored by the write behind thread
+     */
+    private final Map<String,Representation> inFlight = new HashMap<String,Representation>();
+    private Thread writer;
+    private boolean closed = false;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong queueHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
 
     /**
      * Constructs a new Cache for the parsed Yard and mappings
@@ -66,10 +129,27 @@ public class CacheImpl implements Cache {
      * throws {@link IllegalArgumentException} if <code>null</code> is parsed as Yard
      */
     public CacheImpl(Yard yard, String[] additionalMappings, NamespacePrefixService nsPrefixService) throws YardException {
+        this(yard, additionalMappings, nsPrefixService, DEFAULT_WRITE_BEHIND_QUEUE_SIZE);
+    }
+    /**
+     * Constructs a new Cache for the parsed Yard and mappings
+     * @param yard
+     * @param additionalMappings
+     * @param nsPrefixService
+     * @param writeBehindQueueSize the size of the queue used for storing
+     * Representations asynchronously. Values &lt;= 0 deactivate the write
+     * behind mode.
+     * @throws YardException if loading the base mappings from the Yard fails
+     * @throws IllegalStateException when parsing the additional mappings do fail
+     * throws {@link IllegalArgumentException} if <code>null</code> is parsed as Yard
+     */
+    public CacheImpl(Yard yard, String[] additionalMappings, NamespacePrefixService nsPrefixService,
+            int writeBehindQueueSize) throws YardException {
         if(yard == null){
             throw new IllegalArgumentException("The parsed Yard MUST NOT be NULL!");
         }
         this.yard = yard;
+        this.writeBehindQueueSize = writeBehindQueueSize < 0 ? 0 : writeBehindQueueSize;
         //(1) Read the base mappings from the Yard
         this.baseMapper = CacheUtils.loadBaseMappings(yard,nsPrefixService);
         FieldMapper configuredMappings = null;
@@ -96,6 +176,11 @@ public class CacheImpl implements Cache {
             log.info("Replace Additional Mappings for Cache {} with Mappings configured by OSGI",yard.getId());
             setAdditionalMappings(yard, configuredMappings);
         } //else current config equals configured one -> nothing to do!    
+        if(this.writeBehindQueueSize > 0){
+            writer = new Thread(new WriteBehindWorker(), "Entityhub Cache Writer for Yard "+yard.getId());
+            writer.setDaemon(true);
+            writer.start();
+        }
     }
     
     @Override
@@ -128,13 +213,141 @@ public class CacheImpl implements Cache {
      */
     @Override
     public Representation store(Representation representation) throws IllegalArgumentException, YardException {
-        return yard.store(applyCacheMappings(yard, representation));
+        if(representation == null){
+            throw new IllegalArgumentException("The parsed Representation MUST NOT be NULL!");
+        }
+        Representation mapped = applyCacheMappings(yard, representation);
+        if(writer != null){
+            //the queued Representation MUST NOT be shared with the caller
+            Representation queued = mapped == representation ? 
+                    copy(mapped, yard.getValueFactory()) : mapped;
+            if(enqueue(queued)){
+                return copy(queued, yard.getValueFactory());
+            }
+        }
+        mapped = yard.store(mapped);
+        stored.incrementAndGet();
+        return mapped;
     }
 
     @Override
     public Representation update(Representation representation) throws YardException, IllegalArgumentException {
+        flush(); //the updated Representation might be queued
         return yard.update(applyCacheMappings(yard, representation));
     }
+    /**
+     * Adds the parsed Representation to the write behind queue. Blocks if
+     * the queue is full. The parsed instance is written to the Yard by the
+     * write behind thread and MUST NOT be shared with callers.
+     * @param representation the (mapped) Representation
+     * @return <code>false</code> if the Representation was not queued and
+     * needs to be stored by the caller
+     */
+    private boolean enqueue(Representation representation){
+        if(writer == null){
+            return false;
+        }
+        String id = representation.getId();
+        long end = System.currentTimeMillis() + MAX_BACKPRESSURE_WAIT;
+        synchronized (pending) {
+            while(!closed && !pending.containsKey(id) && pending.size() >= writeBehindQueueSize){
+                long wait = end - System.currentTimeMillis();
+                if(wait <= 0){
+                    log.warn("Write behind queue of Cache {} is full for more than {}ms. "
+                        + "Store Representation {} synchronously", new Object[]{
+                            yard.getId(), MAX_BACKPRESSURE_WAIT, id});
+                    return false;
+                }
+                try {
+                    pending.wait(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            if(closed){
+                return false;
+            }
+            if(pending.put(id, representation) != null){
+                coalesced.incrementAndGet();
+            }
+            pending.notifyAll();
+        }
+        return true;
+    }
+    /**
+     * Getter for a copy of a Representation that is queued or currently
+     * written to the Yard by the write behind thread.
+     * @param id the id
+     * @return a copy of the Representation or <code>null</code> if not queued
+     */
+    private Representation getQueued(String id){
+        if(writer == null){
+            return null;
+        }
+        Representation rep;
+        synchronized (pending) {
+            rep = pending.get(id);
+            if(rep == null){
+                rep = inFlight.get(id);
+            }
+        }
+        return rep == null ? null : copy(rep, yard.getValueFactory());
+    }
+    /**
+     * Checks if a Representation with the parsed id is queued or currently
+     * written to the Yard by the write behind thread.
+     * @param id the id
+     * @return <code>true</code> if queued
+     */
+    private boolean isQueued(String id){
+        if(writer == null){
+            return false;
+        }
+        synchronized (pending) {
+            return pending.containsKey(id) || inFlight.containsKey(id);
+        }
+    }
+    /**
+     * Blocks until all Representations queued by the write behind mode are
+     * stored in the Yard. Returns immediately if the write behind mode is
+     * not active.
+     */
+    public void flush() {
+        if(writer == null){
+            return;
+        }
+        synchronized (pending) {
+            while(writer.isAlive() && !(pending.isEmpty() && inFlight.isEmpty())){
+                try {
+                    pending.wait(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+    /**
+     * Stores all queued Representations and stops the write behind thread.
+     * Representations parsed to {@link #store(Representation)} after this
+     * call are stored synchronously.
+     */
+    public void close() {
+        if(writer == null){
+            return;
+        }
+        synchronized (pending) {
+            closed = true;
+            pending.notifyAll();
+        }
+        try {
+            writer.join(MAX_BACKPRESSURE_WAIT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("closed {}", this);
+    }
 
     /**
      * Applies the mappings defined by the {@link #baseMapper} and the {@link #additionalMapper}
@@ -158,7 +371,7 @@ public class CacheImpl implements Cache {
             }
             additionalMapper.applyMappings(representation, mapped,valueFactory);
         }
-        log.info("  -- applied mappings in " + (System.currentTimeMillis() - start) + "ms");
+        log.debug("  -- applied mappings in {}ms", System.currentTimeMillis() - start);
         return mapped != null ? mapped : representation;
     }
 
@@ -214,7 +427,18 @@ public class CacheImpl implements Cache {
 
     @Override
     public Representation getRepresentation(String id) throws YardException, IllegalArgumentException {
-        return yard.getRepresentation(id);
+        Representation rep = getQueued(id);
+        if(rep != null){
+            queueHits.incrementAndGet();
+            return rep;
+        }
+        rep = yard.getRepresentation(id);
+        if(rep == null){
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return rep;
     }
 
     @Override
@@ -224,11 +448,12 @@ public class CacheImpl implements Cache {
 
     @Override
     public boolean isRepresentation(String id) throws YardException, IllegalArgumentException {
-        return yard.isRepresentation(id);
+        return isQueued(id) || yard.isRepresentation(id);
     }
 
     @Override
     public void remove(String id) throws IllegalArgumentException, YardException {
+        flush();
         yard.remove(id);
     }
 
@@ -309,10 +534,12 @@ public class CacheImpl implements Cache {
 
     @Override
     public void remove(Iterable<String> ids) throws IllegalArgumentException, YardException {
+        flush();
         yard.remove(ids);
     }
     @Override
     public void removeAll() throws YardException {
+        flush();
         //ensure that the baseConfig (if present) is not deleted by this
         //operation
         Representation baseConfig = yard.getRepresentation(Cache.BASE_CONFIGURATION_URI);
@@ -324,11 +551,146 @@ public class CacheImpl implements Cache {
     
     @Override
     public Iterable<Representation> store(Iterable<Representation> representations) throws IllegalArgumentException, YardException {
+        flush(); //queued (older) versions MUST NOT override the parsed ones
         return yard.store(representations);
     }
 
     @Override
     public Iterable<Representation> update(Iterable<Representation> representations) throws YardException, IllegalArgumentException {
+        flush(); //updated Representations might be queued
         return yard.update(representations);
     }
+    
+    /*--------------------------------------------------------------------------
+     * Statistics
+     * --------------------------------------------------------------------------
+     */
+    /**
+     * The number of {@link #getRepresentation(String)} calls answered by the
+     * Yard
+     * @return the number of cache hits
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+    /**
+     * The number of {@link #getRepresentation(String)} calls answered by
+     * Representations in the write behind queue
+     * @return the number of hits in the write behind queue
+     */
+    public long getQueueHitCount() {
+        return queueHits.get();
+    }
+    /**
+     * The number of {@link #getRepresentation(String)} calls for
+     * Representations not present in the cache
+     * @return the number of cache misses
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+    /**
+     * The number of Representations stored in the Yard by
+     * {@link #store(Representation)}
+     * @return the number of stored Representations
+     */
+    public long getStoreCount() {
+        return stored.get();
+    }
+    /**
+     * The number of Representations in the write behind queue that where
+     * replaced by a newer version before they where written
+     * @return the number of coalesced stores
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+    /**
+     * The number of Representations the write behind thread failed to store
+     * @return the number of failed stores
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+    /**
+     * The number of Representations currently queued by the write behind mode
+     * @return the number of queued Representations
+     */
+    public int getQueueSize() {
+        synchronized (pending) {
+            return pending.size() + inFlight.size();
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Cache[yard: %s | hits: %d | queueHits: %d | misses: %d | "
+            + "stored: %d | coalesced: %d | failed: %d | queued: %d]", yard.getId(),
+            getHitCount(), getQueueHitCount(), getMissCount(), getStoreCount(),
+            getCoalescedCount(), getFailedCount(), getQueueSize());
+    }
+    
+    /**
+     * Stores queued Representations in batches of up to
+     * {@link CacheImpl#WRITE_BEHIND_BATCH_SIZE}. Terminates after the queue
+     * is empty and the cache is {@link CacheImpl#close() closed}.
+     */
+    private class WriteBehindWorker implements Runnable {
+
+        @Override
+        public void run() {
+            while(true){
+                List<Representation> batch;
+                synchronized (pending) {
+                    while(pending.isEmpty() && !closed){
+                        try {
+                            pending.wait();
+                        } catch (InterruptedException e) {
+                            log.warn("Write behind thread of Cache "+yard.getId()
+                                +" interrupted. "+pending.size()+" queued Representations are not stored!");
+                            failed.addAndGet(pending.size());
+                            pending.clear();
+                            closed = true;
+                            pending.notifyAll();
+                            return;
+                        }
+                    }
+                    if(pending.isEmpty()){ //closed
+                        return;
+                    }
+                    batch = new ArrayList<Representation>(Math.min(WRITE_BEHIND_BATCH_SIZE, pending.size()));
+                    for(Iterator<Representation> it = pending.values().iterator(); 
+                            it.hasNext() && batch.size() < WRITE_BEHIND_BATCH_SIZE;){
+                        Representation rep = it.next();
+                        it.remove();
+                        inFlight.put(rep.getId(), rep);
+                        batch.add(rep);
+                    }
+                    pending.notifyAll(); //there is space in the queue
+                }
+                long start = System.currentTimeMillis();
+                try {
+                    yard.store(batch);
+                    stored.addAndGet(batch.size());
+                    log.debug("  - stored {} queued Representations in {}ms", batch.size(),
+                        System.currentTimeMillis() - start);
+                } catch (YardException e) {
+                    failed.addAndGet(batch.size());
+                    log.warn("Unable to store "+batch.size()+" queued Representations in Cache "
+                        +yard.getId()+"! Representations not cached!", e);
+                } catch (RuntimeException e) {
+                    failed.addAndGet(batch.size());
+                    log.warn("Unable to store "+batch.size()+" queued Representations in Cache "
+                        +yard.getId()+"! Representations not cached!", e);
+                } finally {
+                    synchronized (pending) {
+                        for(Representation rep : batch){
+                            inFlight.remove(rep.getId());
+                        }
+                        pending.notifyAll();
+                    }
+                }
+            }
+        }
+    }
 }
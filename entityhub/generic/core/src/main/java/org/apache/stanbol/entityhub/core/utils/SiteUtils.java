@@ -17,11 +17,13 @@
 package org.apache.stanbol.entityhub.core.utils;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 
 //import org.apache.stanbol.entityhub.core.model.InMemoryValueFactory;
 import org.apache.stanbol.entityhub.servicesapi.defaults.NamespaceEnum;
+import org.apache.stanbol.entityhub.core.model.CompactRepresentation;
 import org.apache.stanbol.entityhub.servicesapi.model.Entity;
 import org.apache.stanbol.entityhub.servicesapi.model.Representation;
 import org.apache.stanbol.entityhub.servicesapi.model.ValueFactory;
@@ -56,6 +58,32 @@ public final class SiteUtils {
         }
     }
     
+    /**
+     * Creates a copy of the parsed Representation. Used to ensure that
+     * Representations shared by a site (e.g. by concurrent requests or by a
+     * write behind queue) are never modified by callers.<p>
+     * {@link CompactRepresentation}s are cloned (this does not copy the data).
+     * Otherwise the parsed {@link ValueFactory} is used to create the copy.
+     * @param rep the Representation to copy
+     * @param vf the {@link ValueFactory} used to create the copy
+     * @return the copy
+     */
+    public static Representation copy(Representation rep, ValueFactory vf) {
+        if(rep instanceof CompactRepresentation){
+            try {
+                return (Representation)((CompactRepresentation)rep).clone();
+            } catch (CloneNotSupportedException e) {
+                throw new IllegalStateException(e); //not thrown by CompactRepresentation
+            }
+        }
+        Representation copy = vf.createRepresentation(rep.getId());
+        for(Iterator<String> fields = rep.getFieldNames(); fields.hasNext();){
+            String field = fields.next();
+            copy.add(field, rep.get(field));
+        }
+        return copy;
+    }
+    
     /**
      * Sites need to provide Metadata about managed Entities (e.g. license,
      * attribution, ...) those information are provided by the configuration
@@ -16,8 +16,11 @@
  */
 package org.apache.stanbol.entityhub.core.yard;
 
+import java.util.Collection;
 import java.util.Dictionary;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Properties;
@@ -245,6 +248,33 @@ public abstract class AbstractYard implements Yard {
         return getUriPrefix()+ModelUtils.randomUUID().toString();
     }
 
+    /**
+     * Getter for the Representations with the parsed ids. Intended for
+     * components that need to load many Representations (e.g. the nodes of
+     * LDPath program executions).<p>
+     * This default implementation calls {@link #getRepresentation(String)}
+     * for every id. Subclasses should override this method if the
+     * Representations can be loaded with fewer requests.
+     * @param ids the ids. <code>null</code> and empty ids are ignored
+     * @return the found Representations by id. Ids that are not present in
+     * this Yard are not contained in the returned map
+     * @throws YardException on any error while loading the Representations
+     */
+    public Map<String,Representation> getRepresentations(Collection<String> ids) throws YardException {
+        Map<String,Representation> found = new LinkedHashMap<String,Representation>();
+        if(ids != null){
+            for(String id : ids){
+                if(id != null && !id.isEmpty() && !found.containsKey(id)){
+                    Representation rep = getRepresentation(id);
+                    if(rep != null){
+                        found.put(id, rep);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
     /** ------------------------------------------------------------------------
      *    Methods that need to be implemented by Sub-Classes
      *  ------------------------------------------------------------------------
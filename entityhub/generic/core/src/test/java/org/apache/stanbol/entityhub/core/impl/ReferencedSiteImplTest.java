@@ -0,0 +1,299 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.entityhub.core.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.Thread.State;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.stanbol.entityhub.core.model.InMemoryValueFactory;
+import org.apache.stanbol.entityhub.core.site.ReferencedSiteConfigurationImpl;
+import org.apache.stanbol.entityhub.servicesapi.model.Entity;
+import org.apache.stanbol.entityhub.servicesapi.model.Representation;
+import org.apache.stanbol.entityhub.servicesapi.site.EntityDereferencer;
+import org.apache.stanbol.entityhub.servicesapi.site.ReferencedSiteConfiguration;
+import org.apache.stanbol.entityhub.servicesapi.site.SiteException;
+import org.apache.stanbol.entityhub.servicesapi.yard.Cache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReferencedSiteImplTest {
+
+    private static final String FIELD = "http://www.example.org/field";
+    private static final String KNOWN = "http://www.example.org/known";
+    private static final String UNKNOWN = "http://www.example.org/unknown";
+    private static final int THREADS = 5;
+
+    private final AtomicInteger dereferenceCalls = new AtomicInteger();
+    /**
+     * Blocks dereference calls until released by the test
+     */
+    private volatile CountDownLatch release;
+    private volatile boolean fail;
+    /**
+     * Counted down by submitted calls before calling getEntity
+     */
+    private volatile CountDownLatch started;
+    /**
+     * The Representation returned by the last dereference call
+     */
+    private volatile Representation dereferenced;
+    /**
+     * The threads of the {@link #executor}
+     */
+    private final List<Thread> threads = new ArrayList<Thread>();
+    private ReferencedSiteImpl site;
+    private ExecutorService executor;
+
+    @Before
+    public void initSite() throws Exception {
+        release = new CountDownLatch(0);
+        fail = false;
+        Dictionary<String,Object> config = new Hashtable<String,Object>();
+        config.put(ReferencedSiteConfiguration.ID, "test");
+        config.put(ReferencedSiteConfiguration.ACCESS_URI, "http://www.example.org/");
+        config.put(ReferencedSiteConfiguration.ENTITY_DEREFERENCER_TYPE, "test");
+        config.put(ReferencedSiteConfiguration.CACHE_STRATEGY, "none");
+        site = new ReferencedSiteImpl(new ReferencedSiteConfigurationImpl(config),
+            new TestDereferencer(), null, null, null);
+        threads.clear();
+        executor = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r);
+                synchronized (threads) {
+                    threads.add(thread);
+                }
+                return thread;
+            }
+        });
+    }
+    @After
+    public void close(){
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentGetEntity() throws Exception {
+        release = new CountDownLatch(1);
+        List<Future<Entity>> results = submit(KNOWN);
+        //wait until the first lookup is in progress and the others joined it
+        waitForBlocked();
+        release.countDown();
+        List<Entity> entities = new ArrayList<Entity>();
+        for(Future<Entity> result : results){
+            Entity entity = result.get(10, TimeUnit.SECONDS);
+            assertNotNull(entity);
+            assertEquals(KNOWN, entity.getId());
+            assertEquals("value", entity.getRepresentation().getFirst(FIELD));
+            entities.add(entity);
+        }
+        assertEquals(1, dereferenceCalls.get());
+        //every caller gets its own Representation
+        for(int i = 1; i < entities.size(); i++){
+            assertNotSame(entities.get(0).getRepresentation(), entities.get(i).getRepresentation());
+        }
+        //including the caller that performed the lookup
+        for(Entity entity : entities){
+            assertNotSame(dereferenced, entity.getRepresentation());
+        }
+        //the lookup is not shared with later calls
+        assertNotNull(site.getEntity(KNOWN));
+        assertEquals(2, dereferenceCalls.get());
+    }
+
+    @Test
+    public void testConcurrentGetEntityFailure() throws Exception {
+        release = new CountDownLatch(1);
+        fail = true;
+        List<Future<Entity>> results = submit(KNOWN);
+        waitForBlocked();
+        release.countDown();
+        for(Future<Entity> result : results){
+            try {
+                result.get(10, TimeUnit.SECONDS);
+                throw new AssertionError("SiteException expected");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof SiteException);
+            }
+        }
+        assertEquals(1, dereferenceCalls.get());
+        //failures are not remembered
+        fail = false;
+        assertNotNull(site.getEntity(KNOWN));
+    }
+
+    @Test
+    public void testNotFoundIsRemembered() throws Exception {
+        assertNull(site.getEntity(UNKNOWN));
+        assertNull(site.getEntity(UNKNOWN));
+        assertEquals(1, dereferenceCalls.get());
+    }
+
+    @Test
+    public void testNotFoundIgnoredIfCached() throws Exception {
+        Dictionary<String,Object> config = new Hashtable<String,Object>();
+        config.put(ReferencedSiteConfiguration.ID, "test");
+        config.put(ReferencedSiteConfiguration.ACCESS_URI, "http://www.example.org/");
+        config.put(ReferencedSiteConfiguration.ENTITY_DEREFERENCER_TYPE, "test");
+        config.put(ReferencedSiteConfiguration.CACHE_STRATEGY, "used");
+        config.put(ReferencedSiteConfiguration.CACHE_ID, "testCache");
+        Cache cache = createCache();
+        site = new ReferencedSiteImpl(new ReferencedSiteConfigurationImpl(config),
+            new TestDereferencer(), null, cache, null);
+        assertNull(site.getEntity(UNKNOWN));
+        assertNull(site.getEntity(UNKNOWN));
+        assertEquals(1, dereferenceCalls.get());
+        //the Entity is stored in the cache in the meantime
+        Representation rep = InMemoryValueFactory.getInstance().createRepresentation(UNKNOWN);
+        rep.add(FIELD, "cached");
+        cache.store(rep);
+        Entity entity = site.getEntity(UNKNOWN);
+        assertNotNull(entity);
+        assertEquals("cached", entity.getRepresentation().getFirst(FIELD));
+        assertEquals(1, dereferenceCalls.get());
+    }
+
+    private List<Future<Entity>> submit(final String id){
+        started = new CountDownLatch(THREADS);
+        List<Future<Entity>> results = new ArrayList<Future<Entity>>();
+        for(int i = 0; i < THREADS; i++){
+            results.add(executor.submit(new Callable<Entity>() {
+                @Override
+                public Entity call() throws Exception {
+                    started.countDown();
+                    return site.getEntity(id);
+                }
+            }));
+        }
+        return results;
+    }
+    /**
+     * Waits until all submitted calls are started and blocked (the first one
+     * by the {@link #release} latch and the others by waiting for its result)
+     */
+    private void waitForBlocked() throws InterruptedException {
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        long end = System.currentTimeMillis() + 10000;
+        while(!allBlocked()){
+            assertTrue("getEntity calls not blocked", System.currentTimeMillis() < end);
+            Thread.yield();
+        }
+        assertEquals(1, dereferenceCalls.get());
+    }
+    
+    private boolean allBlocked(){
+        synchronized (threads) {
+            if(threads.size() < THREADS){
+                return false;
+            }
+            for(Thread thread : threads){
+                State state = thread.getState();
+                if(state != State.WAITING && state != State.TIMED_WAITING){
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+    /**
+     * Creates an in-memory {@link Cache} that supports the methods used by
+     * the {@link ReferencedSiteImpl}
+     */
+    private Cache createCache(){
+        final Map<String,Representation> data = new ConcurrentHashMap<String,Representation>();
+        return (Cache)Proxy.newProxyInstance(Cache.class.getClassLoader(), new Class<?>[]{Cache.class},
+            new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    String name = method.getName();
+                    if("getRepresentation".equals(name)){
+                        return data.get(args[0]);
+                    } else if("store".equals(name)){
+                        Representation rep = (Representation)args[0];
+                        data.put(rep.getId(), rep);
+                        return rep;
+                    } else if("hashCode".equals(name)){
+                        return System.identityHashCode(proxy);
+                    } else if("equals".equals(name)){
+                        return proxy == args[0];
+                    } else {
+                        throw new UnsupportedOperationException(name);
+                    }
+                }
+            });
+    }
+
+    private class TestDereferencer implements EntityDereferencer {
+        @Override
+        public String getAccessUri() {
+            return "http://www.example.org/";
+        }
+        @Override
+        public boolean canDereference(String uri) {
+            return true;
+        }
+        @Override
+        public InputStream dereference(String uri, String contentType) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+        @Override
+        public Representation dereference(String uri) throws IOException {
+            dereferenceCalls.incrementAndGet();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if(fail){
+                throw new IOException("test failure");
+            }
+            if(!KNOWN.equals(uri)){
+                return null;
+            }
+            Representation rep = InMemoryValueFactory.getInstance().createRepresentation(uri);
+            rep.add(FIELD, "value");
+            dereferenced = rep;
+            return rep;
+        }
+    }
+}
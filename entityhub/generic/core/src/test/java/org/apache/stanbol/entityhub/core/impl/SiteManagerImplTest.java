@@ -0,0 +1,186 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.entityhub.core.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.stanbol.entityhub.core.model.InMemoryValueFactory;
+import org.apache.stanbol.entityhub.core.query.DefaultQueryFactory;
+import org.apache.stanbol.entityhub.core.query.QueryResultListImpl;
+import org.apache.stanbol.entityhub.servicesapi.model.Representation;
+import org.apache.stanbol.entityhub.servicesapi.model.rdf.RdfResourceEnum;
+import org.apache.stanbol.entityhub.servicesapi.query.FieldQuery;
+import org.apache.stanbol.entityhub.servicesapi.query.QueryResultList;
+import org.apache.stanbol.entityhub.servicesapi.site.Site;
+import org.apache.stanbol.entityhub.servicesapi.site.SiteConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.component.ComponentContext;
+
+public class SiteManagerImplTest {
+
+    private static final long TIMEOUT = 1000;
+
+    private SiteManagerImpl siteManager;
+
+    @Before
+    public void activate() throws Exception {
+        siteManager = new SiteManagerImpl();
+        final Dictionary<String,Object> config = new Hashtable<String,Object>();
+        config.put(SiteManagerImpl.SITE_TIMEOUT, TIMEOUT);
+        siteManager.activate((ComponentContext)Proxy.newProxyInstance(
+            ComponentContext.class.getClassLoader(), new Class<?>[]{ComponentContext.class}, 
+            new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    if("getProperties".equals(method.getName())){
+                        return config;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                }
+            }));
+    }
+    @After
+    public void deactivate(){
+        siteManager.deactivate(null);
+    }
+
+    @Test
+    public void testMergeByScore() throws Exception {
+        siteManager.bindReferencedSites(createSite("a", null, 0, rep("a1", 3f), rep("a2", 1f)));
+        siteManager.bindReferencedSites(createSite("b", null, 0, rep("b1", 2f), rep("a1", 0.5f)));
+        QueryResultList<Representation> results = siteManager.find(createQuery());
+        assertEquals(ids("a1", "b1", "a2"), ids(results));
+    }
+
+    @Test
+    public void testPartialResultsOnTimeout() throws Exception {
+        CountDownLatch never = new CountDownLatch(2); //only counted down once
+        siteManager.bindReferencedSites(createSite("slow", never, 10 * TIMEOUT, rep("s1", 5f)));
+        siteManager.bindReferencedSites(createSite("fast", null, 0, rep("f1", 1f)));
+        long start = System.currentTimeMillis();
+        QueryResultList<Representation> results = siteManager.find(createQuery());
+        long duration = System.currentTimeMillis() - start;
+        assertEquals(ids("f1"), ids(results));
+        assertTrue("query took "+duration+"ms", duration < 5 * TIMEOUT);
+    }
+
+    @Test
+    public void testParallelQueries() throws Exception {
+        //every site waits until all sites were queried. So this only
+        //completes within the timeout if the sites are queried in parallel
+        CountDownLatch latch = new CountDownLatch(3);
+        siteManager.bindReferencedSites(createSite("a", latch, 5 * TIMEOUT, rep("a1", 3f)));
+        siteManager.bindReferencedSites(createSite("b", latch, 5 * TIMEOUT, rep("b1", 2f)));
+        siteManager.bindReferencedSites(createSite("c", latch, 5 * TIMEOUT, rep("c1", 1f)));
+        QueryResultList<Representation> results = siteManager.find(createQuery());
+        assertEquals(ids("a1", "b1", "c1"), ids(results));
+    }
+
+    private static FieldQuery createQuery(){
+        return DefaultQueryFactory.getInstance().createFieldQuery();
+    }
+
+    private static Representation rep(String id, float score){
+        Representation rep = InMemoryValueFactory.getInstance().createRepresentation(id);
+        rep.set(RdfResourceEnum.resultScore.getUri(), Float.valueOf(score));
+        return rep;
+    }
+
+    private static List<String> ids(String...ids){
+        List<String> list = new ArrayList<String>();
+        for(String id : ids){
+            list.add(id);
+        }
+        return list;
+    }
+
+    private static List<String> ids(QueryResultList<Representation> results){
+        List<String> ids = new ArrayList<String>();
+        for(Representation rep : results){
+            ids.add(rep.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Creates a Site that returns the parsed Representations for
+     * {@link Site#find(FieldQuery)}
+     * @param latch if not <code>null</code> the site counts down and waits
+     * for the latch before returning the results
+     * @param wait the maximum time to wait for the latch
+     */
+    private static Site createSite(final String id, final CountDownLatch latch, 
+            final long wait, final Representation...results){
+        final SiteConfiguration config = (SiteConfiguration)Proxy.newProxyInstance(
+            SiteConfiguration.class.getClassLoader(), new Class<?>[]{SiteConfiguration.class},
+            new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    String name = method.getName();
+                    if("getId".equals(name) || "getName".equals(name)){
+                        return id;
+                    } else if("getEntityPrefixes".equals(name)){
+                        return null;
+                    }
+                    throw new UnsupportedOperationException(name);
+                }
+            });
+        return (Site)Proxy.newProxyInstance(Site.class.getClassLoader(), new Class<?>[]{Site.class},
+            new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    String name = method.getName();
+                    if("getId".equals(name)){
+                        return id;
+                    } else if("getConfiguration".equals(name)){
+                        return config;
+                    } else if("supportsSearch".equals(name)){
+                        return true;
+                    } else if("find".equals(name)){
+                        if(latch != null){
+                            latch.countDown();
+                            latch.await(wait, TimeUnit.MILLISECONDS);
+                        }
+                        List<Representation> reps = new ArrayList<Representation>();
+                        for(Representation rep : results){
+                            reps.add(rep);
+                        }
+                        return new QueryResultListImpl<Representation>((FieldQuery)args[0], 
+                                reps, Representation.class);
+                    } else if("hashCode".equals(name)){
+                        return System.identityHashCode(proxy);
+                    } else if("equals".equals(name)){
+                        return proxy == args[0];
+                    }
+                    throw new UnsupportedOperationException(name);
+                }
+            });
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.stanbol.entityhub.core.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.apache.stanbol.entityhub.servicesapi.model.Reference;
+import org.apache.stanbol.entityhub.servicesapi.model.Representation;
+import org.apache.stanbol.entityhub.servicesapi.model.Text;
+import org.apache.stanbol.entityhub.servicesapi.model.ValueFactory;
+import org.apache.stanbol.entityhub.test.model.RepresentationTest;
+import org.junit.Test;
+
+/**
+ * Runs the {@link RepresentationTest}s against {@link CompactRepresentation}s.
+ * As the tests start with empty Representations and modify them this
+ * validates the copy-on-write. The additional tests validate the read only
+ * state.
+ */
+public class CompactRepresentationTest extends RepresentationTest {
+
+    private static final ValueFactory inMemoryFactory = InMemoryValueFactory.getInstance();
+    /**
+     * ValueFactory that creates (empty) {@link CompactRepresentation}s
+     */
+    private final ValueFactory valueFactory = new ValueFactory() {
+        @Override
+        public Text createText(Object value) {
+            return inMemoryFactory.createText(value);
+        }
+        @Override
+        public Text createText(String text, String language) {
+            return inMemoryFactory.createText(text, language);
+        }
+        @Override
+        public Reference createReference(Object value) {
+            return inMemoryFactory.createReference(value);
+        }
+        @Override
+        public Representation createRepresentation(String id) {
+            return CompactRepresentation.builder(id).build();
+        }
+    };
+
+    @Override
+    protected ValueFactory getValueFactory() {
+        return valueFactory;
+    }
+
+    @Override
+    protected Object getUnsupportedValueInstance() {
+        return null; //indicates that all kinds of Objects are supported!
+    }
+
+    @Test
+    public void testReadOnlyState() throws Exception {
+        String field1 = "urn:test:field1";
+        String field2 = new String("urn:test:field2"); //not interned
+        Text text = inMemoryFactory.createText("label", "en");
+        CompactRepresentation rep = CompactRepresentation.builder("urn:test:compact")
+                .add(field1, "value1")
+                .add(field2, text)
+                .add(field1, "value2")
+                .add(field1, "value1") //duplicate
+                .add(field2, Arrays.asList(text, inMemoryFactory.createText("label", "de")))
+                .add(field2, URI.create("urn:test:reference"))
+                .build();
+        assertEquals("urn:test:compact", rep.getId());
+        assertEquals(asSet(field1, field2), asSet(rep.getFieldNames()));
+        assertEquals(asSet("value1", "value2"), asSet(rep.get(field1)));
+        assertEquals(asSet(text, inMemoryFactory.createText("label", "de"),
+            inMemoryFactory.createReference("urn:test:reference")), asSet(rep.get(field2)));
+        assertEquals("value1", rep.getFirst(field1));
+        assertEquals("label", rep.getFirst("urn:test:field2", "en").getText());
+        assertEquals("urn:test:reference", rep.getFirstReference(field2).getReference());
+        assertFalse(rep.get(field2, String.class).hasNext());
+        assertNull(rep.getFirst("urn:test:notPresent"));
+        assertFalse(rep.get("urn:test:notPresent").hasNext());
+        assertFalse(rep.isModified());
+    }
+
+    @Test
+    public void testCopyOnWrite() throws Exception {
+        String field = "urn:test:field";
+        CompactRepresentation rep = CompactRepresentation.builder("urn:test:compact")
+                .add(field, "value1").add(field, "value2").build();
+        CompactRepresentation clone = (CompactRepresentation)rep.clone();
+        rep.add(field, "value3");
+        rep.remove(field, "value1");
+        assertTrue(rep.isModified());
+        assertEquals(asSet("value2", "value3"), asSet(rep.get(field)));
+        //the clone is not affected by the modification
+        assertFalse(clone.isModified());
+        assertEquals(asSet("value1", "value2"), asSet(clone.get(field)));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnlyIterator() {
+        String field = "urn:test:field";
+        Iterator<Object> it = CompactRepresentation.builder("urn:test:compact")
+                .add(field, "value").build().get(field);
+        it.next();
+        it.remove();
+    }
+
+    @Test
+    public void testEmptyValues() {
+        String field1 = "urn:test:field1";
+        String field2 = "urn:test:field2";
+        String empty = "urn:test:empty";
+        CompactRepresentation rep = CompactRepresentation.builder("urn:test:compact")
+                .add(field1, "value1")
+                .add(empty, Collections.emptyList())
+                .add(field2, "value2")
+                .add(empty, new String[]{})
+                .add("urn:test:empty2", Collections.emptyList().iterator())
+                .build();
+        assertEquals(asSet(field1, field2), asSet(rep.getFieldNames()));
+        assertNull(rep.getFirst(empty));
+        assertFalse(rep.get(empty).hasNext());
+        assertEquals("value1", rep.getFirst(field1));
+        assertEquals("value2", rep.getFirst(field2));
+        //a field with values is not affected by adding no values
+        rep = CompactRepresentation.builder("urn:test:compact")
+                .add(field1, "value1")
+                .add(field1, Collections.emptyList())
+                .build();
+        assertEquals(asSet(field1), asSet(rep.getFieldNames()));
+        assertEquals(asSet("value1"), asSet(rep.get(field1)));
+    }
+
+    @Test
+    public void testInternedFieldNames() {
+        CompactRepresentation rep = CompactRepresentation.builder("urn:test:compact")
+                .add(new String("urn:test:field"), "value").build();
+        assertSame("urn:test:field", rep.getFieldNames().next());
+    }
+
+    private static <T> Set<T> asSet(T...values){
+        return new HashSet<T>(Arrays.asList(values));
+    }
+
+    private static <T> Set<T> asSet(Iterator<T> it){
+        Set<T> set = new HashSet<T>();
+        while(it.hasNext()){
+            set.add(it.next());
+        }
+        return set;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.stanbol.entityhub.core.site;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.stanbol.entityhub.core.model.InMemoryValueFactory;
+import org.apache.stanbol.entityhub.servicesapi.model.Representation;
+import org.apache.stanbol.entityhub.servicesapi.model.ValueFactory;
+import org.apache.stanbol.entityhub.servicesapi.yard.Yard;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CacheImplTest {
+
+    private static final ValueFactory vf = InMemoryValueFactory.getInstance();
+
+    private final Map<String,Representation> data = new ConcurrentHashMap<String,Representation>();
+    private final AtomicInteger storeCalls = new AtomicInteger();
+    /**
+     * Allows to block the Yard#store calls
+     */
+    private volatile CountDownLatch storeLatch;
+    private Yard yard;
+    private CacheImpl cache;
+
+    /**
+     * Creates an in-memory Yard that supports the methods used by the tests
+     */
+    @Before
+    public void initYard(){
+        storeLatch = new CountDownLatch(0);
+        yard = (Yard)Proxy.newProxyInstance(Yard.class.getClassLoader(), new Class<?>[]{Yard.class},
+            new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    String name = method.getName();
+                    if("getId".equals(name) || "getName".equals(name)){
+                        return "test";
+                    } else if("getValueFactory".equals(name)){
+                        return vf;
+                    } else if("getRepresentation".equals(name)){
+                        return data.get(args[0]);
+                    } else if("isRepresentation".equals(name)){
+                        return data.containsKey(args[0]);
+                    } else if("store".equals(name)){
+                        storeCalls.incrementAndGet();
+                        storeLatch.await(10, TimeUnit.SECONDS);
+                        if(args[0] instanceof Representation){
+                            Representation rep = (Representation)args[0];
+                            data.put(rep.getId(), rep);
+                        } else {
+                            for(Object rep : (Iterable<?>)args[0]){
+                                data.put(((Representation)rep).getId(), (Representation)rep);
+                            }
+                        }
+                        return args[0];
+                    } else if("remove".equals(name)){
+                        data.remove(args[0]);
+                        return null;
+                    } else if("hashCode".equals(name)){
+                        return System.identityHashCode(proxy);
+                    } else if("equals".equals(name)){
+                        return proxy == args[0];
+                    } else {
+                        throw new UnsupportedOperationException(name);
+                    }
+                }
+            });
+    }
+    
+    @After
+    public void closeCache(){
+        if(cache != null){
+            storeLatch.countDown();
+            cache.close();
+        }
+    }
+
+    private Representation create(String id){
+        Representation rep = vf.createRepresentation(id);
+        rep.addNaturalText("urn:test:name", id);
+        return rep;
+    }
+
+    @Test
+    public void testSynchronousStore() throws Exception {
+        cache = new CacheImpl(yard, null, null);
+        cache.store(create("urn:test:1"));
+        assertTrue(data.containsKey("urn:test:1"));
+        assertEquals(1, storeCalls.get());
+        assertNotNull(cache.getRepresentation("urn:test:1"));
+        assertNull(cache.getRepresentation("urn:test:2"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getStoreCount());
+    }
+
+    @Test
+    public void testWriteBehind() throws Exception {
+        cache = new CacheImpl(yard, null, null, 10);
+        storeLatch = new CountDownLatch(1); //block the writer
+        Representation rep = create("urn:test:1");
+        Representation stored = cache.store(rep);
+        assertNotSame(rep, stored);
+        assertEquals(rep.getFirst("urn:test:name"), stored.getFirst("urn:test:name"));
+        //queued Representations are visible to reads
+        assertNotSame(stored, cache.getRepresentation("urn:test:1"));
+        assertTrue(cache.isRepresentation("urn:test:1"));
+        assertEquals(1, cache.getQueueHitCount());
+        //wait until the writer has taken the Representation
+        waitForStoreCalls(1);
+        //store two versions of an other Representation while the writer is blocked
+        cache.store(create("urn:test:2"));
+        Representation rep2 = create("urn:test:2");
+        rep2.add("urn:test:field", "second version");
+        cache.store(rep2);
+        assertEquals(1, cache.getCoalescedCount());
+        assertEquals(2, cache.getQueueSize());
+        storeLatch.countDown();
+        cache.flush();
+        assertEquals(0, cache.getQueueSize());
+        assertEquals(2, storeCalls.get());
+        assertEquals(2, cache.getStoreCount());
+        assertEquals("second version", data.get("urn:test:2").getFirst("urn:test:field"));
+    }
+
+    @Test
+    public void testQueuedAreNotShared() throws Exception {
+        cache = new CacheImpl(yard, null, null, 10);
+        storeLatch = new CountDownLatch(1); //block the writer
+        Representation rep = create("urn:test:1");
+        Representation stored = cache.store(rep);
+        waitForStoreCalls(1); //the writer is now writing the Representation
+        //modifications of callers do not affect the written data
+        rep.add("urn:test:field", "parsed");
+        stored.add("urn:test:field", "stored");
+        cache.getRepresentation("urn:test:1").add("urn:test:field", "read");
+        assertNull(cache.getRepresentation("urn:test:1").getFirst("urn:test:field"));
+        storeLatch.countDown();
+        cache.flush();
+        assertNull(data.get("urn:test:1").getFirst("urn:test:field"));
+    }
+
+    @Test
+    public void testStoreIterableAfterQueued() throws Exception {
+        cache = new CacheImpl(yard, null, null, 10);
+        storeLatch = new CountDownLatch(1); //block the writer
+        cache.store(create("urn:test:0"));
+        waitForStoreCalls(1); //the writer is now blocked
+        cache.store(create("urn:test:1")); //queued
+        final Representation rep = create("urn:test:1");
+        rep.add("urn:test:field", "batch version");
+        Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    cache.store(Collections.singleton(rep));
+                } catch (Exception e) {
+                    //not expected
+                }
+            }
+        });
+        t.start();
+        storeLatch.countDown();
+        t.join(10000);
+        cache.flush();
+        //the queued version MUST NOT override the one stored by the batch
+        assertEquals("batch version", data.get("urn:test:1").getFirst("urn:test:field"));
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        cache = new CacheImpl(yard, null, null, 2);
+        storeLatch = new CountDownLatch(1); //block the writer
+        cache.store(create("urn:test:0"));
+        waitForStoreCalls(1); //the writer is now blocked
+        cache.store(create("urn:test:1"));
+        cache.store(create("urn:test:2")); //queue is now full
+        final CountDownLatch stored = new CountDownLatch(1);
+        Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    cache.store(create("urn:test:3"));
+                    stored.countDown();
+                } catch (Exception e) {
+                    //not expected
+                }
+            }
+        });
+        t.start();
+        //the 4th store needs to block until the writer continues
+        assertEquals(false, stored.await(200, TimeUnit.MILLISECONDS));
+        storeLatch.countDown();
+        assertTrue(stored.await(10, TimeUnit.SECONDS));
+        cache.flush();
+        assertEquals(4, data.size());
+    }
+
+    @Test
+    public void testCloseStoresQueued() throws Exception {
+        cache = new CacheImpl(yard, null, null, 100);
+        for(int i = 0; i < 50; i++){
+            cache.store(create("urn:test:"+i));
+        }
+        cache.close();
+        assertEquals(50, data.size());
+        //after close Representations are stored synchronously
+        cache.store(create("urn:test:closed"));
+        assertTrue(data.containsKey("urn:test:closed"));
+    }
+
+    private void waitForStoreCalls(int num) throws InterruptedException {
+        for(int i = 0; i < 1000 && storeCalls.get() < num; i++){
+            Thread.sleep(10);
+        }
+        assertEquals(num, storeCalls.get());
+    }
+}
@@ -91,7 +91,7 @@ public final class IndexerFactory {
      * @return
      */
     protected Indexer create(String dir,String classpathOffset){
-        Indexer indexer;
+        IndexerImpl indexer;
         IndexingConfig config;
         if(classpathOffset != null){
             config= new IndexingConfig(dir,classpathOffset){};
@@ -165,6 +165,8 @@ public final class IndexerFactory {
             "configure an EntityIterator and an EntityDataProvider");
             throw new IllegalArgumentException("Invalid Indexing Source configuration");
         }
+        indexer.setThreads(config.getReaderThreads(), config.getProcessorThreads(), 
+            config.getPersisterThreads());
         return indexer;
     }
 
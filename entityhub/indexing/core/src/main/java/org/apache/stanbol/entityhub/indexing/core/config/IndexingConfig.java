@@ -795,6 +795,55 @@ public class IndexingConfig {
         }
     	return failOnError;
     }
+    /**
+     * Getter for the number of threads used to read entities from the
+     * indexing source as configured by {@link IndexingConstants#KEY_READER_THREADS}
+     * @return the number of reader threads (default: <code>1</code>)
+     * @throws IllegalArgumentException if the configured value is not a
+     * positive integer
+     */
+    public int getReaderThreads(){
+        return getThreads(IndexingConstants.KEY_READER_THREADS);
+    }
+    /**
+     * Getter for the number of threads used to process entities as
+     * configured by {@link IndexingConstants#KEY_PROCESSOR_THREADS}
+     * @return the number of processor threads (default: <code>1</code>)
+     * @throws IllegalArgumentException if the configured value is not a
+     * positive integer
+     */
+    public int getProcessorThreads(){
+        return getThreads(IndexingConstants.KEY_PROCESSOR_THREADS);
+    }
+    /**
+     * Getter for the number of threads used to store entities as
+     * configured by {@link IndexingConstants#KEY_PERSISTER_THREADS}
+     * @return the number of persister threads (default: <code>1</code>)
+     * @throws IllegalArgumentException if the configured value is not a
+     * positive integer
+     */
+    public int getPersisterThreads(){
+        return getThreads(IndexingConstants.KEY_PERSISTER_THREADS);
+    }
+    
+    private int getThreads(String key){
+        Object value = configuration.get(key);
+        if(value == null || value.toString().trim().isEmpty()){
+            return 1;
+        }
+        int threads;
+        try {
+            threads = Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unable to parse the number of threads "
+                + "from the value '" + value + "' of the key '" + key + "'!", e);
+        }
+        if(threads < 1){
+            throw new IllegalArgumentException("The number of threads configured by '"
+                + key + "' MUST BE > 0 (parsed: " + value + ")!");
+        }
+        return threads;
+    }
     /**
      * The {@link ScoreNormaliser} as configured by the {@link IndexingConstants#KEY_SCORE_NORMALIZER}
      * by the main indexing configuration.
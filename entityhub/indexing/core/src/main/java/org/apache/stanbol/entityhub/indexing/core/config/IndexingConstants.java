@@ -49,5 +49,26 @@ public interface IndexingConstants {
     String KEY_ENTITY_PROCESSOR      = "entityProcessor";
     String KEY_ENTITY_POST_PROCESSOR = "entityPostProcessor";
     String KEY_FAIL_ON_ERROR_LOADING_RESOURCE = "failOnErrorLoadingResource";
+    /**
+     * The number of threads used to read entities from the indexing source.
+     * Only supported if the entity data are looked up by using an 
+     * EntityDataProvider based on IDs provided by an EntityIterator. In this
+     * case the EntityDataProvider MUST BE thread safe if a value &gt; 1 is
+     * configured. Default: <code>1</code>
+     */
+    String KEY_READER_THREADS = "readerThreads";
+    /**
+     * The number of threads used to process entities with the configured
+     * {@link #KEY_ENTITY_PROCESSOR entity processors} (and
+     * {@link #KEY_ENTITY_POST_PROCESSOR entity post processors}). If a value
+     * &gt; 1 is configured all processors MUST BE thread safe.
+     * Default: <code>1</code>
+     */
+    String KEY_PROCESSOR_THREADS = "processorThreads";
+    /**
+     * The number of threads used to store processed entities to the Yard of
+     * the {@link #KEY_INDEXING_DESTINATION}. Default: <code>1</code>
+     */
+    String KEY_PERSISTER_THREADS = "persisterThreads";
 
 }
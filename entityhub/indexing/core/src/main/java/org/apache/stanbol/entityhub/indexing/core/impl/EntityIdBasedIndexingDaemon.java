@@ -52,9 +52,16 @@ public class EntityIdBasedIndexingDaemon extends AbstractEntityIndexingDaemon {
 
     @Override
     public void run() {
-        while(entityIdIterator.hasNext()){
+        while(true){
             Long start = Long.valueOf(System.currentTimeMillis());
-            EntityScore entityScore = entityIdIterator.next();
+            EntityScore entityScore;
+            //several daemons might share the same iterator
+            synchronized (entityIdIterator) {
+                if(!entityIdIterator.hasNext()){
+                    break;
+                }
+                entityScore = entityIdIterator.next();
+            }
             Float score;
             if(normaliser != null){
                 score = normaliser.normalise(entityScore.score);
@@ -70,6 +70,15 @@ public class FinishedEntityDaemon extends IndexingDaemon<Representation,Object>
      * The charset used for the {@link #idWriter}
      */
     private static final Charset UTF8 = Charset.forName("UTF-8");
+    /*
+     * Number of threads of the indexing steps and the queues between them.
+     * Used to report the throughput of the steps and the queue depths
+     */
+    private int sourceThreads = 1;
+    private int processThreads = 1;
+    private int storeThreads = 1;
+    private BlockingQueue<?> sourcedQueue;
+    private BlockingQueue<?> processedQueue;
     
     
     public FinishedEntityDaemon(String name, BlockingQueue<QueueItem<Representation>> consume,
@@ -90,6 +99,30 @@ public class FinishedEntityDaemon extends IndexingDaemon<Representation,Object>
         }
     }
 
+    /**
+     * Sets the number of threads used for the different indexing steps and
+     * the queues between those steps. This information is used to report
+     * the maximum throughput of the steps and the depths of the queues. 
+     * A throughput of a step close to the overall throughput indicates the
+     * bottleneck. Full queues before and empty queues after a step indicate
+     * the same.
+     * @param sourceThreads the number of threads reading from the source
+     * @param processThreads the number of threads processing entities
+     * @param storeThreads the number of threads storing entities
+     * @param sourcedQueue the queue with the entities read from the source
+     * or <code>null</code> if not available
+     * @param processedQueue the queue with the processed entities
+     * or <code>null</code> if not available
+     */
+    public void setStages(int sourceThreads, int processThreads, int storeThreads,
+            BlockingQueue<?> sourcedQueue, BlockingQueue<?> processedQueue){
+        this.sourceThreads = Math.max(1, sourceThreads);
+        this.processThreads = Math.max(1, processThreads);
+        this.storeThreads = Math.max(1, storeThreads);
+        this.sourcedQueue = sourcedQueue;
+        this.processedQueue = processedQueue;
+    }
+
     @Override
     public void run() {
         count = 0; //Elements indexed
@@ -192,8 +225,28 @@ public class FinishedEntityDaemon extends IndexingDaemon<Representation,Object>
         double itemDurationMinor = countedMinor>0?durationMinor/countedMinor:-1;
 //        double itemTimeAll = countedAll>0?timeAll/countedAll:-1;
         double itemTimeMinor = countedMinor>0?timeMinor/countedMinor:-1;
-        out.info(String.format("    - %d items in %dsec (last %d in %dsec | %7.3fms/item | %7.3fms in queue)",
-            count,(int)interval/1000,minor,(int)intervalMinor/1000,itemDurationMinor,itemTimeMinor));
+        out.info(String.format("    - %d items in %dsec (last %d in %dsec | %7.3fms/item | %7.3fms in queue)%s",
+            count,(int)interval/1000,minor,(int)intervalMinor/1000,itemDurationMinor,itemTimeMinor,
+            getQueueDepths()));
+    }
+    /**
+     * @return the current depth of the queues between the indexing steps
+     */
+    private String getQueueDepths(){
+        if(sourcedQueue == null && processedQueue == null){
+            return "";
+        }
+        return String.format(" queues: sourced %d | processed %d | stored %d",
+            sourcedQueue == null ? -1 : sourcedQueue.size(),
+            processedQueue == null ? -1 : processedQueue.size(),
+            getConsumeQueue().size());
+    }
+    /**
+     * The maximum throughput (items/sec) of an indexing step based on the
+     * number of threads and the average duration of the step.
+     */
+    private static double getThroughput(int threads, double itemDuration){
+        return itemDuration > 0 ? threads * 1000 / itemDuration : -1;
     }
 
     private void printMajor(long current) {
@@ -215,12 +268,17 @@ public class FinishedEntityDaemon extends IndexingDaemon<Representation,Object>
             count,(int)interval/1000,(float)interval/count,itemDurationAll,itemTimeAll));
         out.info(String.format("  last %d items in %dsec (%7.3fms/item): processing %7.3fms/item | queue: %7.3fms",
             major,(int)intervalMajor/1000,(float)intervalMajor/major,itemDurationMajor,itemTimeMajor));
-        out.info(String.format("  - source   : all: %7.3fms/item | current: %7.3fms/item",
-            itemSourceDurationAll,itemSourceDurationMajor));
-        out.info(String.format("  - processing: all: %7.3fms | current: %7.3fms/item",
-            itemProcessingDurationAll,itemProcessingDurationMajor));
-        out.info(String.format("  - store     : all: %7.3fms | current: %7.3fms/item",
-            itemStoreDurationAll,itemStoreDurationMajor));
+        out.info(String.format("  - source   : all: %7.3fms/item | current: %7.3fms/item (%d threads: max %9.1f items/sec)",
+            itemSourceDurationAll,itemSourceDurationMajor,
+            sourceThreads, getThroughput(sourceThreads, itemSourceDurationMajor)));
+        out.info(String.format("  - processing: all: %7.3fms | current: %7.3fms/item (%d threads: max %9.1f items/sec)",
+            itemProcessingDurationAll,itemProcessingDurationMajor,
+            processThreads, getThroughput(processThreads, itemProcessingDurationMajor)));
+        out.info(String.format("  - store     : all: %7.3fms | current: %7.3fms/item (%d threads: max %9.1f items/sec)",
+            itemStoreDurationAll,itemStoreDurationMajor,
+            storeThreads, getThroughput(storeThreads, itemStoreDurationMajor)));
+        out.info(String.format("  - current throughput: %9.1f items/sec%s",
+            intervalMajor > 0 ? major * 1000d / intervalMajor : -1d, getQueueDepths()));
     }
     private void printSummary(long current){
         long interval = current-start;
@@ -228,7 +286,7 @@ public class FinishedEntityDaemon extends IndexingDaemon<Representation,Object>
         double itemTimeAll = countedAll>0?timeAll/countedAll:-1;
         double itemSourceDurationAll = countedAll>0? sourceDurationAll/countedAll:-1;
         double itemProcessingDurationAll = countedAll>0? processDurationAll/countedAll:-1;
-        double itemStoreDurationAll = countedAll>0? sourceDurationAll/countedAll:-1;
+        double itemStoreDurationAll = countedAll>0? storeDurationAll/countedAll:-1;
         out.info(String.format("Indexed %d items in %dsec (%7.3fms/item): processing: %7.3fms/item | queue: %7.3fms",
             count,(int)interval/1000,(float)interval/count,itemDurationAll,itemTimeAll));
         out.info(String.format("  - source   : %7.3fms/item",
@@ -237,6 +295,8 @@ public class FinishedEntityDaemon extends IndexingDaemon<Representation,Object>
             itemProcessingDurationAll));
         out.info(String.format("  - store     : %7.3fms/item",
             itemStoreDurationAll));
+        out.info(String.format("  - threads   : source %d | processing %d | store %d",
+            sourceThreads, processThreads, storeThreads));
         
     }
 
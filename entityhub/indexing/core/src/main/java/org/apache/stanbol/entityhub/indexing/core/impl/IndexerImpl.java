@@ -98,6 +98,18 @@ public class IndexerImpl implements Indexer {
 
     private int chunkSize;
     public static final int MIN_QUEUE_SIZE = 500;
+    /**
+     * The number of threads reading entities from the indexing source
+     */
+    private int readerThreads = 1;
+    /**
+     * The number of threads processing entities
+     */
+    private int processorThreads = 1;
+    /**
+     * The number of threads storing entities to the {@link Yard}
+     */
+    private int persisterThreads = 1;
     
     private boolean indexAllEntitiesState = false;
     
@@ -263,6 +275,45 @@ public class IndexerImpl implements Indexer {
     public int getChunkSize() {
         return chunkSize;
     }
+    /**
+     * Setter for the number of threads used for the different indexing
+     * steps. Values &lt;= 0 are replaced with <code>1</code>.<p>
+     * NOTE: Reader threads are only supported if entities are looked up from
+     * an {@link EntityDataProvider} based on IDs provided by an 
+     * {@link EntityIterator}. In this case the {@link EntityDataProvider} 
+     * MUST BE thread safe. If more than one processor thread is used all
+     * {@link EntityProcessor}s MUST BE thread safe.
+     * @param reader the number of threads reading entities from the source
+     * @param processor the number of threads processing entities
+     * @param persister the number of threads storing entities to the Yard
+     * @throws IllegalStateException if the indexing process has already started
+     */
+    public void setThreads(int reader, int processor, int persister) throws IllegalStateException {
+        if(getState().ordinal() >= State.INDEXING.ordinal()){
+            throw new IllegalStateException("Setting the number of threads is only allowed before starting the indexing process!");
+        }
+        this.readerThreads = Math.max(1, reader);
+        this.processorThreads = Math.max(1, processor);
+        this.persisterThreads = Math.max(1, persister);
+    }
+    /**
+     * @return the number of threads reading entities from the source
+     */
+    public int getReaderThreads() {
+        return readerThreads;
+    }
+    /**
+     * @return the number of threads processing entities
+     */
+    public int getProcessorThreads() {
+        return processorThreads;
+    }
+    /**
+     * @return the number of threads storing entities to the Yard
+     */
+    public int getPersisterThreads() {
+        return persisterThreads;
+    }
     /* (non-Javadoc)
      * @see org.apache.stanbol.entityhub.indexing.core.IndexerInterface#getYard()
      */
@@ -454,44 +505,52 @@ public class IndexerImpl implements Indexer {
         //Set holding all active post processing deamons
         final SortedSet<IndexingDaemon<?,?>> activeIndexingDeamons = 
             new TreeSet<IndexingDaemon<?,?>>();
-        //create the IndexingDaemos
-        //TODO: Here we would need to create multiple instances in case
-        //      one would e.g. like to use several threads for processing entities
-        //(1) the daemon reading from the IndexingSources
+        //create the IndexingDaemos (multiple instances for the configured
+        //number of threads of the reader, processor and persister steps)
+        //(1) the daemons reading from the IndexingSources
         String entitySourceReaderName = name + ": post-processing: Entity Reader Deamon";
-        activeIndexingDeamons.add(
-            new EntityIdBasedIndexingDaemon(
-                entitySourceReaderName,
-                indexedEntityQueue, errorEntityQueue, 
-                entityIterator, 
-                dataProvider, 
-                null, //no score normaliser
-                true)); //post-process all indexed entities
-        //(2) The daemon for post-processing the entities
-        activeIndexingDeamons.add(
-            new EntityProcessorRunnable(
-                name +": post-processing: Entity Processor Deamon",
-                indexedEntityQueue, //it consumes indexed Entities
-                processedEntityQueue,  //it produces processed Entities
-                errorEntityQueue,
-                entityPostProcessors, 
-                //TODO: check that the score is not overriden by the NULL
-                //      parsed by the used LineBasedEntityIterator!
-                Collections.singleton(SCORE_FIELD))); //ensure the score not changed
-        //(3) The daemon for persisting the entities
-        activeIndexingDeamons.add(
-            new EntityPersisterRunnable(
-                name + ": Entity Perstisting Deamon",
-                processedEntityQueue, //it consumes processed Entities
-                finishedEntityQueue, //it produces finished Entities
-                errorEntityQueue,
-                chunkSize, indexingDestination.getYard()));
+        for(int i = 0; i < readerThreads; i++){
+            activeIndexingDeamons.add(
+                new EntityIdBasedIndexingDaemon(
+                    getDaemonName(entitySourceReaderName, i, readerThreads),
+                    indexedEntityQueue, errorEntityQueue, 
+                    entityIterator, 
+                    dataProvider, 
+                    null, //no score normaliser
+                    true)); //post-process all indexed entities
+        }
+        //(2) The daemons for post-processing the entities
+        for(int i = 0; i < processorThreads; i++){
+            activeIndexingDeamons.add(
+                new EntityProcessorRunnable(
+                    getDaemonName(name +": post-processing: Entity Processor Deamon", 
+                        i, processorThreads),
+                    indexedEntityQueue, //it consumes indexed Entities
+                    processedEntityQueue,  //it produces processed Entities
+                    errorEntityQueue,
+                    entityPostProcessors, 
+                    //TODO: check that the score is not overriden by the NULL
+                    //      parsed by the used LineBasedEntityIterator!
+                    Collections.singleton(SCORE_FIELD))); //ensure the score not changed
+        }
+        //(3) The daemons for persisting the entities
+        for(int i = 0; i < persisterThreads; i++){
+            activeIndexingDeamons.add(
+                new EntityPersisterRunnable(
+                    getDaemonName(name + ": Entity Perstisting Deamon", i, persisterThreads),
+                    processedEntityQueue, //it consumes processed Entities
+                    finishedEntityQueue, //it produces finished Entities
+                    errorEntityQueue,
+                    chunkSize, indexingDestination.getYard()));
+        }
         //(4) The daemon for logging finished entities
-        activeIndexingDeamons.add(
-            new FinishedEntityDaemon(
-                name + ": Finished Entity Logger Deamon",
-                finishedEntityQueue, -1, log, 
-                null)); //we have already all entity ids!
+        FinishedEntityDaemon finishedEntityDaemon = new FinishedEntityDaemon(
+            name + ": Finished Entity Logger Deamon",
+            finishedEntityQueue, -1, log, 
+            null); //we have already all entity ids!
+        finishedEntityDaemon.setStages(readerThreads, processorThreads, persisterThreads,
+            indexedEntityQueue, processedEntityQueue);
+        activeIndexingDeamons.add(finishedEntityDaemon);
         //(5) The daemon for logging errors
         activeIndexingDeamons.add(
             new EntityErrorLoggerDaemon(
@@ -507,6 +566,13 @@ public class IndexerImpl implements Indexer {
         
         setState(State.POSTPROCESSED);
     }
+    /**
+     * The name of the i-th of the parsed number of daemons
+     */
+    private static String getDaemonName(String name, int i, int num){
+        return num > 1 ? new StringBuilder(name).append(" (").append(i+1)
+                .append('/').append(num).append(')').toString() : name;
+    }
     /**
      * Internally used to start the indexing/post-processing daemons and wait
      * until they have finished.
@@ -626,21 +692,31 @@ public class IndexerImpl implements Indexer {
         //Set holding all active IndexingDaemons
         final SortedSet<IndexingDaemon<?,?>> activeIndexingDeamons = 
             new TreeSet<IndexingDaemon<?,?>>();
-        //create the IndexingDaemos
-        //TODO: Here we would need to create multiple instances in case
-        //      one would e.g. like to use several threads for processing entities
-        //(1) the daemon reading from the IndexingSources
+        //create the IndexingDaemos (multiple instances for the configured
+        //number of threads of the reader, processor and persister steps)
+        //(1) the daemons reading from the IndexingSources
         String entitySourceReaderName = name +": Entity Source Reader Deamon";
+        int sourceThreads;
         if(entityIterator != null){
-            activeIndexingDeamons.add(
-                new EntityIdBasedIndexingDaemon(
-                    entitySourceReaderName,
-                    indexedEntityQueue, errorEntityQueue, 
-                    entityIterator, 
-                    dataProvider, 
-                    scoreNormaliser,
-                    indexAllEntitiesState));
+            sourceThreads = readerThreads;
+            for(int i = 0; i < readerThreads; i++){
+                activeIndexingDeamons.add(
+                    new EntityIdBasedIndexingDaemon(
+                        getDaemonName(entitySourceReaderName, i, readerThreads),
+                        indexedEntityQueue, errorEntityQueue, 
+                        entityIterator, 
+                        dataProvider, 
+                        scoreNormaliser,
+                        indexAllEntitiesState));
+            }
         } else {
+            //EntityDataIterators need to be read by a single thread
+            if(readerThreads > 1){
+                log.warn("{} reader threads are configured, but the EntityDataIterable {} "
+                    + "only supports a single reader thread!", readerThreads, 
+                    dataIterable.getClass().getSimpleName());
+            }
+            sourceThreads = 1;
             activeIndexingDeamons.add(
                 new EntityDataBasedIndexingDaemon(
                     entitySourceReaderName,
@@ -650,28 +726,34 @@ public class IndexerImpl implements Indexer {
                     scoreNormaliser,
                     indexAllEntitiesState));
         }
-        //(2) The daemon for processing the entities
-        activeIndexingDeamons.add(
-            new EntityProcessorRunnable(
-                name +": Entity Processor Deamon",
-                indexedEntityQueue, //it consumes indexed Entities
-                processedEntityQueue,  //it produces processed Entities
-                errorEntityQueue,
-                entityProcessors, 
-                Collections.singleton(SCORE_FIELD)));
-        //(3) The daemon for persisting the entities
-        activeIndexingDeamons.add(
-            new EntityPersisterRunnable(
-                name + ": Entity Perstisting Deamon",
-                processedEntityQueue, //it consumes processed Entities
-                finishedEntityQueue, //it produces finished Entities
-                errorEntityQueue,
-                chunkSize, indexingDestination.getYard()));
+        //(2) The daemons for processing the entities
+        for(int i = 0; i < processorThreads; i++){
+            activeIndexingDeamons.add(
+                new EntityProcessorRunnable(
+                    getDaemonName(name +": Entity Processor Deamon", i, processorThreads),
+                    indexedEntityQueue, //it consumes indexed Entities
+                    processedEntityQueue,  //it produces processed Entities
+                    errorEntityQueue,
+                    entityProcessors, 
+                    Collections.singleton(SCORE_FIELD)));
+        }
+        //(3) The daemons for persisting the entities
+        for(int i = 0; i < persisterThreads; i++){
+            activeIndexingDeamons.add(
+                new EntityPersisterRunnable(
+                    getDaemonName(name + ": Entity Perstisting Deamon", i, persisterThreads),
+                    processedEntityQueue, //it consumes processed Entities
+                    finishedEntityQueue, //it produces finished Entities
+                    errorEntityQueue,
+                    chunkSize, indexingDestination.getYard()));
+        }
         //(4) The daemon for logging finished entities
-        activeIndexingDeamons.add(
-            new FinishedEntityDaemon(
-                name + ": Finished Entity Logger Deamon",
-                finishedEntityQueue, -1, log, indexedEntityIdOutputStream));
+        FinishedEntityDaemon finishedEntityDaemon = new FinishedEntityDaemon(
+            name + ": Finished Entity Logger Deamon",
+            finishedEntityQueue, -1, log, indexedEntityIdOutputStream);
+        finishedEntityDaemon.setStages(sourceThreads, processorThreads, persisterThreads,
+            indexedEntityQueue, processedEntityQueue);
+        activeIndexingDeamons.add(finishedEntityDaemon);
         //(5) The daemon for logging errors
         activeIndexingDeamons.add(
             new EntityErrorLoggerDaemon(
@@ -27,6 +27,7 @@ import java.util.EventObject;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,6 +48,12 @@ public abstract class IndexingDaemon<CI,PI> implements Comparable<IndexingDaemon
      * Used for {@link #compareTo(IndexingDaemon)}
      */
     private final Integer sequence;
+    /**
+     * Used by {@link #compareTo(IndexingDaemon)} to order daemons with the
+     * same {@link #sequence}
+     */
+    private final long instance;
+    private static final AtomicLong instanceCount = new AtomicLong();
     protected IndexingDaemon(String name,
                              Integer sequence,
                              BlockingQueue<QueueItem<CI>> consume,
@@ -62,6 +69,7 @@ public abstract class IndexingDaemon<CI,PI> implements Comparable<IndexingDaemon
         } else {
             this.sequence = sequence;
         }
+        this.instance = instanceCount.incrementAndGet();
         this.consume = consume;
         this.produce = produce;
         this.error = error;
@@ -228,15 +236,9 @@ public abstract class IndexingDaemon<CI,PI> implements Comparable<IndexingDaemon
             //the ordering within the same sequence position is of no importance
             //but it is important to only return 0 if the two Objects are
             //equals because we will use this class together with SortedSets!
-            if(hashCode() == o.hashCode()){
-                if(equals(o)){
-                    return 0;
-                } else {
-                    return -1; //no idea if that is OK
-                }
-            } else {
-                return hashCode()-o.hashCode();
-            }
+            //(several daemons with the same sequence are used if multiple
+            //threads are configured for an indexing step)
+            return instance < o.instance ? -1 : instance == o.instance ? 0 : 1;
         }
     }
 }
\ No newline at end of file
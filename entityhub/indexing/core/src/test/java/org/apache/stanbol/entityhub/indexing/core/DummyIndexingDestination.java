@@ -80,6 +80,7 @@ public class DummyIndexingDestination implements IndexingDestination {
         public Representation store(Representation representation) throws NullPointerException, YardException {
             if(representation != null){
                 IndexerTest.indexedData.put(representation.getId(), representation);
+                IndexerTest.storedCount.incrementAndGet();
             }
             return representation;
         }
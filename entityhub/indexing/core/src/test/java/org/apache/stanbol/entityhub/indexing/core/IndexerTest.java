@@ -32,10 +32,14 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.stanbol.entityhub.core.model.InMemoryValueFactory;
+import org.apache.stanbol.entityhub.indexing.core.Indexer.State;
 import org.apache.stanbol.entityhub.indexing.core.config.IndexingConfig;
+import org.apache.stanbol.entityhub.indexing.core.impl.IndexerImpl;
 import org.apache.stanbol.entityhub.servicesapi.defaults.NamespaceEnum;
 import org.apache.stanbol.entityhub.servicesapi.model.Reference;
 import org.apache.stanbol.entityhub.servicesapi.model.Representation;
@@ -64,9 +68,14 @@ public class IndexerTest {
      */
     protected static final Map<String,Representation> testData = new HashMap<String,Representation>();
     /**
-     * Hold the results of the indexing process
+     * Hold the results of the indexing process. Thread safe as Entities might
+     * be stored by several threads
      */
-    protected static final Map<String,Representation> indexedData = new HashMap<String,Representation>();
+    protected static final Map<String,Representation> indexedData = new ConcurrentHashMap<String,Representation>();
+    /**
+     * The number of Entities stored to the {@link DummyIndexingDestination}
+     */
+    protected static final AtomicInteger storedCount = new AtomicInteger();
     protected static Logger log = LoggerFactory.getLogger(IndexerTest.class);
     private static String rootDir;
     private static IndexerFactory factory;
@@ -136,6 +145,23 @@ public class IndexerTest {
         validateAllIndexed();
         
     }
+    /**
+     * Tests indexing with several reader, processor and persister threads.
+     * Every Entity needs to be indexed exactly once and the indexer needs
+     * to terminate.
+     */
+    @Test(timeout=300000)
+    public void testMultiThreadedEntityIdIteratingMode(){
+        indexedData.clear();
+        storedCount.set(0);
+        Indexer indexer = factory.create(CONFIG_ROOT+"idIterating",CONFIG_ROOT+"idIterating");
+        ((IndexerImpl)indexer).setThreads(4, 3, 2);
+        indexer.index();
+        assertEquals(State.FINISHED, indexer.getState());
+        //check that every entity was stored once
+        assertEquals(NUM_ENTITIES, storedCount.get());
+        validateAllIndexed();
+    }
     /**
      * validate the all the indexed resources!<p>
      * NOTE: That the asserts expect a specific configuration as provided by the
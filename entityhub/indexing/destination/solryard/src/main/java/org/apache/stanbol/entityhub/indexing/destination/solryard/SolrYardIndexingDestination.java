@@ -48,15 +48,23 @@ import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LiveIndexWriterConfig;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.TieredMergePolicy;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.solr.client.solrj.SolrServer;
 import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
 import org.apache.solr.core.CoreContainer;
 import org.apache.solr.core.CoreDescriptor;
 import org.apache.solr.core.SolrCore;
+import org.apache.solr.core.SolrConfig.UpdateHandlerInfo;
 import org.apache.solr.handler.dataimport.SolrWriter;
 import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.update.DirectUpdateHandler2;
+import org.apache.solr.update.UpdateHandler;
 import org.apache.solr.util.RefCounted;
 import org.apache.stanbol.entityhub.core.mapping.FieldMappingUtils;
 import org.apache.stanbol.entityhub.core.site.CacheUtils;
@@ -186,6 +194,29 @@ public class SolrYardIndexingDestination implements IndexingDestination {
     public static final String FST_THREADS = "fstThreads";
     
     private static final int DEFAULT_FST_THREADS = 4;
+    /**
+     * If enabled (<code>true</code>) the SolrCore is configured for the
+     * initial bulk load of the index: no intermediate (soft) commits are
+     * performed, Lucene uses a large RAM buffer (see
+     * {@link #BULK_LOAD_RAM_BUFFER}) to build big segments and merges are
+     * delayed until the final optimize in the {@link #finalise()} phase.<p>
+     * This settings are only applied to the SolrCore used for indexing. The
+     * Solr configuration included in the Solr Index archive is not changed.
+     */
+    public static final String BULK_LOAD = "bulkLoad";
+    /**
+     * The size of the RAM buffer (in MB) used by Lucene in the 
+     * {@link #BULK_LOAD} mode.
+     */
+    public static final String BULK_LOAD_RAM_BUFFER = "bulkLoadRamBuffer";
+    
+    private static final int DEFAULT_BULK_LOAD_RAM_BUFFER = 512;
+    /**
+     * The number of segments per tier used by the {@link TieredMergePolicy}
+     * in the {@link #BULK_LOAD} mode. The higher value avoids merges that
+     * would be repeated by the final optimize.
+     */
+    private static final double BULK_LOAD_SEGMENTS_PER_TIER = 50;
     /**
      * The location of the SolrIndex. This MUST BE an absolute Path in case it 
      * refers to a directory of the local file system and <code>null</code> in
@@ -245,6 +276,16 @@ public class SolrYardIndexingDestination implements IndexingDestination {
      * Set in {@link #setConfiguration(Map)}
      */
     private int fstThreads = DEFAULT_FST_THREADS;
+    /**
+     * If the {@link #BULK_LOAD} mode is enabled.
+     * Set in {@link #setConfiguration(Map)}
+     */
+    private boolean bulkLoad = false;
+    /**
+     * The RAM buffer size in MB used in the {@link #BULK_LOAD} mode.
+     * Set in {@link #setConfiguration(Map)}
+     */
+    private int bulkLoadRamBuffer = DEFAULT_BULK_LOAD_RAM_BUFFER;
 
     private NamespacePrefixService  namespacePrefixService;
     
@@ -524,7 +565,28 @@ public class SolrYardIndexingDestination implements IndexingDestination {
         if(fstThreads <= 0){
             fstThreads = DEFAULT_FST_THREADS;
         }
-        
+        //read the bulk load config
+        value = config.get(BULK_LOAD);
+        if(value instanceof Boolean){
+            bulkLoad = ((Boolean)value).booleanValue();
+        } else if(value != null){
+            //also enable if the parameter is present without a value
+            bulkLoad = StringUtils.isBlank(value.toString()) || Boolean.parseBoolean(value.toString());
+        }
+        value = config.get(BULK_LOAD_RAM_BUFFER);
+        if(value instanceof Number){
+            bulkLoadRamBuffer = ((Number)value).intValue();
+        } else if(value != null){
+            try {
+                bulkLoadRamBuffer = Integer.parseInt(value.toString());
+            }catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Unable to parse the bulk load RAM buffer size from "
+                    +value.toString(), e);
+            }
+        }
+        if(bulkLoadRamBuffer <= 0){
+            bulkLoadRamBuffer = DEFAULT_BULK_LOAD_RAM_BUFFER;
+        }
     }
     /**
      * Setter for the FST configurations using the same format as defined by the
@@ -549,6 +611,31 @@ public class SolrYardIndexingDestination implements IndexingDestination {
     public int getFstThreads() {
         return fstThreads;
     }
+    /**
+     * Enables/disables the {@link #BULK_LOAD} mode. Needs to be called
+     * before {@link #initialise()}
+     * @param state the state
+     */
+    public void setBulkLoad(boolean state){
+        this.bulkLoad = state;
+    }
+    public boolean isBulkLoad() {
+        return bulkLoad;
+    }
+    /**
+     * Setter for the RAM buffer size used in the {@link #BULK_LOAD} mode
+     * @param sizeMB the size in MB. Values &lt;= 0 will set the default
+     */
+    public void setBulkLoadRamBuffer(int sizeMB){
+        if(sizeMB < 1){
+            this.bulkLoadRamBuffer = DEFAULT_BULK_LOAD_RAM_BUFFER;
+        } else {
+            this.bulkLoadRamBuffer = sizeMB;
+        }
+    }
+    public int getBulkLoadRamBuffer() {
+        return bulkLoadRamBuffer;
+    }
     /**
      * Getter for the FST models that are created in the {@link #finalise()}
      * phase
@@ -660,9 +747,61 @@ public class SolrYardIndexingDestination implements IndexingDestination {
                 throw new IllegalStateException("Unable to initialise SolrCore "+solrServerRef);
             }
         }
+        if(bulkLoad){
+            //no need to commit before the end of the indexing process
+            solrYardConfig.setCommitWithinDuration(Integer.MAX_VALUE);
+            initBulkLoad();
+        }
         log.info("   ... create SolrYard");
         this.solrYard = new SolrYard(server,solrYardConfig, namespacePrefixService);
     }
+    /**
+     * Configures the {@link #core} for the {@link #BULK_LOAD} mode by changing
+     * the live configuration of the IndexWriter and deactivating the 
+     * auto (soft) commits. Changes are not persisted in the Solr configuration.
+     */
+    private void initBulkLoad() {
+        log.info("   ... configure SolrCore for bulk loading (RAM buffer: {}MB)", bulkLoadRamBuffer);
+        UpdateHandler updateHandler = core.getUpdateHandler();
+        if(updateHandler instanceof DirectUpdateHandler2){
+            DirectUpdateHandler2 uh = (DirectUpdateHandler2)updateHandler;
+            //-1 deactivates the time based auto commits
+            uh.getCommitTracker().setTimeUpperBound(-1);
+            uh.getSoftCommitTracker().setTimeUpperBound(-1);
+            //the doc based auto commits can not be changed at runtime
+            UpdateHandlerInfo uhInfo = core.getSolrConfig().getUpdateHandlerInfo();
+            if(uhInfo.autoCommmitMaxDocs > 0 || uhInfo.autoSoftCommmitMaxDocs > 0){
+                log.warn("SolrCore {} is configured to auto commit every {} (soft: {}) " +
+                    "documents. Remove the maxDocs settings from the solrconfig.xml " +
+                    "to avoid intermediate commits while bulk loading!", new Object[]{
+                        core.getName(), uhInfo.autoCommmitMaxDocs, uhInfo.autoSoftCommmitMaxDocs});
+            }
+        } else {
+            log.warn("Unable to deactivate auto commits for UpdateHandler {}",
+                updateHandler.getClass().getName());
+        }
+        RefCounted<IndexWriter> writerRef;
+        try {
+            writerRef = core.getSolrCoreState().getIndexWriter(core);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to get the IndexWriter of SolrCore "
+                + core.getName() + " to configure bulk loading", e);
+        }
+        try {
+            //the IndexWriter uses a thread state per persister thread so
+            //that segments are build in parallel
+            LiveIndexWriterConfig iwConfig = writerRef.get().getConfig();
+            iwConfig.setMaxBufferedDocs(IndexWriterConfig.DISABLE_AUTO_FLUSH);
+            iwConfig.setRAMBufferSizeMB(bulkLoadRamBuffer);
+            MergePolicy mergePolicy = iwConfig.getMergePolicy();
+            if(mergePolicy instanceof TieredMergePolicy){
+                TieredMergePolicy tmp = (TieredMergePolicy)mergePolicy;
+                tmp.setSegmentsPerTier(Math.max(tmp.getSegmentsPerTier(), BULK_LOAD_SEGMENTS_PER_TIER));
+            }
+        } finally {
+            writerRef.decref();
+        }
+    }
 
     @Override
     public Yard getYard() {
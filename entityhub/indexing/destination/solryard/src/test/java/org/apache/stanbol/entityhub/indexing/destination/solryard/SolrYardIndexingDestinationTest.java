@@ -23,17 +23,25 @@ import static org.junit.Assert.assertTrue;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
 import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.FSDirectory;
 import org.apache.stanbol.commons.solr.managed.ManagedSolrServer;
 import org.apache.stanbol.commons.solr.managed.standalone.StandaloneManagedSolrServer;
 import org.apache.stanbol.entityhub.indexing.core.IndexingDestination;
@@ -44,6 +52,7 @@ import org.apache.stanbol.entityhub.servicesapi.model.Representation;
 import org.apache.stanbol.entityhub.servicesapi.model.rdf.RdfResourceEnum;
 import org.apache.stanbol.entityhub.servicesapi.yard.Yard;
 import org.apache.stanbol.entityhub.servicesapi.yard.YardException;
+import org.apache.stanbol.entityhub.yard.solr.defaults.SolrConst;
 import org.apache.stanbol.entityhub.yard.solr.impl.SolrYard;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -174,6 +183,58 @@ public class SolrYardIndexingDestinationTest {
             CONFIG_ROOT+'/'+testName){};
         validateSolrDestination(config);
     }
+    /**
+     * Tests the {@link SolrYardIndexingDestination#BULK_LOAD} mode. As no
+     * commits are performed while indexing all stored Entities need to be
+     * searchable in the index after the {@link IndexingDestination#finalise()}
+     */
+    @Test
+    public void testBulkLoad() throws YardException, IOException {
+        String testName = "bulkLoad";
+        IndexingConfig config = new IndexingConfig(CONFIG_ROOT+File.separatorChar+testName,
+            CONFIG_ROOT+'/'+testName){};
+        IndexingDestination destination = config.getIndexingDestination();
+        assertNotNull(destination);
+        assertTrue(((SolrYardIndexingDestination)destination).isBulkLoad());
+        assertEquals(16, ((SolrYardIndexingDestination)destination).getBulkLoadRamBuffer());
+        destination.initialise();
+        Yard yard = destination.getYard();
+        List<String> ids = new ArrayList<String>();
+        List<Representation> reps = new ArrayList<Representation>();
+        for(int i=0;i<1000;i++){
+            String id = "http://www.example.com/entity#"+i;
+            Representation rep = yard.getValueFactory().createRepresentation(id);
+            rep.add(NamespaceEnum.rdfs+"label", "test "+i);
+            rep.add(RdfResourceEnum.entityRank.getUri(), Float.valueOf(0.5f));
+            reps.add(rep);
+            ids.add(id);
+            if(reps.size() >= 100){
+                yard.store(reps);
+                reps.clear();
+            }
+        }
+        destination.finalise();
+        //the SolrCore is closed by finalise() so open the created index
+        File indexDir = null;
+        for(File file : FileUtils.listFiles(config.getDestinationFolder(), null, true)){
+            if(file.getName().equals("segments.gen")){
+                indexDir = file.getParentFile();
+            }
+        }
+        assertNotNull("No Lucene index found in "+config.getDestinationFolder(), indexDir);
+        DirectoryReader reader = DirectoryReader.open(FSDirectory.open(indexDir));
+        try {
+            IndexSearcher searcher = new IndexSearcher(reader);
+            for(String id : ids){
+                assertEquals("Entity "+id+" not searchable", 1, searcher.search(
+                    new TermQuery(new Term(SolrConst.DOCUMENT_ID_FIELD, id)), 1).totalHits);
+            }
+            //the final optimize merges all segments
+            assertEquals(1, reader.leaves().size());
+        } finally {
+            reader.close();
+        }
+    }
     
     /**
      * Checks if the SolrYardIndexingDestination returned by the 
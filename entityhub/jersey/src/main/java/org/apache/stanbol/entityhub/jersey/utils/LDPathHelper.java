@@ -22,11 +22,13 @@ import static org.apache.stanbol.commons.web.base.utils.MediaTypeUtil.getAccepta
 import static org.apache.stanbol.entityhub.ldpath.LDPathUtils.getReader;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -109,9 +111,11 @@ public final class LDPathHelper {
          * automatically added the Graph. The only thing we need to do is to
          * wrap the Graph in the response.
          */
+        List<Reference> references = new ArrayList<Reference>(contexts.size());
         for(String context : contexts){
-            ldPath.execute(vf.createReference(context), program);
+            references.add(vf.createReference(context));
         }
+        ldPath.execute(references, program);
         return data;
     }
     /**
@@ -224,11 +228,19 @@ public final class LDPathHelper {
                                                              EntityhubLDPath ldPath,
                                                              AbstractBackend backend,
                                                              ValueFactory vf) {
-        Collection<Representation> transformedResults = new LinkedHashSet<Representation>();
+        List<Representation> results = new ArrayList<Representation>();
+        List<Reference> contexts = new ArrayList<Reference>();
         while(resultIt.hasNext()){
             Representation rep = resultIt.next();
             backend.addLocal(rep); //add results to local cache
-            Representation transformed = ldPath.execute(vf.createReference(rep.getId()), program);
+            results.add(rep);
+            contexts.add(vf.createReference(rep.getId()));
+        }
+        //execute the program on all results to allow batched loading of nodes
+        Iterator<Representation> transformedIt = ldPath.execute(contexts, program).iterator();
+        Collection<Representation> transformedResults = new LinkedHashSet<Representation>();
+        for(Representation rep : results){
+            Representation transformed = transformedIt.next();
             //also add additional selected fields
             for(String selected : selectedFields){
                 Iterator<Object> values = rep.get(selected);
@@ -16,7 +16,9 @@
 */
 package org.apache.stanbol.entityhub.ldpath;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import org.apache.marmotta.ldpath.LDPath;
 import org.apache.marmotta.ldpath.api.backend.RDFBackend;
@@ -28,6 +30,8 @@ import org.apache.stanbol.entityhub.core.mapping.ValueConverterFactory.Reference
 import org.apache.stanbol.entityhub.core.mapping.ValueConverterFactory.TextConverter;
 import org.apache.stanbol.entityhub.core.mapping.ValueConverterFactory.ValueConverter;
 import org.apache.stanbol.entityhub.core.model.InMemoryValueFactory;
+import org.apache.stanbol.entityhub.ldpath.backend.AbstractBackend;
+import org.apache.stanbol.entityhub.ldpath.backend.BatchingBackend;
 import org.apache.stanbol.entityhub.ldpath.transformer.ValueConverterTransformerAdapter;
 import org.apache.stanbol.entityhub.servicesapi.defaults.DataTypeEnum;
 import org.apache.stanbol.entityhub.servicesapi.defaults.NamespaceEnum;
@@ -109,6 +113,44 @@ public class EntityhubLDPath extends LDPath<Object> {
         if(program == null){
             throw new IllegalArgumentException("The parsed program MUST NOT be NULL!");
         }
+        return execute(backend, context, program);
+    }
+    /**
+     * Executes the parsed {@link Program} on all parsed contexts. If the
+     * {@link RDFBackend} of this instance is an {@link AbstractBackend} the
+     * nodes needed by the program are loaded in batches (one or more
+     * requests per path step for all contexts) and shared by all contexts
+     * (see {@link BatchingBackend}).
+     * @param contexts the contexts
+     * @param program the program
+     * @return the {@link Representation}s holding the results of the
+     * execution in the order of the parsed contexts
+     * @throws IllegalArgumentException if the parsed contexts, any context
+     * or the program is <code>null</code>
+     */
+    public List<Representation> execute(Collection<Reference> contexts, Program<Object> program){
+        if(contexts == null || contexts.contains(null)){
+            throw new IllegalArgumentException("The parsed contexts MUST NOT be NULL nor contain a NULL element!");
+        }
+        if(program == null){
+            throw new IllegalArgumentException("The parsed program MUST NOT be NULL!");
+        }
+        RDFBackend<Object> executionBackend;
+        if(backend instanceof AbstractBackend){
+            BatchingBackend batching = new BatchingBackend((AbstractBackend)backend);
+            batching.prefetch(contexts, program);
+            executionBackend = batching;
+        } else {
+            executionBackend = backend;
+        }
+        List<Representation> results = new ArrayList<Representation>(contexts.size());
+        for(Reference context : contexts){
+            results.add(execute(executionBackend, context, program));
+        }
+        return results;
+    }
+    
+    private Representation execute(RDFBackend<Object> backend, Reference context, Program<Object> program){
         Representation result = vf.createRepresentation(context.getReference());
         for(FieldMapping<?,Object> mapping : program.getFields()) {
             Collection<?> values = mapping.getValues(backend,context);
@@ -103,6 +103,27 @@ public abstract class AbstractBackend implements RDFBackend<Object> {
     protected abstract ValueFactory getValueFactory();
     
     protected abstract Representation getRepresentation(String id) throws EntityhubException;
+    /**
+     * Getter for the Representations with the parsed ids. Used by the
+     * {@link BatchingBackend} to load all nodes of a path step with a single
+     * request.<p>
+     * This default implementation calls {@link #getRepresentation(String)}
+     * for every id. Subclasses should override this if the underlying
+     * component supports loading multiple Representations at once.
+     * @param ids the ids
+     * @return the found Representations by id
+     * @throws EntityhubException on any error while loading the Representations
+     */
+    protected Map<String,Representation> getRepresentations(Collection<String> ids) throws EntityhubException {
+        Map<String,Representation> found = new HashMap<String,Representation>();
+        for(String id : ids){
+            Representation r = getRepresentation(id);
+            if(r != null){
+                found.put(id, r);
+            }
+        }
+        return found;
+    }
     
     protected abstract QueryResultList<String> query(FieldQuery query) throws EntityhubException;
 
@@ -381,11 +402,15 @@ public abstract class AbstractBackend implements RDFBackend<Object> {
      * Utility methods for managing the local cache
      */
     /**
-     * Adds an retrieved Representation to the LRU cache
+     * Adds an retrieved Representation to the LRU cache. Also used by the
+     * {@link BatchingBackend} so that nodes loaded for an execution are
+     * available for later executions.
      * @param r
      */
-    private void toLRU(Representation r){
-        lru.put(r.getId(), r);
+    void toLRU(Representation r){
+        synchronized (lru) {
+            lru.put(r.getId(), r);
+        }
     }
     /**
      * Adds a Representation already available in-memory to this RDFBackend.
@@ -397,8 +422,10 @@ public abstract class AbstractBackend implements RDFBackend<Object> {
      */
     public void addLocal(Representation r){
         if(r != null){
-            local.put(r.getId(), r);
-            lru.remove(r.getId());
+            synchronized (lru) {
+                local.put(r.getId(), r);
+                lru.remove(r.getId());
+            }
         } //else ignore
     }
     /**
@@ -407,17 +434,22 @@ public abstract class AbstractBackend implements RDFBackend<Object> {
      */
     public void removeLocal(String id){
         if(id != null){
-            local.remove(id);
-            lru.remove(id);
+            synchronized (lru) {
+                local.remove(id);
+                lru.remove(id);
+            }
         }
     }
     /**
-     * Tries to get an {@link Representation} form {@link #local} or {@link #lru}
+     * Tries to get an {@link Representation} form {@link #local} or {@link #lru}.
+     * Also used by the {@link BatchingBackend} to avoid loading cached nodes.
      * @param id the ID
      * @return the {@link Representation} or <code>null</code> if not cached
      */
-    private Representation getCached(String id){
-        Representation r = local.get(id);
-        return r == null ? lru.get(id) : r;
+    Representation getCached(String id){
+        synchronized (lru) {
+            Representation r = local.get(id);
+            return r == null ? lru.get(id) : r;
+        }
     }
 }
@@ -0,0 +1,302 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.entityhub.ldpath.backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.marmotta.ldpath.api.selectors.NodeSelector;
+import org.apache.marmotta.ldpath.model.fields.FieldMapping;
+import org.apache.marmotta.ldpath.model.programs.Program;
+import org.apache.marmotta.ldpath.model.selectors.PropertySelector;
+import org.apache.marmotta.ldpath.model.selectors.SelfSelector;
+import org.apache.marmotta.ldpath.model.selectors.StringConstantSelector;
+import org.apache.marmotta.ldpath.model.selectors.WildcardSelector;
+import org.apache.stanbol.entityhub.servicesapi.EntityhubException;
+import org.apache.stanbol.entityhub.servicesapi.model.Representation;
+import org.apache.stanbol.entityhub.servicesapi.model.ValueFactory;
+import org.apache.stanbol.entityhub.servicesapi.query.FieldQuery;
+import org.apache.stanbol.entityhub.servicesapi.query.QueryResultList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link AbstractBackend} used for a single execution of an LDPath
+ * {@link Program} on one or more contexts. All requests are forwarded to the
+ * parsed backend, but<ul>
+ * <li> Representations cached by the parsed backend are used and loaded
+ * Representations are added to its cache, so that nodes are shared with
+ * later executions.
+ * <li> all loaded Representations (and the ids of not found ones) are
+ * kept for the whole execution. This node cache is shared by all contexts.
+ * <li> results of {@link #listSubjects(Object, Object)} are kept for the
+ * whole execution.
+ * <li> {@link #prefetch(Collection, Program)} executes the program in a
+ * mode that does not load missing nodes, but collects their ids. Those
+ * ids - the frontier of the current path step over all contexts - are
+ * than loaded by a single {@link AbstractBackend#getRepresentations(Collection)}
+ * call. This is repeated until all nodes are loaded (or
+ * {@link #DEFAULT_MAX_ROUNDS} is reached). Programs that only select
+ * values of the contexts are not executed while prefetching, as only the
+ * missing contexts need to be loaded.
+ * </ul>
+ * Instances are intended to be created for a single execution and are not
+ * thread safe.
+ */
+public class BatchingBackend extends AbstractBackend {
+
+    private final Logger log = LoggerFactory.getLogger(BatchingBackend.class);
+    /**
+     * The maximum number of prefetch rounds. Each round loads the nodes of
+     * one path step.
+     */
+    public static final int DEFAULT_MAX_ROUNDS = 5;
+    /**
+     * The maximum number of Representations loaded by a single request
+     */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private final AbstractBackend backend;
+    private final Map<String,Representation> nodes = new HashMap<String,Representation>();
+    private final Set<String> notFound = new HashSet<String>();
+    private final Map<List<Object>,Collection<Object>> subjects = new HashMap<List<Object>,Collection<Object>>();
+    /**
+     * The ids of nodes requested while prefetching or <code>null</code> if
+     * not prefetching
+     */
+    private Set<String> missing;
+    private int maxRounds = DEFAULT_MAX_ROUNDS;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * Creates a backend for a single execution on the parsed backend
+     * @param backend the backend
+     */
+    public BatchingBackend(AbstractBackend backend) {
+        super(backend == null ? null : backend.valueConverter);
+        if(backend == null){
+            throw new IllegalArgumentException("The parsed AbstractBackend MUST NOT be NULL!");
+        }
+        this.backend = backend;
+    }
+    /**
+     * Setter for the maximum number of prefetch rounds
+     * @param maxRounds the maximum number of rounds. Values &lt; 1 deactivate
+     * prefetching
+     */
+    public void setMaxRounds(int maxRounds) {
+        this.maxRounds = maxRounds;
+    }
+    /**
+     * Setter for the maximum number of Representations loaded by a single
+     * request
+     * @param batchSize the batch size. Values &lt; 1 are ignored
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize < 1 ? DEFAULT_BATCH_SIZE : batchSize;
+    }
+    /**
+     * Prefetches the nodes needed to execute the parsed program on the
+     * parsed contexts. Errors while prefetching are logged and ignored
+     * as they will also occur (and be handled) when executing the program.
+     * @param contexts the contexts
+     * @param program the program
+     * @return the number of prefetched Representations
+     */
+    public int prefetch(Collection<?> contexts, Program<Object> program){
+        if(contexts == null || contexts.isEmpty() || program == null){
+            return 0;
+        }
+        if(selectsContextsOnly(program)){
+            //no need to execute the program. Only load missing contexts
+            Set<String> frontier = new LinkedHashSet<String>();
+            for(Object context : contexts){
+                String id = context.toString();
+                if(!isCached(id)){
+                    frontier.add(id);
+                }
+            }
+            if(frontier.size() < 2){ //a single request is also needed on execution
+                return 0;
+            }
+            try {
+                return loadAll(frontier);
+            } catch (EntityhubException e) {
+                log.warn("Unable to prefetch "+frontier.size()+" contexts (message: "
+                    + e.getMessage()+")", e);
+                return 0;
+            }
+        }
+        int prefetched = 0;
+        for(int round = 0; round < maxRounds; round++){
+            Set<String> frontier = new LinkedHashSet<String>();
+            missing = frontier;
+            try {
+                for(Object context : contexts){
+                    for(FieldMapping<?,Object> mapping : program.getFields()) {
+                        try {
+                            mapping.getValues(this, context);
+                        } catch (RuntimeException e) {
+                            log.debug("Ignore Exception while prefetching (message: {})", e.getMessage());
+                        }
+                    }
+                }
+            } finally {
+                missing = null;
+            }
+            if(frontier.isEmpty()){
+                break;
+            }
+            long start = System.currentTimeMillis();
+            try {
+                prefetched += loadAll(frontier);
+            } catch (EntityhubException e) {
+                //missing nodes will be loaded (or fail) on execution
+                log.warn("Unable to prefetch "+frontier.size()+" Representations (message: "
+                    + e.getMessage()+")", e);
+                return prefetched;
+            }
+            log.debug(" - prefetch round {}: loaded {} nodes in {}ms", new Object[]{
+                    round+1, frontier.size(), System.currentTimeMillis()-start});
+        }
+        return prefetched;
+    }
+    /**
+     * If the parsed program only selects values of the context (e.g.
+     * <code>name = rdfs:label;</code>) and therefore does not need any
+     * other node. Selectors other than properties, wildcards, the context
+     * itself and constants (e.g. paths, unions, tests or functions) are
+     * expected to need other nodes.
+     */
+    private static boolean selectsContextsOnly(Program<Object> program){
+        if(program.getFilter() != null){
+            return false;
+        }
+        for(FieldMapping<?,Object> mapping : program.getFields()){
+            NodeSelector<Object> selector = mapping.getSelector();
+            if(!(selector instanceof PropertySelector || selector instanceof WildcardSelector ||
+                    selector instanceof SelfSelector || selector instanceof StringConstantSelector)){
+                return false;
+            }
+        }
+        return true;
+    }
+    /**
+     * If the node with the parsed id is already loaded (or known to be
+     * missing)
+     */
+    private boolean isCached(String id){
+        return nodes.containsKey(id) || notFound.contains(id) || backend.getCached(id) != null;
+    }
+    /**
+     * Loads the parsed ids in batches of {@link #batchSize}
+     * @return the number of found Representations
+     */
+    private int loadAll(Collection<String> ids) throws EntityhubException {
+        int loaded = 0;
+        List<String> batch = new ArrayList<String>(Math.min(batchSize, ids.size()));
+        for(String id : ids){
+            batch.add(id);
+            if(batch.size() >= batchSize){
+                loaded += load(batch);
+                batch.clear();
+            }
+        }
+        if(!batch.isEmpty()){
+            loaded += load(batch);
+        }
+        return loaded;
+    }
+    /**
+     * Loads the parsed ids
+     * @return the number of found Representations
+     */
+    private int load(Collection<String> ids) throws EntityhubException {
+        Map<String,Representation> found = backend.getRepresentations(ids);
+        for(Representation r : found.values()){
+            nodes.put(r.getId(), r);
+            backend.toLRU(r);
+        }
+        for(String id : ids){
+            if(!found.containsKey(id)){
+                notFound.add(id);
+            }
+        }
+        return found.size();
+    }
+
+    @Override
+    protected Representation getRepresentation(String id) throws EntityhubException {
+        Representation r = nodes.get(id);
+        if(r == null){
+            r = backend.getCached(id);
+        }
+        if(r != null || notFound.contains(id)){
+            return r;
+        }
+        if(missing != null){ //prefetching
+            missing.add(id);
+            return null;
+        }
+        r = backend.getRepresentation(id);
+        if(r == null){
+            notFound.add(id);
+        } else {
+            nodes.put(id, r);
+            backend.toLRU(r);
+        }
+        return r;
+    }
+
+    @Override
+    public Collection<Object> listSubjects(Object property, Object object) {
+        List<Object> key = Arrays.asList(property, object);
+        Collection<Object> results = subjects.get(key);
+        if(results == null){
+            results = super.listSubjects(property, object);
+            subjects.put(key, results);
+        }
+        return results;
+    }
+
+    @Override
+    protected Map<String,Representation> getRepresentations(Collection<String> ids) throws EntityhubException {
+        return backend.getRepresentations(ids);
+    }
+
+    @Override
+    protected QueryResultList<String> query(FieldQuery query) throws EntityhubException {
+        return backend.query(query);
+    }
+
+    @Override
+    protected FieldQuery createQuery() {
+        return backend.createQuery();
+    }
+
+    @Override
+    protected ValueFactory getValueFactory() {
+        return backend.getValueFactory();
+    }
+}
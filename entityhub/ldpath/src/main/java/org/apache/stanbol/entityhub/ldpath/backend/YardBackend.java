@@ -16,7 +16,11 @@
 */
 package org.apache.stanbol.entityhub.ldpath.backend;
 
+import java.util.Collection;
+import java.util.Map;
+
 import org.apache.stanbol.entityhub.core.mapping.ValueConverterFactory;
+import org.apache.stanbol.entityhub.core.yard.AbstractYard;
 import org.apache.stanbol.entityhub.servicesapi.EntityhubException;
 import org.apache.stanbol.entityhub.servicesapi.model.Representation;
 import org.apache.stanbol.entityhub.servicesapi.model.ValueFactory;
@@ -47,6 +51,14 @@ public class YardBackend extends AbstractBackend {
         return yard.getRepresentation(id);
     }
     @Override
+    protected Map<String,Representation> getRepresentations(Collection<String> ids) throws EntityhubException {
+        if(yard instanceof AbstractYard){ //supports bulk loading
+            return ((AbstractYard)yard).getRepresentations(ids);
+        } else {
+            return super.getRepresentations(ids);
+        }
+    }
+    @Override
     protected ValueFactory getValueFactory() {
         return yard.getValueFactory();
     }
@@ -0,0 +1,209 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.stanbol.entityhub.ldpath.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.marmotta.ldpath.model.programs.Program;
+import org.apache.stanbol.entityhub.core.model.InMemoryValueFactory;
+import org.apache.stanbol.entityhub.core.query.DefaultQueryFactory;
+import org.apache.stanbol.entityhub.ldpath.EntityhubLDPath;
+import org.apache.stanbol.entityhub.servicesapi.EntityhubException;
+import org.apache.stanbol.entityhub.servicesapi.model.Reference;
+import org.apache.stanbol.entityhub.servicesapi.model.Representation;
+import org.apache.stanbol.entityhub.servicesapi.model.ValueFactory;
+import org.apache.stanbol.entityhub.servicesapi.query.FieldQuery;
+import org.apache.stanbol.entityhub.servicesapi.query.QueryResultList;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the {@link BatchingBackend} loads the nodes of each path step
+ * for all contexts with a single request and that results are the same as
+ * without batching.
+ */
+public class BatchingBackendTest {
+
+    private static final String NS = "http://www.example.org/test#";
+    private static final String KNOWS = NS+"knows";
+    private static final String NAME = NS+"name";
+    private static final String PROGRAM = "@prefix ex : <"+NS+"> ;"
+            + "name = ex:name :: xsd:string;"
+            + "friend = ex:knows / ex:name :: xsd:string;"
+            + "friendOfFriend = ex:knows / ex:knows / ex:name :: xsd:string;";
+
+    private static final ValueFactory vf = InMemoryValueFactory.getInstance();
+
+    private CountingBackend backend;
+    private List<Reference> contexts;
+
+    /**
+     * Creates 50 persons where the first 30 know the persons i+10 and i+20.
+     * The first 10 persons are used as contexts.
+     */
+    @Before
+    public void initData(){
+        Map<String,Representation> data = new HashMap<String,Representation>();
+        contexts = new ArrayList<Reference>();
+        for(int i = 0; i < 50; i++){
+            Representation rep = vf.createRepresentation(NS+"person"+i);
+            rep.addNaturalText(NAME, "Person "+i);
+            if(i < 30){
+                rep.addReference(KNOWS, NS+"person"+(i+10));
+                rep.addReference(KNOWS, NS+"person"+(i+20));
+            }
+            data.put(rep.getId(), rep);
+            if(i < 10){
+                contexts.add(vf.createReference(rep.getId()));
+            }
+        }
+        backend = new CountingBackend(data);
+    }
+
+    @Test
+    public void testBatchedExecution() throws Exception {
+        EntityhubLDPath ldPath = new EntityhubLDPath(backend);
+        Program<Object> program = ldPath.parseProgram(new StringReader(PROGRAM));
+        List<Representation> batched = ldPath.execute(contexts, program);
+        assertEquals(contexts.size(), batched.size());
+        //one bulk request for each of the 3 path steps (contexts, friends,
+        //friends of friends)
+        assertEquals(3, backend.bulkRequests);
+        assertEquals(0, backend.singleRequests);
+        //compare with the results of the not batched execution
+        CountingBackend reference = new CountingBackend(backend.data);
+        EntityhubLDPath referenceLdPath = new EntityhubLDPath(reference);
+        Iterator<Representation> batchedIt = batched.iterator();
+        for(Reference context : contexts){
+            Representation expected = referenceLdPath.execute(context, program);
+            Representation result = batchedIt.next();
+            assertEquals(expected.getId(), result.getId());
+            for(String field : Arrays.asList("name", "friend", "friendOfFriend")){
+                assertEquals(asSet(expected.get(field)), asSet(result.get(field)));
+            }
+        }
+        assertTrue(reference.singleRequests > backend.bulkRequests);
+        //person0 -> person10, person20 -> person20, person30, person40
+        assertEquals(3, asSet(batched.get(0).get("friendOfFriend")).size());
+    }
+
+    @Test
+    public void testLocalRepresentations() throws Exception {
+        for(Reference context : contexts){
+            backend.addLocal(backend.data.get(context.getReference()));
+        }
+        EntityhubLDPath ldPath = new EntityhubLDPath(backend);
+        Program<Object> program = ldPath.parseProgram(new StringReader(PROGRAM));
+        ldPath.execute(contexts, program);
+        //contexts are local so only the two hops need to be loaded
+        assertEquals(2, backend.bulkRequests);
+        assertEquals(0, backend.singleRequests);
+    }
+
+    @Test
+    public void testNodesCachedByBackend() throws Exception {
+        EntityhubLDPath ldPath = new EntityhubLDPath(backend);
+        Program<Object> program = ldPath.parseProgram(new StringReader(PROGRAM));
+        ldPath.execute(contexts, program);
+        assertEquals(3, backend.bulkRequests);
+        //nodes loaded by the first execution are taken from the cache of the
+        //backend by later executions
+        ldPath.execute(contexts, program);
+        ldPath.execute(contexts.subList(0, 1), program);
+        assertEquals(3, backend.bulkRequests);
+        assertEquals(0, backend.singleRequests);
+    }
+
+    @Test
+    public void testNoPrefetchForContextValues() throws Exception {
+        EntityhubLDPath ldPath = new EntityhubLDPath(backend);
+        Program<Object> program = ldPath.parseProgram(new StringReader(
+            "@prefix ex : <"+NS+"> ; name = ex:name :: xsd:string;"));
+        //a single context is loaded on execution
+        List<Representation> results = ldPath.execute(contexts.subList(0, 1), program);
+        assertEquals(asSet(Arrays.asList((Object)"Person 0").iterator()), 
+            asSet(results.get(0).get("name")));
+        assertEquals(0, backend.bulkRequests);
+        assertEquals(1, backend.singleRequests);
+        //the other contexts are loaded by a single request
+        ldPath.execute(contexts, program);
+        assertEquals(1, backend.bulkRequests);
+        assertEquals(1, backend.singleRequests);
+    }
+
+    private static Set<Object> asSet(Iterator<Object> it){
+        Set<Object> set = new HashSet<Object>();
+        while(it.hasNext()){
+            set.add(it.next().toString());
+        }
+        return set;
+    }
+
+    /**
+     * In-memory backend that counts requests
+     */
+    private static class CountingBackend extends AbstractBackend {
+
+        private final Map<String,Representation> data;
+        private int singleRequests = 0;
+        private int bulkRequests = 0;
+
+        CountingBackend(Map<String,Representation> data){
+            this.data = data;
+        }
+        @Override
+        protected ValueFactory getValueFactory() {
+            return vf;
+        }
+        @Override
+        protected Representation getRepresentation(String id) throws EntityhubException {
+            singleRequests++;
+            return data.get(id);
+        }
+        @Override
+        protected Map<String,Representation> getRepresentations(Collection<String> ids) throws EntityhubException {
+            bulkRequests++;
+            Map<String,Representation> found = new HashMap<String,Representation>();
+            for(String id : ids){
+                if(data.containsKey(id)){
+                    found.put(id, data.get(id));
+                }
+            }
+            return found;
+        }
+        @Override
+        protected QueryResultList<String> query(FieldQuery query) throws EntityhubException {
+            throw new UnsupportedOperationException();
+        }
+        @Override
+        protected FieldQuery createQuery() {
+            return DefaultQueryFactory.getInstance().createFieldQuery();
+        }
+    }
+}
@@ -26,12 +26,15 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrQuery.ORDER;
 import org.apache.solr.client.solrj.SolrRequest.METHOD;
 import org.apache.solr.client.solrj.SolrServer;
 import org.apache.solr.client.solrj.SolrServerException;
@@ -44,6 +47,7 @@ import org.apache.solr.common.SolrInputField;
 import org.apache.stanbol.commons.namespaceprefix.NamespacePrefixService;
 import org.apache.stanbol.commons.solr.utils.SolrUtil;
 import org.apache.stanbol.commons.solr.utils.StreamQueryRequest;
+import org.apache.stanbol.entityhub.core.model.CompactRepresentation;
 import org.apache.stanbol.entityhub.core.model.InMemoryValueFactory;
 import org.apache.stanbol.entityhub.core.query.DefaultQueryFactory;
 import org.apache.stanbol.entityhub.core.query.QueryResultListImpl;
@@ -362,6 +366,186 @@ public class SolrYard extends AbstractYard implements Yard {
         return find(parsedQuery, SELECT.ALL);
     }
 
+    /**
+     * Streaming variant of {@link #find(FieldQuery)} intended to iterate over
+     * large result sets (e.g. for exports).<p>
+     * Results are requested in pages of the parsed size and only the current
+     * page is kept in memory. Pages are not requested by an offset (what would
+     * require Solr to collect <code>offset + pageSize</code> documents for
+     * every page) but by filtering for documents with an id greater than the
+     * id of the last returned document. This requires results to be sorted
+     * by the document id and therefore the returned Representations are
+     * NOT sorted by score. The limit and offset of the parsed query are
+     * ignored.<p>
+     * NOTE: Errors while requesting further pages are thrown as 
+     * {@link IllegalStateException}s by the returned Iterator.
+     * @param parsedQuery the query
+     * @param pageSize the number of documents requested with a single request.
+     * If <code>&lt;= 0</code> the default page size (<code>1000</code>) is used.
+     * @return an iterator over the Representations selected by the parsed query
+     * @throws YardException on any error while requesting the first page
+     * @throws IllegalArgumentException if the parsed query is <code>null</code>
+     * or a similarity query
+     */
+    public final Iterator<Representation> findStreaming(FieldQuery parsedQuery, int pageSize) throws YardException {
+        if(parsedQuery == null){
+            throw new IllegalArgumentException("The parsed query MUST NOT be NULL!");
+        }
+        FieldQuery fieldQuery = parsedQuery.clone();
+        log.debug("findStreaming {}", fieldQuery);
+        final Set<String> selected = new HashSet<String>(fieldQuery.getSelectedFields());
+        SolrQuery query = solrQueryFactoy.parseFieldQuery(fieldQuery, SELECT.QUERY);
+        if(SolrQueryFactory.MLT_QUERY_TYPE.equals(query.getRequestHandler())){
+            throw new IllegalArgumentException("Similarity queries are not supported by findStreaming");
+        }
+        if(closed){
+            log.warn("The SolrYard '{}' was already closed!",config.getName());
+        }
+        query.setStart(0);
+        query.setRows(pageSize > 0 ? pageSize : DEFAULT_STREAMING_PAGE_SIZE);
+        query.setSort(fieldMapper.getDocumentIdField(), ORDER.asc);
+        return new PagingIterator(query, selected);
+    }
+    /**
+     * The default page size used by {@link #findStreaming(FieldQuery, int)}
+     */
+    public static final int DEFAULT_STREAMING_PAGE_SIZE = 1000;
+
+    /**
+     * Iterates over the results of a query by requesting pages of documents.
+     * See {@link SolrYard#findStreaming(FieldQuery, int)} for details.
+     */
+    private final class PagingIterator implements Iterator<Representation> {
+        
+        private final SolrQuery query;
+        private final Set<String> selected;
+        private final String idField;
+        private Iterator<SolrDocument> page;
+        private String lastId;
+        private String pageFilter;
+        private boolean lastPage = false;
+
+        PagingIterator(SolrQuery query, Set<String> selected) throws YardException {
+            this.query = query;
+            this.selected = selected;
+            this.idField = fieldMapper.getDocumentIdField();
+            nextPage();
+        }
+        
+        private void nextPage() throws YardException {
+            if(pageFilter != null){
+                query.removeFilterQuery(pageFilter);
+            }
+            if(lastId != null){
+                pageFilter = String.format("%s:{\"%s\" TO *]", idField,
+                    SolrUtil.escapeSolrSpecialChars(lastId));
+                query.addFilterQuery(pageFilter);
+            }
+            QueryResponse response;
+            try {
+                response = AccessController.doPrivileged(new PrivilegedExceptionAction<QueryResponse>() {
+                    public QueryResponse run() throws IOException, SolrServerException {
+                        StreamQueryRequest request = new StreamQueryRequest(query);
+                        return request.process(server);
+                    }
+                });
+            } catch (PrivilegedActionException pae) {
+                Exception e = pae.getException();
+                if(e instanceof SolrServerException){
+                    throw new YardException("Error while performing Query on SolrServer: " + query.getQuery(), e);
+                } else if(e instanceof IOException){
+                    throw new YardException("Unable to access SolrServer",e);
+                } else {
+                    throw RuntimeException.class.cast(e);
+                }
+            }
+            List<SolrDocument> docs = response.getResults();
+            lastPage = docs.size() < query.getRows();
+            if(!docs.isEmpty()){
+                lastId = docs.get(docs.size()-1).getFirstValue(idField).toString();
+            }
+            page = docs.iterator();
+        }
+        
+        @Override
+        public boolean hasNext() {
+            if(!page.hasNext() && !lastPage){
+                try {
+                    nextPage();
+                } catch (YardException e) {
+                    throw new IllegalStateException("Unable to request the next page of results"
+                        + " (after id " + lastId + ")", e);
+                }
+            }
+            return page.hasNext();
+        }
+        
+        @Override
+        public Representation next() {
+            if(!hasNext()){
+                throw new NoSuchElementException();
+            }
+            return createRepresentation(page.next(), selected);
+        }
+        
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Removal of query results is not supported");
+        }
+    }
+
+    /**
+     * Bulk variant of {@link #getRepresentation(String)}. Representations
+     * are retrieved by a single query for all parsed ids (multiple queries 
+     * are only needed if the number of ids exceeds the configured 
+     * {@link SolrYardConfig#getMaxBooleanClauses() maximum number of boolean
+     * clauses}).
+     * @param ids the ids of the Representations. <code>null</code> and empty
+     * elements are ignored
+     * @return the found Representations by id. Ids that are not found are 
+     * not contained in the returned map.
+     * @throws YardException on any error while retrieving the Representations
+     * @throws IllegalArgumentException if <code>null</code> is parsed as ids
+     */
+    @Override
+    public final Map<String,Representation> getRepresentations(Collection<String> ids) throws YardException {
+        if (ids == null) {
+            throw new IllegalArgumentException("The parsed Representation ids MUST NOT be NULL!");
+        }
+        Set<String> toLoad = new HashSet<String>(ids.size());
+        for(String id : ids){
+            if(id != null && !id.isEmpty()){
+                toLoad.add(id);
+            }
+        }
+        if(toLoad.isEmpty()){
+            return new LinkedHashMap<String,Representation>();
+        }
+        if(closed){
+            log.warn("The SolrYard '{}' was already closed!",config.getName());
+        }
+        long start = System.currentTimeMillis();
+        Collection<SolrDocument> docs;
+        try {
+            docs = getSolrDocuments(toLoad, null);
+        } catch (SolrServerException e) {
+            throw new YardException("Error while getting SolrDocuments for " 
+                    + toLoad.size() + " ids", e);
+        } catch (IOException e) {
+            throw new YardException("Unable to access SolrServer", e);
+        }
+        long retrieve = System.currentTimeMillis();
+        Map<String,Representation> reps = new LinkedHashMap<String,Representation>(docs.size()*2);
+        for(SolrDocument doc : docs){
+            Representation rep = createRepresentation(doc, null);
+            reps.put(rep.getId(), rep);
+        }
+        long create = System.currentTimeMillis();
+        log.debug(String.format("  ... %d/%d found [retrieve=%dms|create=%dms|sum=%dms]", 
+            reps.size(), toLoad.size(), (retrieve - start), (create - retrieve), (create - start)));
+        return reps;
+    }
+
     @Override
     public final Representation getRepresentation(String id) throws YardException {
         if (id == null) {
@@ -399,7 +583,10 @@ public class SolrYard extends AbstractYard implements Yard {
     }
 
     /**
-     * Creates the Representation for the parsed SolrDocument!
+     * Creates the Representation for the parsed SolrDocument!<p>
+     * The returned {@link CompactRepresentation} is created directly from the
+     * values of the SolrDocument. The data are only copied to a modifiable
+     * Representation if the returned instance is modified by the caller.
      * 
      * @param doc
      *            The Solr Document to convert
@@ -420,7 +607,7 @@ public class SolrYard extends AbstractYard implements Yard {
                 "The parsed Solr Document does not contain a value for the %s Field!",
                 fieldMapper.getDocumentIdField()));
         }
-        Representation rep = getValueFactory().createRepresentation(id.toString());
+        CompactRepresentation.Builder rep = CompactRepresentation.builder(id.toString());
         for (String fieldName : doc.getFieldNames()) {
             IndexField indexField = fieldMapper.getField(fieldName);
             if (indexField != null && indexField.getPath().size() == 1) {
@@ -454,7 +641,7 @@ public class SolrYard extends AbstractYard implements Yard {
                 }
             }
         } // end for all fields
-        return rep;
+        return rep.build();
     }
 
     @Override
@@ -1029,7 +1216,7 @@ public class SolrYard extends AbstractYard implements Yard {
                     num++;
                 }
             }
-            log.info("Get SolrDocuments for Query: " + queryBuilder.toString());
+            log.debug("Get SolrDocuments for Query: {}", queryBuilder);
             // no more items or all boolean clauses used -> send a request
             solrQuery.setQuery(queryBuilder.toString());
             queryBuilder = new StringBuilder(); // and a new StringBuilder
@@ -17,15 +17,22 @@
 package org.apache.stanbol.entityhub.yard.solr;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOError;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.Set;
 
 import org.apache.solr.client.solrj.SolrServer;
 import org.apache.stanbol.commons.namespaceprefix.NamespacePrefixService;
@@ -174,6 +181,62 @@ public class SolrYardTest extends YardTest {
         yard.remove(id2);
     }
     
+    @Test
+    public void testGetRepresentations() throws YardException {
+        SolrYard yard = (SolrYard)getYard();
+        String id1 = "urn:yard.test.testGetRepresentations:representation.id1";
+        String id2 = "urn:yard.test.testGetRepresentations:representation with space";
+        String field = "urn:the.field:used.for.testGetRepresentations";
+        Representation test1 = create(id1, true);
+        Representation test2 = create(id2, true);
+        test1.add(field, "value1");
+        test2.add(field, "value2");
+        yard.update(Arrays.asList(test1, test2));
+        Map<String,Representation> reps = yard.getRepresentations(Arrays.asList(
+            id1, id2, "urn:yard.test.testGetRepresentations:notPresent", null));
+        assertEquals(2, reps.size());
+        assertEquals("value1", reps.get(id1).getFirst(field));
+        assertEquals("value2", reps.get(id2).getFirst(field));
+        assertTrue(yard.getRepresentations(new ArrayList<String>()).isEmpty());
+        yard.remove(Arrays.asList(id1, id2));
+    }
+    
+    @Test
+    public void testFindStreaming() throws YardException {
+        SolrYard yard = (SolrYard)getYard();
+        String field = "urn:the.field:used.for.testFindStreaming";
+        List<Representation> reps = new ArrayList<Representation>();
+        Set<String> ids = new HashSet<String>();
+        for(int i = 0; i < 25; i++){
+            String id = "urn:yard.test.testFindStreaming:representation.id"+i;
+            Representation rep = create(id, true);
+            rep.add(field, "streaming test value "+i);
+            reps.add(rep);
+            ids.add(id);
+        }
+        yard.update(reps);
+        FieldQuery query = yard.getQueryFactory().createFieldQuery();
+        query.setConstraint(field, new TextConstraint("streaming"));
+        query.addSelectedField(field);
+        query.setLimit(5); //the limit is ignored by findStreaming
+        //use a page size that does not divide the number of results
+        Iterator<Representation> results = yard.findStreaming(query, 7);
+        Set<String> found = new HashSet<String>();
+        String last = null;
+        while(results.hasNext()){
+            Representation rep = results.next();
+            assertTrue(found.add(rep.getId())); //no duplicates
+            assertNotNull(rep.getFirst(field));
+            if(last != null){ //sorted by id
+                assertTrue(last.compareTo(rep.getId()) < 0);
+            }
+            last = rep.getId();
+        }
+        assertEquals(ids, found);
+        assertFalse(results.hasNext());
+        yard.remove(ids);
+    }
+    
     @Test
     public void testFieldQuery() throws YardException {
         // NOTE: this does not test if the updated view of the representation is
@@ -36,6 +36,7 @@ import static org.apache.stanbol.ontologymanager.servicesapi.Vocabulary._NS_STAN
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.SoftReference;
 import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -46,6 +47,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -53,14 +55,23 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.Stack;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.clerezza.commons.rdf.Literal;
 import org.apache.clerezza.commons.rdf.Graph;
+import org.apache.clerezza.commons.rdf.ImmutableGraph;
 import org.apache.clerezza.commons.rdf.BlankNodeOrIRI;
 import org.apache.clerezza.commons.rdf.RDFTerm;
 import org.apache.clerezza.commons.rdf.Triple;
 import org.apache.clerezza.commons.rdf.IRI;
+import org.apache.clerezza.commons.rdf.WatchableGraph;
+import org.apache.clerezza.commons.rdf.event.FilterTriple;
+import org.apache.clerezza.commons.rdf.event.GraphEvent;
+import org.apache.clerezza.commons.rdf.event.GraphListener;
 import org.apache.clerezza.rdf.core.access.EntityAlreadyExistsException;
+import org.apache.clerezza.rdf.core.access.NoSuchEntityException;
 import org.apache.clerezza.rdf.core.access.TcManager;
 import org.apache.clerezza.rdf.core.access.TcProvider;
 import org.apache.clerezza.commons.rdf.impl.utils.TripleImpl;
@@ -101,7 +112,10 @@ import org.apache.stanbol.ontologymanager.servicesapi.util.OntologyUtils;
 import org.osgi.service.component.ComponentContext;
 import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.model.AddImport;
+import org.semanticweb.owlapi.model.AddOntologyAnnotation;
+import org.semanticweb.owlapi.model.OWLAnnotation;
 import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLImportsDeclaration;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyChange;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
@@ -385,6 +399,15 @@ public class ClerezzaOntologyProvider implements
 
     private static final boolean _RESOLVE_IMPORTS_DEFAULT = true;
 
+    private static final int _OWL_CACHE_SIZE_DEFAULT = 50;
+
+    /**
+     * The maximum number of {@link OWLOntology} views (of single ontologies or merged import closures) kept
+     * in memory. Cached views are softly referenced, so they can also be reclaimed by the garbage collector.
+     * Values &lt;= 0 deactivate the cache.
+     */
+    public static final String OWL_CACHE_SIZE = "org.apache.stanbol.ontologymanager.ontonet.owlCacheSize";
+
     protected Multiplexer descriptor = null;
 
     @Property(name = OntologyProvider.IMPORT_POLICY, options = {
@@ -435,6 +458,37 @@ public class ClerezzaOntologyProvider implements
     @Property(name = OntologyProvider.RESOLVE_IMPORTS, boolValue = _RESOLVE_IMPORTS_DEFAULT)
     protected boolean resolveImports = _RESOLVE_IMPORTS_DEFAULT;
 
+    @Property(name = OWL_CACHE_SIZE, intValue = _OWL_CACHE_SIZE_DEFAULT)
+    protected int owlCacheSize = _OWL_CACHE_SIZE_DEFAULT;
+
+    /**
+     * Cached {@link OWLOntology} views keyed by graph name and import handling (see
+     * {@link #getOWLOntology(IRI, boolean)}). Access MUST BE synchronized on the map.
+     */
+    private final Map<String,OWLOntologyCacheEntry> owlCache = new LinkedHashMap<String,OWLOntologyCacheEntry>(
+            16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String,OWLOntologyCacheEntry> eldest) {
+            return size() > owlCacheSize;
+        }
+    };
+
+    /**
+     * Incremented whenever the mappings between ontology keys and graphs change. Invalidates all cached
+     * {@link OWLOntology} views.
+     */
+    private final AtomicLong mappingVersion = new AtomicLong();
+
+    /**
+     * Modification counters of the stored graphs. Incremented by the write operations of this provider, by
+     * modifications of graphs returned by {@link #getStoredOntology(String, Class, boolean)} and (for
+     * {@link WatchableGraph}s) by a {@link GraphListener}. Cached {@link OWLOntology} views are only valid as
+     * long as the counters of all graphs in their import closure are unchanged.
+     */
+    private final ConcurrentMap<IRI,GraphVersion> graphVersions = new ConcurrentHashMap<IRI,GraphVersion>();
+
     /*
      * Do not use SCR reference here: this might be different from the registered WeightedTcProvider services
      * : when supplied, it overrides TcManager
@@ -506,6 +560,17 @@ public class ClerezzaOntologyProvider implements
             resolveImports = _RESOLVE_IMPORTS_DEFAULT; // Should be already assigned though
         }
 
+        Object cacheSize = configuration.get(OWL_CACHE_SIZE);
+        if (cacheSize instanceof Number) owlCacheSize = ((Number) cacheSize).intValue();
+        else if (cacheSize != null) try {
+            owlCacheSize = Integer.parseInt(cacheSize.toString());
+        } catch (NumberFormatException ex) {
+            log.warn("Invalid {} '{}'. Using default.", OWL_CACHE_SIZE, cacheSize);
+            owlCacheSize = _OWL_CACHE_SIZE_DEFAULT;
+        }
+        else owlCacheSize = _OWL_CACHE_SIZE_DEFAULT;
+        clearOWLCache();
+
         Object importPolicy = configuration.get(OntologyProvider.IMPORT_POLICY);
         if (importPolicy == null) {
             this.importPolicyString = _IMPORT_POLICY_DEFAULT.name();
@@ -539,6 +604,7 @@ public class ClerezzaOntologyProvider implements
         // XXX a SPARQL query could come in handy.
         // Nothing to do but defer to the meta graph,
         new MetaGraphManager(tcManager, keymap.graph).updateAddAlias(primaryKey, alias);
+        mappingVersion.incrementAndGet();
         log.info(" ... DONE.");
         return true;
     }
@@ -563,6 +629,7 @@ public class ClerezzaOntologyProvider implements
          */
         MetaGraphManager metaMgr = new MetaGraphManager(tcManager, keymap.graph);
         metaMgr.updateCreateEntry(publicKey);
+        mappingVersion.incrementAndGet();
         log.info(" ... DONE.");
         return publicKey;
     }
@@ -570,6 +637,12 @@ public class ClerezzaOntologyProvider implements
     @Deactivate
     protected void deactivate(ComponentContext context) {
         log.info("in {} deactivate with context {}", getClass(), context);
+        clearOWLCache();
+        // Do not leave listeners registered with graphs that outlive this provider
+        for (Iterator<GraphVersion> it = graphVersions.values().iterator(); it.hasNext();) {
+            it.next().unwatch();
+            it.remove();
+        }
     }
 
     /**
@@ -937,7 +1010,8 @@ public class ClerezzaOntologyProvider implements
                         + " is not allowed in this implementation. Only allowed return types are "
                         + supported);
 
-        Graph tc = store.getGraph(new IRI(identifier));
+        IRI graphName = new IRI(identifier);
+        Graph tc = store.getGraph(graphName);
         if (tc == null) return null;
         /*
          * The ontology provider itself does not wrap the returned object into an in-memory graph, therefore
@@ -946,11 +1020,19 @@ public class ClerezzaOntologyProvider implements
          */
         // tc = new SimpleGraph(tc);
 
-        if (Graph.class.equals(returnType) || Graph.class.isAssignableFrom(returnType)) {
+        if (Graph.class.equals(returnType)) {
+            // Track direct modifications, as they invalidate cached OWLOntology views.
+            return returnType.cast(new ModificationTrackingGraph(tc, graphVersion(graphName)));
+        } else if (Graph.class.isAssignableFrom(returnType)) {
+            // Graph subtypes can not be wrapped. Modifications of WatchableGraphs are still seen by the
+            // listener and ImmutableGraphs can not be modified. Views of any other graph handed out this
+            // way are not cached any more, as the caller may modify it at any time.
+            GraphVersion graphVersion = graphVersion(graphName);
+            if (!graphVersion.isWatched() && !(tc instanceof ImmutableGraph)) graphVersion.untrack();
             return returnType.cast(tc);
         } else if (OWLOntology.class.isAssignableFrom(returnType)) {
             try {
-                return (O) toOWLOntology(new IRI(identifier), forceMerge);
+                return (O) getOWLOntology(new IRI(identifier), forceMerge);
             } catch (OWLOntologyCreationException e) {
                 log.error(
                     "Failed to return stored ontology " + identifier + " as type "
@@ -1280,6 +1362,7 @@ public class ClerezzaOntologyProvider implements
                 else targetGraph = store.createGraph(graphName);
             }
             targetGraph.addAll(rdfData);
+            graphModified(graphName);
         }
 
         // All is already sanitized by the time we get here.
@@ -1345,6 +1428,7 @@ public class ClerezzaOntologyProvider implements
             }
         }
 
+        mappingVersion.incrementAndGet();
         log.debug(" Ontology {}", mappedIds);
         if (targetGraph != null) log.debug(" ... ({} triples)", targetGraph.size());
         log.debug(" ... primary public key : {}", primaryKey);
@@ -1365,8 +1449,18 @@ public class ClerezzaOntologyProvider implements
             descriptor.clearDependencies(publicKey); // release dependencies
             keymap.registerOntologyDeletion(publicKey); // remove metadata
 
+            // A graph created later with the same name starts with a new counter. This is safe as the
+            // mapping version invalidates all views created before.
+            GraphVersion graphVersion = graphVersions.remove(graphName);
+            if (graphVersion != null) graphVersion.unwatch();
+
             // Now the actual deletion
             store.deleteGraph(graphName);
+            mappingVersion.incrementAndGet();
+            synchronized (owlCache) {
+                for (Iterator<OWLOntologyCacheEntry> it = owlCache.values().iterator(); it.hasNext();)
+                    if (it.next().graphVersions.containsKey(graphName)) it.remove();
+            }
 
             return true;
         } else throw new OntologyHandleException("There are ontologies or collectors depending on "
@@ -1385,6 +1479,7 @@ public class ClerezzaOntologyProvider implements
                 "key must be non-null and non-anonymous.");
         log.info("Setting {} as the resource locator for ontology {}", locator, publicKey);
         new MetaGraphManager(tcManager, keymap.graph).updateAddAlias(new OWLOntologyID(locator), publicKey);
+        mappingVersion.incrementAndGet();
     }
 
     @Override
@@ -1399,6 +1494,7 @@ public class ClerezzaOntologyProvider implements
                     key);
         else log.info("Setting {} as the resource locator for ontology {}", locator, key);
         keymap.mapLocator(locator, new IRI(key));
+        mappingVersion.incrementAndGet();
     }
 
     protected void checkReplaceability(Origin<?>... origins) {
@@ -1410,6 +1506,195 @@ public class ClerezzaOntologyProvider implements
         }
     }
 
+    /**
+     * Removes all cached {@link OWLOntology} views.
+     */
+    protected void clearOWLCache() {
+        synchronized (owlCache) {
+            owlCache.clear();
+        }
+    }
+
+    /**
+     * Returns the {@link OWLOntology} view of the graph, using the cache of converted views if possible. A
+     * cached view is only used if no ontology mapping changed since it was created and no graph in its import
+     * closure was modified (see {@link #graphVersions}).<p>
+     * Callers always get their own copy of the cached view, as they are allowed to modify it (e.g. collectors
+     * rewrite the import declarations). Copying the axioms is still much cheaper than converting the
+     * graphs.
+     * 
+     * @param graphName
+     * @param forceMerge
+     *            if set to false, the selected import management policy will be applied.
+     * @return the ontology
+     * @throws OWLOntologyCreationException
+     */
+    protected OWLOntology getOWLOntology(IRI graphName, boolean forceMerge) throws OWLOntologyCreationException {
+        if (owlCacheSize <= 0) return toOWLOntology(graphName, forceMerge);
+        ImportManagementPolicy policy = forceMerge ? ImportManagementPolicy.MERGE
+                : getImportManagementPolicy();
+        String cacheKey = graphName.getUnicodeString() + '|' + policy;
+        // Get the state before converting, so that concurrent changes cause a new conversion.
+        long version = mappingVersion.get();
+        Map<IRI,Long> versions = getClosureVersions(graphName);
+        if (versions == null) { // modifications of the import closure are not tracked
+            synchronized (owlCache) {
+                owlCache.remove(cacheKey);
+            }
+            return toOWLOntology(graphName, forceMerge);
+        }
+        OWLOntologyCacheEntry entry;
+        synchronized (owlCache) {
+            entry = owlCache.get(cacheKey);
+        }
+        OWLOntology cached = entry == null ? null : entry.ontology.get();
+        if (cached != null && entry.version == version && entry.graphVersions.equals(versions)) {
+            log.debug("Using cached OWLOntology view of graph {} ({})", graphName, policy);
+            return copyOntology(cached);
+        }
+        OWLOntology o = toOWLOntology(graphName, forceMerge);
+        synchronized (owlCache) {
+            owlCache.put(cacheKey, new OWLOntologyCacheEntry(o, version, versions));
+        }
+        return copyOntology(o);
+    }
+
+    /**
+     * Gets the current modification counter of every graph in the import closure of the parsed graph. This
+     * only reads the ontology metadata and not the graphs themselves.
+     * 
+     * @return the counters or <code>null</code> if modifications of a graph in the closure can not be
+     *         tracked
+     */
+    private Map<IRI,Long> getClosureVersions(IRI graphName) {
+        Map<IRI,Long> versions = new HashMap<IRI,Long>();
+        List<OWLOntologyID> closure = new ArrayList<OWLOntologyID>();
+        fillImportsReverse(keymap.getReverseMapping(graphName), closure, null);
+        for (OWLOntologyID id : closure) {
+            IRI name = keymap.getMapping(id);
+            if (name != null && !versions.containsKey(name)) {
+                GraphVersion graphVersion = graphVersion(name);
+                if (graphVersion.isUntracked()) return null;
+                versions.put(name, graphVersion.get());
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Getter for the modification counter of the parsed graph. Registers the counter as
+     * {@link GraphListener} if the stored graph is a {@link WatchableGraph}.
+     */
+    private GraphVersion graphVersion(IRI graphName) {
+        GraphVersion counter = graphVersions.get(graphName);
+        if (counter == null) {
+            GraphVersion created = new GraphVersion();
+            counter = graphVersions.putIfAbsent(graphName, created);
+            if (counter == null) {
+                counter = created;
+                Graph graph;
+                try {
+                    graph = store.getGraph(graphName);
+                } catch (NoSuchEntityException ex) {
+                    graph = null;
+                }
+                if (graph instanceof WatchableGraph) created.watch((WatchableGraph) graph);
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Increments the modification counter of the parsed graph.
+     */
+    protected void graphModified(IRI graphName) {
+        graphVersion(graphName).incrementAndGet();
+    }
+
+    /**
+     * Creates a copy of the parsed ontology managed by a new {@link OWLOntologyManager}. This is much cheaper
+     * than converting the graph again.
+     */
+    private OWLOntology copyOntology(OWLOntology o) throws OWLOntologyCreationException {
+        OWLOntologyManager mgr = OWLManager.createOWLOntologyManager();
+        // Never try to import
+        mgr.addIRIMapper(new PhonyIRIMapper(Collections.<org.semanticweb.owlapi.model.IRI> emptySet()));
+        OWLOntology copy = o.getOntologyID().isAnonymous() ? mgr.createOntology() : mgr.createOntology(o
+                .getOntologyID());
+        List<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
+        for (OWLImportsDeclaration imp : o.getImportsDeclarations())
+            changes.add(new AddImport(copy, imp));
+        for (OWLAnnotation ann : o.getAnnotations())
+            changes.add(new AddOntologyAnnotation(copy, ann));
+        mgr.applyChanges(changes);
+        mgr.addAxioms(copy, o.getAxioms());
+        return copy;
+    }
+
+    /**
+     * The modification counter of a stored graph. For {@link WatchableGraph}s it is also registered as
+     * {@link GraphListener}. It MUST BE {@link #unwatch() unregistered} when the graph is deleted or this
+     * provider is deactivated.
+     */
+    private static final class GraphVersion extends AtomicLong implements GraphListener {
+
+        private static final long serialVersionUID = 1L;
+
+        private transient WatchableGraph watched;
+
+        private volatile boolean untracked;
+
+        synchronized void watch(WatchableGraph graph) {
+            graph.addGraphListener(this, new FilterTriple(null, null, null));
+            watched = graph;
+        }
+
+        synchronized void unwatch() {
+            if (watched != null) {
+                watched.removeGraphListener(this);
+                watched = null;
+            }
+        }
+
+        synchronized boolean isWatched() {
+            return watched != null;
+        }
+
+        /**
+         * Marks the graph as modifiable without notice. Views of its import closures are no longer cached.
+         */
+        void untrack() {
+            untracked = true;
+        }
+
+        boolean isUntracked() {
+            return untracked;
+        }
+
+        @Override
+        public void graphChanged(List<GraphEvent> events) {
+            incrementAndGet();
+        }
+    }
+
+    /**
+     * A cached {@link OWLOntology} view with the state of the provider and the graphs it was created from.
+     */
+    private static final class OWLOntologyCacheEntry {
+
+        final SoftReference<OWLOntology> ontology;
+
+        final long version;
+
+        final Map<IRI,Long> graphVersions;
+
+        OWLOntologyCacheEntry(OWLOntology ontology, long version, Map<IRI,Long> graphVersions) {
+            this.ontology = new SoftReference<OWLOntology>(ontology);
+            this.version = version;
+            this.graphVersions = graphVersions;
+        }
+    }
+
     /**
      * 
      * @param graphName
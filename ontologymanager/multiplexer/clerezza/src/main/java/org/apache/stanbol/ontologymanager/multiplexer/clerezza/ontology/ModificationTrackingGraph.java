@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.stanbol.ontologymanager.multiplexer.clerezza.ontology;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.clerezza.commons.rdf.BlankNodeOrIRI;
+import org.apache.clerezza.commons.rdf.Graph;
+import org.apache.clerezza.commons.rdf.IRI;
+import org.apache.clerezza.commons.rdf.ImmutableGraph;
+import org.apache.clerezza.commons.rdf.RDFTerm;
+import org.apache.clerezza.commons.rdf.Triple;
+
+/**
+ * A {@link Graph} that forwards all calls to a stored graph and increments a modification counter on every
+ * (potential) modification. Used by the {@link ClerezzaOntologyProvider} to invalidate cached views of
+ * graphs that are modified directly.
+ */
+final class ModificationTrackingGraph implements Graph {
+
+    private final Graph graph;
+
+    private final AtomicLong counter;
+
+    ModificationTrackingGraph(Graph graph, AtomicLong counter) {
+        this.graph = graph;
+        this.counter = counter;
+    }
+
+    @Override
+    public boolean add(Triple triple) {
+        boolean changed = graph.add(triple);
+        if (changed) counter.incrementAndGet();
+        return changed;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Triple> triples) {
+        boolean changed = graph.addAll(triples);
+        if (changed) counter.incrementAndGet();
+        return changed;
+    }
+
+    @Override
+    public void clear() {
+        graph.clear();
+        counter.incrementAndGet();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return graph.contains(o);
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        return graph.containsAll(c);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof ModificationTrackingGraph) obj = ((ModificationTrackingGraph) obj).graph;
+        return graph.equals(obj);
+    }
+
+    @Override
+    public Iterator<Triple> filter(BlankNodeOrIRI subject, IRI predicate, RDFTerm object) {
+        return new TrackingIterator(graph.filter(subject, predicate, object));
+    }
+
+    @Override
+    public ImmutableGraph getImmutableGraph() {
+        return graph.getImmutableGraph();
+    }
+
+    @Override
+    public ReadWriteLock getLock() {
+        return graph.getLock();
+    }
+
+    @Override
+    public int hashCode() {
+        return graph.hashCode();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return graph.isEmpty();
+    }
+
+    @Override
+    public Iterator<Triple> iterator() {
+        return new TrackingIterator(graph.iterator());
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        boolean changed = graph.remove(o);
+        if (changed) counter.incrementAndGet();
+        return changed;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        boolean changed = graph.removeAll(c);
+        if (changed) counter.incrementAndGet();
+        return changed;
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        boolean changed = graph.retainAll(c);
+        if (changed) counter.incrementAndGet();
+        return changed;
+    }
+
+    @Override
+    public int size() {
+        return graph.size();
+    }
+
+    @Override
+    public Object[] toArray() {
+        return graph.toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return graph.toArray(a);
+    }
+
+    @Override
+    public String toString() {
+        return graph.toString();
+    }
+
+    /**
+     * Increments the counter if triples are removed by the iterator.
+     */
+    private final class TrackingIterator implements Iterator<Triple> {
+
+        private final Iterator<Triple> it;
+
+        private TrackingIterator(Iterator<Triple> it) {
+            this.it = it;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return it.hasNext();
+        }
+
+        @Override
+        public Triple next() {
+            return it.next();
+        }
+
+        @Override
+        public void remove() {
+            it.remove();
+            counter.incrementAndGet();
+        }
+
+    }
+
+}
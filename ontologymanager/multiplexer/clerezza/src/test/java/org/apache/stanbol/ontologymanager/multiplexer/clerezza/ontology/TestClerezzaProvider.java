@@ -23,6 +23,7 @@ import static org.apache.stanbol.ontologymanager.multiplexer.clerezza.MockOsgiCo
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.InputStream;
@@ -31,7 +32,12 @@ import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.Set;
 
+import org.apache.clerezza.commons.rdf.Graph;
+import org.apache.clerezza.commons.rdf.IRI;
+import org.apache.clerezza.commons.rdf.impl.utils.TripleImpl;
 import org.apache.clerezza.rdf.core.access.TcProvider;
+import org.apache.clerezza.rdf.ontologies.OWL;
+import org.apache.clerezza.rdf.ontologies.RDF;
 import org.apache.stanbol.ontologymanager.core.OfflineConfigurationImpl;
 import org.apache.stanbol.ontologymanager.servicesapi.OfflineConfiguration;
 import org.apache.stanbol.ontologymanager.servicesapi.ontology.OntologyProvider;
@@ -116,4 +122,70 @@ public class TestClerezzaProvider {
             assertFalse(t2.containsAll(t1));
         }
     }
+
+    @Test
+    public void testCachedOWLOntologyViews() throws Exception {
+        InputStream data = getClass().getResourceAsStream(fn1);
+        OWLOntologyID key = ontologyProvider.loadInStore(data, RDF_XML, true);
+        assertNotNull(key);
+
+        OWLOntology o1 = ontologyProvider.getStoredOntology(key, OWLOntology.class, false);
+        OWLOntology o2 = ontologyProvider.getStoredOntology(key, OWLOntology.class, false);
+        // Every call returns its own ontology with the same content
+        assertNotSame(o1, o2);
+        assertEquals(o1.getOntologyID(), o2.getOntologyID());
+        assertEquals(o1.getAxioms(), o2.getAxioms());
+        assertEquals(o1.getImportsDeclarations(), o2.getImportsDeclarations());
+
+        // Modifications of returned ontologies do not affect the cache
+        o1.getOWLOntologyManager().removeAxioms(o1, o1.getAxioms());
+        OWLOntology o3 = ontologyProvider.getStoredOntology(key, OWLOntology.class, false);
+        assertEquals(o2.getAxioms(), o3.getAxioms());
+
+        // Modifications of the stored graph invalidate the cached view
+        Graph graph = ontologyProvider.getStoredOntology(key, Graph.class, false);
+        graph.add(new TripleImpl(new IRI("http://stanbol.apache.org/test/CachedClass"), RDF.type,
+                OWL.Class));
+        OWLOntology o4 = ontologyProvider.getStoredOntology(key, OWLOntology.class, false);
+        assertEquals(o3.getAxioms().size() + 1, o4.getAxioms().size());
+    }
+
+    @Test
+    public void testCachedOWLOntologyViewsOfGraphSubtypes() throws Exception {
+        InputStream data = getClass().getResourceAsStream(fn1);
+        OWLOntologyID key = ontologyProvider.loadInStore(data, RDF_XML, true);
+        OWLOntology o1 = ontologyProvider.getStoredOntology(key, OWLOntology.class, false);
+
+        // Graphs requested by their implementation type are not wrapped, but must not break the cache
+        Class<? extends Graph> graphType = tcManager.getGraph(new IRI(ontologyProvider.getKey(key)))
+                .getClass();
+        Graph graph = ontologyProvider.getStoredOntology(key, graphType, false);
+        OWLOntology o2 = ontologyProvider.getStoredOntology(key, OWLOntology.class, false);
+        assertEquals(o1.getAxioms(), o2.getAxioms());
+        // Modify the graph after the view was created
+        graph.add(new TripleImpl(new IRI("http://stanbol.apache.org/test/CachedClass"), RDF.type,
+                OWL.Class));
+        OWLOntology o3 = ontologyProvider.getStoredOntology(key, OWLOntology.class, false);
+        assertEquals(o2.getAxioms().size() + 1, o3.getAxioms().size());
+    }
+
+    @Test
+    public void testCachedOWLOntologyViewsAfterRemoval() throws Exception {
+        InputStream data = getClass().getResourceAsStream(fn1);
+        OWLOntologyID key = ontologyProvider.loadInStore(data, RDF_XML, true);
+        OWLOntology o1 = ontologyProvider.getStoredOntology(key, OWLOntology.class, false);
+        assertTrue(ontologyProvider.removeOntology(key));
+        assertFalse(ontologyProvider.hasOntology(key));
+
+        // A graph stored again under the same name starts with a new modification counter
+        data = getClass().getResourceAsStream(fn1);
+        key = ontologyProvider.loadInStore(data, RDF_XML, true);
+        OWLOntology o2 = ontologyProvider.getStoredOntology(key, OWLOntology.class, false);
+        assertEquals(o1.getAxioms(), o2.getAxioms());
+        Graph graph = ontologyProvider.getStoredOntology(key, Graph.class, false);
+        graph.add(new TripleImpl(new IRI("http://stanbol.apache.org/test/CachedClass"), RDF.type,
+                OWL.Class));
+        OWLOntology o3 = ontologyProvider.getStoredOntology(key, OWLOntology.class, false);
+        assertEquals(o2.getAxioms().size() + 1, o3.getAxioms().size());
+    }
 }
@@ -16,8 +16,12 @@
  */
 package org.apache.stanbol.reasoners.jena;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -33,7 +37,9 @@ import org.slf4j.LoggerFactory;
 import com.hp.hpl.jena.rdf.model.InfModel;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.RDFNode;
 import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
 import com.hp.hpl.jena.reasoner.InfGraph;
 import com.hp.hpl.jena.reasoner.Reasoner;
 import com.hp.hpl.jena.reasoner.ValidityReport;
@@ -47,9 +53,33 @@ import com.hp.hpl.jena.vocabulary.RDF;
  * Abstract implementation of the {@see JenaReasoningService} interface
  */
 public abstract class AbstractJenaReasoningService implements JenaReasoningService {
+    /**
+     * The default number of schema bound reasoners kept by a service
+     */
+    public static final int DEFAULT_SCHEMA_CACHE_SIZE = 10;
+    /**
+     * The maximum number of rounds used to hash the structure of blank nodes in schema fingerprints
+     */
+    private static final int MAX_BLANK_NODE_ROUNDS = 16;
+
     private Reasoner reasoner;
     private static final Logger log = LoggerFactory.getLogger(AbstractJenaReasoningService.class);
 
+    private int schemaCacheSize = DEFAULT_SCHEMA_CACHE_SIZE;
+    /**
+     * The reasoners bound to a schema by schema identifier (LRU). Access needs to be synchronized on the
+     * map.
+     */
+    private final Map<String,BoundSchema> schemaCache = new LinkedHashMap<String,BoundSchema>(16, 0.75f,
+            true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String,BoundSchema> eldest) {
+            return size() > schemaCacheSize;
+        }
+    };
+
     /**
      * This constructor sets the given reasoner instance as the default shared one.
      * 
@@ -79,6 +109,23 @@ public abstract class AbstractJenaReasoningService implements JenaReasoningServi
         return im;
     }
 
+    /**
+     * Performs inferences on the data by using a reasoner bound to the given schema. The reasoner is
+     * prepared once per version of the schema and reused for all later calls with the same schema, so
+     * that only the data need to be processed.
+     */
+    @Override
+    public InfModel run(String schemaId, Model schema, Model data) {
+        log.debug(" run(String schemaId, Model schema, Model data)");
+        BoundSchema bound = getBoundSchema(schemaId, schema);
+        if (bound == null) {
+            return run(merge(schema, data));
+        }
+        InfModel im = ModelFactory.createInfModel(bound.reasoner, data);
+        im.prepare();
+        return im;
+    }
+
     /**
      * This method performs inferences creating a new specialized reasoner, which extends the capabilities of
      * the default one and adds the given rule set.
@@ -143,6 +190,34 @@ public abstract class AbstractJenaReasoningService implements JenaReasoningServi
         } else throw new UnsupportedTaskException();
     }
 
+    /**
+     * This method provides the default implementation for executing one of the default tasks with a
+     * reasoner bound to the given schema.
+     * 
+     * Custom rules require a specialized reasoner, so in this case (as well as for tasks added by
+     * subclasses) schema and data are merged and processed as by
+     * {@link #runTask(String, Model, List, boolean, Map)}.
+     */
+    @Override
+    public Set<Statement> runTask(String taskID,
+                                  String schemaId,
+                                  Model schema,
+                                  Model data,
+                                  List<Rule> rules,
+                                  boolean filtered,
+                                  Map<String,List<String>> parameters) throws UnsupportedTaskException,
+                                                                      ReasoningServiceException,
+                                                                      InconsistentInputException {
+        log.debug(" runTask(String taskID,String schemaId,Model schema,Model data,List<Rule> rules,boolean filtered,Map<String,List<String>> parameters)");
+        if (rules == null && taskID.equals(ReasoningService.Tasks.CLASSIFY)) {
+            return classify(schemaId, schema, data);
+        } else if (rules == null && taskID.equals(ReasoningService.Tasks.ENRICH)) {
+            return enrich(schemaId, schema, data, filtered);
+        } else {
+            return runTask(taskID, merge(schema, data), rules, filtered, parameters);
+        }
+    }
+
     /**
      * This method is called to build a custom reasoner to be used with a given rule set. Subclasses may want
      * to specialize the default behavior, which simply merge the standard rule set with the given list
@@ -200,6 +275,20 @@ public abstract class AbstractJenaReasoningService implements JenaReasoningServi
         return run(data, rules).listStatements().filterKeep(new PropertyFilter(RDF.type)).toSet();
     }
 
+    /**
+     * Classification with a reasoner bound to the given schema: 1) Perform reasoning on the data 2) Returns
+     * only rdf:type statements
+     * 
+     * @param schemaId
+     * @param schema
+     * @param data
+     * @return
+     */
+    protected Set<Statement> classify(String schemaId, Model schema, Model data) {
+        log.debug(" classify(String schemaId, Model schema, Model data)");
+        return run(schemaId, schema, data).listStatements().filterKeep(new PropertyFilter(RDF.type)).toSet();
+    }
+
     /**
      * Enriching: 1) Perform reasoning 2) Returns all the statements (filtered = false) or only inferred ones
      * (filtered = true)
@@ -228,6 +317,39 @@ public abstract class AbstractJenaReasoningService implements JenaReasoningServi
         }
     }
 
+    /**
+     * Enriching with a reasoner bound to the given schema: 1) Perform reasoning on the data 2) Returns all the
+     * statements (filtered = false) or only inferred ones (filtered = true). As with
+     * {@link #enrich(Model, boolean)} the statements of the schema are not considered as inferred.
+     * 
+     * @param schemaId
+     * @param schema
+     * @param data
+     * @param filtered
+     * @return
+     */
+    protected Set<Statement> enrich(String schemaId, Model schema, Model data, boolean filtered) {
+        log.debug(" enrich(String schemaId, Model schema, Model data, boolean filtered)");
+        BoundSchema bound = getBoundSchema(schemaId, schema);
+        if (bound == null) {
+            return enrich(merge(schema, data), filtered);
+        }
+        InfModel i = ModelFactory.createInfModel(bound.reasoner, data);
+        i.prepare();
+        if (filtered) {
+            // The schema statements of the bound reasoner are used, because blank nodes
+            // in the given schema may differ from the ones of the bound one
+            Set<Statement> original = new HashSet<Statement>(bound.statements);
+            original.addAll(data.listStatements().toSet());
+            log.debug(" original statements are: {}", original.size());
+            Set<Statement> inferred = i.listStatements().toSet();
+            log.debug(" inferred statements are: {}", inferred.size());
+            return prune(original, inferred);
+        } else {
+            return i.listStatements().toSet();
+        }
+    }
+
     /**
      * Removes the statements in the first set from the second set
      * 
@@ -336,6 +458,21 @@ public abstract class AbstractJenaReasoningService implements JenaReasoningServi
         return isConsistent(run(data, rules).validate());
     }
 
+    /**
+     * Consistency check with a reasoner bound to the given schema: whether the data are consistent with the
+     * schema or not
+     * 
+     * @param schemaId
+     * @param schema
+     * @param data
+     * @return
+     */
+    @Override
+    public boolean isConsistent(String schemaId, Model schema, Model data) {
+        log.debug(" isConsistent(String schemaId, Model schema, Model data)");
+        return isConsistent(run(schemaId, schema, data).validate());
+    }
+
     /**
      * This internal method implements the logic of consistency.
      * 
@@ -358,6 +495,179 @@ public abstract class AbstractJenaReasoningService implements JenaReasoningServi
         return report.isClean();
     }
 
+    /**
+     * The maximum number of schema bound reasoners kept by this service
+     * 
+     * @return
+     */
+    public int getSchemaCacheSize() {
+        synchronized (schemaCache) {
+            return schemaCacheSize;
+        }
+    }
+
+    /**
+     * Sets the maximum number of schema bound reasoners kept by this service. Values &lt;= 0 deactivate
+     * schema binding, meaning that schema and data are merged and processed on every call.
+     * 
+     * @param size
+     */
+    public void setSchemaCacheSize(int size) {
+        synchronized (schemaCache) {
+            this.schemaCacheSize = size < 0 ? 0 : size;
+            Iterator<String> it = schemaCache.keySet().iterator();
+            while (schemaCache.size() > schemaCacheSize && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Getter for the reasoner bound to the given schema (to be used by subclasses). The schema is bound if
+     * it is not yet known or if it has changed since it was bound.
+     * 
+     * @param schemaId
+     * @param schema
+     * @return the schema bound reasoner or <code>null</code> if schema binding is deactivated
+     */
+    protected Reasoner getSchemaReasoner(String schemaId, Model schema) {
+        BoundSchema bound = getBoundSchema(schemaId, schema);
+        return bound == null ? null : bound.reasoner;
+    }
+
+    private BoundSchema getBoundSchema(String schemaId, Model schema) {
+        long[] fingerprint = fingerprint(schema);
+        BoundSchema bound;
+        synchronized (schemaCache) {
+            if (schemaCacheSize <= 0) {
+                return null;
+            }
+            bound = schemaCache.get(schemaId);
+        }
+        if (bound != null && bound.matches(fingerprint)) {
+            log.debug(" reuse reasoner bound to schema {}", schemaId);
+            return bound;
+        }
+        // bind outside of the lock as this processes the whole schema.
+        // Copy the schema as the reasoner keeps a reference to it
+        log.debug(" bind reasoner to schema {} ({} statements)", schemaId, fingerprint[2]);
+        Model copy = ModelFactory.createDefaultModel().add(schema);
+        bound = new BoundSchema(reasoner.bindSchema(copy), copy.listStatements().toSet(), fingerprint);
+        synchronized (schemaCache) {
+            if (schemaCacheSize > 0) {
+                schemaCache.put(schemaId, bound);
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Calculates an order independent fingerprint of the statements of the given model. Blank node
+     * identifiers change every time an ontology is converted, so blank nodes are hashed by their structure
+     * (see {@link #blankNodeHashes(Model)}) and not by their identifiers.
+     * 
+     * @param model
+     * @return the sum and the xor of the statement hashes and the number of statements
+     */
+    private static long[] fingerprint(Model model) {
+        Map<RDFNode,Long> blankNodes = blankNodeHashes(model);
+        long sum = 0;
+        long xor = 0;
+        long size = 0;
+        StmtIterator it = model.listStatements();
+        try {
+            while (it.hasNext()) {
+                Statement s = it.next();
+                long h = hash(s.getSubject(), blankNodes);
+                h = h * 31L + hash(s.getPredicate(), blankNodes);
+                h = mix(h * 31L + hash(s.getObject(), blankNodes));
+                sum += h;
+                xor ^= h;
+                size++;
+            }
+        } finally {
+            it.close();
+        }
+        return new long[] {sum, xor, size};
+    }
+
+    /**
+     * Calculates the hashes of the blank nodes of the given model based on the statements they are part of.
+     * Starting with the same hash for all blank nodes, the hash of a blank node is repeatedly combined with
+     * the hashes of its incoming and outgoing statements, until this no longer distinguishes any further
+     * blank nodes (or {@link #MAX_BLANK_NODE_ROUNDS} is reached). So e.g. two OWL restrictions that swap
+     * their <code>owl:someValuesFrom</code> fillers result in a different fingerprint.
+     * 
+     * @param model
+     * @return the hashes of the blank nodes
+     */
+    private static Map<RDFNode,Long> blankNodeHashes(Model model) {
+        List<Statement> statements = new ArrayList<Statement>();
+        Map<RDFNode,Long> hashes = new HashMap<RDFNode,Long>();
+        StmtIterator it = model.listStatements();
+        try {
+            while (it.hasNext()) {
+                Statement s = it.next();
+                boolean anon = false;
+                if (s.getSubject().isAnon()) {
+                    hashes.put(s.getSubject(), 0L);
+                    anon = true;
+                }
+                if (s.getObject().isAnon()) {
+                    hashes.put(s.getObject(), 0L);
+                    anon = true;
+                }
+                if (anon) {
+                    statements.add(s);
+                }
+            }
+        } finally {
+            it.close();
+        }
+        int distinct = 1;
+        for (int round = 0; round < MAX_BLANK_NODE_ROUNDS && !hashes.isEmpty(); round++) {
+            Map<RDFNode,Long> next = new HashMap<RDFNode,Long>();
+            for (Map.Entry<RDFNode,Long> entry : hashes.entrySet()) {
+                next.put(entry.getKey(), mix(entry.getValue()));
+            }
+            for (Statement s : statements) {
+                long predicate = s.getPredicate().asNode().hashCode();
+                if (s.getSubject().isAnon()) {
+                    long h = mix((predicate * 31L + hash(s.getObject(), hashes)) * 31L + 1);
+                    next.put(s.getSubject(), next.get(s.getSubject()) + h);
+                }
+                if (s.getObject().isAnon()) {
+                    long h = mix((hash(s.getSubject(), hashes) * 31L + predicate) * 31L + 2);
+                    next.put(s.getObject(), next.get(s.getObject()) + h);
+                }
+            }
+            hashes = next;
+            int refined = new HashSet<Long>(hashes.values()).size();
+            if (refined == distinct) {
+                break; // no further blank nodes distinguished
+            }
+            distinct = refined;
+        }
+        return hashes;
+    }
+
+    private static long hash(RDFNode node, Map<RDFNode,Long> blankNodes) {
+        return node.isAnon() ? blankNodes.get(node) : node.asNode().hashCode();
+    }
+
+    private static long mix(long h) {
+        h ^= (h >>> 29);
+        return h * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * Creates a new model with the statements of the schema and the data
+     */
+    private static Model merge(Model schema, Model data) {
+        return ModelFactory.createDefaultModel().add(schema).add(data);
+    }
+
     @Override
     public Class<Model> getModelType() {
         return Model.class;
@@ -387,4 +697,23 @@ public abstract class AbstractJenaReasoningService implements JenaReasoningServi
     public boolean supportsTask(String taskID) {
         return getSupportedTasks().contains(taskID);
     };
+
+    /**
+     * A reasoner bound to a schema together with the fingerprint of the schema
+     */
+    private static final class BoundSchema {
+        private final Reasoner reasoner;
+        private final Set<Statement> statements;
+        private final long[] fingerprint;
+
+        private BoundSchema(Reasoner reasoner, Set<Statement> statements, long[] fingerprint) {
+            this.reasoner = reasoner;
+            this.statements = statements;
+            this.fingerprint = fingerprint;
+        }
+
+        private boolean matches(long[] fingerprint) {
+            return Arrays.equals(this.fingerprint, fingerprint);
+        }
+    }
 }
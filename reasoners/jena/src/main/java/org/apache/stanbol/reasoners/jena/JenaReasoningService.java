@@ -17,8 +17,13 @@
 package org.apache.stanbol.reasoners.jena;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.apache.stanbol.reasoners.servicesapi.InconsistentInputException;
 import org.apache.stanbol.reasoners.servicesapi.ReasoningService;
+import org.apache.stanbol.reasoners.servicesapi.ReasoningServiceException;
+import org.apache.stanbol.reasoners.servicesapi.UnsupportedTaskException;
 
 import com.hp.hpl.jena.rdf.model.InfModel;
 import com.hp.hpl.jena.rdf.model.Model;
@@ -46,4 +51,55 @@ public interface JenaReasoningService extends ReasoningService<Model,Rule,Statem
      * @return
      */
     public abstract InfModel run(Model data, List<Rule> rules);
-}
\ No newline at end of file
+
+    /**
+     * Runs the reasoner over the given data, using a reasoner bound to the given schema (TBox). The schema
+     * bound reasoner is kept for the given schema identifier, so that subsequent calls with the same schema
+     * only need to process the data.
+     * 
+     * @param schemaId
+     *            the identifier of the schema, e.g. the ontology scope
+     * @param schema
+     * @param data
+     * @return
+     */
+    public abstract InfModel run(String schemaId, Model schema, Model data);
+
+    /**
+     * Runs the given task over the data, using a reasoner bound to the given schema (TBox). See
+     * {@link #run(String, Model, Model)}.
+     * 
+     * @param taskID
+     * @param schemaId
+     * @param schema
+     * @param data
+     * @param rules
+     * @param filtered
+     * @param parameters
+     * @return
+     * @throws UnsupportedTaskException
+     * @throws ReasoningServiceException
+     * @throws InconsistentInputException
+     */
+    public abstract Set<Statement> runTask(String taskID,
+                                           String schemaId,
+                                           Model schema,
+                                           Model data,
+                                           List<Rule> rules,
+                                           boolean filtered,
+                                           Map<String,List<String>> parameters) throws UnsupportedTaskException,
+                                                                               ReasoningServiceException,
+                                                                               InconsistentInputException;
+
+    /**
+     * Consistency check of the data, using a reasoner bound to the given schema (TBox). See
+     * {@link #run(String, Model, Model)}.
+     * 
+     * @param schemaId
+     * @param schema
+     * @param data
+     * @return
+     * @throws ReasoningServiceException
+     */
+    public abstract boolean isConsistent(String schemaId, Model schema, Model data) throws ReasoningServiceException;
+}
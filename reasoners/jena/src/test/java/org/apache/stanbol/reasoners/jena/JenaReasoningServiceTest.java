@@ -16,6 +16,10 @@
  */
 package org.apache.stanbol.reasoners.jena;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
@@ -40,7 +44,9 @@ import com.hp.hpl.jena.rdf.model.Statement;
 import com.hp.hpl.jena.reasoner.Reasoner;
 import com.hp.hpl.jena.reasoner.rulesys.GenericRuleReasonerFactory;
 import com.hp.hpl.jena.reasoner.rulesys.Rule;
+import com.hp.hpl.jena.vocabulary.OWL;
 import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.vocabulary.RDFS;
 import com.hp.hpl.jena.vocabulary.ReasonerVocabulary;
 
 /**
@@ -109,6 +115,86 @@ public class JenaReasoningServiceTest {
         }
     }
 
+    @Test
+    public void testSchemaBoundEnrich() throws Exception {
+        log.info("Testing the enrich() method with a schema bound reasoner with all available reasoners");
+
+        for (JenaReasoningService service : reasoners) {
+            log.info("Testing : {}", service.getClass());
+            // Clean data
+            TestData.alexdma.removeProperties();
+            TestData.alexdma.addProperty(RDF.type, TestData.foaf_Person);
+            Model data = TestData.alexdma.getModel();
+
+            Set<Statement> expected = service.runTask(ReasoningService.Tasks.ENRICH,
+                ModelFactory.createUnion(TestData.foaf, data));
+            // the 2nd call uses the already bound reasoner
+            for (int i = 0; i < 2; i++) {
+                Set<Statement> inferred = service.runTask(ReasoningService.Tasks.ENRICH, "foaf", TestData.foaf,
+                    data, null, true, null);
+                assertEquals(expected, inferred);
+            }
+            assertTrue(service.isConsistent("foaf", TestData.foaf, data));
+            // Clean data
+            TestData.alexdma.removeProperties();
+        }
+    }
+
+    @Test
+    public void testSchemaReasonerCache() {
+        log.info("Testing the reuse of schema bound reasoners");
+        AbstractJenaReasoningService service = new JenaRDFSReasoningService();
+        Model schema = ModelFactory.createDefaultModel().add(TestData.foaf);
+
+        Reasoner bound = service.getSchemaReasoner("foaf", schema);
+        assertNotNull(bound);
+        assertSame(bound, service.getSchemaReasoner("foaf", schema));
+        // an equal schema is recognised
+        assertSame(bound, service.getSchemaReasoner("foaf", ModelFactory.createDefaultModel().add(schema)));
+        // a modified schema needs to be bound again
+        schema.add(TestData.foaf_Person, RDFS.subClassOf, TestData.foaf_Organization);
+        Reasoner rebound = service.getSchemaReasoner("foaf", schema);
+        assertNotSame(bound, rebound);
+        assertSame(rebound, service.getSchemaReasoner("foaf", schema));
+        // deactivate schema binding
+        service.setSchemaCacheSize(0);
+        assertEquals(null, service.getSchemaReasoner("foaf", schema));
+    }
+
+    @Test
+    public void testSchemaReasonerCacheBlankNodes() {
+        log.info("Testing the reuse of schema bound reasoners with restrictions (blank nodes)");
+        AbstractJenaReasoningService service = new JenaRDFSReasoningService();
+        String ns = "http://www.example.org/test#";
+        Model schema = createRestrictions(ns, "A", "B");
+
+        Reasoner bound = service.getSchemaReasoner("restrictions", schema);
+        // the same structure with other blank nodes is recognised
+        assertSame(bound, service.getSchemaReasoner("restrictions", createRestrictions(ns, "A", "B")));
+        // swapping the fillers of the restrictions needs the schema to be bound again
+        Reasoner rebound = service.getSchemaReasoner("restrictions", createRestrictions(ns, "B", "A"));
+        assertNotSame(bound, rebound);
+    }
+
+    /**
+     * Creates a schema with the classes X and Y being subclasses of the restrictions
+     * <code>p some fillerX</code> and <code>q some fillerY</code>.
+     */
+    private static Model createRestrictions(String ns, String fillerX, String fillerY) {
+        Model schema = ModelFactory.createDefaultModel();
+        Resource x = schema.createResource();
+        x.addProperty(RDF.type, OWL.Restriction);
+        x.addProperty(OWL.onProperty, schema.createProperty(ns + "p"));
+        x.addProperty(OWL.someValuesFrom, schema.createResource(ns + fillerX));
+        Resource y = schema.createResource();
+        y.addProperty(RDF.type, OWL.Restriction);
+        y.addProperty(OWL.onProperty, schema.createProperty(ns + "q"));
+        y.addProperty(OWL.someValuesFrom, schema.createResource(ns + fillerY));
+        schema.createResource(ns + "X").addProperty(RDFS.subClassOf, x);
+        schema.createResource(ns + "Y").addProperty(RDFS.subClassOf, y);
+        return schema;
+    }
+
     /**
      * Tests the classify() method
      */
@@ -71,7 +71,8 @@ public class OntologyManagerInputProvider implements ReasoningServiceInputProvid
     }
 
     /**
-     * Constructor, if the input are a Scope and a Session
+     * Constructor, if the input are a Scope and a Session. The scope may be <code>null</code> if only the
+     * Session is the input (e.g. if the scope is used as schema of the reasoner).
      * 
      * @param onManager
      * @param scopeId
@@ -149,20 +150,28 @@ public class OntologyManagerInputProvider implements ReasoningServiceInputProvid
     private OWLOntology getFromOntoMgr() throws IOException {
         try {
             Scope scope = null;
-            synchronized (onManager) {
-                scope = onManager.getScope(this.scopeId);
-            }
-            if (scope == null) {
-                log.error("Scope {} cannot be retrieved", this.scopeId);
-                throw new IOException("Scope " + this.scopeId + " cannot be retrieved");
+            if (this.scopeId != null) {
+                synchronized (onManager) {
+                    scope = onManager.getScope(this.scopeId);
+                }
+                if (scope == null) {
+                    log.error("Scope {} cannot be retrieved", this.scopeId);
+                    throw new IOException("Scope " + this.scopeId + " cannot be retrieved");
+                }
             }
             Session session = null;
             if (sessionManager != null) synchronized (sessionManager) {
                 session = sessionManager.getSession(sessionId);
             }
-            if (session == null) log.warn("Session {} cannot be retrieved. Ignoring.", this.sessionId);
+            if (session == null) {
+                if (scope == null) {
+                    log.error("Session {} cannot be retrieved", this.sessionId);
+                    throw new IOException("Session " + this.sessionId + " cannot be retrieved");
+                }
+                log.warn("Session {} cannot be retrieved. Ignoring.", this.sessionId);
+            }
             final Set<OWLOntology> set = new HashSet<OWLOntology>();
-            set.add(scope.export(OWLOntology.class, true));
+            if (scope != null) set.add(scope.export(OWLOntology.class, true));
             if (session != null) set.add(session.export(OWLOntology.class, true));
             if (set.size() == 1) return set.iterator().next();
             OWLOntologyMerger merger = new OWLOntologyMerger(new OWLOntologySetProvider() {
@@ -30,6 +30,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
@@ -64,6 +65,7 @@ import org.apache.stanbol.reasoners.jena.JenaReasoningService;
 import org.apache.stanbol.reasoners.owlapi.OWLApiReasoningService;
 import org.apache.stanbol.reasoners.servicesapi.ReasoningService;
 import org.apache.stanbol.reasoners.servicesapi.ReasoningServiceInputManager;
+import org.apache.stanbol.reasoners.servicesapi.ReasoningServiceInputProvider;
 import org.apache.stanbol.reasoners.servicesapi.ReasoningServicesManager;
 import org.apache.stanbol.reasoners.servicesapi.UnboundReasoningServiceException;
 import org.apache.stanbol.reasoners.servicesapi.annotations.Documentation;
@@ -107,6 +109,11 @@ public class ReasoningServiceTaskResource extends BaseStanbolResource {
     
     private Map<String,List<String>> parameters;
     private FormFile file = null;
+    /**
+     * The scope used as schema of Jena reasoners (if any)
+     */
+    private String schemaId = null;
+    private ReasoningServiceInputProvider schema = null;
     
     @Reference
     protected TcManager tcManager;
@@ -311,9 +318,15 @@ public class ReasoningServiceTaskResource extends BaseStanbolResource {
         // Setup the input
         ReasoningServiceInputManager imngr = prepareInput();
         // The service executor
-        ReasoningServiceExecutor executor = new ReasoningServiceExecutor(tcManager, imngr,
+        ReasoningServiceExecutor executor = new ReasoningServiceExecutor(tcManager, imngr, schemaId, schema,
                 getCurrentService(), getCurrentTask(), target, parameters);
-        String jid = getJobManager().execute(executor);
+        String jid;
+        try {
+            jid = getJobManager().execute(executor);
+        } catch (RejectedExecutionException e) {
+            log.warn("Job rejected: {}", e.getMessage());
+            throw new WebApplicationException(e, Response.Status.SERVICE_UNAVAILABLE);
+        }
         URI location = URI.create(getPublicBaseUri() + "jobs/" + jid);
         this.jobLocation = location.toString();
         /**
@@ -343,8 +356,8 @@ public class ReasoningServiceTaskResource extends BaseStanbolResource {
             // Setup the input
             ReasoningServiceInputManager imngr = prepareInput();
             // The service executor
-            ReasoningServiceExecutor executor = new ReasoningServiceExecutor(tcManager, imngr,
-                    getCurrentService(), getCurrentTask(), target, parameters);
+            ReasoningServiceExecutor executor = new ReasoningServiceExecutor(tcManager, imngr, schemaId,
+                    schema, getCurrentService(), getCurrentTask(), target, parameters);
             ReasoningServiceResult<?> result = executor.call();
             return new ResponseTaskBuilder(new ReasoningTaskResult(uriInfo, headers)).build(result);
         } catch (Exception e) {
@@ -506,7 +519,19 @@ public class ReasoningServiceTaskResource extends BaseStanbolResource {
 
             }
         }
-        if (scope != null) {
+        schemaId = null;
+        schema = null;
+        if (scope != null && service instanceof JenaReasoningService) {
+            // Jena services bind their reasoner to the scope once, so only the other
+            // input (e.g. the session) needs to be processed on every request
+            schemaId = scope;
+            schema = new OntologyManagerInputProvider(onm, scope);
+            if (session != null) {
+                inmgr.addInputProvider(new OntologyManagerInputProvider(onm, sessionManager, null, session));
+            }
+            this.parameters.remove("scope");
+            this.parameters.remove("session");
+        } else if (scope != null) {
             inmgr.addInputProvider(new OntologyManagerInputProvider(onm, sessionManager, scope, session));
             this.parameters.remove("scope");
             this.parameters.remove("session");
@@ -71,6 +71,8 @@ public class ReasoningServiceExecutor implements Job {
     private String task;
     private Map<String,List<String>> parameters;
     private String targetGraph;
+    private String schemaId;
+    private ReasoningServiceInputProvider schema;
 
     // This task is not dinamically provided by the service, since it work on a
     // specific method
@@ -91,6 +93,35 @@ public class ReasoningServiceExecutor implements Job {
         this.parameters = parameters;
     }
 
+    /**
+     * Constructor for an execution where the given schema (e.g. the ontology scope) is kept apart from the
+     * data provided by the input manager. Jena based services bind their reasoner to the schema once and
+     * reuse it for later executions with the same schema. Other services process schema and data together.
+     * 
+     * @param tcManager
+     * @param inmgr
+     * @param schemaId
+     *            the identifier of the schema
+     * @param schema
+     *            the provider of the schema or <code>null</code> if none
+     * @param service
+     * @param task
+     * @param targetGraph
+     * @param parameters
+     */
+    public ReasoningServiceExecutor(TcManager tcManager,
+                                    ReasoningServiceInputManager inmgr,
+                                    String schemaId,
+                                    ReasoningServiceInputProvider schema,
+                                    ReasoningService<?,?,?> service,
+                                    String task,
+                                    String targetGraph,
+                                    Map<String,List<String>> parameters) {
+        this(tcManager, inmgr, service, task, targetGraph, parameters);
+        this.schemaId = schemaId;
+        this.schema = schema;
+    }
+
     /**
      * Execute a JenaReasoningService
      * 
@@ -105,6 +136,8 @@ public class ReasoningServiceExecutor implements Job {
      */
     private ReasoningServiceResult<Model> executeJenaReasoningService(String task,
                                                                       JenaReasoningService s,
+                                                                      String schemaId,
+                                                                      Model schema,
                                                                       Model input,
                                                                       List<Rule> rules,
                                                                       String targetGraphID,
@@ -116,7 +149,8 @@ public class ReasoningServiceExecutor implements Job {
         if (task.equals(ReasoningServiceExecutor.TASK_CHECK)) {
             log.debug("Task is '{}'", ReasoningServiceExecutor.TASK_CHECK);
             try {
-                boolean is = s.isConsistent(input);
+                boolean is = schema == null ? s.isConsistent(input) : s.isConsistent(schemaId, schema,
+                    input);
                 return new ReasoningServiceResult<Model>(ReasoningServiceExecutor.TASK_CHECK, is);
             } catch (ReasoningServiceException e) {
                 log.error("Error thrown: {}", e);
@@ -124,7 +158,12 @@ public class ReasoningServiceExecutor implements Job {
             }
         }
         try {
-            Set<Statement> result = s.runTask(task, input, rules, filtered, parameters);
+            Set<Statement> result;
+            if (schema == null) {
+                result = s.runTask(task, input, rules, filtered, parameters);
+            } else {
+                result = s.runTask(task, schemaId, schema, input, rules, filtered, parameters);
+            }
             if (result == null) {
                 log.error("Result is null");
                 throw new RuntimeException("Result is null.");
@@ -306,6 +345,7 @@ public class ReasoningServiceExecutor implements Job {
             for (ReasoningServiceInputProvider p : inmgr.getProviders()) {
                 log.debug(" >> {}", p.getClass().getCanonicalName());
             }
+            log.debug(" > schema: {}", schemaId);
             log.debug("-----------------------------------------------------");
         }
         ReasoningServiceResult<?> result = null;
@@ -332,11 +372,25 @@ public class ReasoningServiceExecutor implements Job {
                     rules.add(o);
                 }
             }
+            Model schemaModel = null;
+            if (schema != null) {
+                schemaModel = ModelFactory.createDefaultModel();
+                try {
+                    Iterator<Statement> statements = schema.getInput(Statement.class);
+                    while (statements.hasNext()) {
+                        schemaModel.add(statements.next());
+                    }
+                } catch (IOException e) {
+                    // as with the input manager, go on without this input
+                    log.error("Cannot get schema " + schemaId + " from provider", e);
+                }
+                log.debug("Schema {} size is {} statements", schemaId, schemaModel.size());
+            }
             if (log.isDebugEnabled()) {
                 log.debug("Input size is {} statements", input.listStatements().toSet().size());
             }
-            result = executeJenaReasoningService(task, (JenaReasoningService) service, input, rules,
-                targetGraphID, true, parameters);
+            result = executeJenaReasoningService(task, (JenaReasoningService) service, schemaId, schemaModel,
+                input, rules, targetGraphID, true, parameters);
         } else if (service instanceof OWLApiReasoningService) {
             OWLOntology input;
             try {
@@ -350,6 +404,16 @@ public class ReasoningServiceExecutor implements Job {
                     input.getOWLOntologyManager().addAxiom(input, statements.next());
                 }
             }
+            if (schema != null) {
+                try {
+                    Iterator<OWLAxiom> statements = schema.getInput(OWLAxiom.class);
+                    while (statements.hasNext()) {
+                        input.getOWLOntologyManager().addAxiom(input, statements.next());
+                    }
+                } catch (IOException e) {
+                    log.error("Cannot get schema " + schemaId + " from provider", e);
+                }
+            }
             // FIXME Please check if this is really necessary!!!
             input = input.getOWLOntologyManager().getOntology(input.getOntologyID());
             List<SWRLRule> rules = null;
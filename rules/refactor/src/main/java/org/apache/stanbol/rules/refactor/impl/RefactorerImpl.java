@@ -17,8 +17,20 @@
 package org.apache.stanbol.rules.refactor.impl;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Dictionary;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.clerezza.commons.rdf.ImmutableGraph;
 import org.apache.clerezza.commons.rdf.Graph;
@@ -30,8 +42,11 @@ import org.apache.clerezza.rdf.core.sparql.query.ConstructQuery;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Properties;
+import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.Service;
+import org.apache.stanbol.commons.indexedgraph.IndexedGraph;
 import org.apache.stanbol.rules.base.api.NoSuchRecipeException;
 import org.apache.stanbol.rules.base.api.Recipe;
 import org.apache.stanbol.rules.base.api.RecipeConstructionException;
@@ -56,6 +71,10 @@ import com.hp.hpl.jena.sparql.pfunction.PropertyFunctionRegistry;
 /**
  * The RefactorerImpl is the concrete implementation of the Refactorer interface defined in the rule APIs of
  * Stanbol. A Refacter is able to perform RDF graph refactorings and mappings.
+ * <p>
+ * Recipes are adapted to {@link ConstructQuery}s once and kept (see {@link #RECIPE_CACHE_SIZE}) as long as
+ * the rules of the recipe do not change. The queries of a recipe are independent of each other and are
+ * executed in parallel (see {@link #QUERY_THREADS}).
  * 
  * @author anuzzolese
  * 
@@ -63,10 +82,50 @@ import com.hp.hpl.jena.sparql.pfunction.PropertyFunctionRegistry;
 
 @Component(immediate = true)
 @Service(Refactorer.class)
+@Properties(value = {
+    @Property(name = RefactorerImpl.RECIPE_CACHE_SIZE, intValue = RefactorerImpl.DEFAULT_RECIPE_CACHE_SIZE),
+    @Property(name = RefactorerImpl.QUERY_THREADS, intValue = RefactorerImpl.DEFAULT_QUERY_THREADS)})
 public class RefactorerImpl implements Refactorer {
 
+    /**
+     * The maximum number of recipes kept in their adapted form. Values &lt;= 0 deactivate the cache.
+     */
+    public static final String RECIPE_CACHE_SIZE = "org.apache.stanbol.rules.refactor.recipeCacheSize";
+
+    public static final int DEFAULT_RECIPE_CACHE_SIZE = 50;
+
+    /**
+     * The number of threads used to execute the queries of a recipe. Values &lt;= 1 execute the queries
+     * sequentially in the calling thread.
+     */
+    public static final String QUERY_THREADS = "org.apache.stanbol.rules.refactor.queryThreads";
+
+    public static final int DEFAULT_QUERY_THREADS = 4;
+
+    /**
+     * The minimum number of queries for copying a not indexed input graph to an {@link IndexedGraph}. The
+     * copy costs a full iteration over the input and memory for the indexes. Every query scans the not
+     * indexed graph at least once, so for a single query the copy does not pay back.
+     */
+    private static final int MIN_QUERIES_FOR_INDEXING = 2;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
+    private int recipeCacheSize = DEFAULT_RECIPE_CACHE_SIZE;
+    /**
+     * The adapted recipes (LRU). Access needs to be synchronized on the map.
+     */
+    private final Map<IRI,CompiledRecipe> recipeCache = new LinkedHashMap<IRI,CompiledRecipe>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<IRI,CompiledRecipe> eldest) {
+            return size() > recipeCacheSize;
+        }
+    };
+
+    private ExecutorService executor;
+
     @Reference
     protected RuleStore ruleStore;
 
@@ -127,6 +186,19 @@ public class RefactorerImpl implements Refactorer {
     }
 
     protected void activate(Dictionary<String,Object> configuration) {
+        recipeCacheSize = getInt(configuration, RECIPE_CACHE_SIZE, DEFAULT_RECIPE_CACHE_SIZE);
+        int threads = getInt(configuration, QUERY_THREADS, DEFAULT_QUERY_THREADS);
+        if (threads > 1) {
+            final AtomicInteger count = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "Refactorer-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
         PropertyFunctionRegistry.get().put("http://www.stlab.istc.cnr.it/semion/function#createURI",
             CreateURI.class);
         FunctionRegistry.get().put("http://www.stlab.istc.cnr.it/semion/function#createLabel",
@@ -143,6 +215,29 @@ public class RefactorerImpl implements Refactorer {
 
         this.tcManager = null;
         this.ruleStore = null;
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        synchronized (recipeCache) {
+            recipeCache.clear();
+        }
+    }
+
+    private static int getInt(Dictionary<String,Object> configuration, String property, int defaultValue) {
+        Object value = configuration == null ? null : configuration.get(property);
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        } else if (value != null && !value.toString().trim().isEmpty()) {
+            try {
+                return Integer.parseInt(value.toString().trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("The value of " + property
+                                                   + " MUST BE an integer (value: " + value + ")!", e);
+            }
+        } else {
+            return defaultValue;
+        }
     }
 
     @Override
@@ -154,24 +249,104 @@ public class RefactorerImpl implements Refactorer {
     /**
      * Execute a sparql construct on Clerezza.
      * 
-     * @param sparql
-     * @param datasetID
+     * @param constructQuery
+     * @param tripleCollection
      * @return
      */
-    private ImmutableGraph sparqlConstruct(ConstructQuery constructQuery, IRI datasetID) {
-
-        Graph graph = tcManager.getGraph(datasetID);
-        return sparqlConstruct(constructQuery, graph);
-
-    }
-
     private ImmutableGraph sparqlConstruct(ConstructQuery constructQuery, Graph tripleCollection) {
 
         return tcManager.executeSparqlQuery(constructQuery, tripleCollection);
 
     }
 
+    /**
+     * Adapts the recipe to {@link ConstructQuery}s. The adapted recipe is cached and reused as long as the
+     * rules of the recipe are unchanged.
+     * 
+     * @param recipe
+     * @return
+     */
     @SuppressWarnings("unchecked")
+    private List<ConstructQuery> compile(Recipe recipe) throws UnavailableRuleObjectException,
+                                                       UnsupportedTypeForExportException,
+                                                       RuleAtomCallExeption {
+        // the RuleStore does not version recipes, so the serialised rules are used
+        String rules = recipe.toString();
+        CompiledRecipe compiled;
+        synchronized (recipeCache) {
+            compiled = recipeCache.get(recipe.getRecipeID());
+        }
+        if (compiled != null && compiled.rules.equals(rules)) {
+            return compiled.queries;
+        }
+        RuleAdapter ruleAdapter = ruleAdapterManager.getAdapter(recipe, ConstructQuery.class);
+        List<ConstructQuery> constructQueries = (List<ConstructQuery>) ruleAdapter.adaptTo(recipe,
+            ConstructQuery.class);
+        if (log.isDebugEnabled()) {
+            log.debug("Recipe {} adapted to {} queries", recipe.getRecipeID(), constructQueries.size());
+            for (ConstructQuery constructQuery : constructQueries) {
+                log.debug(" - {}", constructQuery);
+            }
+        }
+        synchronized (recipeCache) {
+            if (recipeCacheSize > 0) {
+                recipeCache.put(recipe.getRecipeID(), new CompiledRecipe(rules, constructQueries));
+            }
+        }
+        return constructQueries;
+    }
+
+    /**
+     * Executes the queries against the input graph and adds the results to the target graph. Results are
+     * added (by the calling thread) as soon as the single queries complete.
+     * 
+     * @param constructQueries
+     * @param input
+     *            the input graph. MUST NOT be modified while the queries are executed
+     * @param target
+     * @throws RefactoringException
+     */
+    private void execute(List<ConstructQuery> constructQueries, final Graph input, Graph target) throws RefactoringException {
+        ExecutorService executor = this.executor;
+        if (executor == null || constructQueries.size() < 2) {
+            for (ConstructQuery constructQuery : constructQueries) {
+                target.addAll(sparqlConstruct(constructQuery, input));
+            }
+            return;
+        }
+        CompletionService<ImmutableGraph> completionService = new ExecutorCompletionService<ImmutableGraph>(
+                executor);
+        List<Future<ImmutableGraph>> futures = new ArrayList<Future<ImmutableGraph>>(constructQueries.size());
+        try {
+            for (final ConstructQuery constructQuery : constructQueries) {
+                futures.add(completionService.submit(new Callable<ImmutableGraph>() {
+                    @Override
+                    public ImmutableGraph call() throws Exception {
+                        return sparqlConstruct(constructQuery, input);
+                    }
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                target.addAll(completionService.take().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RefactoringException("Interrupted while executing the refactoring queries", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new RefactoringException("The cause of the refactoring excpetion is: "
+                                           + e.getCause().getMessage(), e.getCause());
+        } finally {
+            for (Future<ImmutableGraph> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
     @Override
     public void graphRefactoring(IRI refactoredOntologyID, IRI datasetID, IRI recipeID) throws RefactoringException,
                                                                                                 NoSuchRecipeException {
@@ -181,14 +356,10 @@ public class RefactorerImpl implements Refactorer {
             try {
                 recipe = ruleStore.getRecipe(recipeID);
 
-                RuleAdapter ruleAdapter = ruleAdapterManager.getAdapter(recipe, ConstructQuery.class);
-                List<ConstructQuery> constructQueries = (List<ConstructQuery>) ruleAdapter.adaptTo(recipe,
-                    ConstructQuery.class);
+                List<ConstructQuery> constructQueries = compile(recipe);
 
                 Graph mGraph = tcManager.createGraph(refactoredOntologyID);
-                for (ConstructQuery constructQuery : constructQueries) {
-                    mGraph.addAll(this.sparqlConstruct(constructQuery, datasetID));
-                }
+                execute(constructQueries, tcManager.getGraph(datasetID), mGraph);
             } catch (RecipeConstructionException e) {
                 throw new RefactoringException(
                         "The cause of the refactoring excpetion is: " + e.getMessage(), e);
@@ -209,7 +380,6 @@ public class RefactorerImpl implements Refactorer {
         }
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public Graph graphRefactoring(IRI graphID, IRI recipeID) throws RefactoringException,
                                                                              NoSuchRecipeException {
@@ -224,16 +394,11 @@ public class RefactorerImpl implements Refactorer {
         try {
             recipe = ruleStore.getRecipe(recipeID);
 
-            RuleAdapter ruleAdapter = ruleAdapterManager.getAdapter(recipe, ConstructQuery.class);
-
-            List<ConstructQuery> constructQueries = (List<ConstructQuery>) ruleAdapter.adaptTo(recipe,
-                ConstructQuery.class);
+            List<ConstructQuery> constructQueries = compile(recipe);
 
             unionGraph = new SimpleGraph();
 
-            for (ConstructQuery constructQuery : constructQueries) {
-                unionGraph.addAll(this.sparqlConstruct(constructQuery, graphID));
-            }
+            execute(constructQueries, tcManager.getGraph(graphID), unionGraph);
 
         } catch (NoSuchRecipeException e1) {
             log.error("Refactor : No Such recipe in the Rule Store", e1);
@@ -252,24 +417,22 @@ public class RefactorerImpl implements Refactorer {
 
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public Graph graphRefactoring(Graph inputGraph, Recipe recipe) throws RefactoringException {
 
-        RuleAdapter ruleAdapter;
         try {
-            ruleAdapter = ruleAdapterManager.getAdapter(recipe, ConstructQuery.class);
-            List<ConstructQuery> constructQueries = (List<ConstructQuery>) ruleAdapter.adaptTo(recipe,
-                ConstructQuery.class);
-
-            for(ConstructQuery constructQuery : constructQueries){
-                System.out.println(constructQuery.toString());
+            List<ConstructQuery> constructQueries = compile(recipe);
+
+            // several queries are executed against a private, indexed copy of the input so that they
+            // do not need to scan the whole graph and can safely run in parallel
+            Graph input;
+            if (inputGraph instanceof IndexedGraph || constructQueries.size() < MIN_QUERIES_FOR_INDEXING) {
+                input = inputGraph;
+            } else {
+                input = new IndexedGraph(inputGraph);
             }
-
             Graph unionGraph = new SimpleGraph();
-            for (ConstructQuery constructQuery : constructQueries) {
-                unionGraph.addAll(sparqlConstruct(constructQuery, inputGraph));
-            }
+            execute(constructQueries, input, unionGraph);
 
             return unionGraph;
         } catch (UnavailableRuleObjectException e) {
@@ -282,5 +445,17 @@ public class RefactorerImpl implements Refactorer {
 
     }
 
+    /**
+     * A recipe adapted to {@link ConstructQuery}s together with the rules it was adapted from
+     */
+    private static final class CompiledRecipe {
+        private final String rules;
+        private final List<ConstructQuery> queries;
+
+        private CompiledRecipe(String rules, List<ConstructQuery> queries) {
+            this.rules = rules;
+            this.queries = queries;
+        }
+    }
 
 }
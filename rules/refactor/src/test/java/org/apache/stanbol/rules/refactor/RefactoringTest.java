@@ -22,10 +22,13 @@ import static org.junit.Assert.fail;
 import java.io.InputStream;
 import java.util.Dictionary;
 import java.util.Hashtable;
+import java.util.Iterator;
 
 
 import org.apache.clerezza.commons.rdf.Graph;
 import org.apache.clerezza.commons.rdf.IRI;
+import org.apache.clerezza.commons.rdf.Triple;
+import org.apache.clerezza.commons.rdf.impl.utils.TripleImpl;
 import org.apache.clerezza.rdf.core.access.TcManager;
 import org.apache.clerezza.rdf.core.access.WeightedTcProvider;
 import org.apache.clerezza.rdf.simple.storage.SimpleTcProvider;
@@ -63,6 +66,8 @@ import com.hp.hpl.jena.rdf.model.ModelFactory;
  */
 public class RefactoringTest {
 
+    private static final IRI RDF_TYPE = new IRI("http://www.w3.org/1999/02/22-rdf-syntax-ns#type");
+
     private static Refactorer refactorer;
     private static TcManager tcm;
     private static RuleStore store;
@@ -237,6 +242,47 @@ public class RefactoringTest {
         }
     }
 
+    @Test
+    public void changedRecipeRefactoringTest() throws Exception {
+        String separator = System.getProperty("line.separator");
+        Recipe recipe = store.getRecipe(new IRI(
+                "http://incubator.apache.com/stanbol/rules/refactor/test/recipeA"));
+
+        Graph tc = refactorer.graphRefactoring(tripleCollection, recipe);
+        Assert.assertFalse(tc.isEmpty());
+        // the adapted recipe is reused
+        Assert.assertEquals(tc.getImmutableGraph(), refactorer.graphRefactoring(tripleCollection, recipe)
+                .getImmutableGraph());
+
+        // rules added to the recipe must be considered
+        String rule = "kres = <http://kres.iks-project.eu/ontology.owl#> . " + separator
+                      + "foaf = <http://xmlns.com/foaf/0.1/> . " + separator
+                      + "rule3[ is(kres:Person, ?x) -> is(foaf:Agent, ?x) ]";
+        recipe = store.addRulesToRecipe(recipe, rule, "Test");
+        Graph tc2 = refactorer.graphRefactoring(tripleCollection, recipe);
+        Assert.assertTrue(tc2.containsAll(tc));
+        // TestPerson is the only kres:Person of the test ontology
+        IRI testPerson = new IRI("http://kres.iks-project.eu/ontology/test.owl#TestPerson");
+        IRI foafAgent = new IRI("http://xmlns.com/foaf/0.1/Agent");
+        Triple agent = new TripleImpl(testPerson, RDF_TYPE, foafAgent);
+        Assert.assertFalse(tc.contains(agent));
+        Assert.assertTrue(tc2.contains(agent));
+        Iterator<Triple> agents = tc2.filter(null, RDF_TYPE, foafAgent);
+        Assert.assertEquals(agent, agents.next());
+        Assert.assertFalse(agents.hasNext());
+        Assert.assertEquals(tc.size() + 1, tc2.size());
+
+        // sequential execution gives the same result
+        Dictionary<String,Object> configuration = new Hashtable<String,Object>();
+        configuration.put(RefactorerImpl.QUERY_THREADS, 1);
+        RuleAdaptersFactory ruleAdaptersFactory = new RuleAdaptersFactoryImpl();
+        new ClerezzaAdapter(new Hashtable<String,Object>(), store, ruleAdaptersFactory);
+        Refactorer sequential = new RefactorerImpl(tcm, store, new RuleAdaptersManagerImpl(
+                new Hashtable<String,Object>(), ruleAdaptersFactory), configuration);
+        Assert.assertEquals(tc2.getImmutableGraph(), sequential.graphRefactoring(tripleCollection, recipe)
+                .getImmutableGraph());
+    }
+
     @Test
     public void brokenRecipeTest() throws Exception {
         // broken recipe